@@ -0,0 +1,177 @@
+package tfg.proyecto.TFG.cliente;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Cliente HTTP del microservicio de recomendación/búsqueda (serviceML).
+ *
+ * <p>Protege a los hilos de Tomcat de un microservicio lento o caído:</p>
+ * <ul>
+ *     <li><b>Conexiones reutilizadas</b>: un único {@link HttpClient} del JDK, que mantiene
+ *     las conexiones keep-alive abiertas entre llamadas.</li>
+ *     <li><b>Plazos por llamada</b>: timeout de conexión y de respuesta.</li>
+ *     <li><b>Bulkhead</b>: como máximo <code>max-concurrentes</code> llamadas a la vez; el resto
+ *     no espera, se responde sin IA.</li>
+ *     <li><b>Circuit breaker</b>: tras <code>fallos-para-abrir</code> fallos seguidos deja de llamar
+ *     durante <code>tiempo-abierto-ms</code>; pasado ese tiempo deja pasar una única llamada
+ *     de prueba que lo vuelve a cerrar o a abrir.</li>
+ * </ul>
+ *
+ * <p>Todas las consultas devuelven {@link Optional#empty()} cuando el microservicio no está
+ * disponible, para que el llamante aplique su alternativa local.</p>
+ */
+@Component
+public class ClienteRecomendaciones {
+
+	private final RestClient restClient;
+	private final Semaphore llamadasDisponibles;
+	private final int fallosParaAbrir;
+	private final long tiempoAbiertoMs;
+
+	/*
+	 * Estado del circuit breaker.
+	 * - fallosSeguidos: fallos consecutivos con el circuito cerrado.
+	 * - abiertoHasta: instante (ms) hasta el que no se llama; 0 = cerrado.
+	 * - pruebaEnCurso: hay una llamada de prueba tras expirar el tiempo abierto.
+	 */
+	private final AtomicInteger fallosSeguidos = new AtomicInteger();
+	private volatile long abiertoHasta = 0;
+	private final AtomicBoolean pruebaEnCurso = new AtomicBoolean(false);
+
+	public ClienteRecomendaciones(
+			@Value("${microservicio.recomendacion.url:http://recomendacion-servicio:8000}") String url,
+			@Value("${microservicio.recomendacion.timeout-conexion-ms:500}") long timeoutConexionMs,
+			@Value("${microservicio.recomendacion.timeout-ms:2000}") long timeoutMs,
+			@Value("${microservicio.recomendacion.max-concurrentes:16}") int maxConcurrentes,
+			@Value("${microservicio.recomendacion.fallos-para-abrir:5}") int fallosParaAbrir,
+			@Value("${microservicio.recomendacion.tiempo-abierto-ms:30000}") long tiempoAbiertoMs) {
+
+		HttpClient httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofMillis(timeoutConexionMs))
+				.build();
+		JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+		factory.setReadTimeout(Duration.ofMillis(timeoutMs));
+
+		this.restClient = RestClient.builder()
+				.baseUrl(url)
+				.requestFactory(factory)
+				.build();
+		this.llamadasDisponibles = new Semaphore(maxConcurrentes);
+		this.fallosParaAbrir = fallosParaAbrir;
+		this.tiempoAbiertoMs = tiempoAbiertoMs;
+	}
+
+	/**
+	 * IDs de eventos recomendados para un usuario (<code>GET /recommendations</code>).
+	 *
+	 * @param userId ID del usuario
+	 * @return IDs en el orden de la IA, o vacío si el microservicio no está disponible
+	 */
+	public Optional<List<Long>> recomendacionesUsuario(Long userId) {
+		return consultar("/recommendations", "userId", userId, "eventos_recomendados");
+	}
+
+	/**
+	 * IDs de eventos similares a uno dado (<code>GET /recommendations/event</code>).
+	 *
+	 * @param eventoId ID del evento
+	 * @return IDs en el orden de la IA, o vacío si el microservicio no está disponible
+	 */
+	public Optional<List<Long>> similaresEvento(Long eventoId) {
+		return consultar("/recommendations/event", "eventoId", eventoId, "eventos_similares");
+	}
+
+	/**
+	 * IDs de eventos encontrados por la búsqueda de la IA (<code>GET /search</code>).
+	 *
+	 * @param nombre texto a buscar
+	 * @return IDs en el orden de la IA, o vacío si el microservicio no está disponible
+	 */
+	public Optional<List<Long>> buscar(String nombre) {
+		return consultar("/search", "nombre", nombre, "eventos_encontrados");
+	}
+
+	/**
+	 * Indica si el circuito está abierto (no se están haciendo llamadas).
+	 */
+	public boolean circuitoAbierto() {
+		return abiertoHasta != 0 && System.currentTimeMillis() < abiertoHasta;
+	}
+
+	/**
+	 * Hace la llamada GET con bulkhead y circuit breaker y extrae la lista de IDs
+	 * de la clave indicada de la respuesta JSON.
+	 */
+	private Optional<List<Long>> consultar(String ruta, String parametro, Object valor, String clave) {
+		if (!llamadasDisponibles.tryAcquire()) {
+			System.out.println("[RECOMENDACION] Bulkhead lleno, se responde sin IA: " + ruta);
+			return Optional.empty();
+		}
+		try {
+			if (!circuitoPermite()) {
+				return Optional.empty();
+			}
+			try {
+				Map<String, List<Number>> respuesta = restClient.get()
+						.uri(b -> b.path(ruta).queryParam(parametro, valor).build())
+						.retrieve()
+						.body(new ParameterizedTypeReference<Map<String, List<Number>>>() {});
+				registrarExito();
+
+				List<Number> ids = respuesta == null ? null : respuesta.get(clave);
+				if (ids == null) {
+					return Optional.of(List.of());
+				}
+				return Optional.of(ids.stream().map(Number::longValue).toList());
+
+			} catch (RuntimeException e) {
+				registrarFallo();
+				System.out.println("[RECOMENDACION] Microservicio no disponible (" + ruta + "): " + e.getMessage());
+				return Optional.empty();
+			}
+		} finally {
+			llamadasDisponibles.release();
+		}
+	}
+
+	private boolean circuitoPermite() {
+		long hasta = abiertoHasta;
+		if (hasta == 0) {
+			return true;
+		}
+		if (System.currentTimeMillis() < hasta) {
+			return false;
+		}
+		// Semiabierto: solo una llamada de prueba a la vez
+		return pruebaEnCurso.compareAndSet(false, true);
+	}
+
+	private void registrarExito() {
+		fallosSeguidos.set(0);
+		abiertoHasta = 0;
+		pruebaEnCurso.set(false);
+	}
+
+	private void registrarFallo() {
+		boolean eraPrueba = pruebaEnCurso.getAndSet(false);
+		if (eraPrueba || fallosSeguidos.incrementAndGet() >= fallosParaAbrir) {
+			fallosSeguidos.set(0);
+			abiertoHasta = System.currentTimeMillis() + tiempoAbiertoMs;
+			System.out.println("[RECOMENDACION] Circuito abierto durante " + tiempoAbiertoMs + " ms");
+		}
+	}
+}
@@ -1,9 +1,22 @@
 package tfg.proyecto.TFG.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import tfg.proyecto.TFG.servicios.CacheImagenesQR;
+import tfg.proyecto.TFG.servicios.CacheRecomendaciones;
+import tfg.proyecto.TFG.servicios.ComprasIdempotentes;
+import tfg.proyecto.TFG.servicios.VerificadorTokens;
+
 /**
  * Clase de configuración general de la aplicación.
  *
@@ -12,8 +25,11 @@ import org.springframework.web.client.RestTemplate;
  *     <li>{@link DtoConverter} con métodos de inicialización y destrucción.</li>
  *     <li>{@link RestTemplate} para realizar llamadas HTTP a otros servicios.</li>
  * </ul>
+ *
+ * <p>Además activa las cachés de Spring (Caffeine), configuradas en <code>application.properties</code>.</p>
  */
 @Configuration
+@EnableCaching
 public class AppConfig {
 
 	/**
@@ -44,4 +60,95 @@ public class AppConfig {
         return new RestTemplate();
     }
 
+    /**
+     * Registra las cachés de {@link CacheRecomendaciones}, que usan un TTL más corto
+     * que el común de <code>spring.cache.caffeine.spec</code>.
+     *
+     * @param ttlSegundos segundos que vive cada lista de recomendaciones
+     * @param maximo número máximo de entradas por caché
+     * @return personalizador del {@link CaffeineCacheManager}
+     */
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> cachesRecomendacion(
+    		@Value("${cache.recomendaciones.ttl-segundos:60}") long ttlSegundos,
+    		@Value("${cache.recomendaciones.maximo:10000}") long maximo) {
+    	return cacheManager -> {
+    		for (String nombre : new String[] { CacheRecomendaciones.POR_USUARIO, CacheRecomendaciones.POR_EVENTO }) {
+    			cacheManager.registerCustomCache(nombre, Caffeine.newBuilder()
+    					.expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+    					.maximumSize(maximo)
+    					.recordStats()
+    					.build());
+    		}
+    	};
+    }
+
+    /**
+     * Registra la caché de {@link CacheImagenesQR}, limitada por el tamaño total de las
+     * imágenes en lugar de por número de entradas.
+     *
+     * @param maxBytes tamaño máximo en bytes de todas las imágenes cacheadas
+     * @param minutosSinUso minutos sin pedirse tras los que se descarta una imagen
+     * @return personalizador del {@link CaffeineCacheManager}
+     */
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> cachesImagenesQR(
+    		@Value("${cache.qr.max-bytes:16777216}") long maxBytes,
+    		@Value("${cache.qr.minutos-sin-uso:60}") long minutosSinUso) {
+    	return cacheManager -> cacheManager.registerCustomCache(CacheImagenesQR.IMAGENES_QR, Caffeine.newBuilder()
+    			.maximumWeight(maxBytes)
+    			.weigher((Object clave, Object png) -> ((byte[]) png).length)
+    			.expireAfterAccess(Duration.ofMinutes(minutosSinUso))
+    			.recordStats()
+    			.build());
+    }
+
+    /**
+     * Registra la caché de {@link ComprasIdempotentes} con los resultados de las compras
+     * hechas con clave de idempotencia.
+     *
+     * @param horas horas durante las que un reintento con la misma clave recibe el resultado guardado
+     * @param maximo número máximo de compras guardadas
+     * @return personalizador del {@link CaffeineCacheManager}
+     */
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> cachesComprasCompletadas(
+    		@Value("${idempotencia.horas:24}") long horas,
+    		@Value("${idempotencia.maximo:10000}") long maximo) {
+    	return cacheManager -> cacheManager.registerCustomCache(ComprasIdempotentes.COMPLETADAS, Caffeine.newBuilder()
+    			.expireAfterWrite(Duration.ofHours(horas))
+    			.maximumSize(maximo)
+    			.recordStats()
+    			.build());
+    }
+
+    /**
+     * Registra las cachés de {@link VerificadorTokens}: los tokens ya verificados, que viven
+     * hasta su expiración, y los usuarios de esos tokens.
+     *
+     * @param maximoTokens número máximo de tokens guardados
+     * @param maximoUsuarios número máximo de usuarios guardados
+     * @param minutosUsuarios minutos tras los que se vuelve a leer un usuario aunque no haya cambiado
+     * @return personalizador del {@link CaffeineCacheManager}
+     */
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> cachesSesiones(
+    		@Value("${sesiones.tokens-maximo:50000}") long maximoTokens,
+    		@Value("${sesiones.usuarios-maximo:10000}") long maximoUsuarios,
+    		@Value("${sesiones.usuarios-minutos:10}") long minutosUsuarios) {
+    	return cacheManager -> {
+    		cacheManager.registerCustomCache(VerificadorTokens.TOKENS, Caffeine.newBuilder()
+    				.expireAfter(VerificadorTokens.caducidadTokens())
+    				.maximumSize(maximoTokens)
+    				.recordStats()
+    				.build());
+    		cacheManager.registerCustomCache(VerificadorTokens.USUARIOS, Caffeine.newBuilder()
+    				.expireAfterWrite(Duration.ofMinutes(minutosUsuarios))
+    				.maximumSize(maximoUsuarios)
+    				.evictionListener(VerificadorTokens::alDesalojarUsuario)
+    				.recordStats()
+    				.build());
+    	};
+    }
+
 }
@@ -0,0 +1,189 @@
+package tfg.proyecto.TFG.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Anillo de claves con las que se firman y verifican los tokens JWT.
+ *
+ * <p>Cada clave tiene un identificador (<code>kid</code>) que va en la cabecera del token. Los
+ * tokens nuevos se firman con la clave activa y se verifican con la clave de su
+ * <code>kid</code>, así que varios nodos con las mismas claves aceptan los tokens de los
+ * demás y un reinicio no cierra las sesiones.</p>
+ *
+ * <p>Las claves (HMAC-SHA256, al menos 32 bytes) se leen de:</p>
+ * <ul>
+ *     <li><code>jwt.claves</code>: lista <code>kid:claveBase64,kid:claveBase64</code> (mejor por
+ *     la variable de entorno JWT_CLAVES).</li>
+ *     <li><code>jwt.keystore.ruta</code>: almacén PKCS12 con claves secretas, una por alias
+ *     (el alias es el <code>kid</code>) y protegidas con <code>jwt.keystore.clave</code>.</li>
+ * </ul>
+ *
+ * <p>Para rotar: añadir la clave nueva en todos los nodos, después hacerla activa con
+ * <code>jwt.clave-activa</code> y, pasada la duración de un token, quitar la antigua.
+ * Sin claves configuradas se genera una al arrancar, como antes: las sesiones no sobreviven
+ * a un reinicio ni se comparten entre nodos.</p>
+ */
+@Component
+public class ClavesJwt {
+
+	public static final String KID_TEMPORAL = "temporal";
+
+	private final Map<String, Key> claves;
+	private final String kidActivo;
+	private final JwtParser parser;
+
+	@Autowired
+	public ClavesJwt(
+			@Value("${jwt.claves:}") String claves,
+			@Value("${jwt.clave-activa:}") String claveActiva,
+			@Value("${jwt.keystore.ruta:}") String keystoreRuta,
+			@Value("${jwt.keystore.clave:}") String keystoreClave) {
+		Map<String, Key> anillo = new LinkedHashMap<>();
+		leerLista(claves, anillo);
+		if (keystoreRuta != null && !keystoreRuta.isBlank()) {
+			leerKeystore(Path.of(keystoreRuta), keystoreClave, anillo);
+		}
+
+		if (anillo.isEmpty()) {
+			anillo.put(KID_TEMPORAL, Keys.secretKeyFor(SignatureAlgorithm.HS256));
+			this.kidActivo = KID_TEMPORAL;
+		} else if (claveActiva != null && !claveActiva.isBlank()) {
+			if (!anillo.containsKey(claveActiva)) {
+				throw new IllegalStateException("jwt.clave-activa '" + claveActiva + "' no está entre las claves cargadas");
+			}
+			this.kidActivo = claveActiva;
+		} else if (anillo.size() == 1) {
+			this.kidActivo = anillo.keySet().iterator().next();
+		} else {
+			throw new IllegalStateException("Hay varias claves JWT: indica cuál firma con jwt.clave-activa");
+		}
+
+		this.claves = Collections.unmodifiableMap(anillo);
+		// El parser es inmutable y seguro entre hilos: se construye una vez
+		this.parser = Jwts.parserBuilder()
+				.setSigningKeyResolver(new SigningKeyResolverAdapter() {
+					@Override
+					public Key resolveSigningKey(JwsHeader header, Claims claims) {
+						return clave(header.getKeyId());
+					}
+				})
+				.build();
+	}
+
+	/**
+	 * Claves aleatorias para cuando no hay contexto de Spring (ver {@link JwtUtil}).
+	 */
+	static ClavesJwt temporales() {
+		return new ClavesJwt("", "", "", "");
+	}
+
+	/**
+	 * Hace que {@link JwtUtil} firme y verifique con estas claves.
+	 */
+	@PostConstruct
+	void instalar() {
+		JwtUtil.usarClaves(this);
+		if (KID_TEMPORAL.equals(kidActivo)) {
+			System.out.println("[JWT] Sin jwt.claves ni jwt.keystore.ruta: se usa una clave temporal hasta el próximo reinicio");
+		} else {
+			System.out.println("[JWT] " + claves.size() + " claves cargadas, activa: " + kidActivo);
+		}
+	}
+
+	/**
+	 * Genera un token firmado con la clave activa y su <code>kid</code> en la cabecera.
+	 *
+	 * @param subject subject del token
+	 * @param duracionMs milisegundos hasta la expiración
+	 * @return token JWT firmado
+	 */
+	public String generar(String subject, long duracionMs) {
+		long ahora = System.currentTimeMillis();
+		return Jwts.builder()
+				.setHeaderParam(JwsHeader.KEY_ID, kidActivo)
+				.setSubject(subject)
+				.setIssuedAt(new Date(ahora))
+				.setExpiration(new Date(ahora + duracionMs))
+				.signWith(claves.get(kidActivo), SignatureAlgorithm.HS256)
+				.compact();
+	}
+
+	/**
+	 * Verifica la firma (con la clave de su <code>kid</code>) y la expiración de un token.
+	 *
+	 * @param token token JWT
+	 * @return claims del token
+	 * @throws JwtException si el token no es válido, ha expirado o su <code>kid</code> no está en el anillo
+	 */
+	public Claims verificar(String token) {
+		return parser.parseClaimsJws(token).getBody();
+	}
+
+	public String getKidActivo() {
+		return kidActivo;
+	}
+
+	private Key clave(String kid) {
+		// Los tokens sin kid son de antes de las claves rotables: se prueban con la activa
+		Key clave = claves.get(kid == null ? kidActivo : kid);
+		if (clave == null) {
+			throw new JwtException("Clave JWT desconocida: " + kid);
+		}
+		return clave;
+	}
+
+	private static void leerLista(String lista, Map<String, Key> anillo) {
+		if (lista == null || lista.isBlank()) {
+			return;
+		}
+		for (String entrada : lista.split(",")) {
+			int separador = entrada.indexOf(':');
+			if (separador <= 0) {
+				throw new IllegalStateException("Entrada de jwt.claves sin formato kid:claveBase64");
+			}
+			String kid = entrada.substring(0, separador).trim();
+			byte[] bytes = Base64.getDecoder().decode(entrada.substring(separador + 1).trim());
+			anillo.put(kid, Keys.hmacShaKeyFor(bytes));
+		}
+	}
+
+	private static void leerKeystore(Path ruta, String clave, Map<String, Key> anillo) {
+		char[] password = clave == null ? new char[0] : clave.toCharArray();
+		try (InputStream entrada = Files.newInputStream(ruta)) {
+			KeyStore almacen = KeyStore.getInstance("PKCS12");
+			almacen.load(entrada, password);
+			for (String alias : Collections.list(almacen.aliases())) {
+				if (almacen.entryInstanceOf(alias, KeyStore.SecretKeyEntry.class)) {
+					anillo.put(alias, Keys.hmacShaKeyFor(almacen.getKey(alias, password).getEncoded()));
+				}
+			}
+		} catch (IOException | GeneralSecurityException e) {
+			throw new IllegalStateException("No se puede leer el almacén de claves JWT " + ruta, e);
+		}
+	}
+}
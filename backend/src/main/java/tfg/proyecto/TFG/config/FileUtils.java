@@ -1,87 +1,51 @@
 package tfg.proyecto.TFG.config;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Base64;
-
-import org.springframework.web.multipart.MultipartFile;
-
-
 /**
  * Clase de utilidades para manejo de archivos e imágenes.
  * <p>
- * Incluye métodos para convertir archivos a Base64 y guardar imágenes en disco a partir de Base64 o URLs.
+ * Incluye la detección del formato de una imagen por sus primeros bytes. El guardado de las
+ * imágenes está en {@link tfg.proyecto.TFG.servicios.AlmacenImagenes}.
  */
 public class FileUtils {
 
-	/**
-     * Convierte un archivo {@link MultipartFile} a una cadena en Base64.
-     *
-     * @param archivo Archivo a convertir.
-     * @return Cadena Base64 representando el archivo.
-     * @throws IOException Si ocurre un error al leer los bytes del archivo.
-     */
-    public static String convertirArchivoAString(MultipartFile archivo) throws IOException {
-        return Base64.getEncoder().encodeToString(archivo.getBytes());
-    }
+    /** Bytes de la cabecera necesarios para reconocer cualquiera de los formatos admitidos */
+    public static final int BYTES_CABECERA_IMAGEN = 12;
 
     /**
-     * Guarda una imagen en disco a partir de un String Base64 o devuelve la URL/ruta original.
-     * <p>
-     * Reglas de funcionamiento:
-     * <ul>
-     *     <li>Si la cadena comienza con "http", "/uploads/" o "C:\", se asume que es una URL o ruta existente y se devuelve tal cual.</li>
-     *     <li>Si la cadena tiene prefijo tipo "data:image/png;base64,", se elimina antes de decodificar.</li>
-     *     <li>Se crea automáticamente la carpeta destino si no existe.</li>
-     *     <li>El archivo se guarda con nombre único usando timestamp.</li>
-     *     <li>Si la cadena Base64 no es válida, se devuelve tal cual.</li>
-     * </ul>
+     * Reconoce el formato de una imagen por sus primeros bytes ("magic bytes"), sin fiarse
+     * del Content-Type ni de la extensión que envía el cliente.
      *
-     * @param base64     Cadena Base64 o URL/ruta de la imagen.
-     * @param subcarpeta Carpeta donde guardar la imagen (ej: "usuarios", "eventos/12").
-     * @return Ruta relativa de la imagen guardada (ej: "/uploads/usuarios/img_123456.png") o la URL/ruta original.
-     * @throws IOException Si ocurre un error al crear directorios o escribir el archivo.
+     * @param cabecera primeros bytes del archivo
+     * @param longitud número de bytes válidos en <code>cabecera</code>
+     * @return extensión del formato (png, jpg, gif o webp), o null si no es un formato admitido
      */
-    public static String guardarImagenBase64(String base64, String subcarpeta) throws IOException {
-        if (base64 == null || base64.isBlank()) {
-            return null;
+    public static String detectarFormatoImagen(byte[] cabecera, int longitud) {
+        if (empiezaPor(cabecera, longitud, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "png";
         }
-
-        // Si es una URL o una ruta ya guardada, la devolvemos tal cual
-        if (base64.startsWith("http") || base64.startsWith("/uploads/") || base64.startsWith("C:\\")) {
-            return base64;
+        if (empiezaPor(cabecera, longitud, 0, 0xFF, 0xD8, 0xFF)) {
+            return "jpg";
         }
-
-        // Si tiene prefijo tipo data:image/png;base64, quitarlo
-        if (base64.startsWith("data:image")) {
-            int commaIndex = base64.indexOf(",");
-            if (commaIndex != -1) {
-                base64 = base64.substring(commaIndex + 1);
-            }
+        if (empiezaPor(cabecera, longitud, 0, 'G', 'I', 'F', '8') && longitud >= 6
+                && (cabecera[4] == '7' || cabecera[4] == '9') && cabecera[5] == 'a') {
+            return "gif";
         }
-
-        // Crear carpeta destino
-        String basePath = System.getProperty("user.dir") + File.separator + "uploads" + File.separator + subcarpeta;
-        Files.createDirectories(Paths.get(basePath));
-
-        // Nombre único
-        String fileName = "img_" + System.currentTimeMillis() + ".png";
-        Path filePath = Paths.get(basePath, fileName);
-
-        //  Decodificar Base64 seguro
-        try {
-            byte[] imageBytes = Base64.getDecoder().decode(base64);
-            Files.write(filePath, imageBytes);
-        } catch (IllegalArgumentException e) {
-            // Si la cadena no es Base64 válida, se devuelve tal cual
-            return base64;
+        if (empiezaPor(cabecera, longitud, 0, 'R', 'I', 'F', 'F') && empiezaPor(cabecera, longitud, 8, 'W', 'E', 'B', 'P')) {
+            return "webp";
         }
+        return null;
+    }
 
-        // Devuelve la ruta relativa (usada por el frontend)
-        return "/uploads/" + subcarpeta + "/" + fileName;
+    private static boolean empiezaPor(byte[] datos, int longitud, int desde, int... esperados) {
+        if (longitud < desde + esperados.length) {
+            return false;
+        }
+        for (int i = 0; i < esperados.length; i++) {
+            if ((datos[desde + i] & 0xFF) != esperados[i]) {
+                return false;
+            }
+        }
+        return true;
     }
     
    
@@ -0,0 +1,73 @@
+package tfg.proyecto.TFG.config;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import tfg.proyecto.TFG.servicios.UsuarioAutenticado;
+import tfg.proyecto.TFG.servicios.VerificadorTokens;
+
+/**
+ * Filtro de Spring Security que autentica las peticiones con <code>Authorization: Bearer &lt;token&gt;</code>.
+ * <p>
+ * El token se verifica con {@link VerificadorTokens}, así que un token ya visto no vuelve a
+ * parsearse ni consulta la base de datos. Si es válido y el usuario no está reportado, el
+ * {@link UsuarioAutenticado} queda en el {@link SecurityContext} de la petición con el rol
+ * como autoridad (<code>ROLE_CLIENTE</code>, ...). Sin token la petición sigue como anónima;
+ * con un token no válido, caducado o de un usuario reportado se responde <b>401</b> sin
+ * llegar al controlador, en lugar de tratarla como anónima. No se guarda nada en sesión.
+ */
+public class FiltroJwt extends OncePerRequestFilter {
+
+	private static final String PREFIJO = "Bearer ";
+
+	private final VerificadorTokens verificadorTokens;
+
+	public FiltroJwt(VerificadorTokens verificadorTokens) {
+		this.verificadorTokens = verificadorTokens;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String cabecera = request.getHeader(HttpHeaders.AUTHORIZATION);
+		if (cabecera != null && cabecera.startsWith(PREFIJO)) {
+			UsuarioAutenticado usuario = verificadorTokens.verificar(cabecera.substring(PREFIJO.length()));
+			if (usuario == null || usuario.isReportado()) {
+				response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+				response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+				return;
+			}
+			List<SimpleGrantedAuthority> autoridades = usuario.getRol() == null ? List.of()
+					: List.of(new SimpleGrantedAuthority("ROLE_" + usuario.getRol().name()));
+			SecurityContext contexto = SecurityContextHolder.createEmptyContext();
+			contexto.setAuthentication(new UsernamePasswordAuthenticationToken(usuario, null, autoridades));
+			SecurityContextHolder.setContext(contexto);
+		}
+		chain.doFilter(request, response);
+	}
+
+	/**
+	 * Usuario autenticado de la petición en curso.
+	 *
+	 * @return el usuario del token Bearer, o null si la petición es anónima
+	 */
+	public static UsuarioAutenticado usuarioActual() {
+		Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+		if (autenticacion != null && autenticacion.getPrincipal() instanceof UsuarioAutenticado usuario) {
+			return usuario;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,136 @@
+package tfg.proyecto.TFG.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Firma y verifica el contenido de los QR de los tickets.
+ *
+ * <p>Un QR firmado es <code>v1.ticketId.eventoId.desde.hasta.firma</code>: los IDs, la
+ * ventana de validez en segundos desde epoch y un HMAC-SHA256 de todo lo anterior truncado a
+ * 16 bytes en Base64 URL. Comprobar la firma solo necesita la clave, así que una puerta puede
+ * saber que un ticket es auténtico sin consultar la base de datos.</p>
+ *
+ * <p>La clave se configura en <code>qr.firma.clave</code> (Base64, o la variable de entorno
+ * QR_FIRMA_CLAVE) y debe ser la misma en todos los nodos. Sin clave no se firma, aunque
+ * <code>qr.firma.habilitada</code> sea true: con una clave temporal, los QR emitidos antes de
+ * reiniciar dejarían de verificarse. Los tickets llevan entonces un UUID, como antes.</p>
+ */
+@Component
+public class FirmaQR {
+
+	public static final String VERSION = "v1";
+
+	private static final String ALGORITMO = "HmacSHA256";
+	private static final int BYTES_FIRMA = 16;
+
+	private final boolean habilitada;
+	private final SecretKeySpec clave;
+	private final ThreadLocal<Mac> macs;
+
+	@Autowired
+	public FirmaQR(
+			@Value("${qr.firma.habilitada:false}") boolean habilitada,
+			@Value("${qr.firma.clave:}") String claveBase64) {
+		byte[] bytes;
+		if (claveBase64 == null || claveBase64.isBlank()) {
+			// Solo para verificar (nada verifica); no se firma con ella
+			bytes = new byte[32];
+			new SecureRandom().nextBytes(bytes);
+			if (habilitada) {
+				System.out.println("[QR] Sin qr.firma.clave: los QR de los tickets no se firman");
+			}
+			habilitada = false;
+		} else {
+			bytes = Base64.getDecoder().decode(claveBase64);
+		}
+		this.habilitada = habilitada;
+		this.clave = new SecretKeySpec(bytes, ALGORITMO);
+		this.macs = ThreadLocal.withInitial(this::nuevoMac);
+	}
+
+	/**
+	 * Indica si los tickets nuevos llevan el QR firmado en lugar de un UUID.
+	 */
+	public boolean habilitada() {
+		return habilitada;
+	}
+
+	/**
+	 * Genera el contenido firmado del QR de un ticket.
+	 *
+	 * @param ticketId ID del ticket
+	 * @param eventoId ID del evento
+	 * @param desde inicio de la validez, en segundos desde epoch
+	 * @param hasta fin de la validez, en segundos desde epoch
+	 * @return contenido del QR
+	 */
+	public String firmar(long ticketId, long eventoId, long desde, long hasta) {
+		String datos = VERSION + "." + ticketId + "." + eventoId + "." + desde + "." + hasta;
+		return datos + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(firma(datos));
+	}
+
+	/**
+	 * Comprueba la firma de un QR.
+	 *
+	 * @param contenidoQR contenido del QR escaneado
+	 * @return datos firmados, o null si el QR no tiene este formato o la firma no es válida
+	 */
+	public QRFirmado verificar(String contenidoQR) {
+		if (contenidoQR == null || !contenidoQR.startsWith(VERSION + ".")) {
+			return null;
+		}
+		String[] partes = contenidoQR.split("\\.");
+		if (partes.length != 6) {
+			return null;
+		}
+		try {
+			byte[] recibida = Base64.getUrlDecoder().decode(partes[5]);
+			String datos = contenidoQR.substring(0, contenidoQR.lastIndexOf('.'));
+			if (!MessageDigest.isEqual(firma(datos), recibida)) {
+				return null;
+			}
+			return new QRFirmado(Long.parseLong(partes[1]), Long.parseLong(partes[2]),
+					Long.parseLong(partes[3]), Long.parseLong(partes[4]));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private byte[] firma(String datos) {
+		byte[] completa = macs.get().doFinal(datos.getBytes(StandardCharsets.US_ASCII));
+		return Arrays.copyOf(completa, BYTES_FIRMA);
+	}
+
+	private Mac nuevoMac() {
+		try {
+			Mac mac = Mac.getInstance(ALGORITMO);
+			mac.init(clave);
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("No se puede inicializar " + ALGORITMO, e);
+		}
+	}
+
+	/**
+	 * Datos de un QR con firma válida. {@code desde} y {@code hasta} en segundos desde epoch.
+	 */
+	public record QRFirmado(long ticketId, long eventoId, long desde, long hasta) {
+
+		public boolean vigente(long instanteMs) {
+			long segundos = instanteMs / 1000;
+			return segundos >= desde && segundos <= hasta;
+		}
+	}
+}
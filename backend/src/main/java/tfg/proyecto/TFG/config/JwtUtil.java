@@ -1,21 +1,17 @@
 package tfg.proyecto.TFG.config;
 
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
-
-import java.util.Date;
-import java.security.Key;
+import io.jsonwebtoken.Claims;
 
 /**
  * Clase utilitaria para generar, extraer y validar tokens JWT.
  * <p>
  * Se utiliza principalmente para autenticación y autorización de usuarios.
+ * Las claves de firma las gestiona {@link ClavesJwt}, que se instala aquí al arrancar.
  */
 public class JwtUtil {
 	
-	 /** Clave secreta utilizada para firmar los tokens JWT */
-	private static final Key SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+	 /** Claves con las que se firman y verifican los tokens JWT (temporales hasta que arranca Spring) */
+	private static volatile ClavesJwt claves = ClavesJwt.temporales();
 	 /** Tiempo de expiración del token en milisegundos (1 hora) */
     private static final long EXPIRATION_TIME = 1000 * 60 * 60;
     
@@ -26,12 +22,17 @@ public class JwtUtil {
      * @return Token JWT firmado
      */
     public static String generateToken(String email) {
-        return Jwts.builder()
-                .setSubject(email) // puedes usar el email o el id del usuario
-                .setIssuedAt(new Date(System.currentTimeMillis())) // Fecha de emisión
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME)) // Expiración
-                .signWith(SECRET_KEY) // Firma con la clave secreta
-                .compact();
+        // Firma con la clave activa e incluye su kid en la cabecera
+        return claves.generar(email, EXPIRATION_TIME);
+    }
+
+    /**
+     * Sustituye las claves de firma. Lo llama {@link ClavesJwt} al crearse.
+     *
+     * @param nuevas anillo de claves configurado
+     */
+    static void usarClaves(ClavesJwt nuevas) {
+        claves = nuevas;
     }
 
     /**
@@ -41,12 +42,21 @@ public class JwtUtil {
      * @return Email contenido en el subject del token, o null si no es válido
      */
     public static String extractEmail(String token) {
+        Claims claims = verificar(token);
+        return claims == null ? null : claims.getSubject();
+    }
+
+    /**
+     * Verifica la firma y la expiración de un token JWT y devuelve sus claims.
+     * <p>
+     * Es la única operación que parsea el token: el resto de métodos la reutilizan.
+     *
+     * @param token Token JWT
+     * @return Claims del token, o null si no es válido o ha expirado
+     */
+    public static Claims verificar(String token) {
         try {
-            return Jwts.parser()
-                       .setSigningKey(SECRET_KEY)
-                       .parseClaimsJws(token)
-                       .getBody()
-                       .getSubject();
+            return claves.verificar(token);
         } catch (Exception e) {
         	System.err.println(e.getMessage());
             return null;
@@ -68,20 +78,9 @@ public class JwtUtil {
     * @return true si el token es válido y corresponde al email, false en caso contrario
     */
     public static Boolean validateToken(String token, String expectedEmail) {
+        // Un solo parseo comprueba la firma, la fecha de expiración y el subject
         final String extractedEmail = extractEmail(token);
-        
-        if (extractedEmail == null || !extractedEmail.equals(expectedEmail)) {
-            return false; // El email no coincide o no se pudo extraer
-        }
-        
-        try {
-            // Esto comprueba la firma y la fecha de expiración
-            Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-        	System.err.println(e.getMessage());
-            return false;
-        }
+        return extractedEmail != null && extractedEmail.equals(expectedEmail);
     }
 
 }
@@ -1,61 +1,272 @@
 package tfg.proyecto.TFG.config;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-
-import javax.imageio.ImageIO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 import org.springframework.stereotype.Component;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import tfg.proyecto.TFG.dtos.DTOqrMatriz;
 
 /**
  * Componente Spring para generar códigos QR en memoria.
  * <p>
- * Permite generar un código QR a partir de un texto y obtenerlo como un arreglo de bytes en formato PNG.
- * Esto es útil para enviarlo por email, almacenarlo en disco, o convertirlo a Base64.
+ * Es el único punto de la aplicación que dibuja QR. A partir de un texto puede devolver:
+ * <ul>
+ *     <li>Una imagen PNG en blanco y negro (1 bit por píxel), con el mismo tamaño y margen
+ *     que generaba antes ZXing con {@code BufferedImage} e {@code ImageIO}.</li>
+ *     <li>Un SVG con un único trazado, que se escala sin perder calidad.</li>
+ *     <li>La matriz de módulos, para que el cliente lo dibuje él mismo.</li>
+ * </ul>
+ * <p>
+ * El PNG se escribe directamente a partir de la matriz de módulos: cada fila de módulos se
+ * convierte en una línea de bits que se repite tantas veces como píxeles mide un módulo, y
+ * se comprime con un {@link Deflater} reutilizado. El compresor y los búferes intermedios
+ * son de cada hilo y se reutilizan entre llamadas, de modo que la única reserva grande por
+ * imagen es el array final de bytes.
  */
 @Component
 public class QRCodeGenerator {
 
-	 /**
+	/** Módulos de margen blanco alrededor del QR (zona de silencio del estándar). */
+	public static final int MARGEN = 4;
+
+	private static final byte[] FIRMA_PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	/** Compresor, CRC y búferes reutilizados por cada hilo. */
+	private static final ThreadLocal<Buferes> BUFERES = ThreadLocal.withInitial(Buferes::new);
+
+	/**
      * Genera un código QR en formato PNG.
      *
      * @param texto Texto que contendrá el QR (por ejemplo, información de un ticket)
      * @param ancho Anchura del QR en píxeles
      * @param alto  Altura del QR en píxeles
      * @return Arreglo de bytes con la imagen PNG generada
-     * @throws RuntimeException Si ocurre un error generando la matriz del QR o escribiendo la imagen
+     * @throws RuntimeException Si ocurre un error generando la matriz del QR
      */
     public byte[] generarQRBytes(String texto, int ancho, int alto) {
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        try {
-            // Generar la matriz del QR
-            BitMatrix bitMatrix = qrCodeWriter.encode(texto, BarcodeFormat.QR_CODE, ancho, alto);
+        ByteMatrix modulos = codificar(texto);
+        int n = modulos.getWidth();
+
+        // Mismo escalado que QRCodeWriter: módulos enteros y el QR centrado
+        int anchoSalida = Math.max(ancho, n + 2 * MARGEN);
+        int altoSalida = Math.max(alto, n + 2 * MARGEN);
+        int escala = Math.min(anchoSalida / (n + 2 * MARGEN), altoSalida / (n + 2 * MARGEN));
+        int izquierda = (anchoSalida - n * escala) / 2;
+        int arriba = (altoSalida - n * escala) / 2;
+
+        Buferes b = BUFERES.get();
+        int bytesFila = (anchoSalida + 7) / 8;
+        int tamFila = bytesFila + 1; // byte de filtro (0 = ninguno) + píxeles
+        byte[] crudo = b.crudo(tamFila * altoSalida);
+
+        // Fila blanca (en escala de grises de 1 bit, 1 = blanco)
+        byte[] blanca = b.fila(tamFila);
+        blanca[0] = 0;
+        for (int i = 1; i < tamFila; i++) {
+            blanca[i] = (byte) 0xFF;
+        }
+
+        int pos = 0;
+        for (int y = 0; y < altoSalida; y++) {
+            int fy = y - arriba;
+            if (fy < 0 || fy >= n * escala) {
+                System.arraycopy(blanca, 0, crudo, pos, tamFila);
+            } else if ((fy % escala) != 0) {
+                // Misma fila de módulos que la línea anterior
+                System.arraycopy(crudo, pos - tamFila, crudo, pos, tamFila);
+            } else {
+                System.arraycopy(blanca, 0, crudo, pos, tamFila);
+                int fm = fy / escala;
+                for (int mx = 0; mx < n; mx++) {
+                    if (modulos.get(mx, fm) == 1) {
+                        int x0 = izquierda + mx * escala;
+                        for (int x = x0; x < x0 + escala; x++) {
+                            crudo[pos + 1 + (x >> 3)] &= (byte) ~(0x80 >>> (x & 7));
+                        }
+                    }
+                }
+            }
+            pos += tamFila;
+        }
 
-            // Crear la imagen en memoria
-            BufferedImage imagen = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        int comprimidos = b.comprimir(crudo, pos);
+        return b.escribirPng(anchoSalida, altoSalida, comprimidos);
+    }
 
-            // Pintar píxeles (negro/blanco)
-            for (int x = 0; x < ancho; x++) {
-                for (int y = 0; y < alto; y++) {
-                    int color = bitMatrix.get(x, y) ? 0xFF000000 : 0xFFFFFFFF; // Negro o blanco
-                    imagen.setRGB(x, y, color);
+    /**
+     * Genera un código QR en formato SVG, con un margen de {@link #MARGEN} módulos.
+     * Las coordenadas están en módulos; el tamaño final lo decide quien lo muestra.
+     *
+     * @param texto Texto que contendrá el QR
+     * @return Documento SVG
+     * @throws RuntimeException Si ocurre un error generando la matriz del QR
+     */
+    public String generarQRSvg(String texto) {
+        ByteMatrix modulos = codificar(texto);
+        int n = modulos.getWidth();
+        int total = n + 2 * MARGEN;
+
+        StringBuilder svg = new StringBuilder(256 + n * n * 3);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ")
+           .append(total).append(' ').append(total)
+           .append("\" shape-rendering=\"crispEdges\">")
+           .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+
+        // Un rectángulo por cada tramo horizontal de módulos negros
+        for (int y = 0; y < n; y++) {
+            int x = 0;
+            while (x < n) {
+                if (modulos.get(x, y) != 1) {
+                    x++;
+                    continue;
+                }
+                int inicio = x;
+                while (x < n && modulos.get(x, y) == 1) {
+                    x++;
                 }
+                svg.append('M').append(inicio + MARGEN).append(' ').append(y + MARGEN)
+                   .append('h').append(x - inicio).append("v1h-").append(x - inicio).append('z');
             }
+        }
+        return svg.append("\"/></svg>").toString();
+    }
 
-            // Convertir a bytes PNG
-            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                ImageIO.write(imagen, "png", baos);
-                return baos.toByteArray();
+    /**
+     * Devuelve la matriz de módulos del QR (sin margen), una cadena de '0' y '1' por fila.
+     *
+     * @param texto Texto que contendrá el QR
+     * @return Matriz de módulos y margen recomendado
+     * @throws RuntimeException Si ocurre un error generando la matriz del QR
+     */
+    public DTOqrMatriz generarMatriz(String texto) {
+        ByteMatrix modulos = codificar(texto);
+        int n = modulos.getWidth();
+
+        List<String> filas = new ArrayList<>(n);
+        char[] fila = new char[n];
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                fila[x] = modulos.get(x, y) == 1 ? '1' : '0';
             }
+            filas.add(new String(fila));
+        }
+        return new DTOqrMatriz(n, MARGEN, filas);
+    }
 
-        } catch (WriterException | IOException e) {
+    /**
+     * Codifica el texto con los mismos parámetros por defecto que {@code QRCodeWriter}
+     * (corrección de errores L), sin escalar: un byte por módulo.
+     */
+    private static ByteMatrix codificar(String texto) {
+        try {
+            return Encoder.encode(texto, ErrorCorrectionLevel.L).getMatrix();
+        } catch (WriterException e) {
             throw new RuntimeException("Error generando el código QR: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Compresor y búferes de un hilo. Los arrays solo crecen, así que tras las primeras
+     * imágenes no se vuelven a reservar.
+     */
+    private static final class Buferes {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private byte[] crudo = new byte[0];
+        private byte[] fila = new byte[0];
+        private byte[] comprimido = new byte[4096];
+
+        byte[] crudo(int tam) {
+            if (crudo.length < tam) {
+                crudo = new byte[tam];
+            }
+            return crudo;
+        }
+
+        byte[] fila(int tam) {
+            if (fila.length < tam) {
+                fila = new byte[tam];
+            }
+            return fila;
+        }
+
+        /** Comprime los primeros {@code tam} bytes en {@link #comprimido} y devuelve su longitud. */
+        int comprimir(byte[] datos, int tam) {
+            deflater.reset();
+            deflater.setInput(datos, 0, tam);
+            deflater.finish();
+            int escritos = 0;
+            while (!deflater.finished()) {
+                if (escritos == comprimido.length) {
+                    byte[] mayor = new byte[comprimido.length * 2];
+                    System.arraycopy(comprimido, 0, mayor, 0, escritos);
+                    comprimido = mayor;
+                }
+                escritos += deflater.deflate(comprimido, escritos, comprimido.length - escritos);
+            }
+            return escritos;
+        }
+
+        /** Monta el PNG (firma, IHDR, IDAT e IEND) en un array del tamaño exacto. */
+        byte[] escribirPng(int ancho, int alto, int tamComprimido) {
+            byte[] png = new byte[FIRMA_PNG.length + (12 + 13) + (12 + tamComprimido) + 12];
+            System.arraycopy(FIRMA_PNG, 0, png, 0, FIRMA_PNG.length);
+            int pos = FIRMA_PNG.length;
+
+            // IHDR: ancho, alto, 1 bit de profundidad, escala de grises, sin entrelazado
+            int inicio = pos;
+            pos = entero(png, pos, 13);
+            pos = tipo(png, pos, "IHDR");
+            pos = entero(png, pos, ancho);
+            pos = entero(png, pos, alto);
+            png[pos++] = 1;  // profundidad de bits
+            png[pos++] = 0;  // tipo de color: escala de grises
+            png[pos++] = 0;  // compresión deflate
+            png[pos++] = 0;  // filtro adaptativo
+            png[pos++] = 0;  // sin entrelazado
+            pos = cerrarChunk(png, inicio, pos);
+
+            inicio = pos;
+            pos = entero(png, pos, tamComprimido);
+            pos = tipo(png, pos, "IDAT");
+            System.arraycopy(comprimido, 0, png, pos, tamComprimido);
+            pos = cerrarChunk(png, inicio, pos + tamComprimido);
+
+            inicio = pos;
+            pos = entero(png, pos, 0);
+            pos = tipo(png, pos, "IEND");
+            cerrarChunk(png, inicio, pos);
+            return png;
+        }
+
+        /** Añade el CRC del tipo y los datos de un chunk que empieza en {@code inicio}. */
+        private int cerrarChunk(byte[] png, int inicio, int fin) {
+            crc.reset();
+            crc.update(png, inicio + 4, fin - inicio - 4);
+            return entero(png, fin, (int) crc.getValue());
+        }
+
+        private static int entero(byte[] b, int pos, int valor) {
+            b[pos] = (byte) (valor >>> 24);
+            b[pos + 1] = (byte) (valor >>> 16);
+            b[pos + 2] = (byte) (valor >>> 8);
+            b[pos + 3] = (byte) valor;
+            return pos + 4;
+        }
+
+        private static int tipo(byte[] b, int pos, String tipo) {
+            for (int i = 0; i < 4; i++) {
+                b[pos + i] = (byte) tipo.charAt(i);
+            }
+            return pos + 4;
+        }
+    }
+}
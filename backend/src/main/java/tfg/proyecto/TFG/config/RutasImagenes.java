@@ -0,0 +1,92 @@
+package tfg.proyecto.TFG.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rutas públicas de las imágenes del almacén y de sus versiones reducidas.
+ *
+ * <p>Solo trabaja con las cadenas de las rutas, sin tocar el disco ni la base de datos, así que
+ * los DTOs pueden calcular las variantes de sus imágenes al serializarse. Las variantes de
+ * <code>&lt;hash&gt;.&lt;ext&gt;</code> son <code>&lt;hash&gt;_&lt;ancho&gt;.jpg</code>, una por
+ * cada uno de {@link #ANCHOS}.</p>
+ */
+public final class RutasImagenes {
+
+	/** Prefijo de las rutas públicas de las imágenes del almacén */
+	public static final String PREFIJO = "/uploads/img/";
+
+	/** Anchos de las variantes, de menor a mayor */
+	public static final int[] ANCHOS = { 320, 960 };
+
+	/** Formato (y extensión) de las variantes */
+	public static final String FORMATO = "jpg";
+
+	private static final String[] EXTENSIONES_ORIGINAL = { "png", "jpg", "gif", "webp" };
+	private static final Pattern VARIANTE = Pattern.compile("(.*/[0-9a-f]{64})_\\d+\\." + FORMATO);
+
+	private RutasImagenes() {
+	}
+
+	/**
+	 * Indica si una ruta pública es de una imagen del almacén.
+	 *
+	 * @param ruta ruta pública de la imagen
+	 * @return true si está bajo {@link #PREFIJO}
+	 */
+	public static boolean esDelAlmacen(String ruta) {
+		return ruta != null && ruta.startsWith(PREFIJO);
+	}
+
+	/**
+	 * Rutas de las variantes de una imagen, por ancho. Vacío si la imagen no es del almacén.
+	 *
+	 * @param ruta ruta pública de la imagen original
+	 * @return ancho → ruta de la variante
+	 */
+	public static Map<Integer, String> urls(String ruta) {
+		if (!esDelAlmacen(ruta) || ruta.lastIndexOf('.') < 0) {
+			return Collections.emptyMap();
+		}
+		Map<Integer, String> urls = new LinkedHashMap<>();
+		for (int ancho : ANCHOS) {
+			urls.put(ancho, variante(ruta, ancho));
+		}
+		return urls;
+	}
+
+	/**
+	 * Ruta de la variante de un ancho.
+	 *
+	 * @param ruta ruta de la imagen original
+	 * @param ancho ancho de la variante
+	 * @return ruta de la variante, en el mismo directorio que el original
+	 */
+	public static String variante(String ruta, int ancho) {
+		return ruta.substring(0, ruta.lastIndexOf('.')) + "_" + ancho + "." + FORMATO;
+	}
+
+	/**
+	 * Rutas en las que puede estar el original de una variante (una por extensión admitida),
+	 * relativas a <code>uploads</code>. Vacío si la ruta no es de una variante.
+	 *
+	 * @param rutaVariante ruta de la variante relativa a <code>uploads</code>
+	 * @return posibles rutas del original
+	 */
+	public static List<String> candidatosOriginal(String rutaVariante) {
+		Matcher coincidencia = VARIANTE.matcher(rutaVariante);
+		if (!coincidencia.matches()) {
+			return Collections.emptyList();
+		}
+		List<String> candidatos = new ArrayList<>(EXTENSIONES_ORIGINAL.length);
+		for (String extension : EXTENSIONES_ORIGINAL) {
+			candidatos.add(coincidencia.group(1) + "." + extension);
+		}
+		return candidatos;
+	}
+}
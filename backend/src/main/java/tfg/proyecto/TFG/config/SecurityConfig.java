@@ -7,9 +7,14 @@ import java.util.Arrays;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -18,6 +23,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 
 import tfg.proyecto.TFG.servicios.IServicioUsuario;
+import tfg.proyecto.TFG.servicios.VerificadorTokens;
 
 /**
  * Configuración de seguridad de la aplicación.
@@ -25,7 +31,8 @@ import tfg.proyecto.TFG.servicios.IServicioUsuario;
  * Incluye:
  * <ul>
  *   <li>Deshabilitación de CSRF (para APIs REST)</li>
- *   <li>Permite todas las solicitudes HTTP (puede ajustarse según roles/endpoints)</li>
+ *   <li>Permite todas las solicitudes HTTP salvo las que modifican el carrito o piden turno en la sala de espera, que exigen token</li>
+ *   <li>Autenticación sin estado con el token JWT de la cabecera Authorization ({@link FiltroJwt})</li>
  *   <li>Configuración CORS para permitir acceso desde el frontend</li>
  *   <li>Bean de PasswordEncoder (BCrypt) para codificación de contraseñas</li>
  * </ul>
@@ -37,12 +44,19 @@ public class SecurityConfig {
     @Autowired
     private IServicioUsuario servicioUsuario;
 
+    @Autowired
+    private VerificadorTokens verificadorTokens;
+
     
     /**
      * Configura el filtro de seguridad HTTP.
      * <p>
-     * Actualmente permite todas las solicitudes sin autenticación.
-     * Puede ajustarse para proteger rutas específicas.
+     * Permite todas las solicitudes sin autenticación, salvo las que modifican el carrito
+     * (POST, PUT y DELETE bajo <code>/tfg/carrito/</code>) y las que piden turno en la sala de
+     * espera (POST bajo <code>/tfg/espera/</code>), que sin token responden <b>401</b>.
+     * <p>
+     * Las peticiones con token Bearer válido quedan autenticadas por {@link FiltroJwt}
+     * (ver {@link FiltroJwt#usuarioActual()}); no se crea sesión HTTP.
      *
      * @param http Objeto HttpSecurity proporcionado por Spring Security
      * @return SecurityFilterChain configurada
@@ -52,8 +66,16 @@ public class SecurityConfig {
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
             .csrf().disable()
-            .authorizeHttpRequests()
-            .anyRequest().permitAll();  // permite todas las solicitudes
+            .sessionManagement(sesiones -> sesiones.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new FiltroJwt(verificadorTokens), UsernamePasswordAuthenticationFilter.class)
+            .authorizeHttpRequests(rutas -> rutas
+                .requestMatchers(HttpMethod.POST, "/tfg/carrito/**").authenticated()
+                .requestMatchers(HttpMethod.PUT, "/tfg/carrito/**").authenticated()
+                .requestMatchers(HttpMethod.DELETE, "/tfg/carrito/**").authenticated()
+                .requestMatchers(HttpMethod.POST, "/tfg/espera/**").authenticated()
+                .anyRequest().permitAll())  // permite el resto de solicitudes
+            .exceptionHandling(errores -> errores
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)));
         return http.build();
     }
     
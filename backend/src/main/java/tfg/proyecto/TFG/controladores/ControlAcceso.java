@@ -0,0 +1,104 @@
+package tfg.proyecto.TFG.controladores;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import tfg.proyecto.TFG.dtos.DTOescaneoBajada;
+import tfg.proyecto.TFG.dtos.DTOescaneoSubida;
+import tfg.proyecto.TFG.servicios.IndiceAccesos;
+
+/**
+ * Controlador REST del control de accesos en las puertas de los eventos.
+ *
+ * <p>Antes de abrir puertas se carga el evento con <code>abrir</code>; cada lector escanea
+ * con <code>escanear</code>, que responde sin consultar la base de datos (los lectores sin
+ * conexión envían sus escaneos guardados con <code>lote</code>), y al terminar
+ * <code>cerrar</code> guarda los usos pendientes y libera la memoria.</p>
+ *
+ * <p>Todos los endpoints están prefijados con <code>/tfg/acceso</code>.</p>
+ */
+@RestController
+@RequestMapping("/tfg/acceso")
+@CrossOrigin(origins = "*")
+public class ControlAcceso {
+
+	@Autowired
+	IndiceAccesos indiceAccesos;
+
+	@Value("${accesos.lote-maximo:5000}")
+	int loteMaximo;
+
+	/**
+	 * Carga los tickets de un evento en el índice de accesos.
+	 *
+	 * @param eventoId ID del evento
+	 * @return Mapa con el ID del evento y el número de tickets cargados
+	 */
+	@PostMapping("/{eventoId}/abrir")
+	public ResponseEntity<Map<String, Object>> abrir(@PathVariable Long eventoId) {
+		Map<String, Object> respuesta = new HashMap<>();
+		respuesta.put("eventoId", eventoId);
+		respuesta.put("tickets", indiceAccesos.abrir(eventoId));
+		return new ResponseEntity<>(respuesta, HttpStatus.OK);
+	}
+
+	/**
+	 * Escanea el QR de un ticket en la puerta de un evento y, si es válido, lo marca como usado.
+	 *
+	 * @param eventoId ID del evento de la puerta
+	 * @param contenidoQR contenido del QR escaneado
+	 * @return DTOescaneoBajada con el resultado (aceptado, duplicado, anulado, de otro evento o desconocido)
+	 */
+	@PostMapping("/{eventoId}/escanear")
+	public ResponseEntity<DTOescaneoBajada> escanear(@PathVariable Long eventoId, @RequestParam String contenidoQR) {
+		return ResponseEntity.ok()
+				.cacheControl(CacheControl.noStore())
+				.body(indiceAccesos.escanear(eventoId, contenidoQR));
+	}
+
+	/**
+	 * Sincroniza los escaneos que un lector ha guardado sin conexión, en una sola petición.
+	 * De cada ticket gana el escaneo con la hora más antigua.
+	 *
+	 * @param eventoId ID del evento de las puertas
+	 * @param escaneos escaneos del lector (QR, hora y puerta)
+	 * @return resultado de cada escaneo en el mismo orden, o 413 si el lote supera
+	 *         <code>accesos.lote-maximo</code>
+	 */
+	@PostMapping("/{eventoId}/lote")
+	public ResponseEntity<List<DTOescaneoBajada>> escanearLote(@PathVariable Long eventoId,
+			@RequestBody List<DTOescaneoSubida> escaneos) {
+		if (escaneos.size() > loteMaximo) {
+			return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+		}
+		return ResponseEntity.ok()
+				.cacheControl(CacheControl.noStore())
+				.body(indiceAccesos.escanearLote(eventoId, escaneos));
+	}
+
+	/**
+	 * Guarda los usos pendientes de un evento y lo saca del índice de accesos.
+	 *
+	 * @param eventoId ID del evento
+	 * @return 204 sin contenido
+	 */
+	@PostMapping("/{eventoId}/cerrar")
+	public ResponseEntity<Void> cerrar(@PathVariable Long eventoId) {
+		indiceAccesos.cerrar(eventoId);
+		return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+	}
+}
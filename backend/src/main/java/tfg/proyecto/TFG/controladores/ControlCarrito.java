@@ -1,9 +1,12 @@
 package tfg.proyecto.TFG.controladores;
 
 
+import java.net.URI;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,12 +15,21 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.RestTemplate;
 
+import tfg.proyecto.TFG.config.FiltroJwt;
+import tfg.proyecto.TFG.config.SecurityConfig;
 import tfg.proyecto.TFG.dtos.DTOCarritoBajada;
+import tfg.proyecto.TFG.dtos.DTOturnoEspera;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.servicios.AforoCompletoException;
+import tfg.proyecto.TFG.servicios.ComprasIdempotentes;
 import tfg.proyecto.TFG.servicios.IServicioCarrito;
+import tfg.proyecto.TFG.servicios.SalaEspera;
+import tfg.proyecto.TFG.servicios.UsuarioAutenticado;
 
 /**
  * Controlador REST para la gestión del carrito de un usuario.
@@ -33,6 +45,16 @@ import tfg.proyecto.TFG.servicios.IServicioCarrito;
  *
  * <p>Todos los endpoints están prefijados con <code>/tfg/carrito</code> y permiten 
  * solicitudes CORS desde cualquier origen.
+ *
+ * <p>Añadir items y finalizar la compra pasan antes por la {@link SalaEspera}: si el usuario
+ * no está admitido para el evento se responde <b>429</b> con su turno en la cabecera
+ * <code>Location</code> (ver {@link ControlSalaEspera}). Añadir plazas renueva la admisión;
+ * finalizar la compra solo comprueba la que ya tiene.</p>
+ *
+ * <p>Los endpoints que modifican el carrito exigen token Bearer ({@link FiltroJwt}); sin él se
+ * responde <b>401</b> (ver {@link SecurityConfig}). Con token, el
+ * <code>usuarioId</code> de la ruta tiene que ser el del usuario autenticado (salvo para un
+ * ADMIN); si no, se responde <b>403</b>.
  */
 @RestController
 @RequestMapping("/tfg/carrito")
@@ -41,6 +63,12 @@ public class ControlCarrito {
 
     @Autowired
     private IServicioCarrito carritoService;
+
+    @Autowired
+    private SalaEspera salaEspera;
+
+    @Autowired
+    private ComprasIdempotentes comprasIdempotentes;
     
     private final RestTemplate restTemplate = new RestTemplate();
 
@@ -53,6 +81,9 @@ public class ControlCarrito {
      */
     @GetMapping("/{usuarioId}")
     public ResponseEntity<DTOCarritoBajada> obtenerCarrito(@PathVariable Long usuarioId) {
+        if (esAjeno(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         return ResponseEntity.ok(carritoService.obtenerCarritoPorUsuario(usuarioId));
     }
     
@@ -63,15 +94,29 @@ public class ControlCarrito {
      * @param usuarioId ID del usuario
      * @param eventoId  ID del evento a agregar
      * @param body      JSON con la cantidad (opcional, default=1)
-     * @return Carrito actualizado
+     * @return Carrito actualizado, 409 si el evento no tiene plazas suficientes
+     *         o 429 si el usuario está en la sala de espera del evento
      */
     @PostMapping("/item/{usuarioId}/{eventoId}")
     public ResponseEntity<DTOCarritoBajada> agregarItem(
             @PathVariable Long usuarioId,
             @PathVariable Long eventoId,
             @RequestBody Map<String, Integer> body) {
+        if (esAjeno(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        DTOturnoEspera turno = salaEspera.pedirTurno(eventoId, usuarioId);
+        if (!turno.isAdmitido()) {
+            return enEspera(turno);
+        }
         int cantidad = body.getOrDefault("cantidad", 1);
-        return ResponseEntity.ok(carritoService.agregarItemAlCarrito(usuarioId, eventoId, cantidad));
+        try {
+            DTOCarritoBajada carrito = carritoService.agregarItemAlCarrito(usuarioId, eventoId, cantidad);
+            salaEspera.renovar(eventoId, usuarioId);
+            return ResponseEntity.ok(carrito);
+        } catch (AforoCompletoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     /**
@@ -80,15 +125,22 @@ public class ControlCarrito {
      * @param usuarioId ID del usuario
      * @param itemId    ID del item dentro del carrito
      * @param body      JSON con la cantidad actualizada
-     * @return Carrito actualizado
+     * @return Carrito actualizado, o 409 si el evento no tiene plazas para la nueva cantidad
      */
     @PutMapping("/item/{usuarioId}/{itemId}")
     public ResponseEntity<DTOCarritoBajada> actualizarItem(
             @PathVariable Long usuarioId,
             @PathVariable Long itemId,
             @RequestBody Map<String, Integer> body) {
+        if (esAjeno(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         int cantidad = body.getOrDefault("cantidad", 1);
-        return ResponseEntity.ok(carritoService.actualizarItem(usuarioId, itemId, cantidad));
+        try {
+            return ResponseEntity.ok(carritoService.actualizarItem(usuarioId, itemId, cantidad));
+        } catch (AforoCompletoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     /**
@@ -102,6 +154,9 @@ public class ControlCarrito {
     public ResponseEntity<DTOCarritoBajada> eliminarItem(
             @PathVariable Long usuarioId,
             @PathVariable Long itemId) {
+        if (esAjeno(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         return ResponseEntity.ok(carritoService.eliminarItem(usuarioId, itemId));
     }
 
@@ -113,6 +168,9 @@ public class ControlCarrito {
      */
     @DeleteMapping("/vaciar/{usuarioId}")
     public ResponseEntity<DTOCarritoBajada> vaciarCarrito(@PathVariable Long usuarioId) {
+        if (esAjeno(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         return ResponseEntity.ok(carritoService.vaciarCarrito(usuarioId));
     }
 
@@ -124,6 +182,9 @@ public class ControlCarrito {
      */
     @GetMapping("/total/{usuarioId}")
     public ResponseEntity<Double> calcularTotal(@PathVariable Long usuarioId) {
+        if (esAjeno(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         return ResponseEntity.ok(carritoService.calcularTotal(usuarioId));
     }
 
@@ -132,12 +193,59 @@ public class ControlCarrito {
      * <p>
      * Puede integrar lógicas de pago, generación de tickets, etc.
      *
+     * <p>Las peticiones repetidas mientras la compra está en curso reciben el resultado de la
+     * primera ({@link ComprasIdempotentes}).
+     *
      * @param usuarioId ID del usuario
-     * @return Carrito después de finalizar la compra (normalmente vacío o con estado de compra finalizada)
+     * @param claveIdempotencia cabecera opcional <code>Idempotency-Key</code>: un reintento con la
+     *        misma clave recibe el resultado de la primera compra en lugar de comprar otra vez
+     * @return Carrito después de finalizar la compra (normalmente vacío o con estado de compra finalizada),
+     *         409 si algún evento del carrito ya no tiene plazas suficientes o hay otra compra
+     *         simultánea del mismo carrito, o 429 si el usuario está en la sala de espera de
+     *         alguno de sus eventos
      */
     @PostMapping("/finalizar/{usuarioId}")
-    public ResponseEntity<DTOCarritoBajada> finalizarCompra(@PathVariable Long usuarioId) {
+    public ResponseEntity<DTOCarritoBajada> finalizarCompra(@PathVariable Long usuarioId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia) {
     	 //restTemplate.getForObject("http://localhost:8000/reload", String.class); 
-        return ResponseEntity.ok(carritoService.finalizarCompra(usuarioId));
+        if (esAjeno(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        for (Long eventoId : carritoService.eventosEnCarrito(usuarioId)) {
+            // Quien retiene plazas ya está admitido; solo sin admisión (p. ej. tras un reinicio)
+            // se pide turno, para poder devolverle su sitio en la cola
+            DTOturnoEspera turno = salaEspera.turnoVigente(eventoId, usuarioId);
+            if (turno == null) {
+                turno = salaEspera.pedirTurno(eventoId, usuarioId);
+            }
+            if (!turno.isAdmitido()) {
+                return enEspera(turno);
+            }
+        }
+        try {
+            return ResponseEntity.ok(comprasIdempotentes.ejecutar(usuarioId, claveIdempotencia,
+                    () -> carritoService.finalizarCompra(usuarioId)));
+        } catch (AforoCompletoException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Indica si la petición está autenticada como un usuario distinto del de la ruta.
+     * Las consultas sin token siguen permitidas; las modificaciones nunca llegan aquí sin él.
+     */
+    private static boolean esAjeno(Long usuarioId) {
+        UsuarioAutenticado usuario = FiltroJwt.usuarioActual();
+        return usuario != null && usuario.getRol() != Rol.ADMIN && !usuario.getId().equals(usuarioId);
+    }
+
+    /**
+     * Respuesta 429 para un usuario que aún no ha sido admitido en la sala de espera.
+     */
+    private static ResponseEntity<DTOCarritoBajada> enEspera(DTOturnoEspera turno) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(ControlSalaEspera.segundosHastaSondeo(turno)))
+                .location(URI.create("/tfg/espera/turno/" + turno.getToken()))
+                .build();
     }
 }
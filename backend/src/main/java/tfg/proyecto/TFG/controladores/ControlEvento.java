@@ -2,6 +2,7 @@ package tfg.proyecto.TFG.controladores;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -24,15 +25,18 @@ import org.springframework.web.multipart.MultipartFile;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import tfg.proyecto.TFG.config.FileUtils;
 import tfg.proyecto.TFG.dtos.DTOInvitadoSubida;
 import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoPagina;
 import tfg.proyecto.TFG.dtos.DTOeventoSubida;
 import tfg.proyecto.TFG.dtos.EventoRecomendadoDTO;
 import tfg.proyecto.TFG.modelo.Categoria;
 import tfg.proyecto.TFG.repositorio.RepositorioEvento;
 import tfg.proyecto.TFG.repositorio.RepositorioInvitado;
 import tfg.proyecto.TFG.servicios.IServicioEvento;
+import tfg.proyecto.TFG.servicios.IServicioInvitado;
+import tfg.proyecto.TFG.servicios.ImagenNoValidaException;
+import tfg.proyecto.TFG.servicios.ServicioImagenImpl;
 
 /**
  * Controlador REST para la gestión de eventos y sus invitados.
@@ -60,6 +64,12 @@ public class ControlEvento {
 	@Autowired 
 	RepositorioInvitado invitadoDAO;
 	
+	@Autowired
+	IServicioInvitado invitadoServicio;
+
+	@Autowired
+	ServicioImagenImpl servicioImagen;
+	
 	
 	@Autowired
 	RepositorioEvento eventoDAO;
@@ -70,6 +80,9 @@ public class ControlEvento {
 	
 	/**
      * Inserta un nuevo evento usando parámetros form-data (para compatibilidad con MultipartFile).
+     * <p>
+     * Las imágenes se copian a disco por bloques según llegan ({@link ServicioImagenImpl#guardarImagen})
+     * y al servicio de eventos solo se le pasan sus rutas.
      *
      * @param nombre       Nombre del evento
      * @param localizacion Ubicación del evento
@@ -82,7 +95,10 @@ public class ControlEvento {
      * @param imagen       Imagen principal (opcional)
      * @param carrusels    Carrusel de imágenes (opcional)
      * @param invitadosJson JSON con la lista de invitados
-     * @return DTO del evento creado o BAD_REQUEST si hay errores
+     * @param fotosInvitados Fotos de los invitados (opcional), en el mismo orden que la lista;
+     *                       una parte vacía deja el <code>fotoURL</code> que venga en el JSON
+     * @return DTO del evento creado, UNSUPPORTED_MEDIA_TYPE si algún archivo no es una imagen
+     *         admitida o BAD_REQUEST si hay otros errores
      */
 	@PostMapping("insert")
 	public ResponseEntity<DTOeventoBajada> insertarEvento(
@@ -97,7 +113,8 @@ public class ControlEvento {
 	        @RequestParam int aforoMax,
 	        @RequestParam(value = "imagen", required = false) MultipartFile imagen,
 	        @RequestParam(value = "carrusels", required = false) MultipartFile[] carrusels,
-	        @RequestParam(value = "invitados") String invitadosJson
+	        @RequestParam(value = "invitados") String invitadosJson,
+	        @RequestParam(value = "fotosInvitados", required = false) MultipartFile[] fotosInvitados
 	) {
 	    try {
 	        ObjectMapper mapper = new ObjectMapper();
@@ -117,27 +134,39 @@ public class ControlEvento {
 
 	        // Imagen principal
 	        if (imagen != null && !imagen.isEmpty()) {
-	            dto.setImagen(FileUtils.convertirArchivoAString(imagen));
+	            dto.setImagen(servicioImagen.guardarImagen(imagen));
 	        }
 
 	        // Carrusel
 	        if (carrusels != null && carrusels.length > 0) {
-	            List<String> carruselBase64 = Arrays.stream(carrusels)
+	            List<String> rutasCarrusel = Arrays.stream(carrusels)
 	                    .filter(file -> file != null && !file.isEmpty())
 	                    .map(file -> {
 	                        try {
-	                            return FileUtils.convertirArchivoAString(file);
+	                            return servicioImagen.guardarImagen(file);
 	                        } catch (IOException e) {
 	                            throw new RuntimeException("Error al procesar imagen del carrusel", e);
 	                        }
 	                    })
 	                    .toList();
-	            dto.setImagenesCarruselUrls(carruselBase64);
+	            dto.setImagenesCarruselUrls(rutasCarrusel);
+	        }
+
+	        // Fotos de invitados enviadas como archivo
+	        if (fotosInvitados != null) {
+	            for (int i = 0; i < fotosInvitados.length && i < invitados.size(); i++) {
+	                if (fotosInvitados[i] != null && !fotosInvitados[i].isEmpty()) {
+	                    invitados.get(i).setFotoURL(servicioImagen.guardarImagen(fotosInvitados[i]));
+	                }
+	            }
 	        }
 
 	        DTOeventoBajada evento = eventoServicio.insert(dto);
 	        return new ResponseEntity<>(evento, HttpStatus.CREATED);
 
+	    } catch (ImagenNoValidaException e) {
+	        System.out.println("[BACKEND] " + e.getMessage());
+	        return new ResponseEntity<>(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
 	    } catch (Exception e) {
 	        e.printStackTrace();
 	        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -176,6 +205,35 @@ public class ControlEvento {
         List<DTOeventoBajada> lista = eventoServicio.obtenerTodosLosEventos();
         return new ResponseEntity<>(lista, HttpStatus.OK);
     }
+
+	/**
+     * Obtiene una página del catálogo de eventos, ordenado por fecha de inicio.
+     * Para catálogos grandes debe usarse en lugar de {@code findAll}.
+     *
+     * @param limite    Tamaño de página (por defecto 20, máximo 100)
+     * @param cursor    Token {@code siguienteCursor} de la página anterior; vacío para la primera
+     * @param categoria Categoría a filtrar (opcional)
+     * @param desde     Inicio mínimo en formato ISO (opcional, inclusive)
+     * @param hasta     Inicio máximo en formato ISO (opcional, exclusive)
+     * @return Página de eventos o BAD_REQUEST si algún parámetro no es válido
+     */
+	@GetMapping("catalogo")
+	public ResponseEntity<DTOeventoPagina> obtenerCatalogo(
+			@RequestParam(required = false) Integer limite,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) String categoria,
+			@RequestParam(required = false) String desde,
+			@RequestParam(required = false) String hasta) {
+		try {
+			Categoria catEnum = categoria == null || categoria.isBlank() ? null : Categoria.valueOf(categoria.toUpperCase());
+			LocalDateTime inicio = desde == null || desde.isBlank() ? null : LocalDateTime.parse(desde);
+			LocalDateTime fin = hasta == null || hasta.isBlank() ? null : LocalDateTime.parse(hasta);
+			DTOeventoPagina pagina = eventoServicio.obtenerCatalogo(catEnum, inicio, fin, limite, cursor);
+			return new ResponseEntity<>(pagina, HttpStatus.OK);
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+	}
 	
 	
 	/**
@@ -318,8 +376,7 @@ public class ControlEvento {
      */
 	@DeleteMapping("deleteInvitado/{id}")
 	public ResponseEntity<Void> eliminar(@PathVariable Long id) {
-		if (invitadoDAO.existsById(id)) {
-			invitadoDAO.deleteById(id);
+		if (invitadoServicio.eliminarInvitado(id)) {
 			return ResponseEntity.ok().build();
 		}
 		return ResponseEntity.notFound().build();
@@ -0,0 +1,204 @@
+package tfg.proyecto.TFG.controladores;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriUtils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import tfg.proyecto.TFG.config.RutasImagenes;
+import tfg.proyecto.TFG.servicios.AlmacenImagenes;
+import tfg.proyecto.TFG.servicios.VariantesImagen;
+
+/**
+ * Sirve los archivos subidos (<code>/uploads/**</code>): imágenes de eventos, invitados y
+ * usuarios y sus variantes reducidas.
+ *
+ * <ul>
+ *     <li>Los archivos del {@link AlmacenImagenes} se nombran por el hash de su contenido, así
+ *     que una URL nunca cambia de contenido: se cachean un año como <code>immutable</code> y
+ *     el navegador o la app no vuelven a preguntar.</li>
+ *     <li>El resto (archivos antiguos, variantes que aún no existen) se revalida en cada uso con
+ *     <code>ETag</code>/<code>Last-Modified</code>, que responden 304 sin cuerpo.</li>
+ *     <li>Admite rangos de bytes (<code>Range</code>, <code>If-Range</code>) de un solo tramo;
+ *     con varios se envía el archivo completo.</li>
+ *     <li>El contenido no pasa por el heap: en Tomcat los archivos grandes se envían con
+ *     sendfile, y los demás con {@link FileChannel#transferTo}.</li>
+ * </ul>
+ */
+@CrossOrigin(origins = "*")
+@RestController
+public class ControlMedios {
+
+	private static final String PREFIJO = "/uploads/";
+	private static final Path UPLOADS = Paths.get(System.getProperty("user.dir"), "uploads").toAbsolutePath().normalize();
+
+	// Nombres del almacén: hash SHA-256, con el ancho si es una variante
+	private static final Pattern NOMBRE_POR_CONTENIDO = Pattern.compile("([0-9a-f]{64}(?:_\\d+)?)\\.[a-z]+");
+
+	// Atributos de Tomcat para enviar un archivo con sendfile al terminar la petición
+	private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+	// Por debajo de este tamaño sendfile no compensa (el mismo umbral que Tomcat)
+	private static final long UMBRAL_SENDFILE = 48 * 1024;
+
+	private static final CacheControl INMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+	private static final CacheControl REVALIDAR = CacheControl.noCache().cachePublic();
+
+	/**
+	 * Sirve un archivo de <code>uploads</code>. Si se pide una variante reducida que aún no se
+	 * ha generado (ver {@link VariantesImagen}), se sirve el original sin cachearlo para siempre.
+	 *
+	 * @param request petición (GET o HEAD)
+	 * @param response respuesta: 200, 206, 304, 404 o 416
+	 * @throws IOException si falla la lectura del archivo o el envío
+	 */
+	@RequestMapping(value = "/uploads/**", method = { RequestMethod.GET, RequestMethod.HEAD })
+	public void servir(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		String ruta = UriUtils.decode(
+				request.getRequestURI().substring(request.getContextPath().length() + PREFIJO.length()),
+				StandardCharsets.UTF_8);
+		Path archivo = resolver(ruta);
+		boolean original = false;
+		if (archivo == null) {
+			for (String candidato : RutasImagenes.candidatosOriginal(ruta)) {
+				archivo = resolver(candidato);
+				if (archivo != null) {
+					original = true;
+					break;
+				}
+			}
+		}
+		if (archivo == null) {
+			response.sendError(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+
+		BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+		long longitud = atributos.size();
+		long modificado = atributos.lastModifiedTime().toMillis();
+		var porContenido = NOMBRE_POR_CONTENIDO.matcher(archivo.getFileName().toString());
+		boolean inmutable = !original && porContenido.matches();
+		// El hash es un ETag fuerte; si no, tamaño y fecha (débil)
+		String etag = inmutable ? "\"" + porContenido.group(1) + "\""
+				: "W/\"" + Long.toHexString(longitud) + "-" + Long.toHexString(modificado) + "\"";
+
+		response.setHeader(HttpHeaders.CACHE_CONTROL, (inmutable ? INMUTABLE : REVALIDAR).getHeaderValue());
+		if (new ServletWebRequest(request, response).checkNotModified(etag, modificado)) {
+			return;
+		}
+		response.setHeader(HttpHeaders.ETAG, etag);
+		response.setDateHeader(HttpHeaders.LAST_MODIFIED, modificado);
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		response.setContentType(MediaTypeFactory.getMediaType(archivo.getFileName().toString())
+				.orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+		long inicio = 0;
+		long fin = longitud - 1;
+		String rango = request.getHeader(HttpHeaders.RANGE);
+		if (rango != null && rangoVigente(request, etag, modificado)) {
+			List<HttpRange> rangos;
+			try {
+				rangos = HttpRange.parseRanges(rango);
+			} catch (IllegalArgumentException e) {
+				rangos = List.of(); // Range mal formado: se ignora
+			}
+			if (rangos.size() == 1) {
+				try {
+					inicio = rangos.get(0).getRangeStart(longitud);
+					fin = rangos.get(0).getRangeEnd(longitud);
+				} catch (IllegalArgumentException e) {
+					inicio = longitud;
+				}
+				if (inicio >= longitud || inicio > fin) {
+					response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + longitud);
+					response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+					return;
+				}
+				response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + longitud);
+			}
+		}
+
+		long tamano = fin - inicio + 1;
+		response.setContentLengthLong(tamano);
+		if (RequestMethod.HEAD.name().equals(request.getMethod()) || tamano <= 0) {
+			return;
+		}
+		if (tamano >= UMBRAL_SENDFILE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+			// Tomcat copia el archivo al socket desde el kernel al terminar la petición
+			request.setAttribute(SENDFILE_ARCHIVO, archivo.toString());
+			request.setAttribute(SENDFILE_INICIO, inicio);
+			request.setAttribute(SENDFILE_FIN, fin + 1);
+			return;
+		}
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+			WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+			long posicion = inicio;
+			while (posicion <= fin) {
+				long enviados = canal.transferTo(posicion, fin + 1 - posicion, salida);
+				if (enviados <= 0) {
+					break;
+				}
+				posicion += enviados;
+			}
+		}
+	}
+
+	/**
+	 * Ruta de un archivo dentro de <code>uploads</code>, o null si no existe, sale de la
+	 * carpeta (<code>..</code>) o es un temporal de subida (empieza por punto).
+	 */
+	private static Path resolver(String ruta) {
+		Path archivo = UPLOADS.resolve(ruta).normalize();
+		if (!archivo.startsWith(UPLOADS) || archivo.getFileName().toString().startsWith(".")
+				|| !Files.isRegularFile(archivo)) {
+			return null;
+		}
+		return archivo;
+	}
+
+	/**
+	 * Con <code>If-Range</code>, el rango solo vale si el archivo sigue siendo el mismo
+	 * (ETag fuerte igual o fecha igual); si no, se envía completo.
+	 */
+	private static boolean rangoVigente(HttpServletRequest request, String etag, long modificado) {
+		String siRango = request.getHeader(HttpHeaders.IF_RANGE);
+		if (siRango == null) {
+			return true;
+		}
+		if (siRango.startsWith("\"") || siRango.startsWith("W/")) {
+			return !etag.startsWith("W/") && siRango.equals(etag);
+		}
+		try {
+			return request.getDateHeader(HttpHeaders.IF_RANGE) == modificado / 1000 * 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+}
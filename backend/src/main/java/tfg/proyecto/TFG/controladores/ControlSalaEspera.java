@@ -0,0 +1,94 @@
+package tfg.proyecto.TFG.controladores;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import tfg.proyecto.TFG.config.FiltroJwt;
+import tfg.proyecto.TFG.dtos.DTOturnoEspera;
+import tfg.proyecto.TFG.servicios.IServicioEvento;
+import tfg.proyecto.TFG.servicios.SalaEspera;
+
+/**
+ * Controlador REST de la sala de espera de los eventos con mucha demanda.
+ *
+ * <p>Cuando el carrito o la compra responden <b>429</b>, el cliente pide turno (o usa el de la
+ * cabecera <code>Location</code>) y consulta su posición cada <code>Retry-After</code>
+ * segundos hasta que esté admitido. Pedir turno exige token; el evento se comprueba en
+ * {@link tfg.proyecto.TFG.servicios.CacheEventos}, así que el sondeo no consulta la base de datos.</p>
+ *
+ * <p>Todos los endpoints están prefijados con <code>/tfg/espera</code>.</p>
+ */
+@RestController
+@RequestMapping("/tfg/espera")
+@CrossOrigin(origins = "*")
+public class ControlSalaEspera {
+
+	/*
+	 * Intervalo máximo de sondeo sugerido a los clientes en espera, en segundos.
+	 */
+	private static final long SONDEO_MAXIMO = 5;
+
+	@Autowired
+	SalaEspera salaEspera;
+
+	@Autowired
+	IServicioEvento servicioEvento;
+
+	/**
+	 * Pide turno para comprar entradas de un evento, a nombre del usuario del token.
+	 *
+	 * @param eventoId ID del evento
+	 * @return turno con su posición (el mismo si el usuario ya tenía uno vigente),
+	 *         o 404 si el evento no existe
+	 */
+	@PostMapping("/{eventoId}")
+	public ResponseEntity<DTOturnoEspera> pedirTurno(@PathVariable Long eventoId) {
+		try {
+			servicioEvento.obtnerPorElId(eventoId);
+		} catch (RuntimeException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return respuesta(salaEspera.pedirTurno(eventoId, FiltroJwt.usuarioActual().getId()));
+	}
+
+	/**
+	 * Consulta la posición de un turno.
+	 *
+	 * @param token token del turno
+	 * @return turno con su posición, o 404 si no existe o su admisión ha caducado
+	 */
+	@GetMapping("/turno/{token}")
+	public ResponseEntity<DTOturnoEspera> consultarTurno(@PathVariable String token) {
+		try {
+			return respuesta(salaEspera.consultarTurno(token));
+		} catch (RuntimeException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * Segundos que se sugiere esperar antes de volver a consultar un turno.
+	 *
+	 * @param turno turno no admitido
+	 * @return valor para la cabecera <code>Retry-After</code>
+	 */
+	public static long segundosHastaSondeo(DTOturnoEspera turno) {
+		return Math.max(1, Math.min(turno.getEsperaSegundos(), SONDEO_MAXIMO));
+	}
+
+	private static ResponseEntity<DTOturnoEspera> respuesta(DTOturnoEspera turno) {
+		ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().cacheControl(CacheControl.noStore());
+		if (!turno.isAdmitido()) {
+			respuesta.header("Retry-After", String.valueOf(segundosHastaSondeo(turno)));
+		}
+		return respuesta.body(turno);
+	}
+}
@@ -1,17 +1,16 @@
 package tfg.proyecto.TFG.controladores;
 
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -23,8 +22,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import tfg.proyecto.TFG.dtos.DTOqrMatriz;
 import tfg.proyecto.TFG.dtos.DTOticketBajada;
 import tfg.proyecto.TFG.dtos.DTOticketSubida;
+import tfg.proyecto.TFG.servicios.AforoCompletoException;
 import tfg.proyecto.TFG.servicios.IServicioPdfEmail;
 import tfg.proyecto.TFG.servicios.IServicioTicket;
 
@@ -37,7 +38,7 @@ import tfg.proyecto.TFG.servicios.IServicioTicket;
  *     <li>Crear un ticket</li>
  *     <li>Eliminar un ticket individual o todos los tickets de un usuario</li>
  *     <li>Obtener tickets por id, usuario o evento</li>
- *     <li>Obtener y validar códigos QR asociados a los tickets</li>
+ *     <li>Obtener (como imagen PNG o en Base64) y validar códigos QR asociados a los tickets</li>
  * </ul>
  * 
  * <p>Todos los endpoints están prefijados con <code>/tfg/ticket/</code> y permiten 
@@ -59,12 +60,16 @@ public class ControlTicket {
      * Inserta un nuevo ticket.
      *
      * @param dto DTO con los datos del ticket
-     * @return DTOticketBajada creado
+     * @return DTOticketBajada creado, o 409 si el evento no tiene plazas libres
      */
 	@PostMapping("insert")
 	public ResponseEntity<DTOticketBajada> insertarTicket(@RequestBody DTOticketSubida dto) {
-		DTOticketBajada ticket = daoTicket.insert(dto);
-		return new ResponseEntity<>(ticket, HttpStatus.OK);
+		try {
+			DTOticketBajada ticket = daoTicket.insert(dto);
+			return new ResponseEntity<>(ticket, HttpStatus.OK);
+		} catch (AforoCompletoException e) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
 	}
 	
 	 /**
@@ -193,21 +198,69 @@ public class ControlTicket {
      */
     @GetMapping("/{id}/qr")
     public ResponseEntity<Map<String, String>> obtenerQR(@PathVariable Long id) {
-        DTOticketBajada ticket = daoTicket.findById(id);
-
-        if (ticket.getCodigoQR() == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
-        }		
-        //coge la ruta absoluta da igual el sistema operativo
-        Path rutaAbsoluta = Paths.get(System.getProperty("user.dir"), ticket.getCodigoQR());
-
         try {
-            byte[] imagen = Files.readAllBytes(rutaAbsoluta);
+            DTOticketBajada ticket = daoTicket.findById(id);
+            byte[] imagen = daoTicket.obtenerImagenQR(ticket.getContenidoQR());
             String base64 = Base64.getEncoder().encodeToString(imagen);
             Map<String, String> respuesta = Map.of("codigoQR", "data:image/png;base64," + base64);
             return ResponseEntity.ok(respuesta);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
+    /**
+     * Imagen PNG del QR de un ticket (la ruta que guarda {@code codigoQR}).
+     * Se dibuja la primera vez que se pide; como el contenido del QR no cambia, la respuesta
+     * se puede cachear indefinidamente en el cliente (privada: el QR da acceso al evento).
+     *
+     * @param contenidoQR Contenido del código QR del ticket
+     * @return Imagen PNG, o NOT_FOUND si no hay ningún ticket con ese QR
+     */
+    @GetMapping("/qr/{contenidoQR}.png")
+    public ResponseEntity<byte[]> obtenerImagenQR(@PathVariable String contenidoQR) {
+        try {
+            byte[] imagen = daoTicket.obtenerImagenQR(contenidoQR);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_PNG)
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                    .eTag(contenidoQR)
+                    .body(imagen);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * QR de un ticket en SVG, escalable a cualquier tamaño.
+     *
+     * @param contenidoQR Contenido del código QR del ticket
+     * @return Documento SVG, o NOT_FOUND si no hay ningún ticket con ese QR
+     */
+    @GetMapping(value = "/qr/{contenidoQR}.svg", produces = "image/svg+xml")
+    public ResponseEntity<String> obtenerQRSvg(@PathVariable String contenidoQR) {
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                    .eTag(contenidoQR)
+                    .body(daoTicket.obtenerQRSvg(contenidoQR));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * Matriz de módulos del QR de un ticket, para que el cliente lo dibuje.
+     *
+     * @param contenidoQR Contenido del código QR del ticket
+     * @return DTOqrMatriz, o NOT_FOUND si no hay ningún ticket con ese QR
+     */
+    @GetMapping("/qr/{contenidoQR}/matriz")
+    public ResponseEntity<DTOqrMatriz> obtenerQRMatriz(@PathVariable String contenidoQR) {
+        try {
+            return ResponseEntity.ok(daoTicket.obtenerQRMatriz(contenidoQR));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
     }
     
@@ -3,6 +3,8 @@ package tfg.proyecto.TFG.controladores;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
@@ -11,23 +13,35 @@ import java.util.stream.StreamSupport;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.mail.MessagingException;
+import tfg.proyecto.TFG.config.FiltroJwt;
+import tfg.proyecto.TFG.dtos.DTOCambiosBajada;
 import tfg.proyecto.TFG.dtos.DTOEventoDataIA;
 import tfg.proyecto.TFG.dtos.DTOInvitadoBajada;
 import tfg.proyecto.TFG.dtos.DTOTicketDataIA;
 import tfg.proyecto.TFG.dtos.DTOUsuarioDataIA;
+import tfg.proyecto.TFG.dtos.DTOrecoleccionBajada;
 import tfg.proyecto.TFG.dtos.DTOticketBajada;
+import tfg.proyecto.TFG.modelo.Rol;
 import tfg.proyecto.TFG.repositorio.RepositorioEvento;
 import tfg.proyecto.TFG.repositorio.RepositorioTicket;
 import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+import tfg.proyecto.TFG.servicios.IServicioCambios;
+import tfg.proyecto.TFG.servicios.IServicioExportacionIA;
 import tfg.proyecto.TFG.servicios.IServicioPdfEmail;
+import tfg.proyecto.TFG.servicios.RecolectorUploads;
+import tfg.proyecto.TFG.servicios.UsuarioAutenticado;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 /**
@@ -48,6 +62,12 @@ public class ControlUtilidades {
 	RepositorioUsuario usuarioDAO;
 	@Autowired
 	RepositorioTicket ticketDAO;
+	@Autowired
+	IServicioCambios servicioCambios;
+	@Autowired
+	IServicioExportacionIA servicioExportacion;
+	@Autowired
+	RecolectorUploads recolectorUploads;
 
 	
 	@Value("${microservicio.recomendacion.url:http://127.0.0.1:8000}")
@@ -127,18 +147,20 @@ public class ControlUtilidades {
      */
 	@GetMapping("/data")
 	public ResponseEntity<Map<String, Object>> getRecommendationData() {
+	    // Versión leída antes del volcado: los cambios posteriores se piden a /cambios desde ella
+	    long version = servicioCambios.versionSegura();
+
 	    // Usuarios con sus tickets
 	    List<DTOUsuarioDataIA> usuarios = StreamSupport.stream(usuarioDAO.findAll().spliterator(), false)
 	        .map(u -> new DTOUsuarioDataIA(
 	            u.getId(),
 	            u.getNombre(),
 	            u.getTickets().stream()
-	                .map(t -> new DTOTicketDataIA(
-	                		 t.getUsuario().getId(),
-	                		 t.getEvento().getId(),
-	                		 t.getId()
-	                	
-	                ))
+	                .map(t -> DTOTicketDataIA.builder()
+	                		.id(t.getId())
+	                		.usuarioId(t.getUsuario().getId())
+	                		.eventoId(t.getEvento().getId())
+	                		.build())
 	                .toList()
 	        ))
 	        .toList();
@@ -161,7 +183,78 @@ public class ControlUtilidades {
 	    Map<String, Object> data = new HashMap<>();
 	    data.put("usuarios", usuarios);
 	    data.put("eventos", eventos);
+	    data.put("version", version);
 
 	    return ResponseEntity.ok(data);
 	    }
+
+	/**
+	 * Volcado completo de los datos de la IA en streaming (JSON Lines), con memoria constante.
+	 * Misma información que {@code /data}, pero con una línea por evento, invitado, usuario y
+	 * ticket, escrita según se lee de la base de datos. La primera línea lleva la versión.
+	 *
+	 * @return Cuerpo en streaming con tipo {@code application/x-ndjson}
+	 */
+	@GetMapping(value = "/data/stream", produces = "application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> getRecommendationDataStream() {
+	    StreamingResponseBody cuerpo = salida -> servicioExportacion.exportarDatosIA(salida);
+	    return ResponseEntity.ok()
+	        .contentType(MediaType.parseMediaType("application/x-ndjson"))
+	        .body(cuerpo);
+	}
+
+	/**
+	 * Versión actual de los datos de la IA (última secuencia sin transacciones anteriores
+	 * pendientes, ver {@link IServicioCambios#versionSegura()}).
+	 * Es una consulta barata para comprobar si hay cambios antes de pedirlos.
+	 *
+	 * @return JSON {"version": n}
+	 */
+	@GetMapping("/version")
+	public ResponseEntity<Map<String, Long>> getVersionDatos() {
+	    return ResponseEntity.ok(Map.of("version", servicioCambios.versionSegura()));
+	}
+
+	/**
+	 * Cambios en eventos y tickets posteriores a una secuencia (o a una fecha),
+	 * para que la IA se sincronice sin descargar todo con {@code /data}.
+	 *
+	 * @param desde  Última secuencia procesada (por ejemplo, la "version" de {@code /data})
+	 * @param fecha  Alternativa a desde: fecha ISO a partir de la cual pedir cambios
+	 * @param limite Número máximo de cambios por página (por defecto 500, máximo 5000)
+	 * @return Página de cambios o BAD_REQUEST si la fecha no es válida
+	 */
+	@GetMapping("/cambios")
+	public ResponseEntity<DTOCambiosBajada> getCambios(
+			@RequestParam(required = false) Long desde,
+			@RequestParam(required = false) String fecha,
+			@RequestParam(required = false) Integer limite) {
+	    try {
+	        LocalDateTime desdeFecha = fecha == null || fecha.isBlank() ? null : LocalDateTime.parse(fecha);
+	        return ResponseEntity.ok(servicioCambios.obtenerCambios(desde, desdeFecha, limite));
+	    } catch (DateTimeParseException e) {
+	        return ResponseEntity.badRequest().build();
+	    }
+	}
+
+	/**
+	 * Lanza a mano una pasada del recolector de archivos huérfanos de {@code uploads}.
+	 * Por defecto es una simulación: informa de lo que borraría sin borrar nada.
+	 *
+	 * @param simular false para borrar de verdad los archivos huérfanos
+	 * @return Informe de la pasada, FORBIDDEN si no es un ADMIN o CONFLICT si ya hay una en curso
+	 */
+	@PostMapping("/uploads/recoleccion")
+	public ResponseEntity<DTOrecoleccionBajada> recolectarUploads(
+			@RequestParam(defaultValue = "true") boolean simular) {
+	    UsuarioAutenticado usuario = FiltroJwt.usuarioActual();
+	    if (usuario == null || usuario.getRol() != Rol.ADMIN) {
+	        return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+	    }
+	    DTOrecoleccionBajada informe = recolectorUploads.recolectar(simular);
+	    if (informe == null) {
+	        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+	    }
+	    return ResponseEntity.ok(informe);
+	}
 }
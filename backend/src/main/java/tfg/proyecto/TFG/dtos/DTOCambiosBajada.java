@@ -0,0 +1,33 @@
+package tfg.proyecto.TFG.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página del registro de cambios para la IA.
+ *
+ * <p>Contiene el estado actual de los eventos y tickets creados o modificados entre
+ * las secuencias {@code desde} (exclusive) y {@code hasta} (inclusive), y los IDs de
+ * los eliminados. Al eliminar un evento o un usuario también se informa de sus tickets.
+ * La siguiente página se pide con {@code desde = hasta}.</p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOCambiosBajada {
+
+	private long desde;
+	private long hasta;
+	private long version;
+	private boolean hayMas;
+
+	private List<DTOEventoDataIA> eventos;
+	private List<DTOTicketDataIA> tickets;
+	private List<Long> eventosEliminados;
+	private List<Long> ticketsEliminados;
+}
@@ -1,5 +1,7 @@
 package tfg.proyecto.TFG.dtos;
 
+import java.time.LocalDateTime;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,4 +18,5 @@ public class DTOCarritoItemBajada {
     private Long eventoId;
     private String nombreEvento;
     private String imagenEvento; 
+    private LocalDateTime retenidoHasta;
 }
@@ -1,9 +1,14 @@
 package tfg.proyecto.TFG.dtos;
 
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import tfg.proyecto.TFG.config.RutasImagenes;
 
 @Data
 @NoArgsConstructor
@@ -15,4 +20,12 @@ public class DTOInvitadoBajada {
     private String apellidos;
     private String fotoURL;
     private String descripcion;
+
+    /**
+     * Versiones reducidas de la foto por ancho (ver {@link RutasImagenes}).
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Map<Integer, String> getFotoVariantes() {
+        return RutasImagenes.urls(fotoURL);
+    }
 }
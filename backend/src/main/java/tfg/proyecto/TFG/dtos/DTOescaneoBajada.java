@@ -0,0 +1,28 @@
+package tfg.proyecto.TFG.dtos;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tfg.proyecto.TFG.modelo.ResultadoAcceso;
+
+/**
+ * Resultado de escanear el QR de un ticket en la puerta de un evento.
+ * Si el ticket ya se había usado, {@code usadoEn} indica cuándo entró (si se sabe).
+ * En los lotes de escaneos sin conexión lleva además la puerta y la hora del escaneo.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOescaneoBajada {
+	private String contenidoQR;
+	private ResultadoAcceso resultado;
+	private Long ticketId;
+	private Long eventoId;
+	private LocalDateTime usadoEn;
+	private String puertaId;
+	private LocalDateTime fechaEscaneo;
+}
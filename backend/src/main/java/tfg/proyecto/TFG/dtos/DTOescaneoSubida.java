@@ -0,0 +1,22 @@
+package tfg.proyecto.TFG.dtos;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Escaneo guardado por un lector sin conexión, para sincronizarlo por lotes.
+ * {@code fechaEscaneo} es la hora a la que se escaneó en la puerta {@code puertaId}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOescaneoSubida {
+	private String contenidoQR;
+	private LocalDateTime fechaEscaneo;
+	private String puertaId;
+}
@@ -2,16 +2,20 @@ package tfg.proyecto.TFG.dtos;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.Singular;
+import tfg.proyecto.TFG.config.RutasImagenes;
 import tfg.proyecto.TFG.modelo.Categoria;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class DTOeventoBajada {
@@ -34,6 +38,47 @@ public class DTOeventoBajada {
     
     private Long vendedorId;
 
+    // Plazas retenidas en carritos y plazas que quedan a la venta; no se cachean
+    private int plazasRetenidas;
+    private int plazasDisponibles;
+
+    /**
+     * Constructor usado por las consultas de listado (JPQL "SELECT new").
+     * Solo rellena los campos escalares; carrusel e invitados se completan
+     * después en el servicio con una consulta agrupada por evento.
+     */
+    public DTOeventoBajada(Long id, String nombre, String localizacion, LocalDateTime inicioEvento,
+            LocalDateTime finEvento, String descripcion, double precio, int aforo, Categoria categoria,
+            String imagenPrincipalUrl, Long vendedorId) {
+        this.id = id;
+        this.nombre = nombre;
+        this.localizacion = localizacion;
+        this.inicioEvento = inicioEvento;
+        this.finEvento = finEvento;
+        this.descripcion = descripcion;
+        this.precio = precio;
+        this.aforo = aforo;
+        this.categoria = categoria;
+        this.imagenPrincipalUrl = imagenPrincipalUrl;
+        this.vendedorId = vendedorId;
+    }
+
+    /**
+     * Versiones reducidas de la portada por ancho (ver {@link RutasImagenes}). Se calculan
+     * a partir de la ruta, así que no ocupan la caché ni cuestan consultas.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Map<Integer, String> getImagenPrincipalVariantes() {
+        return RutasImagenes.urls(imagenPrincipalUrl);
+    }
 
+    /**
+     * Versiones reducidas de cada imagen del carrusel, en el mismo orden.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public List<Map<Integer, String>> getImagenesCarruselVariantes() {
+        return imagenesCarruselUrls == null ? List.of()
+                : imagenesCarruselUrls.stream().map(RutasImagenes::urls).toList();
+    }
 
 }
@@ -0,0 +1,26 @@
+package tfg.proyecto.TFG.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página del catálogo de eventos.
+ *
+ * <p>{@code siguienteCursor} es un token opaco que el cliente debe devolver tal cual
+ * para pedir la página siguiente; es null cuando no hay más eventos.</p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOeventoPagina {
+
+	private List<DTOeventoBajada> eventos;
+	private int limite;
+	private boolean hayMas;
+	private String siguienteCursor;
+}
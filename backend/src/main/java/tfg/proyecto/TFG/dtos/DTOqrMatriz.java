@@ -0,0 +1,23 @@
+package tfg.proyecto.TFG.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Matriz de módulos de un código QR, para que el cliente lo dibuje.
+ * Cada fila es una cadena de '0' (blanco) y '1' (negro); alrededor se debe dejar
+ * un margen blanco de {@code margen} módulos.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOqrMatriz {
+	private int tamano;
+	private int margen;
+	private List<String> filas;
+}
@@ -0,0 +1,33 @@
+package tfg.proyecto.TFG.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Informe de una pasada del recolector de archivos huérfanos de <code>uploads</code>.
+ *
+ * <p>En modo simulación no se borra nada: {@code huerfanos} y {@code bytesHuerfanos} dicen lo
+ * que se borraría y {@code borrados} es 0.</p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOrecoleccionBajada {
+
+	private boolean simulacion;
+	private long revisados;
+	private long referenciados;
+	// Modificados hace menos del periodo de gracia: no se tocan
+	private long recientes;
+	private long huerfanos;
+	private long bytesHuerfanos;
+	private long borrados;
+	private long duracionMs;
+	// Primeras rutas huérfanas encontradas, para revisar el informe
+	private List<String> ejemplos;
+}
@@ -0,0 +1,27 @@
+package tfg.proyecto.TFG.dtos;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Turno de un usuario en la sala de espera de un evento.
+ * Mientras no esté admitido, {@code posicion} indica cuántos turnos le quedan por delante
+ * y {@code esperaSegundos} una estimación de la espera; una vez admitido puede usar el
+ * carrito y finalizar la compra del evento hasta {@code admitidoHasta}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOturnoEspera {
+	private String token;
+	private Long eventoId;
+	private long posicion;
+	private long esperaSegundos;
+	private boolean admitido;
+	private LocalDateTime admitidoHasta;
+}
@@ -0,0 +1,42 @@
+package tfg.proyecto.TFG.modelo;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro de un cambio en los datos que usa el microservicio de recomendación.
+ *
+ * <p>El ID autoincremental hace de número de secuencia: el consumidor guarda el
+ * último que ha procesado y pide los cambios posteriores.</p>
+ */
+@Data
+@Builder
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class CambioDatos {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	private EntidadCambio entidad;
+
+	private Long entidadId;
+
+	@Enumerated(EnumType.STRING)
+	private OperacionCambio operacion;
+
+	private LocalDateTime fecha;
+}
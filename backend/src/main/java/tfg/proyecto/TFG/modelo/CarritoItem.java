@@ -1,5 +1,7 @@
 package tfg.proyecto.TFG.modelo;
 
+import java.time.LocalDateTime;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -29,6 +31,11 @@ public class CarritoItem {
 	private int cantidad;
 	private double precioUnitario; 
 	
+	/**
+	 * Hasta cuándo están retenidas las plazas del item (ver {@code RetencionesCarrito}).
+	 */
+	private LocalDateTime retenidoHasta;
+	
 	@ManyToOne
 	@JoinColumn(name = "carrito_id")
 	 @ToString.Exclude
@@ -0,0 +1,6 @@
+package tfg.proyecto.TFG.modelo;
+
+public enum EntidadCambio {
+	EVENTO,
+	TICKET
+}
@@ -17,10 +17,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -33,6 +35,8 @@ import tfg.proyecto.TFG.config.TieneId;
 @Data
 @Builder
 @Entity
+// El catálogo pagina por (inicioEvento, id) desde la última fila vista
+@Table(indexes = @Index(name = "idx_evento_inicio_id", columnList = "inicioEvento, id"))
 @AllArgsConstructor
 @NoArgsConstructor
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
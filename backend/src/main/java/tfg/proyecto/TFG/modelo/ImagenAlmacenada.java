@@ -0,0 +1,41 @@
+package tfg.proyecto.TFG.modelo;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Imagen guardada por su contenido en el almacén de imágenes.
+ *
+ * <p>El ID es el SHA-256 del contenido: la misma imagen subida varias veces (en varios
+ * eventos, invitados o usuarios) es un solo archivo y una sola fila. {@code referencias}
+ * cuenta cuántos campos de la base de datos apuntan a su ruta y {@code usada} es la última vez
+ * que se subió; el recolector de uploads no la borra si alguna de las dos lo impide.</p>
+ */
+@Data
+@Builder
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImagenAlmacenada {
+
+	@Id
+	@Column(length = 64)
+	private String hash;
+
+	private String ruta;
+
+	private long tamano;
+
+	private int referencias;
+
+	private LocalDateTime creada;
+
+	private LocalDateTime usada;
+}
@@ -0,0 +1,7 @@
+package tfg.proyecto.TFG.modelo;
+
+public enum OperacionCambio {
+	CREADO,
+	ACTUALIZADO,
+	ELIMINADO
+}
@@ -0,0 +1,10 @@
+package tfg.proyecto.TFG.modelo;
+
+public enum ResultadoAcceso {
+	ACEPTADO,
+	DUPLICADO,
+	ANULADO,
+	OTRO_EVENTO,
+	FUERA_DE_PLAZO,
+	DESCONOCIDO
+}
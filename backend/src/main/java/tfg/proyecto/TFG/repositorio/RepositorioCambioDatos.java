@@ -0,0 +1,44 @@
+package tfg.proyecto.TFG.repositorio;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import tfg.proyecto.TFG.modelo.CambioDatos;
+
+/**
+ * Repositorio JPA para la entidad {@link CambioDatos} (registro de cambios para la IA).
+ */
+@Repository
+public interface RepositorioCambioDatos extends CrudRepository<CambioDatos, Long> {
+
+	/**
+	 * Cambios con secuencia entre dos valores y registrados antes de una fecha, en orden.
+	 *
+	 * @param desde última secuencia ya procesada por el consumidor.
+	 * @param tope última secuencia que se puede servir (anterior a las transacciones en curso).
+	 * @param hasta solo cambios con fecha anterior o igual (margen para otros procesos).
+	 * @param pagina tamaño de página (solo se usa el tamaño).
+	 * @return cambios ordenados por secuencia.
+	 */
+	@Query("SELECT c FROM CambioDatos c WHERE c.id > :desde AND c.id <= :tope AND c.fecha <= :hasta ORDER BY c.id")
+	List<CambioDatos> findSiguientes(@Param("desde") Long desde, @Param("tope") Long tope,
+			@Param("hasta") LocalDateTime hasta, Pageable pagina);
+
+	/**
+	 * Secuencia del último cambio registrado, o null si no hay ninguno.
+	 */
+	@Query("SELECT MAX(c.id) FROM CambioDatos c")
+	Long findUltimaSecuencia();
+
+	/**
+	 * Secuencia del primer cambio registrado en o después de una fecha, o null si no hay.
+	 */
+	@Query("SELECT MIN(c.id) FROM CambioDatos c WHERE c.fecha >= :fecha")
+	Long findPrimeraSecuenciaDesde(@Param("fecha") LocalDateTime fecha);
+}
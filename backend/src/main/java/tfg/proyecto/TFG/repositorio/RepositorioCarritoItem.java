@@ -1,7 +1,12 @@
 package tfg.proyecto.TFG.repositorio;
 
 
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import tfg.proyecto.TFG.modelo.CarritoItem;
@@ -15,5 +20,40 @@ import tfg.proyecto.TFG.modelo.CarritoItem;
 @Repository
 public interface RepositorioCarritoItem extends CrudRepository<CarritoItem, Long> {
 	
+	/**
+	 * Plazas de un evento retenidas por carritos cuya retención no ha caducado.
+	 *
+	 * @param eventoId ID del evento
+	 * @param ahora instante actual
+	 * @return suma de las cantidades retenidas
+	 */
+	@Query("SELECT COALESCE(SUM(i.cantidad), 0) FROM CarritoItem i WHERE i.evento.id = :eventoId AND i.retenidoHasta > :ahora")
+	long contarRetenidas(@Param("eventoId") Long eventoId, @Param("ahora") LocalDateTime ahora);
+
+	/**
+	 * Plazas retenidas por carritos en cada evento.
+	 *
+	 * @param ahora instante actual
+	 * @return filas [eventoId, suma de las cantidades retenidas]
+	 */
+	@Query("SELECT i.evento.id, SUM(i.cantidad) FROM CarritoItem i WHERE i.retenidoHasta > :ahora GROUP BY i.evento.id")
+	List<Object[]> contarRetenidasPorEvento(@Param("ahora") LocalDateTime ahora);
+
+	/**
+	 * Retenciones vigentes, para volver a programar su caducidad al arrancar.
+	 *
+	 * @param ahora instante actual
+	 * @return filas [itemId, eventoId, cantidad, retenidoHasta]
+	 */
+	@Query("SELECT i.id, i.evento.id, i.cantidad, i.retenidoHasta FROM CarritoItem i WHERE i.retenidoHasta > :ahora")
+	List<Object[]> findRetencionesVigentes(@Param("ahora") LocalDateTime ahora);
 
+	/**
+	 * Eventos que hay en el carrito activo de un usuario.
+	 *
+	 * @param usuarioId ID del usuario
+	 * @return IDs de los eventos, sin repetir
+	 */
+	@Query("SELECT DISTINCT i.evento.id FROM CarritoItem i WHERE i.carrito.usuario.id = :usuarioId AND i.carrito.estado = tfg.proyecto.TFG.modelo.EstadoCarrito.ACTIVO")
+	List<Long> findEventoIdsEnCarritoActivo(@Param("usuarioId") Long usuarioId);
 }
@@ -1,8 +1,15 @@
 package tfg.proyecto.TFG.repositorio;
 
+import java.math.BigDecimal;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.transaction.Transactional;
+
 import tfg.proyecto.TFG.modelo.TarjetaBancaria;
 
 /**
@@ -13,4 +20,16 @@ import tfg.proyecto.TFG.modelo.TarjetaBancaria;
 @Repository
 public interface RepositorioCuentaBancaria extends CrudRepository<TarjetaBancaria, Long>{
 		
+	/**
+	 * Descuenta un importe del saldo si alcanza, en un único UPDATE condicional
+	 * (sin leer el saldo antes ni perder descuentos concurrentes).
+	 *
+	 * @param tarjetaId ID de la tarjeta
+	 * @param importe importe a descontar
+	 * @return 1 si se ha descontado; 0 si el saldo no alcanza o la tarjeta no existe
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE TarjetaBancaria t SET t.saldo = t.saldo - :importe WHERE t.id = :tarjetaId AND t.saldo >= :importe")
+	int descontarSaldo(@Param("tarjetaId") Long tarjetaId, @Param("importe") BigDecimal importe);
 }
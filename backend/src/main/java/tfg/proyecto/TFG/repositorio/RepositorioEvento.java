@@ -1,13 +1,22 @@
 package tfg.proyecto.TFG.repositorio;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import tfg.proyecto.TFG.dtos.DTOeventoBajada;
 import tfg.proyecto.TFG.modelo.Categoria;
 import tfg.proyecto.TFG.modelo.Evento;
 
@@ -18,7 +27,7 @@ import tfg.proyecto.TFG.modelo.Evento;
  * incluyendo búsquedas por nombre, categoría y vendedor.
  */
 @Repository
-public interface RepositorioEvento extends CrudRepository<Evento, Long>{
+public interface RepositorioEvento extends CrudRepository<Evento, Long>, PagingAndSortingRepository<Evento, Long>{
 	
 
 	Optional<Evento> findByNombre(String nombre);
@@ -41,4 +50,141 @@ public interface RepositorioEvento extends CrudRepository<Evento, Long>{
      */
      @Query("SELECT e FROM Evento e WHERE e.vendedor.id = :vendedorId")
      List<Evento> findByVendedorId(@Param("vendedorId") Long vendedorId);
+
+     /*
+      * Consultas de listado: devuelven directamente el DTO con los campos escalares
+      * en una sola SELECT, sin cargar la entidad (ni su vendedor ni el carrusel EAGER).
+      * El carrusel y los invitados se completan después con una consulta agrupada.
+      */
+
+     /**
+      * Lista los eventos de una categoría como DTOs sin colecciones.
+      *
+      * @param categoria categoría de los eventos.
+      * @return lista de {@link DTOeventoBajada} con los campos escalares rellenos.
+      */
+     @Query("SELECT new tfg.proyecto.TFG.dtos.DTOeventoBajada(e.id, e.nombre, e.localizacion, e.inicioEvento, "
+     		+ "e.finEvento, e.descripcion, e.precio, e.aforoMax, e.categoria, e.imagen, e.vendedor.id) "
+     		+ "FROM Evento e WHERE e.categoria = :categoria")
+     List<DTOeventoBajada> listarPorCategoria(@Param("categoria") Categoria categoria);
+
+     /**
+      * Lista los eventos de un vendedor como DTOs sin colecciones.
+      *
+      * @param vendedorId el ID del vendedor.
+      * @return lista de {@link DTOeventoBajada} con los campos escalares rellenos.
+      */
+     @Query("SELECT new tfg.proyecto.TFG.dtos.DTOeventoBajada(e.id, e.nombre, e.localizacion, e.inicioEvento, "
+     		+ "e.finEvento, e.descripcion, e.precio, e.aforoMax, e.categoria, e.imagen, e.vendedor.id) "
+     		+ "FROM Evento e WHERE e.vendedor.id = :vendedorId")
+     List<DTOeventoBajada> listarPorVendedor(@Param("vendedorId") Long vendedorId);
+
+     /**
+      * Lista los eventos cuyo nombre contiene la cadena indicada (sin distinguir mayúsculas).
+      *
+      * @param nombre parte del nombre a buscar.
+      * @return lista de {@link DTOeventoBajada} con los campos escalares rellenos.
+      */
+     @Query("SELECT new tfg.proyecto.TFG.dtos.DTOeventoBajada(e.id, e.nombre, e.localizacion, e.inicioEvento, "
+     		+ "e.finEvento, e.descripcion, e.precio, e.aforoMax, e.categoria, e.imagen, e.vendedor.id) "
+     		+ "FROM Evento e WHERE LOWER(e.nombre) LIKE LOWER(CONCAT('%', :nombre, '%'))")
+     List<DTOeventoBajada> listarPorNombreConteniendo(@Param("nombre") String nombre);
+
+     /**
+      * Lista los eventos con los IDs indicados (por ejemplo, los devueltos por la IA).
+      * El orden del resultado no está garantizado.
+      *
+      * @param ids IDs de los eventos.
+      * @return lista de {@link DTOeventoBajada} con los campos escalares rellenos.
+      */
+     @Query("SELECT new tfg.proyecto.TFG.dtos.DTOeventoBajada(e.id, e.nombre, e.localizacion, e.inicioEvento, "
+     		+ "e.finEvento, e.descripcion, e.precio, e.aforoMax, e.categoria, e.imagen, e.vendedor.id) "
+     		+ "FROM Evento e WHERE e.id IN :ids")
+     List<DTOeventoBajada> listarPorIds(@Param("ids") Collection<Long> ids);
+
+     /*
+      * Catálogo paginado por clave (keyset): ordenado por (inicioEvento, id) y
+      * filtrado por categoría y rango de fechas opcionales (null = sin filtro).
+      * El tamaño de página lo marca el Pageable; la página siguiente se pide
+      * con el (inicioEvento, id) del último elemento, de modo que la base de
+      * datos no tiene que recorrer las filas ya servidas (a diferencia de OFFSET).
+      */
+
+     /**
+      * Primera página del catálogo.
+      *
+      * @param categoria categoría a filtrar, o null para todas.
+      * @param desde inicio mínimo (inclusive), o null.
+      * @param hasta inicio máximo (exclusive), o null.
+      * @param pagina tamaño de página (solo se usa el tamaño).
+      * @return DTOs ordenados por (inicioEvento, id).
+      */
+     @Query("SELECT new tfg.proyecto.TFG.dtos.DTOeventoBajada(e.id, e.nombre, e.localizacion, e.inicioEvento, "
+     		+ "e.finEvento, e.descripcion, e.precio, e.aforoMax, e.categoria, e.imagen, e.vendedor.id) "
+     		+ "FROM Evento e WHERE e.inicioEvento IS NOT NULL "
+     		+ "AND (:categoria IS NULL OR e.categoria = :categoria) "
+     		+ "AND (:desde IS NULL OR e.inicioEvento >= :desde) "
+     		+ "AND (:hasta IS NULL OR e.inicioEvento < :hasta) "
+     		+ "ORDER BY e.inicioEvento, e.id")
+     List<DTOeventoBajada> catalogoPrimeraPagina(@Param("categoria") Categoria categoria,
+     		@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta, Pageable pagina);
+
+     /**
+      * Página del catálogo siguiente a la clave (inicioEvento, id) indicada.
+      *
+      * @param categoria categoría a filtrar, o null para todas.
+      * @param desde inicio mínimo (inclusive), o null.
+      * @param hasta inicio máximo (exclusive), o null.
+      * @param ultimoInicio inicioEvento del último evento de la página anterior.
+      * @param ultimoId id del último evento de la página anterior.
+      * @param pagina tamaño de página (solo se usa el tamaño).
+      * @return DTOs ordenados por (inicioEvento, id) posteriores a la clave.
+      */
+     @Query("SELECT new tfg.proyecto.TFG.dtos.DTOeventoBajada(e.id, e.nombre, e.localizacion, e.inicioEvento, "
+     		+ "e.finEvento, e.descripcion, e.precio, e.aforoMax, e.categoria, e.imagen, e.vendedor.id) "
+     		+ "FROM Evento e WHERE e.inicioEvento IS NOT NULL "
+     		+ "AND (:categoria IS NULL OR e.categoria = :categoria) "
+     		+ "AND (:desde IS NULL OR e.inicioEvento >= :desde) "
+     		+ "AND (:hasta IS NULL OR e.inicioEvento < :hasta) "
+     		+ "AND (e.inicioEvento > :ultimoInicio OR (e.inicioEvento = :ultimoInicio AND e.id > :ultimoId)) "
+     		+ "ORDER BY e.inicioEvento, e.id")
+     List<DTOeventoBajada> catalogoPaginaSiguiente(@Param("categoria") Categoria categoria,
+     		@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta,
+     		@Param("ultimoInicio") LocalDateTime ultimoInicio, @Param("ultimoId") Long ultimoId, Pageable pagina);
+
+     /**
+      * IDs de eventos ordenados por popularidad (tickets vendidos) y, a igualdad, por fecha de inicio.
+      * Es la alternativa local cuando el microservicio de recomendación no está disponible.
+      *
+      * @param categoria categoría a la que limitarse, o null para todas.
+      * @param excluido ID de evento a excluir (p. ej. el evento de referencia), o null.
+      * @param pagina número de resultados (solo se usa el tamaño).
+      * @return IDs de los eventos más vendidos.
+      */
+     @Query("SELECT e.id FROM Evento e LEFT JOIN e.tickets t "
+     		+ "WHERE (:categoria IS NULL OR e.categoria = :categoria) "
+     		+ "AND (:excluido IS NULL OR e.id <> :excluido) "
+     		+ "GROUP BY e.id, e.inicioEvento ORDER BY COUNT(t) DESC, e.inicioEvento")
+     List<Long> findIdsMasPopulares(@Param("categoria") Categoria categoria,
+     		@Param("excluido") Long excluido, Pageable pagina);
+
+     /**
+      * Campos de los eventos indicados que usa la IA para la similitud por contenido.
+      *
+      * @param ids IDs de los eventos.
+      * @return filas [id, nombre, categoria, descripcion, localizacion].
+      */
+     @Query("SELECT e.id, e.nombre, e.categoria, e.descripcion, e.localizacion FROM Evento e WHERE e.id IN :ids")
+     List<Object[]> findDatosIAByIds(@Param("ids") Collection<Long> ids);
+
+     @Query("SELECT e.id FROM Evento e WHERE e.vendedor.id = :vendedorId")
+     List<Long> findIdsByVendedorId(@Param("vendedorId") Long vendedorId);
+
+     /**
+      * Recorre todos los eventos como filas {@code [id, nombre, categoria, descripcion, localizacion]}
+      * leídas por lotes, para la exportación en streaming de los datos de la IA. Requiere transacción.
+      */
+     @Query("SELECT e.id, e.nombre, e.categoria, e.descripcion, e.localizacion FROM Evento e ORDER BY e.id")
+     @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+     Stream<Object[]> streamDatosIA();
 }
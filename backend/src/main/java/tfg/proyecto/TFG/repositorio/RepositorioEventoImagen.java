@@ -1,5 +1,6 @@
 package tfg.proyecto.TFG.repositorio;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.Modifying;
@@ -40,4 +41,15 @@ public interface RepositorioEventoImagen extends CrudRepository<EventoImagen, Lo
 	 List<String> findUrlsByEventoId(@Param("eventoId") Long eventoId);
 	    
 	 List<EventoImagen> findByEventoId(Long eventoId);
+
+	 /**
+	 * Obtiene las URLs de las imágenes de varios eventos en una sola consulta.
+	 * Cada fila es un par {@code [eventoId, url]}; el servicio las agrupa en memoria
+	 * por evento para evitar una consulta por cada evento del listado.
+	 *
+	 * @param eventoIds los IDs de los eventos.
+	 * @return lista de filas {@code [Long eventoId, String url]} ordenadas por imagen.
+	 */
+	 @Query("SELECT ei.evento.id, ei.url FROM EventoImagen ei WHERE ei.evento.id IN :eventoIds ORDER BY ei.id")
+	 List<Object[]> findUrlsByEventoIds(@Param("eventoIds") Collection<Long> eventoIds);
 }
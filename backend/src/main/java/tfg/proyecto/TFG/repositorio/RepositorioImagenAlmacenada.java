@@ -0,0 +1,77 @@
+package tfg.proyecto.TFG.repositorio;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.transaction.Transactional;
+import tfg.proyecto.TFG.modelo.ImagenAlmacenada;
+
+/**
+ * Repositorio JPA de las imágenes del almacén por contenido.
+ *
+ * <p>Incluye las consultas que cuentan, para un conjunto de rutas, cuántas veces aparece
+ * cada una en los campos que guardan imágenes. Cada fila es un par
+ * {@code [String ruta, Long veces]}.</p>
+ */
+@Repository
+public interface RepositorioImagenAlmacenada extends CrudRepository<ImagenAlmacenada, String> {
+
+	@Query("SELECT e.imagen, COUNT(e) FROM Evento e WHERE e.imagen IN :rutas GROUP BY e.imagen")
+	List<Object[]> contarEnPortadas(@Param("rutas") Collection<String> rutas);
+
+	@Query("SELECT url, COUNT(e) FROM Evento e JOIN e.imagenesCarruselUrls url WHERE url IN :rutas GROUP BY url")
+	List<Object[]> contarEnCarruseles(@Param("rutas") Collection<String> rutas);
+
+	@Query("SELECT ei.url, COUNT(ei) FROM EventoImagen ei WHERE ei.url IN :rutas GROUP BY ei.url")
+	List<Object[]> contarEnImagenesEvento(@Param("rutas") Collection<String> rutas);
+
+	@Query("SELECT i.fotoURL, COUNT(i) FROM Invitado i WHERE i.fotoURL IN :rutas GROUP BY i.fotoURL")
+	List<Object[]> contarEnInvitados(@Param("rutas") Collection<String> rutas);
+
+	@Query("SELECT u.foto, COUNT(u) FROM Usuario u WHERE u.foto IN :rutas GROUP BY u.foto")
+	List<Object[]> contarEnUsuarios(@Param("rutas") Collection<String> rutas);
+
+	/**
+	 * Marca una imagen como recién subida.
+	 *
+	 * @return 1, o 0 si no tiene fila
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE ImagenAlmacenada i SET i.usada = :ahora WHERE i.hash = :hash")
+	int marcarUsada(@Param("hash") String hash, @Param("ahora") LocalDateTime ahora);
+
+	/**
+	 * Borra la fila de una imagen solo si no tiene referencias ni se ha subido desde
+	 * {@code limite}. Deja la fila bloqueada hasta el final de la transacción.
+	 *
+	 * @return 1 si se ha borrado
+	 */
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM ImagenAlmacenada i WHERE i.hash = :hash AND i.referencias = 0 AND COALESCE(i.usada, i.creada) < :limite")
+	int borrarSinUso(@Param("hash") String hash, @Param("limite") LocalDateTime limite);
+
+	/**
+	 * Rutas de imagen de unos eventos (portada, carrusel, imágenes e invitados), para
+	 * recontar sus referencias después de borrarlos.
+	 */
+	@Query("SELECT e.imagen FROM Evento e WHERE e.id IN :eventoIds AND e.imagen IS NOT NULL")
+	List<String> findPortadasByEventoIds(@Param("eventoIds") Collection<Long> eventoIds);
+
+	@Query("SELECT url FROM Evento e JOIN e.imagenesCarruselUrls url WHERE e.id IN :eventoIds")
+	List<String> findCarruselesByEventoIds(@Param("eventoIds") Collection<Long> eventoIds);
+
+	@Query("SELECT ei.url FROM EventoImagen ei WHERE ei.evento.id IN :eventoIds")
+	List<String> findImagenesByEventoIds(@Param("eventoIds") Collection<Long> eventoIds);
+
+	@Query("SELECT i.fotoURL FROM Invitado i WHERE i.evento.id IN :eventoIds AND i.fotoURL IS NOT NULL")
+	List<String> findFotosInvitadosByEventoIds(@Param("eventoIds") Collection<Long> eventoIds);
+}
@@ -1,12 +1,17 @@
 package tfg.proyecto.TFG.repositorio;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
 import tfg.proyecto.TFG.modelo.Invitado;
 /**
@@ -27,4 +32,23 @@ public interface RepositorioInvitado extends CrudRepository<Invitado, Long> {
 	 @Modifying
 	 @Query("DELETE FROM Invitado i WHERE i.evento.id = :eventoId")
 	 void deleteByEventoId(@Param("eventoId") Long eventoId);
+
+	 /**
+	  * Obtiene los invitados de varios eventos en una sola consulta, sin cargar las entidades
+	  * (evitando así la carga EAGER del evento de cada invitado).
+	  *
+	  * @param eventoIds los IDs de los eventos.
+	  * @return lista de filas {@code [eventoId, id, nombre, apellidos, fotoURL, descripcion]}.
+	  */
+	 @Query("SELECT i.evento.id, i.id, i.nombre, i.apellidos, i.fotoURL, i.descripcion "
+	 		+ "FROM Invitado i WHERE i.evento.id IN :eventoIds ORDER BY i.id")
+	 List<Object[]> findResumenByEventoIds(@Param("eventoIds") Collection<Long> eventoIds);
+
+	 /**
+	  * Recorre todos los invitados como filas {@code [eventoId, id, nombre]} leídas por lotes,
+	  * para la exportación en streaming de los datos de la IA. Requiere transacción.
+	  */
+	 @Query("SELECT i.evento.id, i.id, i.nombre FROM Invitado i ORDER BY i.evento.id, i.id")
+	 @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	 Stream<Object[]> streamResumenIA();
 }
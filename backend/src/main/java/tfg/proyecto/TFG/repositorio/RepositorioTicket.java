@@ -1,11 +1,20 @@
 package tfg.proyecto.TFG.repositorio;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
 import tfg.proyecto.TFG.modelo.EstadoTicket;
 import tfg.proyecto.TFG.modelo.Ticket;
 
@@ -30,4 +39,113 @@ public interface RepositorioTicket extends CrudRepository<Ticket, Long>{
      * @return un {@link Optional} con el ticket encontrado, si existe
      */
 	Optional<Ticket> findByContenidoQRAndEstado(String contenidoQR, EstadoTicket estado);
+
+	/**
+	 * URL codificada en el QR de un ticket, para dibujar su imagen.
+	 *
+	 * @param contenidoQR el contenido del código QR del ticket
+	 * @return la URL de validación, o vacío si no hay ningún ticket con ese QR
+	 */
+	@Query("SELECT t.urlQR FROM Ticket t WHERE t.contenidoQR = :contenidoQR")
+	Optional<String> findUrlQRByContenidoQR(@Param("contenidoQR") String contenidoQR);
+
+	/**
+	 * Rutas de imagen de QR que siguen usando algún ticket, para el recolector de uploads.
+	 *
+	 * @param rutas rutas a comprobar
+	 * @return las rutas de la lista que están en algún {@code codigoQR}
+	 */
+	@Query("SELECT DISTINCT t.codigoQR FROM Ticket t WHERE t.codigoQR IN :rutas")
+	List<String> findCodigosQRUsados(@Param("rutas") Collection<String> rutas);
+
+	/**
+	 * Tickets de un evento para el control de accesos.
+	 *
+	 * @param eventoId ID del evento
+	 * @return filas [id, contenidoQR, eventoId, estado]
+	 */
+	@Query("SELECT t.id, t.contenidoQR, t.evento.id, t.estado FROM Ticket t WHERE t.evento.id = :eventoId")
+	List<Object[]> findAccesosByEventoId(@Param("eventoId") Long eventoId);
+
+	/**
+	 * Ticket con ese contenido QR para el control de accesos.
+	 *
+	 * @param contenidoQR el contenido del código QR del ticket
+	 * @return filas [id, contenidoQR, eventoId, estado]; vacía si no existe
+	 */
+	@Query("SELECT t.id, t.contenidoQR, t.evento.id, t.estado FROM Ticket t WHERE t.contenidoQR = :contenidoQR")
+	List<Object[]> findAccesosByContenidoQR(@Param("contenidoQR") String contenidoQR);
+
+	/**
+	 * Tickets con esos contenidos QR para el control de accesos, en una sola consulta.
+	 *
+	 * @param contenidosQR contenidos de los QR
+	 * @return filas [id, contenidoQR, eventoId, estado] de los que existen
+	 */
+	@Query("SELECT t.id, t.contenidoQR, t.evento.id, t.estado FROM Ticket t WHERE t.contenidoQR IN :contenidosQR")
+	List<Object[]> findAccesosByContenidoQRIn(@Param("contenidosQR") Collection<String> contenidosQR);
+
+	/**
+	 * Marca como USADO los tickets indicados que sigan VALIDO, en un único UPDATE.
+	 *
+	 * @param ids IDs de los tickets
+	 * @return número de tickets actualizados
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE Ticket t SET t.estado = tfg.proyecto.TFG.modelo.EstadoTicket.USADO WHERE t.id IN :ids AND t.estado = tfg.proyecto.TFG.modelo.EstadoTicket.VALIDO")
+	int marcarUsados(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Resumen de los tickets indicados para la IA.
+	 *
+	 * @param ids IDs de los tickets
+	 * @return filas [id, usuarioId, eventoId]
+	 */
+	@Query("SELECT t.id, t.usuario.id, t.evento.id FROM Ticket t WHERE t.id IN :ids")
+	List<Object[]> findResumenByIds(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Plazas ocupadas de un evento: sus tickets no anulados.
+	 *
+	 * @param eventoId ID del evento
+	 * @return número de tickets
+	 */
+	@Query("SELECT COUNT(t) FROM Ticket t WHERE t.evento.id = :eventoId AND t.estado <> tfg.proyecto.TFG.modelo.EstadoTicket.ANULADO")
+	long contarOcupadas(@Param("eventoId") Long eventoId);
+
+	/**
+	 * Plazas ocupadas de todos los eventos, incluidos los que aún no tienen tickets.
+	 *
+	 * @return filas [eventoId, número de tickets no anulados]
+	 */
+	@Query("SELECT e.id, COUNT(t) FROM Evento e LEFT JOIN Ticket t ON t.evento = e AND t.estado <> tfg.proyecto.TFG.modelo.EstadoTicket.ANULADO GROUP BY e.id")
+	List<Object[]> contarOcupadasPorEvento();
+
+	/**
+	 * Plazas que ocupa un usuario en cada evento.
+	 *
+	 * @param usuarioId ID del usuario
+	 * @return filas [eventoId, número de tickets no anulados del usuario]
+	 */
+	@Query("SELECT t.evento.id, COUNT(t) FROM Ticket t WHERE t.usuario.id = :usuarioId AND t.estado <> tfg.proyecto.TFG.modelo.EstadoTicket.ANULADO GROUP BY t.evento.id")
+	List<Object[]> contarOcupadasPorEventoDeUsuario(@Param("usuarioId") Long usuarioId);
+
+	@Query("SELECT t.id FROM Ticket t WHERE t.evento.id = :eventoId")
+	List<Long> findIdsByEventoId(@Param("eventoId") Long eventoId);
+
+	/**
+	 * IDs de los tickets que se borran en cascada al eliminar un usuario:
+	 * los suyos y los de los eventos que ha creado como vendedor.
+	 */
+	@Query("SELECT t.id FROM Ticket t WHERE t.usuario.id = :usuarioId OR t.evento.vendedor.id = :usuarioId")
+	List<Long> findIdsAfectadosPorUsuario(@Param("usuarioId") Long usuarioId);
+
+	/**
+	 * Recorre todos los tickets como filas {@code [id, usuarioId, eventoId]} leídas por lotes,
+	 * para la exportación en streaming de los datos de la IA. Requiere transacción.
+	 */
+	@Query("SELECT t.id, t.usuario.id, t.evento.id FROM Ticket t ORDER BY t.id")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	Stream<Object[]> streamResumenIA();
 }
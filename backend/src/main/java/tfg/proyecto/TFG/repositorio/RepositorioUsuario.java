@@ -1,11 +1,15 @@
 package tfg.proyecto.TFG.repositorio;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import tfg.proyecto.TFG.modelo.Usuario;
 
 /**
@@ -29,4 +33,12 @@ public interface RepositorioUsuario extends CrudRepository<Usuario, Long> {
      */
     @Query("SELECT u FROM Usuario u WHERE u.rol = 'VENDEDOR'")
     List<Usuario> findAllVendedores();
+
+    /**
+     * Recorre todos los usuarios como filas {@code [id, nombre]} leídas por lotes,
+     * para la exportación en streaming de los datos de la IA. Requiere transacción.
+     */
+    @Query("SELECT u.id, u.nombre FROM Usuario u ORDER BY u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Object[]> streamResumenIA();
 }
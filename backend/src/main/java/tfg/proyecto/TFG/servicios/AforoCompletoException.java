@@ -0,0 +1,13 @@
+package tfg.proyecto.TFG.servicios;
+
+/**
+ * No quedan entradas suficientes en un evento para la cantidad pedida.
+ */
+public class AforoCompletoException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public AforoCompletoException(Long eventoId) {
+		super("No quedan entradas suficientes para el evento: " + eventoId);
+	}
+}
@@ -0,0 +1,324 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tfg.proyecto.TFG.config.FileUtils;
+import tfg.proyecto.TFG.config.RutasImagenes;
+import tfg.proyecto.TFG.modelo.ImagenAlmacenada;
+import tfg.proyecto.TFG.repositorio.RepositorioImagenAlmacenada;
+
+/**
+ * Almacén de imágenes direccionado por contenido.
+ *
+ * <p>Cada imagen se guarda una sola vez en
+ * <code>uploads/img/&lt;ab&gt;/&lt;cd&gt;/&lt;sha256&gt;.&lt;ext&gt;</code>, donde
+ * <code>ab</code> y <code>cd</code> son los cuatro primeros caracteres del hash (así ningún
+ * directorio acumula todos los archivos). Subir la misma imagen otra vez, para otro evento,
+ * invitado o usuario, devuelve la misma ruta sin volver a escribirla, y dos subidas
+ * simultáneas nunca se pisan.</p>
+ *
+ * <p>Cada imagen tiene una fila {@link ImagenAlmacenada} con el número de campos que apuntan
+ * a ella. Los servicios que cambian esos campos llaman a {@link #actualizarReferencias(Collection)}
+ * con las rutas afectadas, que se recuentan desde la base de datos tras el commit: un recuento
+ * nunca arrastra errores de los anteriores.</p>
+ *
+ * <p>Cada subida, también la de una imagen que ya estaba, marca su fila como usada antes de
+ * tocar el disco. El {@link RecolectorUploads} solo borra una imagen si puede borrar su fila
+ * (sin referencias ni uso reciente) y borra el archivo en esa misma transacción, así que una
+ * subida simultánea o lo mantiene o, si llega tarde, vuelve a crear la fila y el archivo.</p>
+ */
+@Component
+public class AlmacenImagenes {
+
+	private static final int TAMANO_BUFFER = 64 * 1024;
+	private static final int LOTE_CONSULTA = 1000;
+
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 no disponible", e);
+		}
+	});
+
+	@Autowired
+	RepositorioImagenAlmacenada repoImagen;
+
+	private final Path directorio = Paths.get(System.getProperty("user.dir"), "uploads", "img");
+	private final TransactionTemplate transaccionPropia;
+
+	@Autowired
+	public AlmacenImagenes(PlatformTransactionManager transactionManager) {
+		// Transacción propia: tras el commit de otra, sus recursos siguen enlazados al hilo, y
+		// un fallo al registrar una imagen no debe deshacer la transacción del que la sube
+		this.transaccionPropia = new TransactionTemplate(transactionManager);
+		this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	/**
+	 * Guarda una imagen que ya está en memoria (p. ej. decodificada de Base64). Si el almacén
+	 * ya la tiene no se escribe nada.
+	 *
+	 * @param contenido bytes de la imagen
+	 * @param nombre nombre para los mensajes de error
+	 * @return ruta pública de la imagen
+	 * @throws ImagenNoValidaException si no es PNG, JPEG, GIF ni WebP
+	 * @throws IOException si falla la escritura
+	 */
+	public String guardar(byte[] contenido, String nombre) throws IOException {
+		String extension = FileUtils.detectarFormatoImagen(contenido, contenido.length);
+		if (extension == null) {
+			throw new ImagenNoValidaException(nombre);
+		}
+		MessageDigest sha = SHA256.get();
+		sha.reset();
+		String hash = HexFormat.of().formatHex(sha.digest(contenido));
+		Path destino = rutaEnDisco(hash, extension);
+		String ruta = registrar(hash, extension, contenido.length);
+		if (!reutilizar(destino)) {
+			Files.createDirectories(destino.getParent());
+			Path temporal = Files.createTempFile(destino.getParent(), ".subida-", ".tmp");
+			try {
+				Files.write(temporal, contenido);
+				Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temporal);
+			}
+		}
+		return ruta;
+	}
+
+	/**
+	 * Guarda una imagen leyéndola por bloques de {@value #TAMANO_BUFFER} bytes, calculando el
+	 * hash mientras se copia a un temporal. Si el almacén ya la tenía, el temporal se descarta.
+	 *
+	 * @param entrada contenido de la imagen (no se cierra)
+	 * @param nombre nombre original, solo para los mensajes de error
+	 * @return ruta pública de la imagen
+	 * @throws ImagenNoValidaException si el contenido no es una imagen admitida
+	 * @throws IOException si ocurre un error al leer o escribir
+	 */
+	public String guardar(InputStream entrada, String nombre) throws IOException {
+		ReadableByteChannel origen = Channels.newChannel(entrada);
+		ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+		while (buffer.position() < FileUtils.BYTES_CABECERA_IMAGEN && origen.read(buffer) >= 0) {
+			// leer hasta tener la cabecera completa o llegar al final
+		}
+		String extension = FileUtils.detectarFormatoImagen(buffer.array(), buffer.position());
+		if (extension == null) {
+			throw new ImagenNoValidaException(nombre);
+		}
+
+		Files.createDirectories(directorio);
+		Path temporal = Files.createTempFile(directorio, ".subida-", ".tmp");
+		try {
+			MessageDigest sha = SHA256.get();
+			sha.reset();
+			long tamano = 0;
+			try (FileChannel destino = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+				buffer.flip();
+				while (true) {
+					sha.update(buffer.array(), 0, buffer.limit());
+					tamano += buffer.limit();
+					while (buffer.hasRemaining()) {
+						destino.write(buffer);
+					}
+					buffer.clear();
+					if (origen.read(buffer) < 0) {
+						break;
+					}
+					buffer.flip();
+				}
+			}
+			String hash = HexFormat.of().formatHex(sha.digest());
+			Path destino = rutaEnDisco(hash, extension);
+			String ruta = registrar(hash, extension, tamano);
+			if (!reutilizar(destino)) {
+				Files.createDirectories(destino.getParent());
+				Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+			}
+			return ruta;
+		} finally {
+			Files.deleteIfExists(temporal);
+		}
+	}
+
+	/**
+	 * Recuenta las referencias de unas rutas. Dentro de una transacción el recuento se hace al
+	 * confirmarla, para contar los cambios ya guardados; las rutas que no son del almacén se
+	 * ignoran.
+	 *
+	 * @param rutas rutas que se han añadido o quitado de algún campo
+	 */
+	public void actualizarReferencias(Collection<String> rutas) {
+		Set<String> delAlmacen = new LinkedHashSet<>();
+		for (String ruta : rutas) {
+			if (RutasImagenes.esDelAlmacen(ruta)) {
+				delAlmacen.add(ruta);
+			}
+		}
+		if (delAlmacen.isEmpty()) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					recontar(delAlmacen);
+				}
+			});
+		} else {
+			recontar(delAlmacen);
+		}
+	}
+
+	/**
+	 * Rutas de imagen de unos eventos: portada, carrusel, imágenes del evento y fotos de
+	 * invitados. Se leen antes de borrar los eventos para recontarlas después.
+	 *
+	 * @param eventoIds IDs de los eventos
+	 * @return rutas encontradas (con repeticiones)
+	 */
+	public List<String> rutasDeEventos(Collection<Long> eventoIds) {
+		List<String> rutas = new ArrayList<>();
+		if (eventoIds.isEmpty()) {
+			return rutas;
+		}
+		rutas.addAll(repoImagen.findPortadasByEventoIds(eventoIds));
+		rutas.addAll(repoImagen.findCarruselesByEventoIds(eventoIds));
+		rutas.addAll(repoImagen.findImagenesByEventoIds(eventoIds));
+		rutas.addAll(repoImagen.findFotosInvitadosByEventoIds(eventoIds));
+		return rutas;
+	}
+
+	private void recontar(Set<String> rutas) {
+		transaccionPropia.executeWithoutResult(estado -> recontarLotes(rutas));
+	}
+
+	/**
+	 * Cuenta cuántas portadas, carruseles, imágenes de evento, fotos de invitado y fotos de
+	 * usuario apuntan a cada ruta (sean o no del almacén).
+	 *
+	 * @param lote rutas a contar (como mucho unas mil, van en un IN)
+	 * @return ruta → número de referencias; las rutas sin referencias no aparecen
+	 */
+	public Map<String, Long> contarReferencias(Collection<String> lote) {
+		Map<String, Long> veces = new HashMap<>();
+		sumar(veces, repoImagen.contarEnPortadas(lote));
+		sumar(veces, repoImagen.contarEnCarruseles(lote));
+		sumar(veces, repoImagen.contarEnImagenesEvento(lote));
+		sumar(veces, repoImagen.contarEnInvitados(lote));
+		sumar(veces, repoImagen.contarEnUsuarios(lote));
+		return veces;
+	}
+
+	private void recontarLotes(Set<String> rutas) {
+		List<String> lista = new ArrayList<>(rutas);
+		for (int i = 0; i < lista.size(); i += LOTE_CONSULTA) {
+			List<String> lote = lista.subList(i, Math.min(i + LOTE_CONSULTA, lista.size()));
+			Map<String, Long> veces = contarReferencias(lote);
+			List<ImagenAlmacenada> imagenes = new ArrayList<>();
+			for (ImagenAlmacenada imagen : repoImagen.findAllById(lote.stream().map(AlmacenImagenes::hash).toList())) {
+				int referencias = veces.getOrDefault(imagen.getRuta(), 0L).intValue();
+				if (imagen.getReferencias() != referencias) {
+					imagen.setReferencias(referencias);
+					imagenes.add(imagen);
+				}
+			}
+			repoImagen.saveAll(imagenes);
+		}
+	}
+
+	private static void sumar(Map<String, Long> veces, List<Object[]> filas) {
+		for (Object[] fila : filas) {
+			veces.merge((String) fila[0], ((Number) fila[1]).longValue(), Long::sum);
+		}
+	}
+
+	/**
+	 * Marca una imagen como usada ahora, creando su fila si no existe (imagen nueva o borrada
+	 * por el recolector). Si el recolector la está borrando, el UPDATE espera a que termine.
+	 * Dos subidas simultáneas de la misma imagen nueva pueden intentar insertarla a la vez: la
+	 * que pierde recibe un error de clave duplicada en su propia transacción, y la fila ya está.
+	 */
+	private String registrar(String hash, String extension, long tamano) {
+		String ruta = RutasImagenes.PREFIJO + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extension;
+		LocalDateTime ahora = LocalDateTime.now();
+		try {
+			transaccionPropia.executeWithoutResult(estado -> {
+				if (repoImagen.marcarUsada(hash, ahora) == 0) {
+					repoImagen.save(ImagenAlmacenada.builder()
+							.hash(hash)
+							.ruta(ruta)
+							.tamano(tamano)
+							.referencias(0)
+							.creada(ahora)
+							.usada(ahora)
+							.build());
+				}
+			});
+		} catch (DataIntegrityViolationException e) {
+			// La ha registrado otra subida entre la comprobación y el INSERT
+		}
+		return ruta;
+	}
+
+	/**
+	 * Marca como recién usada una imagen que ya está en disco.
+	 *
+	 * @return false si no existe (o el recolector la acaba de borrar) y hay que escribirla
+	 */
+	private static boolean reutilizar(Path destino) throws IOException {
+		try {
+			Files.setLastModifiedTime(destino, FileTime.fromMillis(System.currentTimeMillis()));
+			return true;
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+	}
+
+	private Path rutaEnDisco(String hash, String extension) {
+		return directorio.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + "." + extension);
+	}
+
+	/**
+	 * Hash (clave de {@link ImagenAlmacenada}) de una ruta del almacén.
+	 */
+	static String hash(String ruta) {
+		String nombre = ruta.substring(ruta.lastIndexOf('/') + 1);
+		int punto = nombre.indexOf('.');
+		return punto < 0 ? nombre : nombre.substring(0, punto);
+	}
+}
@@ -0,0 +1,150 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.modelo.Categoria;
+
+/**
+ * Caché de lectura de eventos ya convertidos a {@link DTOeventoBajada}.
+ *
+ * <p>Guarda tres cachés de Caffeine (configuradas en <code>application.properties</code>
+ * con tamaño máximo y TTL):</p>
+ * <ul>
+ *     <li><b>eventosPorId</b>: un evento por su ID.</li>
+ *     <li><b>eventosPorCategoria</b>: el listado de cada {@link Categoria}.</li>
+ *     <li><b>eventosTodos</b>: el listado completo de <code>findAll</code>.</li>
+ * </ul>
+ *
+ * <p>Los servicios que modifican eventos, carrusel o invitados llaman a
+ * {@link #invalidarEvento(Long, Categoria...)}; el TTL solo cubre las escrituras
+ * que no pasan por ellos. Los contadores de aciertos, fallos y desalojos se
+ * publican en actuator como métricas <code>cache.gets</code> y <code>cache.evictions</code>.</p>
+ *
+ * <p>Las cargas (solo en un fallo de caché) se ejecutan en una transacción de solo lectura,
+ * para que el mapeo de colecciones LAZY funcione también fuera de una petición web.
+ * Los DTOs devueltos se comparten entre peticiones: no deben modificarse.</p>
+ */
+@Component
+public class CacheEventos {
+
+	public static final String POR_ID = "eventosPorId";
+	public static final String POR_CATEGORIA = "eventosPorCategoria";
+	public static final String TODOS = "eventosTodos";
+
+	private static final String CLAVE_TODOS = "todos";
+
+	private final Cache porId;
+	private final Cache porCategoria;
+	private final Cache todos;
+	private final TransactionTemplate lectura;
+
+	@Autowired
+	public CacheEventos(CacheManager cacheManager, PlatformTransactionManager transactionManager) {
+		this.porId = cacheManager.getCache(POR_ID);
+		this.porCategoria = cacheManager.getCache(POR_CATEGORIA);
+		this.todos = cacheManager.getCache(TODOS);
+		this.lectura = new TransactionTemplate(transactionManager);
+		this.lectura.setReadOnly(true);
+	}
+
+	/**
+	 * Devuelve el evento cacheado o lo carga (una sola vez aunque haya peticiones concurrentes).
+	 *
+	 * @param id ID del evento
+	 * @param carga consulta a ejecutar si no está en caché
+	 * @return DTO del evento
+	 */
+	public DTOeventoBajada obtenerPorId(Long id, Supplier<DTOeventoBajada> carga) {
+		return porId.get(id, () -> lectura.execute(estado -> carga.get()));
+	}
+
+	/**
+	 * Devuelve el listado cacheado de una categoría o lo carga.
+	 *
+	 * @param categoria categoría de los eventos
+	 * @param carga consulta a ejecutar si no está en caché
+	 * @return lista inmutable de eventos
+	 */
+	public List<DTOeventoBajada> obtenerPorCategoria(Categoria categoria, Supplier<List<DTOeventoBajada>> carga) {
+		return porCategoria.get(categoria, () -> List.copyOf(lectura.execute(estado -> carga.get())));
+	}
+
+	/**
+	 * Devuelve el listado completo cacheado o lo carga.
+	 *
+	 * @param carga consulta a ejecutar si no está en caché
+	 * @return lista inmutable de eventos
+	 */
+	public List<DTOeventoBajada> obtenerTodos(Supplier<List<DTOeventoBajada>> carga) {
+		return todos.get(CLAVE_TODOS, () -> List.copyOf(lectura.execute(estado -> carga.get())));
+	}
+
+	/**
+	 * Invalida todo lo que puede contener un evento: su entrada por ID, el listado
+	 * completo, las categorías indicadas (p. ej. la nueva tras un cambio de categoría)
+	 * y cualquier listado de categoría cacheado que lo incluya.
+	 *
+	 * <p>Si hay una transacción activa se invalida también al confirmarla, para que
+	 * una lectura concurrente no vuelva a cachear los datos anteriores al commit.</p>
+	 *
+	 * @param eventoId ID del evento modificado
+	 * @param categorias categorías afectadas conocidas por el llamante (opcional)
+	 */
+	public void invalidarEvento(Long eventoId, Categoria... categorias) {
+		invalidarAhora(eventoId, categorias);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					invalidarAhora(eventoId, categorias);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Vacía las tres cachés.
+	 */
+	public void invalidarTodo() {
+		porId.clear();
+		porCategoria.clear();
+		todos.clear();
+	}
+
+	private void invalidarAhora(Long eventoId, Categoria... categorias) {
+		todos.evict(CLAVE_TODOS);
+		if (eventoId != null) {
+			porId.evict(eventoId);
+		}
+		for (Categoria categoria : categorias) {
+			if (categoria != null) {
+				porCategoria.evict(categoria);
+			}
+		}
+
+		// Categoría desconocida (o anterior a un cambio): se buscan los listados que contienen el evento
+		if (eventoId != null && porCategoria instanceof CaffeineCache caffeine) {
+			for (Map.Entry<Object, Object> entrada : caffeine.getNativeCache().asMap().entrySet()) {
+				@SuppressWarnings("unchecked")
+				List<DTOeventoBajada> eventos = (List<DTOeventoBajada>) entrada.getValue();
+				if (eventos.stream().anyMatch(dto -> eventoId.equals(dto.getId()))) {
+					porCategoria.evict(entrada.getKey());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/**
+ * Caché de las imágenes PNG de los códigos QR de los tickets (<b>imagenesQR</b>),
+ * por el contenido del QR.
+ *
+ * <p>Los QR ya no se generan ni se guardan en disco al comprar: se dibujan la primera vez
+ * que se piden y se guardan aquí. La caché está limitada por el tamaño total en bytes y
+ * descarta las imágenes que llevan tiempo sin pedirse (ver <code>cache.qr.*</code> en
+ * <code>application.properties</code>). Como el contenido de un QR no cambia, el cliente
+ * puede además cachear la imagen indefinidamente.</p>
+ */
+@Component
+public class CacheImagenesQR {
+
+	public static final String IMAGENES_QR = "imagenesQR";
+
+	private final Cache<Object, Object> imagenes;
+
+	@Autowired
+	public CacheImagenesQR(CacheManager cacheManager) {
+		this.imagenes = ((CaffeineCache) cacheManager.getCache(IMAGENES_QR)).getNativeCache();
+	}
+
+	/**
+	 * PNG del QR desde caché o generándolo (una sola vez aunque haya peticiones concurrentes).
+	 *
+	 * @param contenidoQR contenido del QR del ticket
+	 * @param generar dibuja el PNG; sus excepciones llegan al llamante y no se cachea nada
+	 * @return bytes PNG (compartidos: no deben modificarse)
+	 */
+	public byte[] obtenerPng(String contenidoQR, Supplier<byte[]> generar) {
+		return (byte[]) imagenes.get(contenidoQR, k -> generar.get());
+	}
+}
@@ -0,0 +1,91 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/**
+ * Caché de las listas de IDs devueltas por el microservicio de recomendación,
+ * por usuario (<b>recomendacionesUsuario</b>) y por evento (<b>recomendacionesEvento</b>).
+ *
+ * <p>Las entradas caducan pronto (ver <code>cache.recomendaciones.*</code> en
+ * <code>application.properties</code>) porque el modelo se reentrena con las compras.
+ * Si varias peticiones piden la misma clave a la vez, solo una llama al microservicio
+ * y el resto espera su resultado. Las respuestas alternativas (microservicio caído)
+ * no se guardan, para volver a preguntar a la IA en cuanto se recupere.</p>
+ */
+@Component
+public class CacheRecomendaciones {
+
+	public static final String POR_USUARIO = "recomendacionesUsuario";
+	public static final String POR_EVENTO = "recomendacionesEvento";
+
+	private final Cache<Object, Object> porUsuario;
+	private final Cache<Object, Object> porEvento;
+
+	@Autowired
+	public CacheRecomendaciones(CacheManager cacheManager) {
+		this.porUsuario = ((CaffeineCache) cacheManager.getCache(POR_USUARIO)).getNativeCache();
+		this.porEvento = ((CaffeineCache) cacheManager.getCache(POR_EVENTO)).getNativeCache();
+	}
+
+	/**
+	 * IDs recomendados para un usuario, desde caché o llamando al microservicio.
+	 *
+	 * @param userId ID del usuario
+	 * @param carga llamada al microservicio; vacío si no está disponible
+	 * @return IDs recomendados, o vacío si no hay en caché y el microservicio no respondió
+	 */
+	public Optional<List<Long>> idsUsuario(Long userId, Supplier<Optional<List<Long>>> carga) {
+		return obtener(porUsuario, userId, carga);
+	}
+
+	/**
+	 * IDs de eventos similares a uno dado, desde caché o llamando al microservicio.
+	 *
+	 * @param eventoId ID del evento
+	 * @param carga llamada al microservicio; vacío si no está disponible
+	 * @return IDs similares, o vacío si no hay en caché y el microservicio no respondió
+	 */
+	public Optional<List<Long>> idsEvento(Long eventoId, Supplier<Optional<List<Long>>> carga) {
+		return obtener(porEvento, eventoId, carga);
+	}
+
+	/**
+	 * Descarta las recomendaciones de un usuario (p. ej. tras una compra).
+	 *
+	 * <p>Si hay una transacción activa se descartan también al confirmarla, para que
+	 * una petición concurrente no vuelva a cachear las anteriores a la compra.</p>
+	 *
+	 * @param userId ID del usuario
+	 */
+	public void invalidarUsuario(Long userId) {
+		porUsuario.invalidate(userId);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					porUsuario.invalidate(userId);
+				}
+			});
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Optional<List<Long>> obtener(Cache<Object, Object> cache, Long clave,
+			Supplier<Optional<List<Long>>> carga) {
+		// Caffeine no guarda los null: un fallo del microservicio no se cachea
+		List<Long> ids = (List<Long>) cache.get(clave, k -> carga.get().map(List::copyOf).orElse(null));
+		return Optional.ofNullable(ids);
+	}
+}
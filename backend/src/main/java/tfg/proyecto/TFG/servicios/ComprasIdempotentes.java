@@ -0,0 +1,96 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import tfg.proyecto.TFG.dtos.DTOCarritoBajada;
+
+/**
+ * Hace idempotente la finalización de la compra del carrito.
+ *
+ * <ul>
+ *     <li>Las peticiones repetidas de un usuario mientras su compra está en curso (p. ej. dos
+ *     pulsaciones del botón de comprar) no vuelven a comprar: esperan a la primera y
+ *     reciben su resultado.</li>
+ *     <li>Si el cliente envía una clave de idempotencia, el resultado de la compra confirmada se
+ *     guarda en la caché <b>comprasCompletadas</b> (limitada en tamaño y tiempo, ver
+ *     <code>idempotencia.*</code> en <code>application.properties</code>) y un reintento con
+ *     la misma clave lo recibe sin volver a comprar.</li>
+ * </ul>
+ *
+ * <p>Las compras fallidas no se guardan: el mismo error llega a las peticiones que esperaban
+ * y la clave se puede reintentar.</p>
+ */
+@Component
+public class ComprasIdempotentes {
+
+	public static final String COMPLETADAS = "comprasCompletadas";
+
+	private final Cache<Object, Object> completadas;
+	private final ConcurrentHashMap<String, CompletableFuture<DTOCarritoBajada>> enCurso = new ConcurrentHashMap<>();
+
+	@Autowired
+	public ComprasIdempotentes(CacheManager cacheManager) {
+		this.completadas = ((CaffeineCache) cacheManager.getCache(COMPLETADAS)).getNativeCache();
+	}
+
+	/**
+	 * Ejecuta una compra una sola vez por usuario y clave.
+	 *
+	 * <p>Debe llamarse fuera de la transacción de la compra, para guardar solo resultados
+	 * ya confirmados.</p>
+	 *
+	 * @param usuarioId ID del comprador
+	 * @param clave clave de idempotencia enviada por el cliente, o null
+	 * @param compra compra a ejecutar
+	 * @return resultado de esta ejecución, de la que estaba en curso o de la ya completada
+	 */
+	public DTOCarritoBajada ejecutar(Long usuarioId, String clave, Supplier<DTOCarritoBajada> compra) {
+		String id = usuarioId + ":" + (clave == null ? "" : clave);
+		CompletableFuture<DTOCarritoBajada> nueva = new CompletableFuture<>();
+		CompletableFuture<DTOCarritoBajada> anterior = enCurso.putIfAbsent(id, nueva);
+		if (anterior != null) {
+			return esperar(anterior);
+		}
+		try {
+			// Se mira después de ocupar la clave: la compra anterior guarda su resultado antes
+			// de soltarla, así que un duplicado que llega justo al terminar también lo ve
+			DTOCarritoBajada resultado = clave == null ? null : (DTOCarritoBajada) completadas.getIfPresent(id);
+			if (resultado != null) {
+				nueva.complete(resultado);
+				return resultado;
+			}
+			resultado = compra.get();
+			if (clave != null) {
+				completadas.put(id, resultado);
+			}
+			nueva.complete(resultado);
+			return resultado;
+		} catch (RuntimeException e) {
+			nueva.completeExceptionally(e);
+			throw e;
+		} finally {
+			enCurso.remove(id, nueva);
+		}
+	}
+
+	private static DTOCarritoBajada esperar(CompletableFuture<DTOCarritoBajada> compra) {
+		try {
+			return compra.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException causa) {
+				throw causa;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import tfg.proyecto.TFG.dtos.DTOCambiosBajada;
+import tfg.proyecto.TFG.modelo.EntidadCambio;
+import tfg.proyecto.TFG.modelo.OperacionCambio;
+
+public interface IServicioCambios {
+
+	void registrar(EntidadCambio entidad, Long entidadId, OperacionCambio operacion);
+	void registrarTodos(EntidadCambio entidad, Collection<Long> entidadIds, OperacionCambio operacion);
+	DTOCambiosBajada obtenerCambios(Long desde, LocalDateTime fecha, Integer limite);
+	long versionActual();
+	long versionSegura();
+}
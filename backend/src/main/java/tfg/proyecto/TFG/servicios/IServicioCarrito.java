@@ -1,5 +1,7 @@
 package tfg.proyecto.TFG.servicios;
 
+import java.util.List;
+
 import tfg.proyecto.TFG.dtos.DTOCarritoBajada;
 
 public interface IServicioCarrito {
@@ -11,4 +13,5 @@ public interface IServicioCarrito {
 	    DTOCarritoBajada vaciarCarrito(Long usuarioId);
 	    double calcularTotal(Long usuarioId);
 	    DTOCarritoBajada finalizarCompra(Long usuarioId);
+	    List<Long> eventosEnCarrito(Long usuarioId);
 }
\ No newline at end of file
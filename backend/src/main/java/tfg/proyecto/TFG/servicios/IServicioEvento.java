@@ -1,8 +1,10 @@
 package tfg.proyecto.TFG.servicios;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoPagina;
 import tfg.proyecto.TFG.dtos.DTOeventoSubida;
 import tfg.proyecto.TFG.dtos.EventoRecomendadoDTO;
 import tfg.proyecto.TFG.modelo.Categoria;
@@ -11,6 +13,7 @@ public interface IServicioEvento {
 	
 	DTOeventoBajada insert(DTOeventoSubida dto);
 	List<DTOeventoBajada> obtenerTodosLosEventos();
+	DTOeventoPagina obtenerCatalogo(Categoria categoria, LocalDateTime desde, LocalDateTime hasta, Integer limite, String cursor);
 	DTOeventoBajada actualizarEvento(Long id,  DTOeventoSubida eventodto);
 	boolean eliminarEvento(Long id);
 	DTOeventoBajada obtnerPorElNombre(String nombre);
@@ -0,0 +1,9 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface IServicioExportacionIA {
+
+	void exportarDatosIA(OutputStream salida) throws IOException;
+}
@@ -9,4 +9,5 @@ public interface IServicioInvitado {
 	List<DTOInvitadoBajada> guardarInvitados(Long eventoId, List<DTOInvitadoSubida> invitadosDto);
 	List<DTOInvitadoBajada> obtenerInvitados(Long eventoId);
 	void eliminarInvitados(Long eventoId);
+	boolean eliminarInvitado(Long invitadoId);
 }
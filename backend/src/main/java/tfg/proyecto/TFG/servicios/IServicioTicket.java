@@ -2,12 +2,16 @@ package tfg.proyecto.TFG.servicios;
 
 import java.util.List;
 
+import tfg.proyecto.TFG.dtos.DTOqrMatriz;
 import tfg.proyecto.TFG.dtos.DTOticketBajada;
 import tfg.proyecto.TFG.dtos.DTOticketSubida;
+import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.Usuario;
 
 public interface IServicioTicket {
 	
 	DTOticketBajada insert(DTOticketSubida dtoTicket);
+	List<DTOticketBajada> emitirTickets(Usuario usuario, Evento evento, int cantidad, double precioPagado);
 	boolean delete(Long id);
 	DTOticketBajada obtnerTicketPorId(Long id);
 	List<DTOticketBajada> obtnerTicketsPorUsuarioId(Long usuarioId);
@@ -15,4 +19,7 @@ public interface IServicioTicket {
 	boolean eliminarTodosLosTicketsPorUsuario(Long usuarioId);
 	DTOticketBajada findById(Long id);
 	boolean validarYUsarCodigoQR(String codigoQR);
+	byte[] obtenerImagenQR(String contenidoQR);
+	String obtenerQRSvg(String contenidoQR);
+	DTOqrMatriz obtenerQRMatriz(String contenidoQR);
 }
@@ -0,0 +1,13 @@
+package tfg.proyecto.TFG.servicios;
+
+/**
+ * El contenido subido no es una imagen de un formato admitido (PNG, JPEG, GIF o WebP).
+ */
+public class ImagenNoValidaException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ImagenNoValidaException(String nombre) {
+		super("El archivo no es una imagen admitida: " + nombre);
+	}
+}
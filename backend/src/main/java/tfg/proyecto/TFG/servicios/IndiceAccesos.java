@@ -0,0 +1,373 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import tfg.proyecto.TFG.config.FirmaQR;
+import tfg.proyecto.TFG.dtos.DTOescaneoBajada;
+import tfg.proyecto.TFG.dtos.DTOescaneoSubida;
+import tfg.proyecto.TFG.modelo.EntidadCambio;
+import tfg.proyecto.TFG.modelo.EstadoTicket;
+import tfg.proyecto.TFG.modelo.OperacionCambio;
+import tfg.proyecto.TFG.modelo.ResultadoAcceso;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Índice en memoria de los QR de los tickets para el control de accesos en la puerta.
+ *
+ * <p>Antes de abrir puertas, {@link #abrir(Long)} carga los tickets del evento en un mapa
+ * contenidoQR → entrada con el ID del ticket, su evento y su estado. Validar un QR es una
+ * búsqueda en el mapa y un compare-and-set de VALIDO a USADO sobre la entrada: no hay
+ * bloqueos ni consultas, y de dos escaneos simultáneos del mismo QR solo uno lo acepta;
+ * el otro se informa al momento como duplicado, con la hora del primero.</p>
+ *
+ * <ul>
+ *     <li>Los tickets aceptados se guardan como USADO por lotes, cada
+ *     <code>accesos.escritura-ms</code>, en un único UPDATE por lote (write-behind).</li>
+ *     <li>Un QR que no está en el índice (p. ej. de una venta posterior a abrir) se busca una
+ *     vez en la base de datos por su columna indexada y se añade, también si es un QR firmado:
+ *     la firma no dice si el ticket se ha borrado o anulado después (en otro nodo o antes de
+ *     reiniciar), y eso solo lo sabe la base de datos.</li>
+ *     <li>Un QR firmado ({@link FirmaQR}) fuera de su ventana de validez se rechaza como
+ *     FUERA_DE_PLAZO sin consultar.</li>
+ *     <li>Todas las validaciones pasan por el índice, también las de
+ *     <code>/tfg/ticket/validarQR</code>, así que ningún ticket se acepta dos veces.</li>
+ *     <li>Los lectores sin conexión sincronizan sus escaneos con {@link #escanearLote}: gana
+ *     el escaneo más antiguo de cada ticket, aunque llegue después que otro posterior.</li>
+ * </ul>
+ */
+@Component
+public class IndiceAccesos {
+
+	// Valores de Entrada.usadoEn distintos de una hora de uso (milisegundos desde epoch)
+	private static final long LIBRE = 0;
+	private static final long ANULADA = -1;
+	private static final long USADA_SIN_HORA = 1;
+
+	private static final int LOTE_ESCRITURA = 1000;
+	private static final int LOTE_CONSULTA = 1000;
+
+	private static final AtomicLongFieldUpdater<Entrada> USO =
+			AtomicLongFieldUpdater.newUpdater(Entrada.class, "usadoEn");
+
+	private final ConcurrentHashMap<String, Entrada> porQR = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Long> pendientes = new ConcurrentLinkedQueue<>();
+	private Thread hiloEscritura;
+
+	@Autowired
+	RepositorioTicket ticketDAO;
+	@Autowired
+	IServicioCambios servicioCambios;
+	@Autowired
+	FirmaQR firmaQR;
+
+	@Value("${accesos.escritura-ms:500}")
+	long intervaloEscrituraMs;
+
+	/**
+	 * Carga en el índice los tickets de un evento. Los que ya estaban se conservan,
+	 * con los usos aún pendientes de guardar.
+	 *
+	 * @param eventoId ID del evento
+	 * @return número de tickets del evento
+	 */
+	public int abrir(Long eventoId) {
+		List<Object[]> filas = ticketDAO.findAccesosByEventoId(eventoId);
+		for (Object[] fila : filas) {
+			porQR.putIfAbsent((String) fila[1], nuevaEntrada(fila));
+		}
+		System.out.println("[ACCESOS] Evento " + eventoId + " abierto con " + filas.size() + " tickets");
+		return filas.size();
+	}
+
+	/**
+	 * Guarda los usos pendientes y saca del índice los tickets de un evento.
+	 *
+	 * @param eventoId ID del evento
+	 */
+	public void cerrar(Long eventoId) {
+		volcar();
+		long id = eventoId;
+		porQR.values().removeIf(entrada -> entrada.eventoId == id);
+	}
+
+	/**
+	 * Valida un QR y, si el ticket está VALIDO, lo marca como USADO.
+	 *
+	 * @param eventoId evento de la puerta, o null para aceptar tickets de cualquier evento
+	 * @param contenidoQR contenido del QR escaneado
+	 * @return resultado del escaneo
+	 */
+	public DTOescaneoBajada escanear(Long eventoId, String contenidoQR) {
+		return escanear(eventoId, contenidoQR, System.currentTimeMillis());
+	}
+
+	/**
+	 * Igual que {@link #escanear(Long, String)}, con la hora del escaneo en milisegundos
+	 * desde epoch.
+	 */
+	DTOescaneoBajada escanear(Long eventoId, String contenidoQR, long instante) {
+		FirmaQR.QRFirmado firmado = firmaQR.verificar(contenidoQR);
+		if (firmado != null && !firmado.vigente(instante)) {
+			return fueraDePlazo(contenidoQR, firmado);
+		}
+		Entrada entrada = porQR.get(contenidoQR);
+		if (entrada == null) {
+			entrada = cargar(contenidoQR);
+		}
+		return aplicar(eventoId, contenidoQR, entrada, instante, false);
+	}
+
+	/**
+	 * Valida un lote de escaneos hechos sin conexión en las puertas de un evento.
+	 *
+	 * <p>Los QR que no están en el índice se buscan todos juntos (una consulta por cada
+	 * {@value #LOTE_CONSULTA}) y los escaneos se aplican por orden de hora: de cada ticket gana
+	 * el escaneo más antiguo, también frente a uno ya aceptado en línea a una hora posterior.
+	 * Una hora de escaneo futura o ausente cuenta como ahora.</p>
+	 *
+	 * @param eventoId evento de las puertas
+	 * @param escaneos escaneos en el orden en que los envía el lector
+	 * @return resultado de cada escaneo, en el mismo orden
+	 */
+	public List<DTOescaneoBajada> escanearLote(Long eventoId, List<DTOescaneoSubida> escaneos) {
+		FirmaQR.QRFirmado[] firmados = new FirmaQR.QRFirmado[escaneos.size()];
+		Set<String> sinCargar = new LinkedHashSet<>();
+		for (int i = 0; i < escaneos.size(); i++) {
+			String contenidoQR = escaneos.get(i).getContenidoQR();
+			firmados[i] = firmaQR.verificar(contenidoQR);
+			if (contenidoQR != null && !porQR.containsKey(contenidoQR)) {
+				sinCargar.add(contenidoQR);
+			}
+		}
+		cargarTodos(new ArrayList<>(sinCargar));
+
+		long ahora = System.currentTimeMillis();
+		long[] instantes = new long[escaneos.size()];
+		Integer[] orden = new Integer[escaneos.size()];
+		for (int i = 0; i < escaneos.size(); i++) {
+			LocalDateTime fecha = escaneos.get(i).getFechaEscaneo();
+			instantes[i] = fecha == null ? ahora
+					: Math.min(ahora, fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+			orden[i] = i;
+		}
+		Arrays.sort(orden, Comparator.comparingLong(i -> instantes[i]));
+
+		DTOescaneoBajada[] resultados = new DTOescaneoBajada[escaneos.size()];
+		for (int i : orden) {
+			DTOescaneoSubida escaneo = escaneos.get(i);
+			String contenidoQR = escaneo.getContenidoQR();
+			DTOescaneoBajada resultado = firmados[i] != null && !firmados[i].vigente(instantes[i])
+					? fueraDePlazo(contenidoQR, firmados[i])
+					: aplicar(eventoId, contenidoQR, contenidoQR == null ? null : porQR.get(contenidoQR),
+							instantes[i], true);
+			resultado.setPuertaId(escaneo.getPuertaId());
+			resultado.setFechaEscaneo(escaneo.getFechaEscaneo());
+			resultados[i] = resultado;
+		}
+		return Arrays.asList(resultados);
+	}
+
+	/**
+	 * Saca del índice tickets borrados. Dentro de una transacción se sacan al confirmarla.
+	 *
+	 * @param ticketIds IDs de los tickets
+	 */
+	public void descartar(Collection<Long> ticketIds) {
+		if (ticketIds.isEmpty()) {
+			return;
+		}
+		Set<Long> ids = new HashSet<>(ticketIds);
+		Runnable accion = () -> porQR.values().removeIf(entrada -> ids.contains(entrada.ticketId));
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					accion.run();
+				}
+			});
+		} else {
+			accion.run();
+		}
+	}
+
+	/**
+	 * Guarda como USADO, por lotes, los tickets aceptados desde la última escritura.
+	 * Si un lote falla, sus tickets vuelven a la cola para el siguiente intento.
+	 */
+	public synchronized void volcar() {
+		List<Long> lote = new ArrayList<>(LOTE_ESCRITURA);
+		Long id;
+		while ((id = pendientes.poll()) != null) {
+			lote.add(id);
+			if (lote.size() == LOTE_ESCRITURA) {
+				if (!escribir(lote)) {
+					return;
+				}
+				lote = new ArrayList<>(LOTE_ESCRITURA);
+			}
+		}
+		if (!lote.isEmpty()) {
+			escribir(lote);
+		}
+	}
+
+	/**
+	 * Tickets aceptados que aún no se han guardado como USADO.
+	 *
+	 * @return número de tickets pendientes
+	 */
+	public int pendientes() {
+		return pendientes.size();
+	}
+
+	@PostConstruct
+	void arrancar() {
+		hiloEscritura = new Thread(this::escribirPeriodicamente, "accesos-escritura");
+		hiloEscritura.setDaemon(true);
+		hiloEscritura.start();
+	}
+
+	@PreDestroy
+	void parar() {
+		hiloEscritura.interrupt();
+		volcar();
+	}
+
+	private void escribirPeriodicamente() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Thread.sleep(intervaloEscrituraMs);
+				volcar();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private boolean escribir(List<Long> lote) {
+		try {
+			ticketDAO.marcarUsados(lote);
+			servicioCambios.registrarTodos(EntidadCambio.TICKET, lote, OperacionCambio.ACTUALIZADO);
+			return true;
+		} catch (RuntimeException e) {
+			pendientes.addAll(lote);
+			System.out.println("[ACCESOS] Error al guardar " + lote.size() + " tickets usados: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Aplica un escaneo a una entrada. Con {@code adelantar}, un escaneo anterior al que se aceptó
+	 * pasa a ser el primero (solo para los lotes sin conexión: en línea, el primero en llegar gana).
+	 */
+	private DTOescaneoBajada aplicar(Long eventoId, String contenidoQR, Entrada entrada, long instante,
+			boolean adelantar) {
+		if (entrada == null) {
+			return resultado(contenidoQR, ResultadoAcceso.DESCONOCIDO, null);
+		}
+		if (eventoId != null && entrada.eventoId != eventoId) {
+			return resultado(contenidoQR, ResultadoAcceso.OTRO_EVENTO, entrada);
+		}
+		long uso = Math.max(instante, USADA_SIN_HORA + 1);
+		if (USO.compareAndSet(entrada, LIBRE, uso)) {
+			pendientes.add(entrada.ticketId);
+			return resultado(contenidoQR, ResultadoAcceso.ACEPTADO, entrada);
+		}
+		long usadoEn;
+		while ((usadoEn = entrada.usadoEn) > uso && adelantar) {
+			if (USO.compareAndSet(entrada, usadoEn, uso)) {
+				return resultado(contenidoQR, ResultadoAcceso.ACEPTADO, entrada);
+			}
+		}
+		return resultado(contenidoQR,
+				usadoEn == ANULADA ? ResultadoAcceso.ANULADO : ResultadoAcceso.DUPLICADO, entrada);
+	}
+
+	private static DTOescaneoBajada fueraDePlazo(String contenidoQR, FirmaQR.QRFirmado firmado) {
+		return DTOescaneoBajada.builder()
+				.contenidoQR(contenidoQR)
+				.resultado(ResultadoAcceso.FUERA_DE_PLAZO)
+				.ticketId(firmado.ticketId())
+				.eventoId(firmado.eventoId())
+				.build();
+	}
+
+	private void cargarTodos(List<String> contenidosQR) {
+		for (int desde = 0; desde < contenidosQR.size(); desde += LOTE_CONSULTA) {
+			List<String> lote = contenidosQR.subList(desde, Math.min(desde + LOTE_CONSULTA, contenidosQR.size()));
+			for (Object[] fila : ticketDAO.findAccesosByContenidoQRIn(lote)) {
+				porQR.putIfAbsent((String) fila[1], nuevaEntrada(fila));
+			}
+		}
+	}
+
+	private Entrada cargar(String contenidoQR) {
+		List<Object[]> filas = ticketDAO.findAccesosByContenidoQR(contenidoQR);
+		if (filas.isEmpty()) {
+			return null;
+		}
+		Entrada nueva = nuevaEntrada(filas.get(0));
+		Entrada anterior = porQR.putIfAbsent(contenidoQR, nueva);
+		return anterior != null ? anterior : nueva;
+	}
+
+	private static Entrada nuevaEntrada(Object[] fila) {
+		EstadoTicket estado = (EstadoTicket) fila[3];
+		long usadoEn = estado == EstadoTicket.USADO ? USADA_SIN_HORA
+				: estado == EstadoTicket.ANULADO ? ANULADA : LIBRE;
+		return new Entrada((Long) fila[0], (Long) fila[2], usadoEn);
+	}
+
+	private static DTOescaneoBajada resultado(String contenidoQR, ResultadoAcceso resultado, Entrada entrada) {
+		DTOescaneoBajada.DTOescaneoBajadaBuilder dto = DTOescaneoBajada.builder()
+				.contenidoQR(contenidoQR)
+				.resultado(resultado);
+		if (entrada != null) {
+			long usadoEn = entrada.usadoEn;
+			dto.ticketId(entrada.ticketId)
+					.eventoId(entrada.eventoId)
+					.usadoEn(usadoEn > USADA_SIN_HORA
+							? LocalDateTime.ofInstant(Instant.ofEpochMilli(usadoEn), ZoneId.systemDefault())
+							: null);
+		}
+		return dto.build();
+	}
+
+	/**
+	 * Ticket en el índice. {@code usadoEn} es {@link #LIBRE}, {@link #ANULADA},
+	 * {@link #USADA_SIN_HORA} (ya estaba usado al cargarlo) o la hora del escaneo que lo aceptó.
+	 */
+	private static final class Entrada {
+
+		final long ticketId;
+		final long eventoId;
+		volatile long usadoEn;
+
+		Entrada(long ticketId, long eventoId, long usadoEn) {
+			this.ticketId = ticketId;
+			this.eventoId = eventoId;
+			this.usadoEn = usadoEn;
+		}
+	}
+}
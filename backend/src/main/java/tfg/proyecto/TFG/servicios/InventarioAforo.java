@@ -0,0 +1,178 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import tfg.proyecto.TFG.repositorio.RepositorioCarritoItem;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Inventario en memoria de las plazas ocupadas de cada evento, para no vender más
+ * entradas que su <code>aforoMax</code>.
+ *
+ * <p>Cada evento tiene un contador atómico de plazas ocupadas. Reservar es un bucle
+ * compare-and-set que falla si la reserva superaría el aforo, así que la venta de entradas
+ * de un mismo evento no espera por ningún bloqueo (ni en memoria ni en la base de datos).</p>
+ *
+ * <p>Las plazas retenidas por los carritos ({@link RetencionesCarrito}) también cuentan
+ * como ocupadas mientras no caducan.</p>
+ *
+ * <ul>
+ *     <li>Los contadores se cargan con los tickets y las retenciones vigentes de cada evento
+ *     al arrancar ({@link #reconciliar()}) o la primera vez que se usa un evento nuevo.</li>
+ *     <li>Si la transacción que reservó se deshace, las plazas se devuelven solas.</li>
+ *     <li>Las plazas de tickets borrados se devuelven al confirmar el borrado.</li>
+ * </ul>
+ */
+@Component
+public class InventarioAforo {
+
+	private final ConcurrentHashMap<Long, AtomicInteger> ocupadas = new ConcurrentHashMap<>();
+
+	@Autowired
+	RepositorioTicket ticketDAO;
+	@Autowired
+	RepositorioCarritoItem itemDAO;
+
+	/**
+	 * Reserva plazas de un evento si caben en su aforo.
+	 *
+	 * <p>Dentro de una transacción, la reserva se deshace si la transacción no se confirma.</p>
+	 *
+	 * @param eventoId ID del evento
+	 * @param aforoMax aforo máximo del evento
+	 * @param cantidad plazas a reservar
+	 * @return true si se han reservado; false si no quedan suficientes
+	 */
+	public boolean reservar(Long eventoId, int aforoMax, int cantidad) {
+		if (!reservarAhora(eventoId, aforoMax, cantidad)) {
+			return false;
+		}
+		AtomicInteger contador = contador(eventoId);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int estado) {
+					if (estado != STATUS_COMMITTED) {
+						contador.addAndGet(-cantidad);
+					}
+				}
+			});
+		}
+		return true;
+	}
+
+	/**
+	 * Devuelve plazas de un evento (p. ej. al borrar tickets). Dentro de una transacción
+	 * se devuelven al confirmarla.
+	 *
+	 * @param eventoId ID del evento
+	 * @param cantidad plazas a devolver
+	 */
+	public void liberar(Long eventoId, int cantidad) {
+		despuesDeConfirmar(() -> liberarAhora(eventoId, cantidad));
+	}
+
+	/**
+	 * Reserva plazas sin atarlas a la transacción en curso.
+	 */
+	boolean reservarAhora(Long eventoId, int aforoMax, int cantidad) {
+		AtomicInteger contador = contador(eventoId);
+		int actual;
+		do {
+			actual = contador.get();
+			if (actual + cantidad > aforoMax) {
+				return false;
+			}
+		} while (!contador.compareAndSet(actual, actual + cantidad));
+		return true;
+	}
+
+	/**
+	 * Devuelve plazas sin esperar a la transacción en curso.
+	 */
+	void liberarAhora(Long eventoId, int cantidad) {
+		AtomicInteger contador = ocupadas.get(eventoId);
+		if (contador != null) {
+			contador.updateAndGet(actual -> Math.max(0, actual - cantidad));
+		}
+	}
+
+	/**
+	 * Descarta el contador de un evento eliminado.
+	 *
+	 * @param eventoId ID del evento
+	 */
+	public void olvidar(Long eventoId) {
+		despuesDeConfirmar(() -> ocupadas.remove(eventoId));
+	}
+
+	/**
+	 * Plazas ocupadas de un evento.
+	 *
+	 * @param eventoId ID del evento
+	 * @return número de plazas ocupadas
+	 */
+	public int ocupadas(Long eventoId) {
+		return contador(eventoId).get();
+	}
+
+	/**
+	 * Plazas ocupadas de un evento sin consultar la base de datos, para los listados.
+	 *
+	 * <p>Al arrancar se cargan todos los eventos y cualquier venta o retención posterior
+	 * carga el suyo, así que un evento sin contador no tiene plazas ocupadas.</p>
+	 *
+	 * @param eventoId ID del evento
+	 * @return número de plazas ocupadas
+	 */
+	public int ocupadasEnMemoria(Long eventoId) {
+		AtomicInteger contador = ocupadas.get(eventoId);
+		return contador == null ? 0 : contador.get();
+	}
+
+	/**
+	 * Recalcula todos los contadores a partir de los tickets y las retenciones vigentes
+	 * guardadas. Se ejecuta al arrancar.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void reconciliar() {
+		ocupadas.clear();
+		for (Object[] fila : ticketDAO.contarOcupadasPorEvento()) {
+			ocupadas.put((Long) fila[0], new AtomicInteger(((Number) fila[1]).intValue()));
+		}
+		for (Object[] fila : itemDAO.contarRetenidasPorEvento(LocalDateTime.now())) {
+			ocupadas.computeIfAbsent((Long) fila[0], id -> new AtomicInteger())
+					.addAndGet(((Number) fila[1]).intValue());
+		}
+		System.out.println("[AFORO] Contadores cargados para " + ocupadas.size() + " eventos");
+	}
+
+	private AtomicInteger contador(Long eventoId) {
+		return ocupadas.computeIfAbsent(eventoId,
+				id -> new AtomicInteger((int) (ticketDAO.contarOcupadas(id)
+						+ itemDAO.contarRetenidas(id, LocalDateTime.now()))));
+	}
+
+	private static void despuesDeConfirmar(Runnable accion) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					accion.run();
+				}
+			});
+		} else {
+			accion.run();
+		}
+	}
+}
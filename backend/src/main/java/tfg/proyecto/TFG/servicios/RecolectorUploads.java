@@ -0,0 +1,333 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import tfg.proyecto.TFG.config.RutasImagenes;
+import tfg.proyecto.TFG.dtos.DTOrecoleccionBajada;
+import tfg.proyecto.TFG.repositorio.RepositorioImagenAlmacenada;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Borra los archivos de <code>uploads</code> que ya no usa nadie: portadas y carruseles
+ * sustituidos, imágenes de eventos borrados, QR de tickets eliminados, etc.
+ *
+ * <p>Es un mark-and-sweep incremental: recorre el disco por lotes de
+ * <code>uploads.recoleccion.lote</code> archivos y, por cada lote, consulta con un IN qué rutas
+ * siguen en {@code Evento} (portada y carrusel), {@code EventoImagen}, {@code Invitado},
+ * {@code Usuario.foto} y {@code Ticket.codigoQR}. Así la memoria no depende del número de
+ * archivos, y entre lote y lote se espera <code>uploads.recoleccion.pausa-ms</code> para no
+ * cargar el disco ni la base de datos.</p>
+ *
+ * <ul>
+ *     <li>Los archivos modificados hace menos de <code>uploads.recoleccion.gracia-minutos</code>
+ *     no se tocan: pueden ser de una subida cuya transacción aún no ha terminado (el
+ *     {@link AlmacenImagenes} actualiza la fecha al reutilizar una imagen por el mismo motivo).</li>
+ *     <li>Las variantes de {@link VariantesImagen} siguen a su original, y al borrar una imagen
+ *     del almacén se borran también sus variantes y su fila {@code ImagenAlmacenada}, solo si
+ *     esta sigue sin referencias y sin subidas recientes.</li>
+ *     <li>Los temporales de subidas interrumpidas (empiezan por punto) se borran pasada la gracia.</li>
+ *     <li>Con <code>uploads.recoleccion.simulacion=true</code> solo se informa de lo que se
+ *     borraría.</li>
+ * </ul>
+ */
+@Component
+public class RecolectorUploads {
+
+	private static final Path UPLOADS = Paths.get(System.getProperty("user.dir"), "uploads");
+	private static final int MAXIMO_EJEMPLOS = 100;
+
+	@Autowired
+	AlmacenImagenes almacenImagenes;
+	@Autowired
+	RepositorioImagenAlmacenada repoImagen;
+	@Autowired
+	RepositorioTicket ticketDAO;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Value("${uploads.recoleccion.habilitada:true}")
+	boolean habilitada;
+	@Value("${uploads.recoleccion.simulacion:true}")
+	boolean simulacion;
+	@Value("${uploads.recoleccion.intervalo-minutos:60}")
+	long intervaloMinutos;
+	@Value("${uploads.recoleccion.gracia-minutos:60}")
+	long graciaMinutos;
+	@Value("${uploads.recoleccion.lote:500}")
+	int tamanoLote;
+	@Value("${uploads.recoleccion.pausa-ms:50}")
+	long pausaMs;
+
+	private final AtomicBoolean enCurso = new AtomicBoolean();
+	private Thread hiloRecoleccion;
+	private TransactionTemplate transaccion;
+
+	/**
+	 * Hace una pasada completa sobre <code>uploads</code>.
+	 *
+	 * @param simular true para solo informar, sin borrar nada
+	 * @return informe de la pasada, o null si ya había otra en curso
+	 */
+	public DTOrecoleccionBajada recolectar(boolean simular) {
+		return recolectar(UPLOADS, simular);
+	}
+
+	DTOrecoleccionBajada recolectar(Path raiz, boolean simular) {
+		if (!enCurso.compareAndSet(false, true)) {
+			return null;
+		}
+		long inicio = System.currentTimeMillis();
+		Recuento recuento = new Recuento();
+		try {
+			if (Files.isDirectory(raiz)) {
+				long limite = inicio - TimeUnit.MINUTES.toMillis(graciaMinutos);
+				List<Path> lote = new ArrayList<>(tamanoLote);
+				Files.walkFileTree(raiz, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) throws IOException {
+						if (atributos.isRegularFile()) {
+							lote.add(archivo);
+						}
+						if (lote.size() < tamanoLote) {
+							return FileVisitResult.CONTINUE;
+						}
+						procesarLote(raiz, lote, limite, simular, recuento);
+						lote.clear();
+						try {
+							Thread.sleep(pausaMs);
+							return FileVisitResult.CONTINUE;
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return FileVisitResult.TERMINATE;
+						}
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path archivo, IOException e) {
+						// Borrado mientras se recorría la carpeta (p. ej. la variante de un original ya borrado)
+						return FileVisitResult.CONTINUE;
+					}
+				});
+				if (!lote.isEmpty() && !Thread.currentThread().isInterrupted()) {
+					procesarLote(raiz, lote, limite, simular, recuento);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("[UPLOADS] Recolección interrumpida: " + e.getMessage());
+		} finally {
+			enCurso.set(false);
+		}
+		DTOrecoleccionBajada informe = DTOrecoleccionBajada.builder()
+				.simulacion(simular)
+				.revisados(recuento.revisados)
+				.referenciados(recuento.referenciados)
+				.recientes(recuento.recientes)
+				.huerfanos(recuento.huerfanos)
+				.bytesHuerfanos(recuento.bytesHuerfanos)
+				.borrados(recuento.borrados)
+				.duracionMs(System.currentTimeMillis() - inicio)
+				.ejemplos(recuento.ejemplos)
+				.build();
+		System.out.println("[UPLOADS] " + (simular ? "Simulación: " : "") + informe.getRevisados() + " archivos, "
+				+ informe.getHuerfanos() + " huérfanos (" + informe.getBytesHuerfanos() + " bytes), "
+				+ informe.getBorrados() + " borrados en " + informe.getDuracionMs() + " ms");
+		return informe;
+	}
+
+	@PostConstruct
+	void arrancar() {
+		transaccion = new TransactionTemplate(transactionManager);
+		if (!habilitada) {
+			return;
+		}
+		hiloRecoleccion = new Thread(this::recolectarPeriodicamente, "recolector-uploads");
+		hiloRecoleccion.setDaemon(true);
+		hiloRecoleccion.setPriority(Thread.MIN_PRIORITY);
+		hiloRecoleccion.start();
+	}
+
+	@PreDestroy
+	void parar() {
+		if (hiloRecoleccion != null) {
+			hiloRecoleccion.interrupt();
+		}
+	}
+
+	private void recolectarPeriodicamente() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Thread.sleep(TimeUnit.MINUTES.toMillis(intervaloMinutos));
+				recolectar(simulacion);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException e) {
+				System.out.println("[UPLOADS] Error en la recolección: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Marca (consulta qué rutas del lote siguen en uso) y barre (borra las demás).
+	 */
+	private void procesarLote(Path raiz, List<Path> lote, long limite, boolean simular, Recuento recuento)
+			throws IOException {
+		// Archivo → ruta pública de la que depende (la suya o, si es una variante, la del original)
+		Map<Path, String> dependencias = new LinkedHashMap<>();
+		List<Path> huerfanos = new ArrayList<>();
+		for (Path archivo : lote) {
+			recuento.revisados++;
+			long modificado;
+			try {
+				modificado = Files.getLastModifiedTime(archivo).toMillis();
+			} catch (NoSuchFileException e) {
+				continue;
+			}
+			if (modificado > limite) {
+				recuento.recientes++;
+			} else if (archivo.getFileName().toString().startsWith(".")) {
+				huerfanos.add(archivo);
+			} else {
+				String ruta = rutaPublica(raiz, archivo);
+				List<String> originales = RutasImagenes.candidatosOriginal(ruta);
+				if (originales.isEmpty()) {
+					dependencias.put(archivo, ruta);
+				} else {
+					String original = originales.stream()
+							.filter(candidato -> Files.exists(enDisco(raiz, candidato)))
+							.findFirst().orElse(null);
+					if (original == null) {
+						huerfanos.add(archivo);
+					} else {
+						dependencias.put(archivo, original);
+					}
+				}
+			}
+		}
+
+		Set<String> rutas = new HashSet<>(dependencias.values());
+		Set<String> usadas = new HashSet<>();
+		if (!rutas.isEmpty()) {
+			usadas.addAll(almacenImagenes.contarReferencias(rutas).keySet());
+			usadas.addAll(ticketDAO.findCodigosQRUsados(rutas));
+		}
+		dependencias.forEach((archivo, ruta) -> {
+			if (usadas.contains(ruta)) {
+				recuento.referenciados++;
+			} else {
+				huerfanos.add(archivo);
+			}
+		});
+
+		for (Path archivo : huerfanos) {
+			BasicFileAttributes atributos;
+			try {
+				atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+			} catch (NoSuchFileException e) {
+				continue;
+			}
+			String ruta = rutaPublica(raiz, archivo);
+			recuento.huerfanos++;
+			recuento.bytesHuerfanos += atributos.size();
+			if (recuento.ejemplos.size() < MAXIMO_EJEMPLOS) {
+				recuento.ejemplos.add(ruta);
+			}
+			// Se vuelve a mirar la fecha: una subida puede haberlo reutilizado tras la consulta
+			if (simular || atributos.lastModifiedTime().toMillis() > limite) {
+				continue;
+			}
+			if (RutasImagenes.esDelAlmacen(ruta)) {
+				List<String> originales = RutasImagenes.candidatosOriginal(ruta);
+				if (originales.isEmpty()) {
+					borrarDelAlmacen(raiz, archivo, ruta, limite, recuento);
+					continue;
+				}
+				if (originales.stream().anyMatch(candidato -> Files.exists(enDisco(raiz, candidato)))) {
+					continue; // se borra con su original
+				}
+			}
+			if (Files.deleteIfExists(archivo)) {
+				recuento.borrados++;
+			}
+		}
+	}
+
+	/**
+	 * Borra una imagen del almacén con sus variantes y su fila {@code ImagenAlmacenada}.
+	 *
+	 * <p>La fila solo se borra si sigue sin referencias y sin subirse desde el límite, y los
+	 * archivos se borran en la misma transacción, con la fila bloqueada: una subida que la
+	 * reutiliza a la vez, o gana y la imagen se queda, o espera al commit y, al no encontrar
+	 * la fila, la vuelve a crear y reescribe el archivo. Las imágenes sin fila (anteriores a
+	 * ella) se borran solo por la fecha del archivo.</p>
+	 */
+	private void borrarDelAlmacen(Path raiz, Path archivo, String ruta, long limite, Recuento recuento) {
+		String hash = AlmacenImagenes.hash(ruta);
+		LocalDateTime usadaAntesDe = LocalDateTime.ofInstant(Instant.ofEpochMilli(limite), ZoneId.systemDefault());
+		try {
+			transaccion.executeWithoutResult(estado -> {
+				if (repoImagen.borrarSinUso(hash, usadaAntesDe) == 0 && repoImagen.existsById(hash)) {
+					return;
+				}
+				List<Path> archivos = new ArrayList<>();
+				archivos.add(archivo);
+				RutasImagenes.urls(ruta).values().forEach(variante -> archivos.add(enDisco(raiz, variante)));
+				for (Path borrar : archivos) {
+					try {
+						if (Files.deleteIfExists(borrar)) {
+							recuento.borrados++;
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		} catch (UncheckedIOException e) {
+			System.out.println("[UPLOADS] No se pudo borrar " + ruta + ": " + e.getCause().getMessage());
+		}
+	}
+
+	private static String rutaPublica(Path raiz, Path archivo) {
+		return "/uploads/" + raiz.relativize(archivo).toString().replace('\\', '/');
+	}
+
+	private static Path enDisco(Path raiz, String ruta) {
+		return raiz.resolve(ruta.substring("/uploads/".length()));
+	}
+
+	private static class Recuento {
+		long revisados;
+		long referenciados;
+		long recientes;
+		long huerfanos;
+		long bytesHuerfanos;
+		long borrados;
+		final List<String> ejemplos = new ArrayList<>();
+	}
+}
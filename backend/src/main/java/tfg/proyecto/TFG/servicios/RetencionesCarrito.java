@@ -0,0 +1,280 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import tfg.proyecto.TFG.repositorio.RepositorioCarritoItem;
+
+/**
+ * Retenciones temporales de plazas para los items del carrito.
+ *
+ * <p>Al añadir un item se reservan sus plazas en {@link InventarioAforo} durante
+ * <code>carrito.retencion.minutos</code>; al finalizar la compra esas plazas pasan a los
+ * tickets sin volver a comprobar el aforo. Si el usuario no compra a tiempo, las plazas
+ * vuelven a estar a la venta.</p>
+ *
+ * <p>Las caducidades van en una única {@link DelayQueue} atendida por un hilo: no hay un
+ * temporizador por retención ni se recorre ninguna tabla. Una retención que se compra o se
+ * suelta antes de caducar se marca como resuelta y el hilo la descarta al sacarla de la cola.
+ * La fecha de caducidad se guarda también en {@code CarritoItem.retenidoHasta} para
+ * recuperar las retenciones vigentes tras un reinicio.</p>
+ */
+@Component
+public class RetencionesCarrito {
+
+	private final ConcurrentHashMap<Long, Retencion> activas = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Long, AtomicInteger> retenidasPorEvento = new ConcurrentHashMap<>();
+	private final DelayQueue<Retencion> caducidades = new DelayQueue<>();
+	private Thread hiloCaducidad;
+
+	@Autowired
+	InventarioAforo inventarioAforo;
+	@Autowired
+	RepositorioCarritoItem itemDAO;
+
+	@Value("${carrito.retencion.minutos:15}")
+	long minutosRetencion;
+
+	/**
+	 * Fecha de caducidad para una retención que empieza ahora.
+	 *
+	 * @return instante hasta el que se retienen las plazas
+	 */
+	public LocalDateTime nuevaCaducidad() {
+		return LocalDateTime.now().plusMinutes(minutosRetencion);
+	}
+
+	/**
+	 * Retiene plazas para un item del carrito. Si el item ya tenía una retención, se sustituye
+	 * (solo se reserva la diferencia de cantidad).
+	 *
+	 * <p>Dentro de una transacción, la retención se deshace si la transacción no se confirma.</p>
+	 *
+	 * @param itemId ID del item del carrito
+	 * @param eventoId ID del evento
+	 * @param aforoMax aforo máximo del evento
+	 * @param cantidad plazas a retener
+	 * @param hasta instante en que caduca la retención
+	 * @return true si se han retenido; false si no quedan plazas suficientes
+	 */
+	public boolean retener(Long itemId, Long eventoId, int aforoMax, int cantidad, LocalDateTime hasta) {
+		Retencion anterior = activas.get(itemId);
+		boolean habiaAnterior = anterior != null && anterior.resolver();
+		int yaRetenidas = habiaAnterior ? anterior.cantidad : 0;
+		if (habiaAnterior) {
+			activas.remove(itemId, anterior);
+			sumarRetenidas(anterior.eventoId, -yaRetenidas);
+		}
+
+		int diferencia = cantidad - yaRetenidas;
+		if (diferencia > 0 && !inventarioAforo.reservarAhora(eventoId, aforoMax, diferencia)) {
+			if (habiaAnterior) {
+				programar(new Retencion(itemId, anterior.eventoId, yaRetenidas, anterior.vence));
+			}
+			return false;
+		}
+		if (diferencia < 0) {
+			inventarioAforo.liberarAhora(eventoId, -diferencia);
+		}
+
+		Retencion nueva = new Retencion(itemId, eventoId, cantidad, aNanos(hasta));
+		programar(nueva);
+
+		alDeshacer(() -> {
+			if (nueva.resolver()) {
+				activas.remove(itemId, nueva);
+				sumarRetenidas(eventoId, -cantidad);
+				inventarioAforo.liberarAhora(eventoId, cantidad);
+			}
+			if (habiaAnterior
+					&& inventarioAforo.reservarAhora(anterior.eventoId, aforoMax, yaRetenidas)) {
+				programar(new Retencion(itemId, anterior.eventoId, yaRetenidas, anterior.vence));
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Suelta la retención de un item (p. ej. al quitarlo del carrito). Dentro de una
+	 * transacción se suelta al confirmarla.
+	 *
+	 * @param itemId ID del item del carrito
+	 */
+	public void soltar(Long itemId) {
+		Runnable accion = () -> {
+			Retencion retencion = activas.get(itemId);
+			if (retencion != null && retencion.resolver()) {
+				activas.remove(itemId, retencion);
+				sumarRetenidas(retencion.eventoId, -retencion.cantidad);
+				inventarioAforo.liberarAhora(retencion.eventoId, retencion.cantidad);
+			}
+		};
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					accion.run();
+				}
+			});
+		} else {
+			accion.run();
+		}
+	}
+
+	/**
+	 * Convierte la retención de un item en plazas vendidas: siguen ocupadas en
+	 * {@link InventarioAforo}, pero dejan de caducar. Si la transacción no se confirma,
+	 * la retención se restaura con su caducidad original.
+	 *
+	 * @param itemId ID del item del carrito
+	 * @return plazas que estaban retenidas; 0 si la retención ya había caducado
+	 */
+	public int convertir(Long itemId) {
+		Retencion retencion = activas.get(itemId);
+		if (retencion == null || !retencion.resolver()) {
+			return 0;
+		}
+		activas.remove(itemId, retencion);
+		sumarRetenidas(retencion.eventoId, -retencion.cantidad);
+
+		alDeshacer(() -> programar(new Retencion(itemId, retencion.eventoId, retencion.cantidad, retencion.vence)));
+		return retencion.cantidad;
+	}
+
+	/**
+	 * Plazas de un evento retenidas ahora mismo en carritos.
+	 *
+	 * @param eventoId ID del evento
+	 * @return número de plazas retenidas
+	 */
+	public int retenidas(Long eventoId) {
+		AtomicInteger contador = retenidasPorEvento.get(eventoId);
+		return contador == null ? 0 : contador.get();
+	}
+
+	/**
+	 * Vuelve a programar las retenciones vigentes guardadas. Sus plazas ya las cuenta
+	 * {@link InventarioAforo#reconciliar()}.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void recuperar() {
+		LocalDateTime ahora = LocalDateTime.now();
+		for (Object[] fila : itemDAO.findRetencionesVigentes(ahora)) {
+			programar(new Retencion((Long) fila[0], (Long) fila[1], ((Number) fila[2]).intValue(),
+					aNanos((LocalDateTime) fila[3])));
+		}
+		System.out.println("[AFORO] Retenciones de carrito recuperadas: " + activas.size());
+	}
+
+	@PostConstruct
+	void arrancar() {
+		hiloCaducidad = new Thread(this::atenderCaducidades, "retenciones-carrito");
+		hiloCaducidad.setDaemon(true);
+		hiloCaducidad.start();
+	}
+
+	@PreDestroy
+	void parar() {
+		hiloCaducidad.interrupt();
+	}
+
+	private void atenderCaducidades() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Retencion retencion = caducidades.take();
+				// Las compradas o soltadas ya están resueltas y se descartan
+				if (retencion.resolver()) {
+					activas.remove(retencion.itemId, retencion);
+					sumarRetenidas(retencion.eventoId, -retencion.cantidad);
+					inventarioAforo.liberarAhora(retencion.eventoId, retencion.cantidad);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException e) {
+				System.out.println("[AFORO] Error al caducar una retención: " + e.getMessage());
+			}
+		}
+	}
+
+	private void programar(Retencion retencion) {
+		Retencion sustituida = activas.put(retencion.itemId, retencion);
+		if (sustituida != null && sustituida.resolver()) {
+			sumarRetenidas(sustituida.eventoId, -sustituida.cantidad);
+			inventarioAforo.liberarAhora(sustituida.eventoId, sustituida.cantidad);
+		}
+		sumarRetenidas(retencion.eventoId, retencion.cantidad);
+		caducidades.add(retencion);
+	}
+
+	private void sumarRetenidas(Long eventoId, int cantidad) {
+		retenidasPorEvento.computeIfAbsent(eventoId, id -> new AtomicInteger())
+				.updateAndGet(actual -> Math.max(0, actual + cantidad));
+	}
+
+	private static long aNanos(LocalDateTime hasta) {
+		return System.nanoTime() + Duration.between(LocalDateTime.now(), hasta).toNanos();
+	}
+
+	private static void alDeshacer(Runnable accion) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int estado) {
+					if (estado != STATUS_COMMITTED) {
+						accion.run();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Plazas retenidas por un item hasta un instante (en {@link System#nanoTime()}).
+	 * Solo una de caducar, comprar o soltar puede resolverla.
+	 */
+	private static final class Retencion implements Delayed {
+
+		final Long itemId;
+		final Long eventoId;
+		final int cantidad;
+		final long vence;
+		private final AtomicBoolean resuelta = new AtomicBoolean(false);
+
+		Retencion(Long itemId, Long eventoId, int cantidad, long vence) {
+			this.itemId = itemId;
+			this.eventoId = eventoId;
+			this.cantidad = cantidad;
+			this.vence = vence;
+		}
+
+		boolean resolver() {
+			return resuelta.compareAndSet(false, true);
+		}
+
+		@Override
+		public long getDelay(TimeUnit unidad) {
+			return unidad.convert(vence - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed otro) {
+			return Long.compare(vence, ((Retencion) otro).vence);
+		}
+	}
+}
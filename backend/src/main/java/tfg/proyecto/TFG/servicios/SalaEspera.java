@@ -0,0 +1,266 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tfg.proyecto.TFG.dtos.DTOturnoEspera;
+
+/**
+ * Sala de espera virtual: limita a qué ritmo entran compradores al carrito y a la compra
+ * de cada evento, para que una avalancha de peticiones no se convierta en una avalancha
+ * de escrituras en la base de datos.
+ *
+ * <p>Cada evento tiene una cola en memoria. Pedir turno da un número correlativo y un token;
+ * la cola admite los números hasta una frontera que avanza <code>admisiones-por-segundo</code>
+ * turnos por segundo (como un token bucket). Con la cola parada, la frontera va hasta
+ * <code>rafaga</code> turnos por delante, así que con poca demanda se entra sin esperar.
+ * Un turno admitido vale durante <code>minutos-admision</code>; después hay que volver a
+ * pedir turno.</p>
+ *
+ * <p>La admisión nunca dura menos que la retención de las plazas del carrito
+ * (<code>carrito.retencion.minutos</code>) y se renueva cada vez que el usuario añade plazas
+ * ({@link #renovar}), así que quien tiene plazas retenidas sigue admitido al finalizar la
+ * compra. La compra solo consulta la admisión que ya existe ({@link #turnoVigente}).</p>
+ *
+ * <p>La posición se calcula con el número del turno y la frontera, sin consultas: el sondeo
+ * de los clientes en espera no toca la base de datos. Ver <code>sala-espera.*</code> en
+ * <code>application.properties</code>.</p>
+ */
+@Component
+public class SalaEspera {
+
+	private static final long PURGA_NANOS = TimeUnit.SECONDS.toNanos(30);
+	private static final long SIN_ADMITIR = Long.MIN_VALUE;
+
+	private final double admisionesPorSegundo;
+	private final int rafaga;
+	private final long ventanaNanos;
+	private final LongSupplier reloj;
+
+	private final ConcurrentHashMap<Long, Cola> colas = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Turno> turnos = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Turno> turnosPorUsuario = new ConcurrentHashMap<>();
+	private final AtomicLong ultimaPurga;
+
+	@Autowired
+	public SalaEspera(
+			@Value("${sala-espera.admisiones-por-segundo:20}") double admisionesPorSegundo,
+			@Value("${sala-espera.rafaga:50}") int rafaga,
+			@Value("${sala-espera.minutos-admision:15}") long minutosAdmision,
+			@Value("${carrito.retencion.minutos:15}") long minutosRetencion) {
+		this(admisionesPorSegundo, rafaga, minutosAdmision, minutosRetencion, System::nanoTime);
+	}
+
+	SalaEspera(double admisionesPorSegundo, int rafaga, long minutosAdmision, long minutosRetencion,
+			LongSupplier reloj) {
+		this.admisionesPorSegundo = admisionesPorSegundo;
+		this.rafaga = rafaga;
+		this.ventanaNanos = TimeUnit.MINUTES.toNanos(Math.max(minutosAdmision, minutosRetencion));
+		this.reloj = reloj;
+		this.ultimaPurga = new AtomicLong(reloj.getAsLong());
+	}
+
+	/**
+	 * Da turno a un usuario para un evento, o devuelve el que ya tenía si sigue vigente.
+	 *
+	 * @param eventoId ID del evento
+	 * @param usuarioId ID del usuario
+	 * @return estado del turno (admitido o posición en la cola)
+	 */
+	public DTOturnoEspera pedirTurno(Long eventoId, Long usuarioId) {
+		purgarSiToca();
+		Turno turno = turnosPorUsuario.compute(eventoId + ":" + usuarioId, (clave, actual) -> {
+			if (actual != null && !caducado(actual)) {
+				return actual;
+			}
+			if (actual != null) {
+				turnos.remove(actual.token);
+			}
+			Cola cola;
+			long numero;
+			do {
+				cola = colas.computeIfAbsent(eventoId, id -> new Cola());
+				numero = cola.siguiente();
+			} while (numero == 0); // la purga acaba de descartar la cola
+			Turno nuevo = new Turno(UUID.randomUUID().toString(), eventoId, usuarioId, cola, numero);
+			turnos.put(nuevo.token, nuevo);
+			return nuevo;
+		});
+		return estado(turno);
+	}
+
+	/**
+	 * Turno vigente de un usuario para un evento, sin dar turno nuevo si no lo tiene.
+	 *
+	 * @param eventoId ID del evento
+	 * @param usuarioId ID del usuario
+	 * @return estado del turno, o null si el usuario no tiene turno o su admisión ha caducado
+	 */
+	public DTOturnoEspera turnoVigente(Long eventoId, Long usuarioId) {
+		Turno turno = turnosPorUsuario.get(eventoId + ":" + usuarioId);
+		if (turno == null || caducado(turno)) {
+			return null;
+		}
+		return estado(turno);
+	}
+
+	/**
+	 * Vuelve a empezar la ventana de admisión de un usuario ya admitido, para que dure al
+	 * menos tanto como las plazas que acaba de retener.
+	 *
+	 * @param eventoId ID del evento
+	 * @param usuarioId ID del usuario
+	 */
+	public void renovar(Long eventoId, Long usuarioId) {
+		Turno turno = turnosPorUsuario.get(eventoId + ":" + usuarioId);
+		if (turno != null && turno.admitidoEn != SIN_ADMITIR && !caducado(turno)) {
+			turno.admitidoEn = reloj.getAsLong();
+		}
+	}
+
+	/**
+	 * Estado de un turno por su token, para el sondeo de los clientes en espera.
+	 *
+	 * @param token token del turno
+	 * @return estado del turno
+	 * @throws RuntimeException si el token no existe o su admisión ha caducado
+	 */
+	public DTOturnoEspera consultarTurno(String token) {
+		Turno turno = turnos.get(token);
+		if (turno == null || caducado(turno)) {
+			throw new RuntimeException("Turno no encontrado o caducado: " + token);
+		}
+		return estado(turno);
+	}
+
+	/**
+	 * Número de colas en memoria, una por evento con turnos recientes.
+	 *
+	 * @return colas en memoria
+	 */
+	int colasEnMemoria() {
+		return colas.size();
+	}
+
+	private DTOturnoEspera estado(Turno turno) {
+		long ahora = reloj.getAsLong();
+		long frontera = turno.cola.frontera();
+		boolean admitido = turno.numero <= frontera;
+		if (admitido && turno.admitidoEn == SIN_ADMITIR) {
+			turno.admitidoEn = ahora;
+		}
+		long posicion = Math.max(0, turno.numero - frontera);
+		return DTOturnoEspera.builder()
+				.token(turno.token)
+				.eventoId(turno.eventoId)
+				.posicion(posicion)
+				.esperaSegundos((long) Math.ceil(posicion / admisionesPorSegundo))
+				.admitido(admitido)
+				.admitidoHasta(admitido
+						? LocalDateTime.now().plusNanos(turno.admitidoEn + ventanaNanos - ahora)
+						: null)
+				.build();
+	}
+
+	private boolean caducado(Turno turno) {
+		long admitidoEn = turno.admitidoEn;
+		return admitidoEn != SIN_ADMITIR && reloj.getAsLong() - admitidoEn > ventanaNanos;
+	}
+
+	/**
+	 * Cada {@link #PURGA_NANOS} descarta los turnos caducados; los admitidos que nadie
+	 * ha vuelto a consultar empiezan a contar su ventana aquí. También descarta las colas
+	 * que ya no tienen turnos ni han dado ninguno desde la purga anterior.
+	 */
+	private void purgarSiToca() {
+		long ahora = reloj.getAsLong();
+		long anterior = ultimaPurga.get();
+		if (ahora - anterior < PURGA_NANOS || !ultimaPurga.compareAndSet(anterior, ahora)) {
+			return;
+		}
+		Set<Cola> conTurnos = new HashSet<>();
+		for (Turno turno : turnos.values()) {
+			if (turno.admitidoEn == SIN_ADMITIR && turno.numero <= turno.cola.frontera()) {
+				turno.admitidoEn = ahora;
+			}
+			if (caducado(turno)) {
+				turnos.remove(turno.token, turno);
+				turnosPorUsuario.remove(turno.eventoId + ":" + turno.usuarioId, turno);
+			} else {
+				conTurnos.add(turno.cola);
+			}
+		}
+		colas.values().removeIf(cola -> !conTurnos.contains(cola) && cola.descartarSiInactiva(ahora));
+	}
+
+	/**
+	 * Cola de un evento: último número entregado y frontera de admisión. Una cola descartada
+	 * por la purga ya no da números.
+	 */
+	private final class Cola {
+
+		private long emitidos;
+		private double limite = rafaga;
+		private long ultimoAvance = reloj.getAsLong();
+		private long ultimoTurno = ultimoAvance;
+		private boolean descartada;
+
+		/**
+		 * @return número del turno, o 0 si la cola está descartada
+		 */
+		synchronized long siguiente() {
+			if (descartada) {
+				return 0;
+			}
+			avanzar();
+			ultimoTurno = ultimoAvance;
+			return ++emitidos;
+		}
+
+		synchronized boolean descartarSiInactiva(long ahora) {
+			descartada = ahora - ultimoTurno >= PURGA_NANOS;
+			return descartada;
+		}
+
+		synchronized long frontera() {
+			avanzar();
+			return (long) limite;
+		}
+
+		private void avanzar() {
+			long ahora = reloj.getAsLong();
+			double admitidos = (ahora - ultimoAvance) / 1e9 * admisionesPorSegundo;
+			limite = Math.min(limite + admitidos, emitidos + rafaga);
+			ultimoAvance = ahora;
+		}
+	}
+
+	private static final class Turno {
+
+		final String token;
+		final Long eventoId;
+		final Long usuarioId;
+		final Cola cola;
+		final long numero;
+		// Instante (nanoTime) en que se vio admitido por primera vez
+		volatile long admitidoEn = SIN_ADMITIR;
+
+		Turno(String token, Long eventoId, Long usuarioId, Cola cola, long numero) {
+			this.token = token;
+			this.eventoId = eventoId;
+			this.usuarioId = usuarioId;
+			this.cola = cola;
+			this.numero = numero;
+		}
+	}
+}
@@ -0,0 +1,319 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.transaction.Transactional;
+import tfg.proyecto.TFG.dtos.DTOCambiosBajada;
+import tfg.proyecto.TFG.dtos.DTOEventoDataIA;
+import tfg.proyecto.TFG.dtos.DTOInvitadoBajada;
+import tfg.proyecto.TFG.dtos.DTOTicketDataIA;
+import tfg.proyecto.TFG.modelo.CambioDatos;
+import tfg.proyecto.TFG.modelo.Categoria;
+import tfg.proyecto.TFG.modelo.EntidadCambio;
+import tfg.proyecto.TFG.modelo.OperacionCambio;
+import tfg.proyecto.TFG.repositorio.RepositorioCambioDatos;
+import tfg.proyecto.TFG.repositorio.RepositorioEvento;
+import tfg.proyecto.TFG.repositorio.RepositorioInvitado;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Implementación del servicio {@link IServicioCambios}.
+ *
+ * <p>Mantiene el registro de cambios de eventos y tickets ({@link CambioDatos}) que
+ * consume el microservicio de recomendación para sincronizarse de forma incremental,
+ * en lugar de descargar todos los usuarios, tickets y eventos en cada llamada.</p>
+ *
+ * <ul>
+ *     <li>Los servicios de eventos, tickets y usuarios registran cada alta, modificación y baja.</li>
+ *     <li>{@link #obtenerCambios} devuelve una página de cambios agrupados por entidad con su estado actual.</li>
+ *     <li>{@link #versionSegura()} es la consulta barata para saber si hay algo nuevo, y la
+ *     versión que se entrega con los volcados completos.</li>
+ * </ul>
+ *
+ * <p>Las secuencias se asignan al insertar, no al confirmar: una transacción que registra la
+ * secuencia 10 puede confirmarse después de otra con la 11, y un consumidor que ya avanzó
+ * hasta la 11 se saltaría la 10 para siempre. Por eso cada transacción que registra cambios
+ * reserva antes de insertar una cota inferior de su secuencia, y {@link #obtenerCambios} solo
+ * sirve secuencias por debajo de la menor reserva en curso. Por la misma razón, la versión que
+ * se da a los clientes como punto de partida es {@link #versionSegura()} y no la última
+ * secuencia registrada. Las reservas viven en memoria,
+ * así que solo cubren las transacciones de este proceso: si otro proceso escribe en
+ * <code>cambio_datos</code> hay que configurar además <code>cambios.margen-ms</code>, que
+ * vuelve a ser solo una heurística de tiempo.</p>
+ */
+@Service
+public class ServicioCambiosImpl implements IServicioCambios {
+
+	private static final int LIMITE_POR_DEFECTO = 500;
+	private static final int LIMITE_MAXIMO = 5000;
+
+	/*
+	 * Solo se sirven cambios con al menos este margen de antigüedad, para los que registra
+	 * otro proceso (las transacciones de este ya se esperan con las reservas).
+	 */
+	@Value("${cambios.margen-ms:0}")
+	private long margenMs;
+
+	// Cota inferior de la secuencia de cada transacción en curso que registra cambios
+	private final ConcurrentSkipListSet<Reserva> enCurso = new ConcurrentSkipListSet<>();
+	// Mayor secuencia vista hasta ahora: las que se asignen después serán mayores
+	private final AtomicLong ultimaVista = new AtomicLong();
+	private final AtomicLong reservas = new AtomicLong();
+
+	@Autowired RepositorioCambioDatos cambioDAO;
+	@Autowired RepositorioEvento eventoDAO;
+	@Autowired RepositorioTicket ticketDAO;
+	@Autowired RepositorioInvitado invitadoDAO;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Registra un cambio de una entidad.
+	 *
+	 * @param entidad tipo de entidad
+	 * @param entidadId ID de la entidad
+	 * @param operacion alta, modificación o baja
+	 */
+	@Override
+	@Transactional
+	public void registrar(EntidadCambio entidad, Long entidadId, OperacionCambio operacion) {
+		reservar();
+		CambioDatos cambio = cambioDAO.save(CambioDatos.builder()
+				.entidad(entidad)
+				.entidadId(entidadId)
+				.operacion(operacion)
+				.fecha(LocalDateTime.now())
+				.build());
+		ultimaVista.accumulateAndGet(cambio.getId(), Math::max);
+	}
+
+	/**
+	 * Registra el mismo cambio para varias entidades (p. ej. los tickets de un evento eliminado).
+	 *
+	 * <p>Se inserta con un único lote JDBC: con ID autoincremental Hibernate haría un
+	 * INSERT por fila. La secuencia sigue siendo la asignada por la base de datos.</p>
+	 *
+	 * @param entidad tipo de entidad
+	 * @param entidadIds IDs de las entidades
+	 * @param operacion alta, modificación o baja
+	 */
+	@Override
+	@Transactional
+	public void registrarTodos(EntidadCambio entidad, Collection<Long> entidadIds, OperacionCambio operacion) {
+		if (entidadIds.isEmpty()) {
+			return;
+		}
+		reservar();
+		Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+		List<Object[]> filas = new ArrayList<>(entidadIds.size());
+		for (Long id : entidadIds) {
+			filas.add(new Object[] { entidad.name(), id, ahora, operacion.name() });
+		}
+		jdbcTemplate.batchUpdate(
+				"INSERT INTO cambio_datos (entidad, entidad_id, fecha, operacion) VALUES (?, ?, ?, ?)", filas);
+	}
+
+	/**
+	 * Obtiene los cambios posteriores a una secuencia o a una fecha.
+	 *
+	 * <p>Cada entidad aparece una sola vez, con su última operación de la página: si la
+	 * última es una baja (o ya no existe) va en la lista de eliminados; si no, se devuelve
+	 * su estado actual, leído con una consulta por tipo de entidad.</p>
+	 *
+	 * @param desde última secuencia procesada por el consumidor (0 = desde el principio)
+	 * @param fecha alternativa a {@code desde}: cambios registrados en o después de esta fecha
+	 * @param limite número máximo de cambios a leer (por defecto 500, máximo 5000)
+	 * @return página de cambios
+	 */
+	@Override
+	public DTOCambiosBajada obtenerCambios(Long desde, LocalDateTime fecha, Integer limite) {
+		long inicio;
+		if (desde != null) {
+			inicio = desde;
+		} else if (fecha != null) {
+			Long primera = cambioDAO.findPrimeraSecuenciaDesde(fecha);
+			inicio = primera == null ? versionSegura() : primera - 1;
+		} else {
+			inicio = 0;
+		}
+		int tamano = limite == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+
+		long tope = versionSegura();
+		List<CambioDatos> cambios = cambioDAO.findSiguientes(inicio, tope,
+				LocalDateTime.now().minusNanos(margenMs * 1_000_000), PageRequest.of(0, tamano + 1));
+		boolean hayMas = cambios.size() > tamano;
+		if (hayMas) {
+			cambios = cambios.subList(0, tamano);
+		}
+
+		// Última operación de cada entidad dentro de la página
+		Map<Long, OperacionCambio> eventos = new LinkedHashMap<>();
+		Map<Long, OperacionCambio> tickets = new LinkedHashMap<>();
+		for (CambioDatos c : cambios) {
+			(c.getEntidad() == EntidadCambio.EVENTO ? eventos : tickets).put(c.getEntidadId(), c.getOperacion());
+		}
+
+		List<Long> eventosEliminados = new ArrayList<>();
+		List<DTOEventoDataIA> eventosVivos = cargarEventos(vivos(eventos, eventosEliminados), eventosEliminados);
+		List<Long> ticketsEliminados = new ArrayList<>();
+		List<DTOTicketDataIA> ticketsVivos = cargarTickets(vivos(tickets, ticketsEliminados), ticketsEliminados);
+
+		return DTOCambiosBajada.builder()
+				.desde(inicio)
+				.hasta(cambios.isEmpty() ? inicio : cambios.get(cambios.size() - 1).getId())
+				.version(tope)
+				.hayMas(hayMas)
+				.eventos(eventosVivos)
+				.tickets(ticketsVivos)
+				.eventosEliminados(eventosEliminados)
+				.ticketsEliminados(ticketsEliminados)
+				.build();
+	}
+
+	/**
+	 * Secuencia del último cambio registrado (0 si no hay ninguno), aunque haya transacciones
+	 * anteriores sin confirmar. Para dar a un cliente un punto de partida usar {@link #versionSegura()}.
+	 *
+	 * @return última secuencia registrada
+	 */
+	@Override
+	public long versionActual() {
+		Long ultima = cambioDAO.findUltimaSecuencia();
+		return ultima == null ? 0 : ultima;
+	}
+
+	/**
+	 * Última secuencia que se puede servir sin saltarse ninguna transacción en curso: todos los
+	 * cambios hasta ella están confirmados, así que un cliente que carga los datos y después
+	 * pide los cambios desde esta versión no pierde ninguno.
+	 *
+	 * <p>Primero se lee la última secuencia confirmada y después las reservas: una transacción
+	 * que reserve más tarde tendrá una secuencia mayor que esa, y una que ya tuviera secuencia
+	 * sin confirmar sigue reservada.</p>
+	 */
+	@Override
+	public long versionSegura() {
+		long ultima = versionActual();
+		ultimaVista.accumulateAndGet(ultima, Math::max);
+		try {
+			return Math.min(ultima, enCurso.first().valor() - 1);
+		} catch (NoSuchElementException e) {
+			return ultima;
+		}
+	}
+
+	/**
+	 * Reserva, una vez por transacción y antes de su primer INSERT, una cota inferior de la
+	 * secuencia que va a recibir; se libera al confirmar o deshacer.
+	 */
+	private void reservar() {
+		if (TransactionSynchronizationManager.hasResource(this)) {
+			return;
+		}
+		Reserva reserva = new Reserva(ultimaVista.get() + 1, reservas.incrementAndGet());
+		enCurso.add(reserva);
+		TransactionSynchronizationManager.bindResource(this, reserva);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int estado) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(ServicioCambiosImpl.this);
+				enCurso.remove(reserva);
+			}
+		});
+	}
+
+	/**
+	 * Cota de la secuencia de una transacción; el orden desempata reservas con la misma cota.
+	 */
+	private record Reserva(long valor, long orden) implements Comparable<Reserva> {
+
+		@Override
+		public int compareTo(Reserva otra) {
+			int porValor = Long.compare(valor, otra.valor);
+			return porValor != 0 ? porValor : Long.compare(orden, otra.orden);
+		}
+	}
+
+	/**
+	 * Separa las entidades cuya última operación es una baja y devuelve el resto.
+	 */
+	private static List<Long> vivos(Map<Long, OperacionCambio> ultimaOperacion, List<Long> eliminados) {
+		List<Long> vivos = new ArrayList<>();
+		ultimaOperacion.forEach((id, op) -> (op == OperacionCambio.ELIMINADO ? eliminados : vivos).add(id));
+		return vivos;
+	}
+
+	private List<DTOEventoDataIA> cargarEventos(List<Long> ids, List<Long> eliminados) {
+		if (ids.isEmpty()) return new ArrayList<>();
+
+		// Invitados: filas [eventoId, id, nombre, apellidos, fotoURL, descripcion]
+		Map<Long, List<DTOInvitadoBajada>> invitados = new HashMap<>();
+		for (Object[] fila : invitadoDAO.findResumenByEventoIds(ids)) {
+			invitados.computeIfAbsent((Long) fila[0], k -> new ArrayList<>())
+					.add(new DTOInvitadoBajada((Long) fila[1], (String) fila[2], null, null, null));
+		}
+
+		// Eventos: filas [id, nombre, categoria, descripcion, localizacion]
+		Map<Long, DTOEventoDataIA> porId = new HashMap<>();
+		for (Object[] fila : eventoDAO.findDatosIAByIds(ids)) {
+			Long id = (Long) fila[0];
+			porId.put(id, DTOEventoDataIA.builder()
+					.id(id)
+					.nombre((String) fila[1])
+					.categoria((Categoria) fila[2])
+					.descripcion((String) fila[3])
+					.localizacion((String) fila[4])
+					.invitados(invitados.getOrDefault(id, new ArrayList<>()))
+					.build());
+		}
+		return ordenar(ids, porId, eliminados);
+	}
+
+	private List<DTOTicketDataIA> cargarTickets(List<Long> ids, List<Long> eliminados) {
+		if (ids.isEmpty()) return new ArrayList<>();
+
+		// Tickets: filas [id, usuarioId, eventoId]
+		Map<Long, DTOTicketDataIA> porId = new HashMap<>();
+		for (Object[] fila : ticketDAO.findResumenByIds(ids)) {
+			porId.put((Long) fila[0], DTOTicketDataIA.builder()
+					.id((Long) fila[0])
+					.usuarioId((Long) fila[1])
+					.eventoId((Long) fila[2])
+					.build());
+		}
+		return ordenar(ids, porId, eliminados);
+	}
+
+	/**
+	 * Devuelve los DTOs en el orden de los cambios; los que ya no existen se informan como eliminados.
+	 */
+	private static <T> List<T> ordenar(List<Long> ids, Map<Long, T> porId, List<Long> eliminados) {
+		List<T> resultado = new ArrayList<>();
+		for (Long id : ids) {
+			T dto = porId.get(id);
+			if (dto == null) {
+				eliminados.add(id);
+			} else {
+				resultado.add(dto);
+			}
+		}
+		return resultado;
+	}
+}
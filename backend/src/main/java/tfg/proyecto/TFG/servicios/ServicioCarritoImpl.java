@@ -1,18 +1,20 @@
 package tfg.proyecto.TFG.servicios;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import tfg.proyecto.TFG.config.DtoConverter;
 import tfg.proyecto.TFG.dtos.DTOCarritoBajada;
-import tfg.proyecto.TFG.dtos.DTOticketSubida;
 import tfg.proyecto.TFG.modelo.Carrito;
 import tfg.proyecto.TFG.modelo.CarritoItem;
 import tfg.proyecto.TFG.modelo.EstadoCarrito;
@@ -20,6 +22,7 @@ import tfg.proyecto.TFG.modelo.Evento;
 import tfg.proyecto.TFG.modelo.Usuario;
 import tfg.proyecto.TFG.repositorio.RepositorioCarrito;
 import tfg.proyecto.TFG.repositorio.RepositorioCarritoItem;
+import tfg.proyecto.TFG.repositorio.RepositorioCuentaBancaria;
 import tfg.proyecto.TFG.repositorio.RepositorioEvento;
 import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
 
@@ -32,7 +35,8 @@ import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
  * Este servicio maneja operaciones como:
  * <ul>
  *     <li>Obtención o creación automática del carrito de un usuario.</li>
- *     <li>Inserción de items en el carrito.</li>
+ *     <li>Inserción de items en el carrito, reteniendo sus plazas durante un tiempo
+ *     ({@link RetencionesCarrito}).</li>
  *     <li>Actualización y eliminación de items.</li>
  *     <li>Vaciado del carrito.</li>
  *     <li>Cálculo del total y finalización de compra con generación de tickets.</li>
@@ -51,14 +55,21 @@ public class ServicioCarritoImpl implements IServicioCarrito{
      * - itemDAO: maneja los CarritoItem.
      * - eventoDAO: consulta eventos para validar existencia y precio.
      * - usuarioDAO: consulta datos del usuario, principalmente su tarjeta y saldo.
+     * - cuentaDAO: descuenta el saldo de la tarjeta al comprar.
      * - servicioTicket: genera tickets al finalizar la compra.
+     * - retenciones / inventarioAforo: plazas retenidas por los items y aforo de los eventos.
+     * - cacheRecomendaciones: se invalida la entrada del usuario al comprar y al confirmar la compra.
      * - dtoConverter: convierte entidades a DTOs para enviar a la capa de controlador.
      */
     @Autowired private RepositorioCarrito carritoDAO;
     @Autowired private RepositorioCarritoItem itemDAO;
     @Autowired private RepositorioEvento eventoDAO;
     @Autowired private RepositorioUsuario usuarioDAO;
+    @Autowired private RepositorioCuentaBancaria cuentaDAO;
     @Autowired private ServicioTicketImpl servicioTicket;
+    @Autowired private RetencionesCarrito retenciones;
+    @Autowired private InventarioAforo inventarioAforo;
+    @Autowired private CacheRecomendaciones cacheRecomendaciones;
     @Autowired private DtoConverter dtoConverter;
 
     
@@ -92,7 +103,7 @@ public class ServicioCarritoImpl implements IServicioCarrito{
     }
 
      /**
-     * Agrega un nuevo item al carrito del usuario.
+     * Agrega un nuevo item al carrito del usuario y retiene sus plazas.
      * Si el carrito no existe, se crea automáticamente.
      *
      * @param usuarioId el ID del usuario
@@ -100,6 +111,7 @@ public class ServicioCarritoImpl implements IServicioCarrito{
      * @param cantidad la cantidad de entradas del evento
      * @return el {@link DTOCarritoBajada} actualizado
      * @throws RuntimeException si el evento no existe
+     * @throws AforoCompletoException si no quedan plazas suficientes
      */
     @Override
     @Transactional
@@ -119,7 +131,15 @@ public class ServicioCarritoImpl implements IServicioCarrito{
                 .precioUnitario(evento.getPrecio())
                 .build();
 
+        // Guardar el item primero: la retención se identifica por su ID.
+        // La caducidad se anota después, para que el inventario no cuente dos veces este item
+        itemDAO.save(nuevo);
         carrito.getItems().add(nuevo);
+        LocalDateTime hasta = retenciones.nuevaCaducidad();
+        if (!retenciones.retener(nuevo.getId(), evento.getId(), evento.getAforoMax(), cantidad, hasta)) {
+            throw new AforoCompletoException(evento.getId());
+        }
+        nuevo.setRetenidoHasta(hasta);
 
         // Guardar cambios
         carritoDAO.save(carrito);
@@ -131,13 +151,14 @@ public class ServicioCarritoImpl implements IServicioCarrito{
 
     /**
      * Actualiza la cantidad de un item existente dentro del carrito.
-     * Valida que el item pertenece al carrito del usuario.
+     * Valida que el item pertenece al carrito del usuario y renueva su retención.
      *
      * @param usuarioId el ID del usuario
      * @param itemId el ID del item a actualizar
      * @param cantidad la nueva cantidad
      * @return el {@link DTOCarritoBajada} actualizado
      * @throws RuntimeException si el item no existe o no pertenece al carrito del usuario
+     * @throws AforoCompletoException si no quedan plazas para la nueva cantidad
      */
     @Override
     @Transactional
@@ -153,7 +174,13 @@ public class ServicioCarritoImpl implements IServicioCarrito{
         if (!item.getCarrito().getId().equals(carrito.getId()))
             throw new RuntimeException("El item no pertenece a este carrito");
 
+        Evento evento = item.getEvento();
+        LocalDateTime hasta = retenciones.nuevaCaducidad();
+        if (!retenciones.retener(item.getId(), evento.getId(), evento.getAforoMax(), cantidad, hasta)) {
+            throw new AforoCompletoException(evento.getId());
+        }
         item.setCantidad(cantidad);
+        item.setRetenidoHasta(hasta);
         itemDAO.save(item);
 
         Carrito carritoActualizado = carritoDAO.findById(carrito.getId()).get();
@@ -182,6 +209,7 @@ public class ServicioCarritoImpl implements IServicioCarrito{
 
         // Eliminación del item
         itemDAO.delete(item);
+        retenciones.soltar(itemId);
 
         // Forzar sincronización y limpiar el contexto de persistencia
         em.flush();
@@ -205,6 +233,7 @@ public class ServicioCarritoImpl implements IServicioCarrito{
     @Transactional
     public DTOCarritoBajada vaciarCarrito(Long usuarioId) {
         Carrito carrito = obtenerOCrearCarrito(usuarioId);
+        carrito.getItems().forEach(item -> retenciones.soltar(item.getId()));
         itemDAO.deleteAll(carrito.getItems());
         carrito.getItems().clear();
         carritoDAO.save(carrito);
@@ -229,15 +258,16 @@ public class ServicioCarritoImpl implements IServicioCarrito{
     /**
      * Finaliza la compra del carrito:
      * <ul>
-     *     <li>Valida saldo suficiente.</li>
-     *     <li>Genera tickets por cada item del carrito.</li>
-     *     <li>Descuenta saldo del usuario.</li>
+     *     <li>Valida y descuenta el saldo del usuario en una sola sentencia.</li>
+     *     <li>Genera tickets por cada item del carrito, usando las plazas retenidas
+     *     (o reservándolas de nuevo si la retención caducó).</li>
      *     <li>Vacia el carrito.</li>
      * </ul>
      *
      * @param usuarioId el ID del usuario
      * @return el {@link DTOCarritoBajada} actualizado (vacío)
      * @throws RuntimeException si el carrito está vacío, el usuario no existe o saldo insuficiente
+     * @throws AforoCompletoException si una retención caducó y ya no quedan plazas
      */
     @Override
     @Transactional
@@ -245,6 +275,10 @@ public class ServicioCarritoImpl implements IServicioCarrito{
 
         Carrito carrito = obtenerOCrearCarrito(usuarioId);
 
+        // Sube la versión del carrito al confirmar: de dos compras simultáneas del mismo
+        // carrito solo confirma la primera (la otra falla con OptimisticLockingFailureException)
+        em.lock(carrito, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+
         Usuario usu = usuarioDAO.findById(usuarioId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
@@ -260,37 +294,43 @@ public class ServicioCarritoImpl implements IServicioCarrito{
             total = total.add(BigDecimal.valueOf(res));
         }
 
-        // Verificación de saldo suficiente
-        if (usu.getTarjeta().getSaldo().compareTo(total) < 0) {
+        // Descontar saldo: la comprobación y la resta son un único UPDATE condicional
+        if (cuentaDAO.descontarSaldo(usu.getTarjeta().getId(), total) == 0) {
             throw new RuntimeException("Saldo insuficiente para realizar la compra");
         }
 
-        // Generación de tickets
+        // Generación de tickets: en lote por item, con el usuario y el evento ya cargados
         for (CarritoItem item : carrito.getItems()) {
-            for (int i = 0; i < item.getCantidad(); i++) {
-
-                DTOticketSubida dto = DTOticketSubida.builder()
-                        .usuarioId(usuarioId)
-                        .eventoId(item.getEvento().getId())
-                        .precioPagado(item.getPrecioUnitario())
-                        .build();
-
-                servicioTicket.insert(dto);
+            Evento evento = item.getEvento();
+            int faltan = item.getCantidad() - retenciones.convertir(item.getId());
+            if (faltan > 0 && !inventarioAforo.reservar(evento.getId(), evento.getAforoMax(), faltan)) {
+                throw new AforoCompletoException(evento.getId());
             }
+            servicioTicket.crearTickets(usu, evento, item.getCantidad(), item.getPrecioUnitario());
         }
 
-        // Descontar saldo
-        usu.getTarjeta().setSaldo(usu.getTarjeta().getSaldo().subtract(total));
-        usuarioDAO.save(usu);
-
         // Vaciar carrito
         itemDAO.deleteAll(carrito.getItems());
         carrito.getItems().clear();
         carritoDAO.save(carrito);
 
+        // Sus recomendaciones cambian con la compra (se descartan otra vez tras el commit)
+        cacheRecomendaciones.invalidarUsuario(usuarioId);
+
         return dtoConverter.map(carrito, DTOCarritoBajada.class);
     }
 
+    /**
+     * Eventos del carrito activo del usuario, sin cargar el carrito ni crearlo.
+     *
+     * @param usuarioId el ID del usuario
+     * @return IDs de los eventos del carrito
+     */
+    @Override
+    public List<Long> eventosEnCarrito(Long usuarioId) {
+        return itemDAO.findEventoIdsEnCarritoActivo(usuarioId);
+    }
+
     /**
      * Obtiene el carrito activo del usuario.
      * Si no tiene uno, se crea automáticamente.
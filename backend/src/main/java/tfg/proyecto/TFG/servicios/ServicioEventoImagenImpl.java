@@ -1,6 +1,7 @@
 package tfg.proyecto.TFG.servicios;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -44,6 +45,12 @@ public class ServicioEventoImagenImpl implements IServicioEventoImagen {
 	
 		    @Autowired
 		    private ServicioImagenImpl servicioImagen;
+
+		    @Autowired
+		    private CacheEventos cacheEventos;
+
+		    @Autowired
+		    private AlmacenImagenes almacenImagenes;
 		    
 		    /**
 		     * Guarda las imágenes de un carrusel asociadas a un evento.
@@ -63,13 +70,15 @@ public class ServicioEventoImagenImpl implements IServicioEventoImagen {
 		                .orElseThrow(() -> new RuntimeException("Evento no encontrado"));
 	
 		        // Eliminación de imágenes previas asociadas al evento
+		        List<String> rutas = new ArrayList<>(eventoImagenDAO.findUrlsByEventoId(eventoId));
 		        eventoImagenDAO.deleteByEventoId(eventoId);
+		        cacheEventos.invalidarEvento(eventoId, evento.getCategoria());
 	
 		        // Guardar cada imagen nueva y construir DTO de salida
-		        return imagenes.stream().map((dto) -> {
+		        List<DTOEventoImagenBajada> guardadas = imagenes.stream().map((dto) -> {
 		            try {
 		            	 // Guardado de la imagen en el servidor, ruta: eventos/{eventoId}
-		                String ruta = servicioImagen.guardarImagenBase64(dto.getUrl(), "eventos/" + eventoId);
+		                String ruta = servicioImagen.guardarImagenBase64(dto.getUrl());
 		             // Creación de la entidad EventoImagen
 		                EventoImagen img = EventoImagen.builder()
 		                        .evento(evento)
@@ -84,6 +93,9 @@ public class ServicioEventoImagenImpl implements IServicioEventoImagen {
 		                throw new RuntimeException("Error guardando imagen del evento", e);
 		            }
 		        }).collect(Collectors.toList());
+		        guardadas.forEach(img -> rutas.add(img.getUrl()));
+		        almacenImagenes.actualizarReferencias(rutas);
+		        return guardadas;
 		    }
 	
 		    /**
@@ -110,7 +122,10 @@ public class ServicioEventoImagenImpl implements IServicioEventoImagen {
 		     */
 		    @Transactional
 		    public void eliminarCarrusel(Long eventoId) {
+		        List<String> rutas = eventoImagenDAO.findUrlsByEventoId(eventoId);
 		        eventoImagenDAO.deleteByEventoId(eventoId);
+		        almacenImagenes.actualizarReferencias(rutas);
+		        cacheEventos.invalidarEvento(eventoId);
 		    }
 	
 
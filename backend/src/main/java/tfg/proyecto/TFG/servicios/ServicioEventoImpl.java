@@ -1,29 +1,38 @@
 package tfg.proyecto.TFG.servicios;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import jakarta.transaction.Transactional;
+import tfg.proyecto.TFG.cliente.ClienteRecomendaciones;
 import tfg.proyecto.TFG.config.DtoConverter;
 import tfg.proyecto.TFG.dtos.DTOEventoImagenSubida;
+import tfg.proyecto.TFG.dtos.DTOInvitadoBajada;
 import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoPagina;
 import tfg.proyecto.TFG.dtos.DTOeventoSubida;
 import tfg.proyecto.TFG.dtos.EventoRecomendadoDTO;
 import tfg.proyecto.TFG.modelo.Categoria;
+import tfg.proyecto.TFG.modelo.EntidadCambio;
 import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.OperacionCambio;
 import tfg.proyecto.TFG.modelo.Rol;
 import tfg.proyecto.TFG.modelo.Usuario;
 import tfg.proyecto.TFG.repositorio.RepositorioEvento;
 import tfg.proyecto.TFG.repositorio.RepositorioEventoImagen;
 import tfg.proyecto.TFG.repositorio.RepositorioInvitado;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
 import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
 
 /**
@@ -44,16 +53,12 @@ public class ServicioEventoImpl implements IServicioEvento{
 	
 	
 		/*
-	     * URL del microservicio de recomendación/IA.
-	     * Se puede inyectar vía properties, con valor por defecto.
+	     * Cliente del microservicio de recomendación/IA (timeouts, circuit breaker y bulkhead).
+	     * Número de eventos devueltos por la alternativa local cuando no está disponible.
 	     */
-		@Value("${microservicio.recomendacion.url:http://recomendacion-servicio:8000}")
-	    private  String microServicioURL;  
-	
-		/*
-	     * Cliente HTTP para llamadas REST al microservicio.
-	     */
-	    private final RestTemplate restTemplate = new RestTemplate();
+	    @Autowired ClienteRecomendaciones clienteRecomendaciones;
+	    @Autowired CacheRecomendaciones cacheRecomendaciones;
+	    private static final int NUM_RECOMENDACIONES_LOCALES = 10;
 	
 	    /*
 	     * Repositorios y servicios auxiliares.
@@ -64,6 +69,8 @@ public class ServicioEventoImpl implements IServicioEvento{
 	     * - servicioInvitado: gestión de invitados a un evento.
 	     * - invitadoDAO: persistencia de invitados.
 	     * - eventoDAO: Permite operaciones CRUD y consultas personalizadas como findByNombre, findByCategoria.
+	     * - cacheEventos: caché de lectura de DTOs, se invalida en cada escritura.
+	     * - servicioCambios: registro de cambios que consume la IA.
 	     */
     	@Autowired  RepositorioEventoImagen eventoImagenDAO;
 	    @Autowired  RepositorioUsuario usuarioDAO;
@@ -72,6 +79,13 @@ public class ServicioEventoImpl implements IServicioEvento{
 	    @Autowired ServicioInvitadoImpl servicioInvitado;
 	    @Autowired RepositorioInvitado invitadoDAO;
 	    @Autowired RepositorioEvento eventoDAO;	
+	    @Autowired CacheEventos cacheEventos;
+	    @Autowired IServicioCambios servicioCambios;
+	    @Autowired RepositorioTicket ticketDAO;
+	    @Autowired InventarioAforo inventarioAforo;
+	    @Autowired IndiceAccesos indiceAccesos;
+	    @Autowired RetencionesCarrito retenciones;
+	    @Autowired AlmacenImagenes almacenImagenes;
 	    
 	    /*
 	     * Conversor de entidades a DTOs y viceversa.
@@ -108,7 +122,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 	            String imagenFinal = null;
 	            if (dto.getImagen() != null && !dto.getImagen().isBlank()) {
 	            	// Guardar la imagen en el servidor y obtener URL
-	                imagenFinal = servicioImagen.guardarImagenBase64(dto.getImagen(), "eventos/portadas");
+	                imagenFinal = servicioImagen.guardarImagenBase64(dto.getImagen());
 	                System.out.println("[BACKEND] Portada guardada en: " + imagenFinal);
 	            } else {
 	                    imagenFinal = dto.getImagen(); // URL directa
@@ -121,7 +135,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 	                for (String img : dto.getImagenesCarruselUrls()) {
 	                    if (img != null && !img.isBlank()) {
 	                        String urlFinal = (img.length() > 200)
-	                                ? servicioImagen.guardarImagenBase64(img, "eventos/carrusel")
+	                                ? servicioImagen.guardarImagenBase64(img)
 	                                : img;
 	                        urlsCarrusel.add(urlFinal);
 	                    }
@@ -145,6 +159,9 @@ public class ServicioEventoImpl implements IServicioEvento{
 
 	            //  Guardar evento y cascada crea evento_carrusel automáticamente
 	            Evento guardado = eventoDAO.save(evento);
+	            almacenImagenes.actualizarReferencias(rutasImagenes(guardado));
+	            cacheEventos.invalidarEvento(guardado.getId(), guardado.getCategoria());
+	            servicioCambios.registrar(EntidadCambio.EVENTO, guardado.getId(), OperacionCambio.CREADO);
 
 	            //  Guardar invitados si existen
 	            if (dto.getInvitados() != null && !dto.getInvitados().isEmpty()) {
@@ -168,7 +185,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 	                    .vendedorId(guardado.getVendedor().getId())
 	                    .build();
 
-	            return dtoBajada;
+	            return conPlazas(dtoBajada);
 
 	        } catch (IOException e) {
 	            throw new RuntimeException("Error guardando imágenes del evento", e);
@@ -176,16 +193,92 @@ public class ServicioEventoImpl implements IServicioEvento{
 	    }
 	    
 	    /**
-	     * Obtiene todos los eventos.
+	     * Obtiene todos los eventos (cacheado en {@link CacheEventos}).
 	     *
 	     * @return lista de DTOs de eventos
 	     */
 		@Override
 		public List<DTOeventoBajada> obtenerTodosLosEventos() {
 			// TODO Auto-generated method stub
-			return dtoConverter.mapAll((List<Evento>)eventoDAO.findAll(), DTOeventoBajada.class);
+			return conPlazas(cacheEventos.obtenerTodos(
+					() -> dtoConverter.mapAll((List<Evento>)eventoDAO.findAll(), DTOeventoBajada.class)));
 	
 			}
+
+		/*
+		 * Límites de tamaño de página del catálogo.
+		 */
+		private static final int LIMITE_CATALOGO_POR_DEFECTO = 20;
+		private static final int LIMITE_CATALOGO_MAXIMO = 100;
+
+		/**
+		 * Obtiene una página del catálogo de eventos ordenado por (inicioEvento, id).
+		 *
+		 * <p>La paginación es por clave (keyset): el cursor codifica el inicio y el ID del
+		 * último evento servido y la siguiente consulta arranca justo después, así que el
+		 * coste de cada página no depende de cuántas se hayan pedido antes ni del tamaño
+		 * del catálogo. Se pide un evento de más para saber si existe página siguiente.</p>
+		 *
+		 * @param categoria categoría a filtrar, o null para todas
+		 * @param desde inicio mínimo de los eventos (inclusive), o null
+		 * @param hasta inicio máximo de los eventos (exclusive), o null
+		 * @param limite tamaño de página; se ajusta a [1, {@value #LIMITE_CATALOGO_MAXIMO}]
+		 * @param cursor token devuelto en la página anterior, o null para la primera
+		 * @return página de eventos con el cursor de la siguiente
+		 * @throws IllegalArgumentException si el cursor no es válido
+		 */
+		@Override
+		public DTOeventoPagina obtenerCatalogo(Categoria categoria, LocalDateTime desde, LocalDateTime hasta,
+				Integer limite, String cursor) {
+			int tamano = limite == null ? LIMITE_CATALOGO_POR_DEFECTO
+					: Math.max(1, Math.min(limite, LIMITE_CATALOGO_MAXIMO));
+			PageRequest pagina = PageRequest.of(0, tamano + 1);
+
+			List<DTOeventoBajada> eventos;
+			if (cursor == null || cursor.isBlank()) {
+				eventos = eventoDAO.catalogoPrimeraPagina(categoria, desde, hasta, pagina);
+			} else {
+				String[] clave = decodificarCursor(cursor);
+				eventos = eventoDAO.catalogoPaginaSiguiente(categoria, desde, hasta,
+						LocalDateTime.parse(clave[0]), Long.valueOf(clave[1]), pagina);
+			}
+
+			boolean hayMas = eventos.size() > tamano;
+			if (hayMas) {
+				eventos = new ArrayList<>(eventos.subList(0, tamano));
+			}
+			DTOeventoBajada ultimo = eventos.isEmpty() ? null : eventos.get(eventos.size() - 1);
+
+			return DTOeventoPagina.builder()
+					.eventos(conPlazas(completarListado(eventos)))
+					.limite(tamano)
+					.hayMas(hayMas)
+					.siguienteCursor(hayMas ? codificarCursor(ultimo) : null)
+					.build();
+		}
+
+		/**
+		 * Codifica la clave (inicioEvento, id) de un evento como token opaco.
+		 */
+		private static String codificarCursor(DTOeventoBajada ultimo) {
+			String clave = ultimo.getInicioEvento() + "|" + ultimo.getId();
+			return Base64.getUrlEncoder().withoutPadding()
+					.encodeToString(clave.getBytes(StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Decodifica un cursor en sus dos partes [inicioEvento, id] y las valida.
+		 */
+		private static String[] decodificarCursor(String cursor) {
+			try {
+				String[] clave = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+				LocalDateTime.parse(clave[0]);
+				Long.valueOf(clave[1]);
+				return clave;
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Cursor de catálogo no válido", e);
+			}
+		}
 	
 
 		/**
@@ -203,6 +296,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 	    public DTOeventoBajada actualizarEvento(Long id, DTOeventoSubida dto) {
 	        Evento evento = eventoDAO.findById(id)
 	                .orElseThrow(() -> new RuntimeException("Evento no encontrado para actualizar"));
+	        List<String> rutasAntes = rutasImagenes(evento);
 	
 	        // Actualizamos campos básicos
 	        evento.setNombre(dto.getNombre());
@@ -218,7 +312,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 	            // Imagen principal
 	        	String imagenFinal = null;
 	            if (dto.getImagen() != null && !dto.getImagen().isBlank()) {
-	                imagenFinal = servicioImagen.guardarImagenBase64(dto.getImagen(), "eventos/portadas");
+	                imagenFinal = servicioImagen.guardarImagenBase64(dto.getImagen());
 	                System.out.println("✅ [BACKEND] Portada guardada en: " + imagenFinal);
 	            } else {
 	                    imagenFinal = dto.getImagen(); // URL directa
@@ -233,7 +327,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 	 	                for (String img : dto.getImagenesCarruselUrls()) {
 	 	                    if (img != null && !img.isBlank()) {
 	 	                        String urlFinal = (img.length() > 200)
-	 	                                ? servicioImagen.guardarImagenBase64(img, "eventos/carrusel")
+	 	                                ? servicioImagen.guardarImagenBase64(img)
 	 	                                : img;
 	 	                        urlsCarrusel.add(urlFinal);
 	 	                    }
@@ -253,13 +347,17 @@ public class ServicioEventoImpl implements IServicioEvento{
 	        }
 	
 	        Evento actualizado = eventoDAO.save(evento);
+	        rutasAntes.addAll(rutasImagenes(actualizado));
+	        almacenImagenes.actualizarReferencias(rutasAntes);
+	        cacheEventos.invalidarEvento(id, actualizado.getCategoria());
+	        servicioCambios.registrar(EntidadCambio.EVENTO, id, OperacionCambio.ACTUALIZADO);
 	
 	        // Construcción del DTO de bajada
 	        DTOeventoBajada dtoBajada = dtoConverter.map(actualizado, DTOeventoBajada.class);
 	        dtoBajada.setImagenesCarruselUrls(eventoImagenDAO.findUrlsByEventoId(actualizado.getId()));
 	        dtoBajada.setInvitados(servicioInvitado.obtenerInvitados(evento.getId()));
 	
-	        return dtoBajada;
+	        return conPlazas(dtoBajada);
 	    }
 		
 
@@ -277,6 +375,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 	    public DTOeventoBajada actualizarEventoMovil(Long id, DTOeventoSubida dto) {
 			 Evento evento = eventoDAO.findById(id)
 			            .orElseThrow(() -> new RuntimeException("Evento no encontrado para actualizar"));
+			    List<String> rutasAntes = rutasImagenes(evento);
 	
 			    evento.setNombre(dto.getNombre());
 			    evento.setLocalizacion(dto.getLocalizacion());
@@ -291,7 +390,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 			        // Portada igual que en insert()
 			        if (dto.getImagen() != null && !dto.getImagen().isBlank()) {
 			            String portadaFinal = (dto.getImagen().length() > 200)
-			                    ? servicioImagen.guardarImagenBase64(dto.getImagen(), "eventos/portadas")
+			                    ? servicioImagen.guardarImagenBase64(dto.getImagen())
 			                    : dto.getImagen();
 	
 			            evento.setImagen(portadaFinal);
@@ -306,7 +405,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 			            for (String img : dto.getImagenesCarruselUrls()) {
 			                if (img != null && !img.isBlank()) {
 			                    String urlFinal = (img.length() > 200)
-			                            ? servicioImagen.guardarImagenBase64(img, "eventos/carrusel")
+			                            ? servicioImagen.guardarImagenBase64(img)
 			                            : img;
 	
 			                    urlsCarrusel.add(urlFinal);
@@ -333,6 +432,10 @@ public class ServicioEventoImpl implements IServicioEvento{
 			    }
 	
 			    Evento actualizado = eventoDAO.save(evento);
+			    rutasAntes.addAll(rutasImagenes(actualizado));
+			    almacenImagenes.actualizarReferencias(rutasAntes);
+			    cacheEventos.invalidarEvento(id, actualizado.getCategoria());
+			    servicioCambios.registrar(EntidadCambio.EVENTO, id, OperacionCambio.ACTUALIZADO);
 	
 			    // Crear DTO de bajada igual que en insert()
 			    DTOeventoBajada dtoBajada = dtoConverter.map(actualizado, DTOeventoBajada.class);
@@ -340,7 +443,7 @@ public class ServicioEventoImpl implements IServicioEvento{
 			    dtoBajada.setInvitados(servicioInvitado.obtenerInvitados(id));
 			    dtoBajada.setVendedorId(evento.getVendedor().getId());
 	
-			    return dtoBajada;
+			    return conPlazas(dtoBajada);
 		}
 	
 		/**
@@ -353,7 +456,16 @@ public class ServicioEventoImpl implements IServicioEvento{
 		public boolean eliminarEvento(Long id) {
 			// TODO Auto-generated method stub
 	        if (eventoDAO.existsById(id)) {
+	            // Los tickets del evento se borran en cascada
+	            List<Long> tickets = ticketDAO.findIdsByEventoId(id);
+	            List<String> rutas = almacenImagenes.rutasDeEventos(List.of(id));
 	            eventoDAO.deleteById(id);
+	            almacenImagenes.actualizarReferencias(rutas);
+	            cacheEventos.invalidarEvento(id);
+	            inventarioAforo.olvidar(id);
+	            indiceAccesos.descartar(tickets);
+	            servicioCambios.registrarTodos(EntidadCambio.TICKET, tickets, OperacionCambio.ELIMINADO);
+	            servicioCambios.registrar(EntidadCambio.EVENTO, id, OperacionCambio.ELIMINADO);
 	            return true;
 	        }
 	        return false;
@@ -372,11 +484,11 @@ public class ServicioEventoImpl implements IServicioEvento{
 			// TODO Auto-generated method stub
 			Evento evento = eventoDAO.findByNombre(nombre)
 		            .orElseThrow(() -> new RuntimeException(nombre + "no encontrado"));
-		    return dtoConverter.map(evento, DTOeventoBajada.class);
+		    return conPlazas(dtoConverter.map(evento, DTOeventoBajada.class));
 		}
 		
 		/**
-	     * Obtiene eventos por categoría.
+	     * Obtiene eventos por categoría (cacheado en {@link CacheEventos}).
 	     *
 	     * @param categoria categoría de eventos
 	     * @return lista de {@link DTOeventoBajada} de la categoría
@@ -385,11 +497,8 @@ public class ServicioEventoImpl implements IServicioEvento{
 		public List<DTOeventoBajada> obtenerPorCategoria(Categoria categoria) {
 			// TODO Auto-generated method stub
 			
-			return eventoDAO.findByCategoria(categoria).stream().map(e -> {
-	            DTOeventoBajada dto = dtoConverter.map(e, DTOeventoBajada.class);
-	            dto.setImagenesCarruselUrls(eventoImagenDAO.findUrlsByEventoId(e.getId()));
-	            return dto;
-	        }).collect(Collectors.toList());
+			return conPlazas(cacheEventos.obtenerPorCategoria(categoria,
+					() -> completarListado(eventoDAO.listarPorCategoria(categoria))));
 		}
 	
 	
@@ -408,34 +517,35 @@ public class ServicioEventoImpl implements IServicioEvento{
 	        List<Long> idsIA = buscarEventosPorIA(nombre);
 	
 	        if (!idsIA.isEmpty()) {
-	            // Convertimos IDs a DTO
-	            return idsIA.stream()
-	                    .map(id -> eventoDAO.findById(id).orElse(null))
-	                    .filter(e -> e != null)
-	                    .map(e -> {
-	                        DTOeventoBajada dto = dtoConverter.map(e, DTOeventoBajada.class);
-	                        dto.setImagenesCarruselUrls(eventoImagenDAO.findUrlsByEventoId(e.getId()));
-	                        return dto;
-	                    })
-	                    .toList();
+	            // Convertimos IDs a DTO en una sola consulta, respetando el orden de la IA
+	            Map<Long, DTOeventoBajada> porId = eventoDAO.listarPorIds(idsIA).stream()
+	                    .collect(Collectors.toMap(DTOeventoBajada::getId, dto -> dto));
+	            List<DTOeventoBajada> ordenados = idsIA.stream()
+	                    .distinct()
+	                    .map(porId::get)
+	                    .filter(dto -> dto != null)
+	                    .collect(Collectors.toList());
+	            return conPlazas(completarListado(ordenados));
 	        }
 	
 	        // 2) FALLBACK → BÚSQUEDA NORMAL
 	
-	        return eventoDAO.findByNombreContainingIgnoreCase(nombre)
-	                .stream()
-	                .map(e -> {
-	                    DTOeventoBajada dto = dtoConverter.map(e, DTOeventoBajada.class);
-	                    dto.setImagenesCarruselUrls(eventoImagenDAO.findUrlsByEventoId(e.getId()));
-	                    return dto;
-	                })
-	                .toList();
+	        return conPlazas(completarListado(eventoDAO.listarPorNombreConteniendo(nombre)));
 	    }
 		
 		
+		/**
+		 * Obtiene un evento por su ID (cacheado en {@link CacheEventos}).
+		 *
+		 * @param id ID del evento
+		 * @return {@link DTOeventoBajada} del evento
+		 * @throws RuntimeException si no existe
+		 */
 		@Override
 		public DTOeventoBajada obtnerPorElId(Long id) {
-			return dtoConverter.map(eventoDAO.findById(id),DTOeventoBajada.class);
+			return conPlazas(cacheEventos.obtenerPorId(id, () -> dtoConverter.map(
+					eventoDAO.findById(id).orElseThrow(() -> new RuntimeException("Evento no encontrado")),
+					DTOeventoBajada.class)));
 		}
 		
 		/**
@@ -445,9 +555,8 @@ public class ServicioEventoImpl implements IServicioEvento{
 		 * <ol>
 		 *     <li>Busca al usuario por su ID usando {@link RepositorioUsuario}.</li>
 		 *     <li>Verifica que el usuario tenga el rol {@link Rol#VENDEDOR}.</li>
-		 *     <li>Obtiene todos los eventos del vendedor mediante {@link RepositorioEvento#findByVendedorId}.</li>
-		 *     <li>Convierte cada evento a {@link DTOeventoBajada} usando {@link DtoConverter}.</li>
-		 *     <li>Agrega las URLs del carrusel de imágenes consultando {@link RepositorioEventoImagen#findUrlsByEventoId}.</li>
+		 *     <li>Obtiene los eventos del vendedor ya como {@link DTOeventoBajada} mediante {@link RepositorioEvento#listarPorVendedor}.</li>
+		 *     <li>Agrega carrusel e invitados de todos los eventos a la vez con {@link #completarListado(List)}.</li>
 		 * </ol>
 		 *
 		 * @param vendedorId ID del vendedor cuyos eventos se desean obtener
@@ -463,72 +572,137 @@ public class ServicioEventoImpl implements IServicioEvento{
 	        if (vendedor.getRol() != Rol.VENDEDOR)
 	            throw new RuntimeException("El usuario no tiene rol de vendedor");
 	
-	        return eventoDAO.findByVendedorId(vendedorId).stream().map(e -> {
-	            DTOeventoBajada dto = dtoConverter.map(e, DTOeventoBajada.class);
-	            dto.setImagenesCarruselUrls(eventoImagenDAO.findUrlsByEventoId(e.getId()));
-	            return dto;
-	        }).collect(Collectors.toList());
+	        return conPlazas(completarListado(eventoDAO.listarPorVendedor(vendedorId)));
+		}
+		
+		/**
+		 * Copia un evento con sus plazas retenidas y disponibles en este momento.
+		 *
+		 * <p>Las cifras salen de {@link InventarioAforo} y {@link RetencionesCarrito} (en memoria,
+		 * sin consultas) y se añaden sobre una copia porque los DTOs de {@link CacheEventos} se
+		 * comparten y no deben modificarse.</p>
+		 */
+		private DTOeventoBajada conPlazas(DTOeventoBajada evento) {
+			int ocupadas = inventarioAforo.ocupadasEnMemoria(evento.getId());
+			return evento.toBuilder()
+					.plazasRetenidas(retenciones.retenidas(evento.getId()))
+					.plazasDisponibles(Math.max(0, evento.getAforo() - ocupadas))
+					.build();
+		}
+
+		private List<DTOeventoBajada> conPlazas(List<DTOeventoBajada> eventos) {
+			return eventos.stream().map(this::conPlazas).collect(Collectors.toList());
+		}
+
+		/**
+		 * Portada y carrusel de un evento, para recontar sus referencias en {@link AlmacenImagenes}.
+		 */
+		private static List<String> rutasImagenes(Evento evento) {
+			List<String> rutas = new ArrayList<>();
+			if (evento.getImagenesCarruselUrls() != null) {
+				rutas.addAll(evento.getImagenesCarruselUrls());
+			}
+			if (evento.getImagen() != null) {
+				rutas.add(evento.getImagen());
+			}
+			return rutas;
+		}
+
+		/**
+		 * Completa un listado de eventos con su carrusel e invitados.
+		 *
+		 * <p>En lugar de consultar las imágenes e invitados evento a evento (N+1),
+		 * se lanzan dos consultas agrupadas con todos los IDs del listado y el
+		 * resultado se reparte en memoria por ID de evento. Así, un listado de N
+		 * eventos cuesta siempre tres consultas, independientemente de N.</p>
+		 *
+		 * @param eventos DTOs obtenidos con las consultas de listado de {@link RepositorioEvento}
+		 * @return la misma lista, con carrusel e invitados rellenos
+		 */
+		private List<DTOeventoBajada> completarListado(List<DTOeventoBajada> eventos) {
+			if (eventos.isEmpty()) {
+				return eventos;
+			}
+			List<Long> ids = eventos.stream().map(DTOeventoBajada::getId).collect(Collectors.toList());
+	
+			// Carrusel: filas [eventoId, url]
+			Map<Long, List<String>> urlsPorEvento = new HashMap<>();
+			for (Object[] fila : eventoImagenDAO.findUrlsByEventoIds(ids)) {
+				urlsPorEvento.computeIfAbsent((Long) fila[0], k -> new ArrayList<>()).add((String) fila[1]);
+			}
+	
+			// Invitados: filas [eventoId, id, nombre, apellidos, fotoURL, descripcion]
+			Map<Long, List<DTOInvitadoBajada>> invitadosPorEvento = new HashMap<>();
+			for (Object[] fila : invitadoDAO.findResumenByEventoIds(ids)) {
+				invitadosPorEvento.computeIfAbsent((Long) fila[0], k -> new ArrayList<>())
+						.add(DTOInvitadoBajada.builder()
+								.id((Long) fila[1])
+								.nombre((String) fila[2])
+								.apellidos((String) fila[3])
+								.fotoURL((String) fila[4])
+								.descripcion((String) fila[5])
+								.build());
+			}
+	
+			for (DTOeventoBajada dto : eventos) {
+				dto.setImagenesCarruselUrls(urlsPorEvento.getOrDefault(dto.getId(), new ArrayList<>()));
+				dto.setInvitados(invitadosPorEvento.getOrDefault(dto.getId(), new ArrayList<>()));
+			}
+			return eventos;
 		}
 		
 		
 		
 		 /**
 	     * Obtiene recomendaciones de eventos para un usuario usando microservicio IA.
+	     * Los IDs se cachean por usuario en {@link CacheRecomendaciones}.
+	     * Si el microservicio no responde a tiempo, devuelve los eventos más populares.
 	     *
 	     * @param userId ID del usuario
 	     * @return lista de {@link EventoRecomendadoDTO}
 	     */
 		@Override
 		public List<EventoRecomendadoDTO> obtenerRecomendacionesUsuario(Long userId) {
-			// TODO Auto-generated method stub
-			 String url = microServicioURL + "/recommendations?userId=" + userId;
-	
-			 // Llamamos al microservicio  devuelve 
-			    Map<String, List<Integer>> response = restTemplate.getForObject(url, Map.class);
-			    List<Integer> ids = response.get("eventos_recomendados");
-	
-			    if (ids == null || ids.isEmpty()) return List.of();
-	
-			    // Convertimos Integer → Long
-			    List<Long> idsLong = ids.stream()
-			            .map(Integer::longValue)
-			            .collect(Collectors.toList());
-	
-			    // Consultamos la BD usando los IDs devueltos
-			    List<Evento> eventos = (List<Evento>) eventoDAO.findAllById(idsLong);
-	
-			    // Mapeamos con DtoConverter a EventoRecomendadoDTO
-			    return eventos.stream()
-			            .map(e -> dtoConverter.map(e, EventoRecomendadoDTO.class))
-			            .collect(Collectors.toList());
+			List<Long> ids = cacheRecomendaciones.idsUsuario(userId, () -> clienteRecomendaciones.recomendacionesUsuario(userId))
+					.orElseGet(() -> eventoDAO.findIdsMasPopulares(null, null, PageRequest.of(0, NUM_RECOMENDACIONES_LOCALES)));
+			return mapearRecomendados(ids);
 		}
 		
 		
 		/**
 	     * Obtiene eventos similares a uno dado usando microservicio IA.
+	     * Los IDs se cachean por evento en {@link CacheRecomendaciones}.
+	     * Si el microservicio no responde a tiempo, devuelve los eventos más populares
+	     * de la misma categoría.
 	     *
 	     * @param eventoId ID del evento
 	     * @return lista de {@link EventoRecomendadoDTO}
 	     */
 		@Override
 		public List<EventoRecomendadoDTO> obtenerSimilaresEvento(Long eventoId) {
-			// TODO Auto-generated method stub
-			 String url = microServicioURL + "/recommendations/event?eventoId=" + eventoId;
-	
-			 Map<String, List<Integer>> response = restTemplate.getForObject(url, Map.class);
-			    List<Integer> ids = response.get("eventos_similares");
-	
-			    if (ids == null || ids.isEmpty()) return List.of();
-	
-			    List<Long> idsLong = ids.stream()
-			            .map(Integer::longValue)
-			            .collect(Collectors.toList());
-	
-			    List<Evento> eventos = (List<Evento>) eventoDAO.findAllById(idsLong);
-	
-			    return eventos.stream()
-			            .map(e -> dtoConverter.map(e, EventoRecomendadoDTO.class))
-			            .collect(Collectors.toList());
+			List<Long> ids = cacheRecomendaciones.idsEvento(eventoId, () -> clienteRecomendaciones.similaresEvento(eventoId))
+					.orElseGet(() -> {
+						Categoria categoria = eventoDAO.findById(eventoId).map(Evento::getCategoria).orElse(null);
+						return eventoDAO.findIdsMasPopulares(categoria, eventoId, PageRequest.of(0, NUM_RECOMENDACIONES_LOCALES));
+					});
+			return mapearRecomendados(ids);
+		}
+		
+		/**
+		 * Convierte IDs de eventos a {@link EventoRecomendadoDTO} respetando el orden recibido.
+		 */
+		private List<EventoRecomendadoDTO> mapearRecomendados(List<Long> ids) {
+			if (ids.isEmpty()) return List.of();
+	
+			Map<Long, Evento> porId = new HashMap<>();
+			eventoDAO.findAllById(ids).forEach(e -> porId.put(e.getId(), e));
+	
+			return ids.stream()
+					.distinct()
+					.map(porId::get)
+					.filter(e -> e != null)
+					.map(e -> dtoConverter.map(e, EventoRecomendadoDTO.class))
+					.collect(Collectors.toList());
 		}
 		
 		
@@ -536,23 +710,12 @@ public class ServicioEventoImpl implements IServicioEvento{
 	     * Llama al microservicio de IA para buscar eventos por nombre.
 	     *
 	     * @param nombre nombre del evento
-	     * @return lista de IDs de eventos encontrados
+	     * @return lista de IDs de eventos encontrados; vacía si el microservicio no está
+	     *         disponible, de modo que {@link #buscarPorNombreConteniendo(String)} use la búsqueda local
 	     */
 		@Override
 		public List<Long> buscarEventosPorIA(String nombre) {
-			// TODO Auto-generated method stub
-			 String url = microServicioURL + "/search?nombre=" + nombre;
-	
-		        // Llamada al microservicio
-		        Map response = restTemplate.getForObject(url, Map.class);
-	
-		        if (response == null || !response.containsKey("eventos_encontrados")) {
-		            return List.of();
-		        }
-	
-		        // Convertimos a lista de IDs (Long)
-		        List<Integer> ids = (List<Integer>) response.get("eventos_encontrados");
-		        return ids.stream().map(Long::valueOf).toList();
+			return clienteRecomendaciones.buscar(nombre).orElse(List.of());
 		}
 	
 }
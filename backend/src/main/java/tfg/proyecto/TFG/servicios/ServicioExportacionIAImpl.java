@@ -0,0 +1,113 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.transaction.Transactional;
+import tfg.proyecto.TFG.repositorio.RepositorioEvento;
+import tfg.proyecto.TFG.repositorio.RepositorioInvitado;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Implementación del servicio {@link IServicioExportacionIA}.
+ *
+ * <p>Vuelca el conjunto de datos completo de la IA en formato JSON Lines (un objeto JSON
+ * por línea, con un campo <code>tipo</code>) sin cargarlo en memoria:</p>
+ * <ol>
+ *     <li><code>{"tipo":"version","version":n}</code>: versión de los datos antes del volcado.</li>
+ *     <li><code>{"tipo":"evento","id","nombre","categoria","descripcion","localizacion"}</code></li>
+ *     <li><code>{"tipo":"invitado","eventoId","id","nombre"}</code></li>
+ *     <li><code>{"tipo":"usuario","id","nombre"}</code></li>
+ *     <li><code>{"tipo":"ticket","id","usuarioId","eventoId"}</code></li>
+ * </ol>
+ *
+ * <p>Cada tabla se recorre con un cursor de la base de datos leído por lotes
+ * (<i>fetch size</i>) y cada fila se escribe directamente en la salida, por lo que la
+ * memoria usada no depende del número de tickets. Las consultas son proyecciones de
+ * columnas: no se crean entidades ni se llenan las colecciones LAZY.</p>
+ */
+@Service
+public class ServicioExportacionIAImpl implements IServicioExportacionIA {
+
+	/** Filas escritas entre cada envío al cliente. */
+	private static final int FILAS_POR_ENVIO = 1000;
+
+	@Autowired IServicioCambios servicioCambios;
+	@Autowired RepositorioEvento eventoDAO;
+	@Autowired RepositorioInvitado invitadoDAO;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired RepositorioTicket ticketDAO;
+	@Autowired ObjectMapper objectMapper;
+
+	/**
+	 * Escribe el volcado en JSON Lines. No cierra la salida.
+	 *
+	 * @param salida flujo de destino (normalmente la respuesta HTTP)
+	 * @throws IOException si falla la escritura (p. ej. el cliente cierra la conexión)
+	 */
+	@Override
+	@Transactional
+	public void exportarDatosIA(OutputStream salida) throws IOException {
+		// Versión leída antes del volcado: los cambios posteriores se piden a /cambios desde ella,
+		// así que no puede pasar de una transacción que aún no ha confirmado
+		long version = servicioCambios.versionSegura();
+
+		try (JsonGenerator json = objectMapper.getFactory().createGenerator(salida)) {
+			json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			json.setRootValueSeparator(null);
+
+			json.writeStartObject();
+			json.writeStringField("tipo", "version");
+			json.writeNumberField("version", version);
+			json.writeEndObject();
+			json.writeRaw('\n');
+
+			try (Stream<Object[]> filas = eventoDAO.streamDatosIA()) {
+				escribir(json, filas, "evento", "id", "nombre", "categoria", "descripcion", "localizacion");
+			}
+			try (Stream<Object[]> filas = invitadoDAO.streamResumenIA()) {
+				escribir(json, filas, "invitado", "eventoId", "id", "nombre");
+			}
+			try (Stream<Object[]> filas = usuarioDAO.streamResumenIA()) {
+				escribir(json, filas, "usuario", "id", "nombre");
+			}
+			try (Stream<Object[]> filas = ticketDAO.streamResumenIA()) {
+				escribir(json, filas, "ticket", "id", "usuarioId", "eventoId");
+			}
+		}
+	}
+
+	/**
+	 * Escribe una línea por fila con los campos indicados, en el orden de la proyección.
+	 */
+	private void escribir(JsonGenerator json, Stream<Object[]> filas, String tipo, String... campos)
+			throws IOException {
+		int escritas = 0;
+		Iterator<Object[]> it = filas.iterator();
+		while (it.hasNext()) {
+			Object[] fila = it.next();
+			json.writeStartObject();
+			json.writeStringField("tipo", tipo);
+			for (int i = 0; i < campos.length; i++) {
+				json.writeFieldName(campos[i]);
+				json.writeObject(fila[i]);
+			}
+			json.writeEndObject();
+			json.writeRaw('\n');
+
+			if (++escritas % FILAS_POR_ENVIO == 0) {
+				json.flush();
+			}
+		}
+		json.flush();
+	}
+}
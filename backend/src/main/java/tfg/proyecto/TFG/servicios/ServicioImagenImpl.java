@@ -2,10 +2,12 @@ package tfg.proyecto.TFG.servicios;
 
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-
-import tfg.proyecto.TFG.config.FileUtils;
+import org.springframework.web.multipart.MultipartFile;
 
 /**
  * Servicio encargado de gestionar el almacenamiento de imágenes en la aplicación.
@@ -13,6 +15,14 @@ import tfg.proyecto.TFG.config.FileUtils;
  * <p>Actualmente soporta la carga de imágenes en formato Base64 o URLs directas.
  * Se encarga de devolver la ruta relativa donde se almacenan, y provee un
  * placeholder por defecto si no se proporciona imagen.</p>
+ *
+ * <p>Las imágenes se guardan en el {@link AlmacenImagenes}, por su contenido: la misma imagen
+ * enviada otra vez (p. ej. el carrusel completo en cada actualización de un evento) devuelve
+ * la misma ruta sin volver a escribirse. Las subidas como archivo (multipart) se copian a
+ * disco por bloques con {@link #guardarImagen(MultipartFile)}, sin pasar por Base64 ni
+ * cargarlas enteras en memoria.</p>
+ *
+ * <p>Tras guardar una imagen se programan sus versiones reducidas en {@link VariantesImagen}.</p>
  */
 @Service
 public class ServicioImagenImpl {
@@ -23,32 +33,66 @@ public class ServicioImagenImpl {
      */
 	private static final String PLACEHOLDER_INVITADO = "/images/placeholder-invitado.png";
 
+	@Autowired
+	AlmacenImagenes almacenImagenes;
+	@Autowired
+	VariantesImagen variantesImagen;
+
 	  /**
      * Guarda una imagen en Base64 o devuelve un placeholder si la imagen no existe.
      *
      * <p>Este método hace lo siguiente:</p>
      * <ol>
      *     <li>Verifica si el string Base64 es nulo o vacío, en cuyo caso retorna el placeholder.</li>
-     *     <li>Invoca {@link FileUtils#guardarImagenBase64(String, String)} para guardar la imagen
-     *         en la subcarpeta indicada.</li>
-     *     <li>Retorna la ruta relativa donde se guardó la imagen, o el placeholder si ocurre algún problema.</li>
+     *     <li>Si es una URL o una ruta ya guardada ("http...", "/uploads/...", "C:\..."), la retorna tal cual.</li>
+     *     <li>Quita el prefijo "data:image/...;base64," si lo tiene y decodifica la imagen;
+     *         si no es Base64 válido, retorna la cadena tal cual.</li>
+     *     <li>Guarda la imagen en el {@link AlmacenImagenes} y retorna su ruta.</li>
      * </ol>
      *
      * @param base64    la imagen codificada en Base64
-     * @param subcarpeta la subcarpeta dentro del almacenamiento donde se guardará la imagen
      * @return la ruta relativa de la imagen guardada o un placeholder por defecto
+     * @throws ImagenNoValidaException si el contenido decodificado no es una imagen admitida
      * @throws IOException si ocurre un error al guardar la imagen
      */
-	public String guardarImagenBase64(String base64, String subcarpeta) throws IOException {
+	public String guardarImagenBase64(String base64) throws IOException {
 		// Validación inicial: si la imagen es nula o vacía, usamos placeholder
 		if (base64 == null || base64.isBlank()) {
 			return PLACEHOLDER_INVITADO;
 		}
-		// Guardar la imagen usando la utilidad FileUtils
-		String ruta = FileUtils.guardarImagenBase64(base64, subcarpeta);
-		// Retornar la ruta obtenida o el placeholder si algo salió mal
-		return ruta != null ? ruta : PLACEHOLDER_INVITADO;
+		// Si es una URL o una ruta ya guardada, la devolvemos tal cual
+		if (base64.startsWith("http") || base64.startsWith("/uploads/") || base64.startsWith("C:\\")) {
+			return base64;
+		}
+		String datos = base64;
+		if (datos.startsWith("data:image") && datos.indexOf(',') != -1) {
+			datos = datos.substring(datos.indexOf(',') + 1);
+		}
+		byte[] contenido;
+		try {
+			contenido = Base64.getDecoder().decode(datos);
+		} catch (IllegalArgumentException e) {
+			// Si la cadena no es Base64 válida, se devuelve tal cual
+			return base64;
+		}
+		String ruta = almacenImagenes.guardar(contenido, "imagen Base64");
+		variantesImagen.programar(ruta);
+		return ruta;
 	}
-	
 
+	/**
+	 * Guarda una imagen subida como archivo multipart.
+	 *
+	 * @param archivo archivo recibido
+	 * @return la ruta relativa de la imagen guardada (ej: "/uploads/img/3f/a2/3fa2....jpg")
+	 * @throws ImagenNoValidaException si el contenido no es PNG, JPEG, GIF ni WebP
+	 * @throws IOException si ocurre un error al leer la subida o escribir el archivo
+	 */
+	public String guardarImagen(MultipartFile archivo) throws IOException {
+		try (InputStream entrada = archivo.getInputStream()) {
+			String ruta = almacenImagenes.guardar(entrada, archivo.getOriginalFilename());
+			variantesImagen.programar(ruta);
+			return ruta;
+		}
+	}
 }
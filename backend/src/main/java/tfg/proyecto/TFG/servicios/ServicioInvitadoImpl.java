@@ -1,6 +1,8 @@
 package tfg.proyecto.TFG.servicios;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -10,8 +12,10 @@ import org.springframework.stereotype.Service;
 import jakarta.transaction.Transactional;
 import tfg.proyecto.TFG.dtos.DTOInvitadoBajada;
 import tfg.proyecto.TFG.dtos.DTOInvitadoSubida;
+import tfg.proyecto.TFG.modelo.EntidadCambio;
 import tfg.proyecto.TFG.modelo.Evento;
 import tfg.proyecto.TFG.modelo.Invitado;
+import tfg.proyecto.TFG.modelo.OperacionCambio;
 import tfg.proyecto.TFG.repositorio.RepositorioEvento;
 import tfg.proyecto.TFG.repositorio.RepositorioInvitado;
 
@@ -32,6 +36,9 @@ public class ServicioInvitadoImpl implements IServicioInvitado{
 	@Autowired private RepositorioInvitado invitadoDAO;
     @Autowired private RepositorioEvento eventoDAO;
     @Autowired private ServicioImagenImpl servicioImagen;
+    @Autowired private CacheEventos cacheEventos;
+    @Autowired private IServicioCambios servicioCambios;
+    @Autowired private AlmacenImagenes almacenImagenes;
 	
 
     /**
@@ -62,16 +69,16 @@ public class ServicioInvitadoImpl implements IServicioInvitado{
                 .orElseThrow(() -> new RuntimeException("Evento no encontrado"));
 
         //  Eliminar los invitados anteriores del evento
+        List<String> fotos = fotosInvitados(eventoId);
         invitadoDAO.deleteByEventoId(eventoId);
+        cacheEventos.invalidarEvento(eventoId, evento.getCategoria());
+        servicioCambios.registrar(EntidadCambio.EVENTO, eventoId, OperacionCambio.ACTUALIZADO);
 
         //  Guardar los nuevos invitados
-        return invitadosDto.stream().map(dto -> {
+        List<DTOInvitadoBajada> guardados = invitadosDto.stream().map(dto -> {
             try {
                 //  Guardar la imagen (ya maneja Base64, URL y placeholder internamente)
-            	String rutaFoto = servicioImagen.guardarImagenBase64(
-            	        dto.getFotoURL(),
-            	        "invitados/" + eventoId
-            	);
+            	String rutaFoto = servicioImagen.guardarImagenBase64(dto.getFotoURL());
             	System.out.println("[BACKEND] Invitado imagen guardada: " + rutaFoto);
 
                 Invitado invitado = Invitado.builder()
@@ -97,6 +104,9 @@ public class ServicioInvitadoImpl implements IServicioInvitado{
                 throw new RuntimeException("Error guardando imagen del invitado", e);
             }
         }).collect(Collectors.toList());
+        guardados.forEach(invitado -> fotos.add(invitado.getFotoURL()));
+        almacenImagenes.actualizarReferencias(fotos);
+        return guardados;
     }
 
     /**
@@ -132,7 +142,35 @@ public class ServicioInvitadoImpl implements IServicioInvitado{
     @Transactional
     @Override
     public void eliminarInvitados(Long eventoId) {
+        List<String> fotos = fotosInvitados(eventoId);
         invitadoDAO.deleteByEventoId(eventoId);
+        almacenImagenes.actualizarReferencias(fotos);
+        cacheEventos.invalidarEvento(eventoId);
+        servicioCambios.registrar(EntidadCambio.EVENTO, eventoId, OperacionCambio.ACTUALIZADO);
+    }
+
+    /**
+     * Elimina un único invitado por su ID.
+     *
+     * @param invitadoId ID del invitado
+     * @return true si se eliminó, false si no existía
+     */
+    @Transactional
+    @Override
+    public boolean eliminarInvitado(Long invitadoId) {
+        return invitadoDAO.findById(invitadoId).map(invitado -> {
+            invitadoDAO.delete(invitado);
+            almacenImagenes.actualizarReferencias(Collections.singletonList(invitado.getFotoURL()));
+            cacheEventos.invalidarEvento(invitado.getEvento().getId(), invitado.getEvento().getCategoria());
+            servicioCambios.registrar(EntidadCambio.EVENTO, invitado.getEvento().getId(), OperacionCambio.ACTUALIZADO);
+            return true;
+        }).orElse(false);
+    }
+
+    private List<String> fotosInvitados(Long eventoId) {
+        return invitadoDAO.findByEventoId(eventoId).stream()
+                .map(Invitado::getFotoURL)
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
 }
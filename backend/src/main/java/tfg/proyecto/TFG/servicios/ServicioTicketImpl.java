@@ -1,24 +1,30 @@
 package tfg.proyecto.TFG.servicios;
 
 
-import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.Base64;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
 import tfg.proyecto.TFG.config.DtoConverter;
-import tfg.proyecto.TFG.config.FileUtils;
+import tfg.proyecto.TFG.config.FirmaQR;
 import tfg.proyecto.TFG.config.QRCodeGenerator;
+import tfg.proyecto.TFG.dtos.DTOqrMatriz;
 import tfg.proyecto.TFG.dtos.DTOticketBajada;
 import tfg.proyecto.TFG.dtos.DTOticketSubida;
+import tfg.proyecto.TFG.modelo.EntidadCambio;
 import tfg.proyecto.TFG.modelo.EstadoTicket;
 import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.OperacionCambio;
+import tfg.proyecto.TFG.modelo.ResultadoAcceso;
 import tfg.proyecto.TFG.modelo.Ticket;
 import tfg.proyecto.TFG.modelo.Usuario;
 import tfg.proyecto.TFG.repositorio.RepositorioEvento;
@@ -31,14 +37,18 @@ import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
  *
  * <p>Proporciona funcionalidades para:</p>
  * <ul>
- *     <li>Crear tickets y generar su código QR.</li>
+ *     <li>Crear tickets con su código QR, uno a uno o varios en lote, sin superar el aforo del evento.</li>
+ *     <li>Dibujar la imagen del QR cuando se pide por primera vez (PNG, SVG o matriz de módulos).</li>
  *     <li>Eliminar tickets.</li>
  *     <li>Obtener tickets por usuario, evento o ID.</li>
- *     <li>Validar códigos QR y marcar tickets como usados.</li>
+ *     <li>Validar códigos QR y marcar tickets como usados (a través de {@link IndiceAccesos}).</li>
  * </ul>
  */
 @Service
 public class ServicioTicketImpl implements IServicioTicket{
+
+	/** Ruta (en {@code ControlTicket}) de la imagen PNG del QR; le sigue el contenido del QR y ".png". */
+	public static final String RUTA_IMAGEN_QR = "/tfg/ticket/qr/";
 	
 	 	@Autowired  
 	 	RepositorioTicket ticketDAO;
@@ -52,6 +62,19 @@ public class ServicioTicketImpl implements IServicioTicket{
 	    RepositorioUsuario usuarioDAO;
 	    @Autowired
 	    QRCodeGenerator qrCodeGenerator;
+	    @Autowired
+	    IServicioCambios servicioCambios;
+	    @Autowired
+	    CacheImagenesQR cacheImagenesQR;
+	    @Autowired
+	    InventarioAforo inventarioAforo;
+	    @Autowired
+	    IndiceAccesos indiceAccesos;
+	    @Autowired
+	    FirmaQR firmaQR;
+
+	    @Value("${qr.firma.horas-antes:6}")
+	    long horasAntesFirma;
 
 	    /**
 	     * Crea un ticket a partir de un DTO de subida, genera un código QR, lo guarda y devuelve el DTO de bajada.
@@ -60,15 +83,18 @@ public class ServicioTicketImpl implements IServicioTicket{
 	     * <ol>
 	     *     <li>Validar que usuarioId y eventoId no sean nulos.</li>
 	     *     <li>Verificar existencia del usuario y del evento.</li>
+	     *     <li>Reservar una plaza del aforo del evento ({@link InventarioAforo}).</li>
 	     *     <li>Crear entidad Ticket con estado VALIDO y fecha actual.</li>
 	     *     <li>Generar un UUID como contenido del QR.</li>
-	     *     <li>Generar la URL de validación y la imagen del QR.</li>
-	     *     <li>Guardar el QR en disco y asociarlo al ticket.</li>
-	     *     <li>Guardar el ticket en la base de datos y retornar el DTO.</li>
+	     *     <li>Generar la URL de validación y la ruta de la imagen del QR (que se dibuja al pedirla).</li>
+	     *     <li>Guardar el ticket en la base de datos y, con la firma de QR habilitada, cambiar el UUID
+	     *     por un contenido firmado ({@link FirmaQR}) que ya incluye su ID.</li>
+	     *     <li>Retornar el DTO.</li>
 	     * </ol>
 	     *
 	     * @param dto DTO de subida con los datos del ticket
 	     * @return DTO de bajada con los datos del ticket guardado
+	     * @throws AforoCompletoException si el evento no tiene plazas libres
 	     */
 	    @Override
 	    @Transactional
@@ -84,38 +110,161 @@ public class ServicioTicketImpl implements IServicioTicket{
 	        Evento evento = eventoDAO.findById(dto.getEventoId())
 	                .orElseThrow(() -> new RuntimeException("Evento no encontrado con id: " + dto.getEventoId()));
 
-	        // Crear ticket
+	        if (!inventarioAforo.reservar(evento.getId(), evento.getAforoMax(), 1)) {
+	            throw new AforoCompletoException(evento.getId());
+	        }
+
+	        // Crear ticket con su QR
+	        Ticket ticket = nuevoTicket(usuario, evento, dto.getPrecioPagado(), LocalDateTime.now());
+
+	        // Guardar ticket con QR
+	        ticket = ticketDAO.save(ticket);
+	        firmarQR(ticket);
+	        servicioCambios.registrar(EntidadCambio.TICKET, ticket.getId(), OperacionCambio.CREADO);
+	        //  Devolver DTO de bajada
+	        return dtoConverter.map(ticket, DTOticketBajada.class);
+	    }
+
+	    /**
+	     * Emite varios tickets iguales de un evento para un usuario ya cargados (p. ej. al
+	     * finalizar la compra del carrito), sin volver a consultarlos por ID.
+	     *
+	     * <p>Los IDs salen de la secuencia <code>ticket_seq</code> en bloques de 50 y los INSERT
+	     * se envían en lotes JDBC (<code>hibernate.jdbc.batch_size</code>), así que el coste en
+	     * viajes a la base de datos casi no depende de la cantidad.</p>
+	     *
+	     * @param usuario comprador
+	     * @param evento evento de las entradas
+	     * @param cantidad número de tickets a emitir
+	     * @param precioPagado precio de cada ticket
+	     * @return DTOs de bajada de los tickets creados
+	     * @throws AforoCompletoException si no quedan {@code cantidad} plazas libres
+	     */
+	    @Override
+	    @Transactional
+	    public List<DTOticketBajada> emitirTickets(Usuario usuario, Evento evento, int cantidad, double precioPagado) {
+	        if (usuario == null || evento == null) {
+	            throw new IllegalArgumentException("El usuario y el evento son obligatorios.");
+	        }
+	        if (cantidad <= 0) {
+	            return List.of();
+	        }
+	        if (!inventarioAforo.reservar(evento.getId(), evento.getAforoMax(), cantidad)) {
+	            throw new AforoCompletoException(evento.getId());
+	        }
+	        return crearTickets(usuario, evento, cantidad, precioPagado);
+	    }
+
+	    /**
+	     * Igual que {@link #emitirTickets(Usuario, Evento, int, double)} pero sin reservar aforo,
+	     * para plazas que el llamante ya tiene reservadas (p. ej. retenidas en el carrito).
+	     */
+	    List<DTOticketBajada> crearTickets(Usuario usuario, Evento evento, int cantidad, double precioPagado) {
+	        LocalDateTime ahora = LocalDateTime.now();
+	        List<Ticket> tickets = new ArrayList<>(cantidad);
+	        for (int i = 0; i < cantidad; i++) {
+	            tickets.add(nuevoTicket(usuario, evento, precioPagado, ahora));
+	        }
+
+	        // Los IDs se asignan aquí (sin INSERT); los INSERT van en lote al hacer flush
+	        ticketDAO.saveAll(tickets);
+	        tickets.forEach(this::firmarQR);
+	        servicioCambios.registrarTodos(EntidadCambio.TICKET,
+	        		tickets.stream().map(Ticket::getId).toList(), OperacionCambio.CREADO);
+
+	        return dtoConverter.mapAll(tickets, DTOticketBajada.class);
+	    }
+
+	    /**
+	     * Crea (sin guardar) un ticket VALIDO con un UUID como contenido del QR,
+	     * su URL de validación y la ruta de su imagen QR.
+	     */
+	    private Ticket nuevoTicket(Usuario usuario, Evento evento, double precioPagado, LocalDateTime fechaCompra) {
 	        Ticket ticket = new Ticket();
 	        ticket.setUsuario(usuario);
 	        ticket.setEvento(evento);
-	        ticket.setPrecioPagado(dto.getPrecioPagado());
+	        ticket.setPrecioPagado(precioPagado);
 	        ticket.setEstado(EstadoTicket.VALIDO);
-	        ticket.setFechaCompra(LocalDateTime.now());
+	        ticket.setFechaCompra(fechaCompra);
 
 	        // Generar QR con UUID
-	        String claveValidacion = UUID.randomUUID().toString();	        
-	        String contenidoQR = claveValidacion; //contenido aleatorio
+	        asignarQR(ticket, UUID.randomUUID().toString());
+	        return ticket;
+	    }
+
+	    /**
+	     * Con <code>qr.firma.habilitada</code>, cambia el UUID del QR de un ticket ya guardado
+	     * (con ID, aún sin INSERT) por un contenido firmado con {@link FirmaQR}, válido desde
+	     * <code>qr.firma.horas-antes</code> antes del inicio del evento hasta su fin.
+	     */
+	    private void firmarQR(Ticket ticket) {
+	        if (!firmaQR.habilitada()) {
+	            return;
+	        }
+	        Evento evento = ticket.getEvento();
+	        LocalDateTime inicio = evento.getInicioEvento() != null ? evento.getInicioEvento() : ticket.getFechaCompra();
+	        LocalDateTime fin = evento.getFinEvento() != null ? evento.getFinEvento() : inicio.plusDays(1);
+	        asignarQR(ticket, firmaQR.firmar(ticket.getId(), evento.getId(),
+	                aSegundos(inicio.minusHours(horasAntesFirma)), aSegundos(fin)));
+	    }
+
+	    private void asignarQR(Ticket ticket, String claveValidacion) {
 	        String urlValidacion = "http://localhost:8080/tfg/ticket/validarQR?contenidoQR=" + claveValidacion;
-	        ticket.setContenidoQR(contenidoQR); //Clave 
+	        ticket.setContenidoQR(claveValidacion); //Clave 
 	        ticket.setUrlQR(urlValidacion); //URL completa
 
-	        // Generar imagen QR y codificarla en Base64
-	        byte[] imagenQR = qrCodeGenerator.generarQRBytes(urlValidacion, 300, 300);
-	        String qrBase64 = Base64.getEncoder().encodeToString(imagenQR);
-	       
-
-	        // Guardar QR en disco
-	        try {
-	            String rutaRelativa = FileUtils.guardarImagenBase64(qrBase64, "qr");
-	            ticket.setCodigoQR(rutaRelativa);
-	        } catch (IOException e) {
-	            throw new RuntimeException("Error al guardar el QR: " + e.getMessage(), e);
-	        }
+	        // La imagen no se genera aquí: se dibuja en obtenerImagenQR la primera vez que se pide
+	        ticket.setCodigoQR(RUTA_IMAGEN_QR + claveValidacion + ".png");
+	    }
 
-	        // Guardar ticket con QR
-	        ticket = ticketDAO.save(ticket);
-	        //  Devolver DTO de bajada
-	        return dtoConverter.map(ticket, DTOticketBajada.class);
+	    private static long aSegundos(LocalDateTime fecha) {
+	        return fecha.atZone(ZoneId.systemDefault()).toEpochSecond();
+	    }
+
+	    /**
+	     * Devuelve la imagen PNG (300x300) del QR de un ticket. Se dibuja a partir de su URL
+	     * de validación la primera vez y después se sirve desde {@link CacheImagenesQR}.
+	     *
+	     * @param contenidoQR contenido del QR del ticket
+	     * @return bytes PNG del QR
+	     * @throws RuntimeException si no hay ningún ticket con ese contenido QR
+	     */
+	    @Override
+	    public byte[] obtenerImagenQR(String contenidoQR) {
+	        return cacheImagenesQR.obtenerPng(contenidoQR,
+	                () -> qrCodeGenerator.generarQRBytes(urlValidacion(contenidoQR), 300, 300));
+	    }
+
+	    /**
+	     * Devuelve el QR de un ticket en SVG.
+	     *
+	     * @param contenidoQR contenido del QR del ticket
+	     * @return documento SVG
+	     * @throws RuntimeException si no hay ningún ticket con ese contenido QR
+	     */
+	    @Override
+	    public String obtenerQRSvg(String contenidoQR) {
+	        return qrCodeGenerator.generarQRSvg(urlValidacion(contenidoQR));
+	    }
+
+	    /**
+	     * Devuelve la matriz de módulos del QR de un ticket, para dibujarlo en el cliente.
+	     *
+	     * @param contenidoQR contenido del QR del ticket
+	     * @return matriz de módulos
+	     * @throws RuntimeException si no hay ningún ticket con ese contenido QR
+	     */
+	    @Override
+	    public DTOqrMatriz obtenerQRMatriz(String contenidoQR) {
+	        return qrCodeGenerator.generarMatriz(urlValidacion(contenidoQR));
+	    }
+
+	    /**
+	     * URL de validación (el texto codificado en el QR) del ticket con ese contenido QR.
+	     */
+	    private String urlValidacion(String contenidoQR) {
+	        return ticketDAO.findUrlQRByContenidoQR(contenidoQR)
+	                .orElseThrow(() -> new RuntimeException("Ticket no encontrado con QR: " + contenidoQR));
 	    }
 
 	    /**
@@ -124,9 +273,15 @@ public class ServicioTicketImpl implements IServicioTicket{
 	     * @param id ID del ticket
 	     * @return true si se eliminó correctamente, false si no existía
 	     */
-	    @Override public boolean delete(Long id) {
-	        if (!ticketDAO.existsById(id)) return false;
-	        ticketDAO.deleteById(id);
+	    @Override
+	    @Transactional
+	    public boolean delete(Long id) {
+	        Optional<Ticket> ticket = ticketDAO.findById(id);
+	        if (ticket.isEmpty()) return false;
+	        ticketDAO.delete(ticket.get());
+	        inventarioAforo.liberar(ticket.get().getEvento().getId(), 1);
+	        indiceAccesos.descartar(List.of(id));
+	        servicioCambios.registrar(EntidadCambio.TICKET, id, OperacionCambio.ELIMINADO);
 	        return true;
 	    }
 	    
@@ -165,31 +320,14 @@ public class ServicioTicketImpl implements IServicioTicket{
 	     * Valida el código QR de un ticket.
 	     * Si es válido y el ticket está en estado VALIDO, lo marca como USADO.
 	     *
+	     * <p>Pasa por {@link IndiceAccesos}, como los escaneos de las puertas: el cambio a USADO
+	     * es atómico en memoria y se guarda en la base de datos por lotes poco después.</p>
+	     *
 	     * @param contenidoQR Código QR a validar
 	     * @return true si el ticket fue validado y marcado como USADO; false si no existe o ya estaba usado/anulado
 	     */
-	    @Transactional // ¡Crucial para asegurar que la actualización se guarde!
 	    public boolean validarYUsarCodigoQR(String contenidoQR) {
-	    	
-	        // Buscar el Ticket: Debe existir y estar en estado VALIDO
-	        Optional<Ticket> ticketOpt = ticketDAO.findByContenidoQRAndEstado(contenidoQR, EstadoTicket.VALIDO);
-
-	        
-	        if (ticketOpt.isPresent()) {
-	            
-	            // Si se encuentra (válido), procedemos a marcarlo como USADO
-	            Ticket ticket = ticketOpt.get();
-	            
-	            // Actualizar el estado
-	            ticket.setEstado(EstadoTicket.USADO);
-	         
-	            // Guardar la actualización en la base de datos
-	            ticketDAO.save(ticket);
-	            
-	            return true; // Éxito: Ticket validado y su estado actualizado a USADO
-	        }
-	        // Fallo: El código no existe O su estado ya era USADO/ANULADO.
-	        return false; 
+	        return indiceAccesos.escanear(null, contenidoQR).getResultado() == ResultadoAcceso.ACEPTADO;
 	    }
 
 	    /**
@@ -198,10 +336,18 @@ public class ServicioTicketImpl implements IServicioTicket{
 	     * @param usuarioId ID del usuario
 	     * @return true si se eliminaron tickets; false si no existían
 	     */
-	    @Override public boolean eliminarTodosLosTicketsPorUsuario(Long usuarioId) {
+	    @Override
+	    @Transactional
+	    public boolean eliminarTodosLosTicketsPorUsuario(Long usuarioId) {
 	        List<Ticket> tickets = ticketDAO.findByUsuarioId(usuarioId);
 	        if (tickets.isEmpty()) return false;
 	        ticketDAO.deleteAll(tickets);
+	        indiceAccesos.descartar(tickets.stream().map(Ticket::getId).toList());
+	        tickets.stream()
+	        		.collect(Collectors.groupingBy(t -> t.getEvento().getId(), Collectors.counting()))
+	        		.forEach((eventoId, n) -> inventarioAforo.liberar(eventoId, n.intValue()));
+	        servicioCambios.registrarTodos(EntidadCambio.TICKET,
+	        		tickets.stream().map(Ticket::getId).toList(), OperacionCambio.ELIMINADO);
 	        return true;
 	    }
 	    
@@ -2,6 +2,8 @@ package tfg.proyecto.TFG.servicios;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,8 +21,10 @@ import tfg.proyecto.TFG.dtos.DTOusuarioModificarSubida;
 import tfg.proyecto.TFG.dtos.DTOusuarioSubida;
 import tfg.proyecto.TFG.dtos.DTOusuarioSubidaMinimo;
 import tfg.proyecto.TFG.modelo.Carrito;
+import tfg.proyecto.TFG.modelo.EntidadCambio;
 import tfg.proyecto.TFG.modelo.EstadoCarrito;
 import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.OperacionCambio;
 import tfg.proyecto.TFG.modelo.Rol;
 import tfg.proyecto.TFG.modelo.TarjetaBancaria;
 import tfg.proyecto.TFG.modelo.Usuario;
@@ -57,7 +61,17 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
 	@Autowired
 	DtoConverter dtoConverter;
 	@Autowired
+	VerificadorTokens verificadorTokens;
+	@Autowired
 	ServicioImagenImpl servicioImagen;
+	@Autowired
+	IServicioCambios servicioCambios;
+	@Autowired
+	InventarioAforo inventarioAforo;
+	@Autowired
+	IndiceAccesos indiceAccesos;
+	@Autowired
+	AlmacenImagenes almacenImagenes;
 
 	private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 	
@@ -82,7 +96,7 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
 		// Foto opcional en Base64
 		try {
 			if (usuarioDto.getFoto() != null && usuarioDto.getFoto().length() > 200) {
-				String ruta = servicioImagen.guardarImagenBase64(usuarioDto.getFoto(), "usuarios");
+				String ruta = servicioImagen.guardarImagenBase64(usuarioDto.getFoto());
 				usuario.setFoto(ruta);
 			}
 		} catch (IOException e) {
@@ -100,6 +114,7 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
 		}
 
 		repoUsuario.save(usuario);
+		almacenImagenes.actualizarReferencias(Collections.singletonList(usuario.getFoto()));
 		return dtoConverter.map(usuario, DTOusuarioBajada.class);
 	}
 
@@ -124,10 +139,11 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
 			u.setRol(usuarioDto.getRol());
 
 		// Foto (si viene base64 larga) o mantener existente si llega null/vacía
+		String fotoAntes = u.getFoto();
 		try {
 			String fotoIn = usuarioDto.getFoto();
 			if (fotoIn != null && fotoIn.length() > 200) {
-				String ruta = servicioImagen.guardarImagenBase64(fotoIn, "usuarios");
+				String ruta = servicioImagen.guardarImagenBase64(fotoIn);
 				u.setFoto(ruta);
 			}
 		} catch (IOException e) {
@@ -151,6 +167,8 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
 		}
 
 		repoUsuario.save(u);
+		almacenImagenes.actualizarReferencias(Arrays.asList(fotoAntes, u.getFoto()));
+		verificadorTokens.olvidarUsuario(u.getId());
 		return dtoConverter.map(u, DTOusuarioBajada.class);
 	}
 
@@ -162,9 +180,23 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
      */
 	@Override
 	public Integer deleteById(Long id) {
-		if (!repoUsuario.existsById(id))
+		Usuario usuario = repoUsuario.findById(id).orElse(null);
+		if (usuario == null)
 			return 0;
+		// Se borran en cascada sus tickets y los eventos que creó como vendedor (con sus tickets)
+		List<Long> tickets = repoTicket.findIdsAfectadosPorUsuario(id);
+		List<Long> eventos = repoEvento.findIdsByVendedorId(id);
+		List<Object[]> ocupadas = repoTicket.contarOcupadasPorEventoDeUsuario(id);
+		List<String> imagenes = almacenImagenes.rutasDeEventos(eventos);
+		imagenes.add(usuario.getFoto());
 		repoUsuario.deleteById(id);
+		almacenImagenes.actualizarReferencias(imagenes);
+		verificadorTokens.olvidarUsuario(id);
+		ocupadas.forEach(fila -> inventarioAforo.liberar((Long) fila[0], ((Number) fila[1]).intValue()));
+		eventos.forEach(inventarioAforo::olvidar);
+		indiceAccesos.descartar(tickets);
+		servicioCambios.registrarTodos(EntidadCambio.TICKET, tickets, OperacionCambio.ELIMINADO);
+		servicioCambios.registrarTodos(EntidadCambio.EVENTO, eventos, OperacionCambio.ELIMINADO);
 		return 1;
 	}
 
@@ -198,6 +230,7 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
      * @return DTO del usuario si el token es válido y el usuario no está reportado; null en caso contrario
      */
 	@Override
+	@Transactional
     public DTOusuarioBajada validarTokenYObtenerPerfil(String authHeader) {
         
         // Verificar el formato del encabezado
@@ -209,29 +242,24 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
         // Extraer el Token JWT
         String token = authHeader.substring(7);
         
-        // Obtener el email del Token (el 'Subject')
-        String email = JwtUtil.extractEmail(token);
+        // Verificar el Token (firma y expiración, una sola vez por token) y obtener su usuario
+        UsuarioAutenticado usuario = verificadorTokens.verificar(token);
+        if (usuario == null) {
+            System.out.println("Validacion Fallida: Token expirado, inválido o falsificado, o usuario inexistente.");
+            return null;
+        }
         
-        // Validar el Token y el Email
-        // Se valida que el email no sea nulo y que el Token no esté expirado y sea auténtico.
-        if (email == null || !JwtUtil.validateToken(token, email)) {
-            System.out.println("Validacion Fallida: Token expirado, inválido o falsificado.");
+        if (usuario.isReportado()) {
+            System.out.println("Validacion Fallida: Usuario reportado/bloqueado.");
             return null;
         }
 
-        // Buscar el usuario en la base de datos
-        Usuario u = repoUsuario.findByEmail(email);
-
-        // Comprobaciones de Estado Final
+        // El perfil incluye saldo y tickets, que cambian con cada compra: se lee por ID
+        Usuario u = repoUsuario.findById(usuario.getId()).orElse(null);
         if (u == null) {
             System.out.println("Validacion Fallida: Usuario no encontrado para el Token válido.");
             return null;
         }
-        
-        if (u.isReportado()) {
-            System.out.println("Validacion Fallida: Usuario reportado/bloqueado.");
-            return null;
-        }
 
         // Éxito: Token válido, usuario activo. Mapear y devolver el DTO.
         System.out.println("Validacion Exitosa: Sesión persistente activa para " + u.getEmail());
@@ -416,6 +444,7 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
 			usuario.setReportado(false);
 		}
 		repoUsuario.save(usuario);
+		verificadorTokens.olvidarUsuario(usuario.getId());
 
 		DTOUsuarioReportado dto = dtoConverter.map(usuario, DTOUsuarioReportado.class);
 
@@ -438,6 +467,7 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
 
 		usuario.setReportado(false);
 		repoUsuario.save(usuario);
+		verificadorTokens.olvidarUsuario(usuario.getId());
 
 		DTOUsuarioReportado dto = dtoConverter.map(usuario, DTOUsuarioReportado.class);
 
@@ -0,0 +1,50 @@
+package tfg.proyecto.TFG.servicios;
+
+import tfg.proyecto.TFG.modelo.Rol;
+
+/**
+ * Usuario identificado por un token JWT válido, tal como lo guarda {@link VerificadorTokens}.
+ *
+ * <p>Solo lleva los datos que hacen falta para autorizar una petición. Cuando el usuario
+ * cambia (se modifica, se reporta o se elimina) se marca como no vigente y la siguiente
+ * verificación lo vuelve a leer de la base de datos.</p>
+ */
+public class UsuarioAutenticado {
+
+	private final Long id;
+	private final String email;
+	private final Rol rol;
+	private final boolean reportado;
+	private volatile boolean vigente = true;
+
+	public UsuarioAutenticado(Long id, String email, Rol rol, boolean reportado) {
+		this.id = id;
+		this.email = email;
+		this.rol = rol;
+		this.reportado = reportado;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public Rol getRol() {
+		return rol;
+	}
+
+	public boolean isReportado() {
+		return reportado;
+	}
+
+	boolean isVigente() {
+		return vigente;
+	}
+
+	void invalidar() {
+		vigente = false;
+	}
+}
@@ -0,0 +1,211 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import tfg.proyecto.TFG.config.RutasImagenes;
+
+/**
+ * Genera en segundo plano versiones reducidas de las imágenes del {@link AlmacenImagenes}.
+ *
+ * <p>De cada imagen se guardan, junto al original, copias JPEG de {@link RutasImagenes#ANCHOS}
+ * píxeles de ancho (o del ancho original si es menor): <code>&lt;hash&gt;_320.jpg</code> para los
+ * listados y <code>&lt;hash&gt;_960.jpg</code> para el detalle. Las rutas salen del nombre del
+ * original, así que los DTOs las calculan sin consultar nada con {@link RutasImagenes#urls(String)};
+ * mientras una variante no existe, <code>/uploads</code> sirve el original en su lugar (ver
+ * {@link RutasImagenes#candidatosOriginal(String)}).</p>
+ *
+ * <p>Las tareas se ejecutan en un pool de <code>imagenes.variantes.hilos</code> hilos con una
+ * cola de <code>imagenes.variantes.cola</code>: una ráfaga de subidas no crea más hilos ni
+ * acumula memoria, y si la cola se llena la tarea se descarta (la imagen se sigue sirviendo
+ * entera).</p>
+ */
+@Component
+public class VariantesImagen {
+
+	private static final float CALIDAD_JPEG = 0.8f;
+	// Límite de píxeles decodificados, para que una imagen enorme no agote la memoria
+	private static final long MAXIMO_PIXELES = 40_000_000L;
+
+	private static final Path RAIZ = Paths.get(System.getProperty("user.dir"));
+
+	private final ThreadPoolExecutor ejecutor;
+
+	@Autowired
+	public VariantesImagen(
+			@Value("${imagenes.variantes.hilos:2}") int hilos,
+			@Value("${imagenes.variantes.cola:200}") int cola) {
+		AtomicInteger numero = new AtomicInteger();
+		this.ejecutor = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(cola),
+				tarea -> {
+					Thread hilo = new Thread(tarea, "variantes-imagen-" + numero.incrementAndGet());
+					hilo.setDaemon(true);
+					hilo.setPriority(Thread.MIN_PRIORITY);
+					return hilo;
+				},
+				(tarea, pool) -> System.out.println("[IMAGENES] Cola de variantes llena: se descarta una imagen"));
+	}
+
+	/**
+	 * Programa la generación de las variantes de una imagen. Las rutas que no son del almacén
+	 * (URLs externas, placeholders) se ignoran.
+	 *
+	 * @param ruta ruta pública de la imagen original
+	 */
+	public void programar(String ruta) {
+		if (RutasImagenes.esDelAlmacen(ruta)) {
+			ejecutor.execute(() -> {
+				try {
+					generar(ruta);
+				} catch (IOException | RuntimeException e) {
+					System.out.println("[IMAGENES] No se pudieron generar las variantes de " + ruta + ": " + e.getMessage());
+				}
+			});
+		}
+	}
+
+	/**
+	 * Genera las variantes que falten de una imagen.
+	 *
+	 * @param ruta ruta pública de la imagen original
+	 * @return número de variantes escritas (0 si ya estaban o si el formato no se puede leer)
+	 * @throws IOException si falla la lectura o la escritura
+	 */
+	int generar(String ruta) throws IOException {
+		Path original = enDisco(ruta);
+		List<Integer> pendientes = new ArrayList<>();
+		for (int ancho : RutasImagenes.ANCHOS) {
+			if (!Files.exists(enDisco(RutasImagenes.variante(ruta, ancho)))) {
+				pendientes.add(ancho);
+			}
+		}
+		if (pendientes.isEmpty() || !Files.exists(original)) {
+			return 0;
+		}
+		BufferedImage imagen = leer(original, pendientes.get(pendientes.size() - 1));
+		if (imagen == null) {
+			// Sin lector (p. ej. WebP en este JDK): se sigue sirviendo el original
+			return 0;
+		}
+		// De mayor a menor, cada variante se reduce a partir de la anterior
+		for (int i = pendientes.size() - 1; i >= 0; i--) {
+			int ancho = pendientes.get(i);
+			imagen = reducir(imagen, Math.min(ancho, imagen.getWidth()));
+			escribir(imagen, enDisco(RutasImagenes.variante(ruta, ancho)));
+		}
+		return pendientes.size();
+	}
+
+	@PreDestroy
+	void parar() {
+		ejecutor.shutdownNow();
+	}
+
+	/**
+	 * Decodifica una imagen saltando píxeles si es mucho más ancha que la variante mayor:
+	 * así una foto de 6000 px no se carga entera para sacar una de 960.
+	 */
+	private static BufferedImage leer(Path archivo, int anchoMaximo) throws IOException {
+		try (ImageInputStream entrada = ImageIO.createImageInputStream(archivo.toFile())) {
+			Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+			if (!lectores.hasNext()) {
+				return null;
+			}
+			ImageReader lector = lectores.next();
+			try {
+				lector.setInput(entrada, true, true);
+				int ancho = lector.getWidth(0);
+				int alto = lector.getHeight(0);
+				int paso = Math.max(1, ancho / (anchoMaximo * 2));
+				if ((long) (ancho / paso) * (alto / paso) > MAXIMO_PIXELES) {
+					throw new IOException("Imagen demasiado grande: " + ancho + "x" + alto);
+				}
+				ImageReadParam parametros = lector.getDefaultReadParam();
+				parametros.setSourceSubsampling(paso, paso, 0, 0);
+				return lector.read(0, parametros);
+			} finally {
+				lector.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Reduce a la mitad mientras sobre el doble del ancho y termina con un último paso
+	 * bilineal: se pierde menos detalle que con un solo salto. El fondo transparente pasa a
+	 * blanco, porque JPEG no tiene canal alfa.
+	 */
+	private static BufferedImage reducir(BufferedImage imagen, int ancho) {
+		BufferedImage actual = imagen;
+		int anchoActual = imagen.getWidth();
+		int altoActual = imagen.getHeight();
+		do {
+			int siguienteAncho = Math.max(ancho, anchoActual / 2);
+			int siguienteAlto = Math.max(1, (int) Math.round((double) altoActual * siguienteAncho / anchoActual));
+			BufferedImage reducida = new BufferedImage(siguienteAncho, siguienteAlto, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = reducida.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				g.drawImage(actual, 0, 0, siguienteAncho, siguienteAlto, Color.WHITE, null);
+			} finally {
+				g.dispose();
+			}
+			actual = reducida;
+			anchoActual = siguienteAncho;
+			altoActual = siguienteAlto;
+		} while (anchoActual > ancho);
+		return actual;
+	}
+
+	private static void escribir(BufferedImage imagen, Path destino) throws IOException {
+		ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageWriteParam parametros = escritor.getDefaultWriteParam();
+		parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		parametros.setCompressionQuality(CALIDAD_JPEG);
+		Path temporal = Files.createTempFile(destino.getParent(), ".variante-", ".tmp");
+		try {
+			try (ImageOutputStream salida = ImageIO.createImageOutputStream(temporal.toFile())) {
+				escritor.setOutput(salida);
+				escritor.write(null, new IIOImage(imagen, null, null), parametros);
+			} finally {
+				escritor.dispose();
+			}
+			Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporal);
+		}
+	}
+
+	private static Path enDisco(String ruta) {
+		return RAIZ.resolve(ruta.substring(1));
+	}
+}
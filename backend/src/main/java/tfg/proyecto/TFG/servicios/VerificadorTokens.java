@@ -0,0 +1,175 @@
+package tfg.proyecto.TFG.servicios;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.jsonwebtoken.Claims;
+import tfg.proyecto.TFG.config.JwtUtil;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Verifica los tokens JWT de las peticiones sin repetir el trabajo en cada una.
+ *
+ * <ul>
+ *     <li>Cada token se parsea una sola vez ({@link JwtUtil#verificar(String)}) y se guarda en la
+ *     caché <b>tokensVerificados</b> hasta su expiración, con el SHA-256 del token como clave
+ *     para no guardar los tokens en claro.</li>
+ *     <li>El usuario del token se guarda en la caché <b>usuariosAutenticados</b> y se enlaza con
+ *     la entrada del token: una petición con un token ya visto cuesta una búsqueda en la caché.</li>
+ * </ul>
+ *
+ * <p>Ambas cachés están limitadas en tamaño (ver <code>sesiones.*</code> en
+ * <code>application.properties</code>). Los servicios que modifican un usuario llaman a
+ * {@link #olvidarUsuario(Long)} para que sus tokens lo vuelvan a leer de la base de datos.</p>
+ */
+@Component
+public class VerificadorTokens {
+
+	public static final String TOKENS = "tokensVerificados";
+	public static final String USUARIOS = "usuariosAutenticados";
+
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 no disponible", e);
+		}
+	});
+
+	@Autowired
+	RepositorioUsuario repoUsuario;
+
+	private final Cache<Object, Object> tokens;
+	private final Cache<Object, Object> usuarios;
+
+	@Autowired
+	public VerificadorTokens(CacheManager cacheManager) {
+		this.tokens = ((CaffeineCache) cacheManager.getCache(TOKENS)).getNativeCache();
+		this.usuarios = ((CaffeineCache) cacheManager.getCache(USUARIOS)).getNativeCache();
+	}
+
+	/**
+	 * Verifica un token y devuelve su usuario.
+	 *
+	 * @param token token JWT, sin el prefijo "Bearer "
+	 * @return usuario del token (también si está reportado), o null si el token no es válido,
+	 *         ha expirado o su usuario ya no existe
+	 */
+	public UsuarioAutenticado verificar(String token) {
+		if (token == null || token.isBlank()) {
+			return null;
+		}
+		String clave = huella(token);
+		TokenVerificado verificado = (TokenVerificado) tokens.getIfPresent(clave);
+		if (verificado == null) {
+			Claims claims = JwtUtil.verificar(token);
+			if (claims == null || claims.getSubject() == null || claims.getExpiration() == null) {
+				return null;
+			}
+			verificado = new TokenVerificado(claims.getSubject(), claims.getExpiration().getTime());
+			tokens.put(clave, verificado);
+		} else if (verificado.expiraEn <= System.currentTimeMillis()) {
+			// Caffeine ya no la devolvería, pero la expiración del JWT manda
+			tokens.invalidate(clave);
+			return null;
+		}
+
+		UsuarioAutenticado usuario = verificado.usuario;
+		if (usuario == null || !usuario.isVigente()) {
+			usuario = (UsuarioAutenticado) usuarios.get(verificado.email, email -> cargar((String) email));
+			if (usuario == null) {
+				return null;
+			}
+			verificado.usuario = usuario;
+		}
+		return usuario;
+	}
+
+	/**
+	 * Descarta el usuario guardado para que la próxima petición de cualquiera de sus tokens lo
+	 * lea de nuevo. Llamar después de guardar el cambio.
+	 *
+	 * @param usuarioId ID del usuario modificado o eliminado
+	 */
+	public void olvidarUsuario(Long usuarioId) {
+		if (usuarioId == null) {
+			return;
+		}
+		// Recorre como mucho sesiones.usuarios-maximo entradas; solo pasa al modificar usuarios
+		usuarios.asMap().values().removeIf(valor -> {
+			UsuarioAutenticado usuario = (UsuarioAutenticado) valor;
+			if (!usuarioId.equals(usuario.getId())) {
+				return false;
+			}
+			usuario.invalidar();
+			return true;
+		});
+	}
+
+	/**
+	 * Expiración de cada entrada de <b>tokensVerificados</b>: la del propio JWT.
+	 */
+	public static Expiry<Object, Object> caducidadTokens() {
+		return new Expiry<>() {
+			@Override
+			public long expireAfterCreate(Object clave, Object valor, long ahora) {
+				long restante = ((TokenVerificado) valor).expiraEn - System.currentTimeMillis();
+				return TimeUnit.MILLISECONDS.toNanos(Math.max(0, restante));
+			}
+
+			@Override
+			public long expireAfterUpdate(Object clave, Object valor, long ahora, long duracionActual) {
+				return expireAfterCreate(clave, valor, ahora);
+			}
+
+			@Override
+			public long expireAfterRead(Object clave, Object valor, long ahora, long duracionActual) {
+				return duracionActual;
+			}
+		};
+	}
+
+	/**
+	 * Al desalojar un usuario de <b>usuariosAutenticados</b> (por tamaño o tiempo) deja de valer
+	 * en los tokens que lo tenían enlazado.
+	 */
+	public static void alDesalojarUsuario(Object email, Object usuario, RemovalCause causa) {
+		if (usuario instanceof UsuarioAutenticado autenticado) {
+			autenticado.invalidar();
+		}
+	}
+
+	private UsuarioAutenticado cargar(String email) {
+		Usuario u = repoUsuario.findByEmail(email);
+		return u == null ? null : new UsuarioAutenticado(u.getId(), u.getEmail(), u.getRol(), u.isReportado());
+	}
+
+	private static String huella(String token) {
+		byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+	}
+
+	private static final class TokenVerificado {
+		final String email;
+		final long expiraEn;
+		volatile UsuarioAutenticado usuario;
+
+		TokenVerificado(String email, long expiraEn) {
+			this.email = email;
+			this.expiraEn = expiraEn;
+		}
+	}
+}
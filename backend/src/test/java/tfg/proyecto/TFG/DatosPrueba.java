@@ -0,0 +1,109 @@
+package tfg.proyecto.TFG;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import tfg.proyecto.TFG.modelo.Categoria;
+import tfg.proyecto.TFG.modelo.EstadoTicket;
+import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.TarjetaBancaria;
+import tfg.proyecto.TFG.modelo.Ticket;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioEvento;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Crea los usuarios, eventos y tickets que necesitan las pruebas, ya guardados. Cada usuario tiene un
+ * email único, así que se pueden crear tantos como haga falta en el mismo contexto.
+ */
+@Component
+public class DatosPrueba {
+
+	private static final double SALDO = 1000.0;
+
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired RepositorioEvento eventoDAO;
+	@Autowired RepositorioTicket ticketDAO;
+
+	/**
+	 * Cliente con tarjeta y saldo de sobra para comprar.
+	 */
+	public Usuario comprador() {
+		return usuario(Rol.CLIENTE, SALDO);
+	}
+
+	/**
+	 * Cliente con tarjeta y el saldo indicado.
+	 */
+	public Usuario comprador(double saldo) {
+		return usuario(Rol.CLIENTE, saldo);
+	}
+
+	/**
+	 * Usuario del rol indicado, con tarjeta y saldo de sobra.
+	 */
+	public Usuario usuario(Rol rol) {
+		return usuario(rol, SALDO);
+	}
+
+	private Usuario usuario(Rol rol, double saldo) {
+		return usuarioDAO.save(Usuario.builder()
+				.nombre("Usuario prueba")
+				.email("prueba-" + System.nanoTime() + "@mail.com")
+				.rol(rol)
+				.tarjeta(TarjetaBancaria.builder().saldo(BigDecimal.valueOf(saldo)).build())
+				.build());
+	}
+
+	/**
+	 * Evento de 10 € que empieza dentro de cinco días.
+	 */
+	public Evento evento(int aforo) {
+		return evento(aforo, LocalDateTime.now().plusDays(5));
+	}
+
+	/**
+	 * Evento de 10 € y tres horas que empieza en la fecha indicada.
+	 */
+	public Evento evento(int aforo, LocalDateTime inicio) {
+		return eventoDAO.save(Evento.builder()
+				.nombre("Evento prueba")
+				.localizacion("Sevilla")
+				.inicioEvento(inicio)
+				.finEvento(inicio.plusHours(3))
+				.categoria(Categoria.MUSICA)
+				.precio(10.0)
+				.aforoMax(aforo)
+				.build());
+	}
+
+	/**
+	 * Tickets válidos de 10 € de un evento, todos de un comprador nuevo.
+	 *
+	 * @return contenido del QR de cada ticket
+	 */
+	public List<String> qrs(Evento evento, int cantidad) {
+		Usuario usuario = comprador();
+		List<Ticket> tickets = new ArrayList<>(cantidad);
+		for (int i = 0; i < cantidad; i++) {
+			tickets.add(Ticket.builder()
+					.contenidoQR(UUID.randomUUID().toString())
+					.estado(EstadoTicket.VALIDO)
+					.fechaCompra(LocalDateTime.now())
+					.precioPagado(10.0)
+					.usuario(usuario)
+					.evento(evento)
+					.build());
+		}
+		ticketDAO.saveAll(tickets);
+		return tickets.stream().map(Ticket::getContenidoQR).toList();
+	}
+}
@@ -0,0 +1,94 @@
+package tfg.proyecto.TFG.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import tfg.proyecto.TFG.config.QRCodeGenerator;
+
+/**
+ * Compara el dibujo de QR de {@link QRCodeGenerator} con las dos implementaciones
+ * anteriores (BufferedImage + setRGB píxel a píxel + ImageIO, y MatrixToImageWriter).
+ *
+ * <p>Ejecutar con <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=QRCodeGenerator</code>.
+ * El perfilador <code>gc</code> añade la memoria reservada por operación
+ * (<code>gc.alloc.rate.norm</code>).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QRCodeGeneratorBenchmark {
+
+	private final QRCodeGenerator generador = new QRCodeGenerator();
+	private String texto;
+
+	@Setup
+	public void preparar() {
+		texto = "http://localhost:8080/tfg/ticket/validarQR?contenidoQR=" + UUID.randomUUID();
+	}
+
+	@Benchmark
+	public byte[] png300() {
+		return generador.generarQRBytes(texto, 300, 300);
+	}
+
+	@Benchmark
+	public String svg() {
+		return generador.generarQRSvg(texto);
+	}
+
+	@Benchmark
+	public Object matriz() {
+		return generador.generarMatriz(texto);
+	}
+
+	/** Implementación anterior de QRCodeGenerator.generarQRBytes. */
+	@Benchmark
+	public byte[] anteriorSetRgb300() throws WriterException, IOException {
+		BitMatrix bitMatrix = new QRCodeWriter().encode(texto, BarcodeFormat.QR_CODE, 300, 300);
+		BufferedImage imagen = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < 300; x++) {
+			for (int y = 0; y < 300; y++) {
+				imagen.setRGB(x, y, bitMatrix.get(x, y) ? 0xFF000000 : 0xFFFFFFFF);
+			}
+		}
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+			ImageIO.write(imagen, "png", baos);
+			return baos.toByteArray();
+		}
+	}
+
+	/** Implementación anterior de ServicioQR.generarQRBase64 (sin el Base64). */
+	@Benchmark
+	public byte[] anteriorMatrixToImage250() throws WriterException, IOException {
+		BitMatrix bitMatrix = new QRCodeWriter().encode(texto, BarcodeFormat.QR_CODE, 250, 250);
+		BufferedImage imagen = MatrixToImageWriter.toBufferedImage(bitMatrix);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(imagen, "png", baos);
+		return baos.toByteArray();
+	}
+}
@@ -0,0 +1,139 @@
+package tfg.proyecto.TFG.cliente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Prueba {@link ClienteRecomendaciones} contra un servidor HTTP local que simula serviceML.
+ */
+class ClienteRecomendacionesTests {
+
+	private HttpServer servidor;
+	private final AtomicInteger peticiones = new AtomicInteger();
+	private volatile long retardoMs = 0;
+	private volatile int estado = 200;
+	private volatile CountDownLatch liberar = null;
+
+	@BeforeEach
+	void arrancarStub() throws IOException {
+		servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		servidor.setExecutor(Executors.newCachedThreadPool());
+		servidor.createContext("/", this::responder);
+		servidor.start();
+	}
+
+	@AfterEach
+	void pararStub() {
+		if (liberar != null) {
+			liberar.countDown();
+		}
+		servidor.stop(0);
+	}
+
+	private void responder(HttpExchange exchange) throws IOException {
+		peticiones.incrementAndGet();
+		try {
+			if (retardoMs > 0) {
+				Thread.sleep(retardoMs);
+			}
+			if (liberar != null) {
+				liberar.await(5, TimeUnit.SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		String ruta = exchange.getRequestURI().getPath();
+		String clave = switch (ruta) {
+			case "/recommendations" -> "eventos_recomendados";
+			case "/recommendations/event" -> "eventos_similares";
+			default -> "eventos_encontrados";
+		};
+		byte[] cuerpo = ("{\"" + clave + "\": [3, 1, 2]}").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(estado, cuerpo.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(cuerpo);
+		}
+	}
+
+	private ClienteRecomendaciones cliente(long timeoutMs, int maxConcurrentes, int fallosParaAbrir) {
+		String url = "http://127.0.0.1:" + servidor.getAddress().getPort();
+		return new ClienteRecomendaciones(url, 500, timeoutMs, maxConcurrentes, fallosParaAbrir, 60_000);
+	}
+
+	@Test
+	void devuelveLosIdsEnElOrdenDelMicroservicio() {
+		ClienteRecomendaciones cliente = cliente(2000, 4, 3);
+
+		assertEquals(Optional.of(List.of(3L, 1L, 2L)), cliente.recomendacionesUsuario(7L));
+		assertEquals(Optional.of(List.of(3L, 1L, 2L)), cliente.similaresEvento(7L));
+		assertEquals(Optional.of(List.of(3L, 1L, 2L)), cliente.buscar("rock & roll"));
+	}
+
+	@Test
+	void respuestaLentaSeCortaPorTimeout() {
+		retardoMs = 3000;
+		ClienteRecomendaciones cliente = cliente(300, 4, 3);
+
+		long inicio = System.nanoTime();
+		Optional<List<Long>> ids = cliente.recomendacionesUsuario(1L);
+		long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+		assertTrue(ids.isEmpty());
+		assertTrue(ms < 2000, "La llamada tardó " + ms + " ms");
+	}
+
+	@Test
+	void circuitoSeAbreTrasFallosSeguidos() {
+		estado = 500;
+		ClienteRecomendaciones cliente = cliente(2000, 4, 3);
+
+		for (int i = 0; i < 3; i++) {
+			assertTrue(cliente.buscar("x").isEmpty());
+		}
+		assertTrue(cliente.circuitoAbierto());
+
+		// Con el circuito abierto no se llega a llamar al microservicio
+		int antes = peticiones.get();
+		assertTrue(cliente.buscar("x").isEmpty());
+		assertEquals(antes, peticiones.get());
+	}
+
+	@Test
+	void bulkheadRechazaSinEsperarCuandoEstaLleno() throws Exception {
+		liberar = new CountDownLatch(1);
+		ClienteRecomendaciones cliente = cliente(5000, 1, 3);
+
+		CompletableFuture<Optional<List<Long>>> ocupada = CompletableFuture.supplyAsync(() -> cliente.similaresEvento(1L));
+		while (peticiones.get() == 0) {
+			Thread.sleep(10);
+		}
+
+		long inicio = System.nanoTime();
+		assertTrue(cliente.similaresEvento(2L).isEmpty());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 500);
+		assertEquals(1, peticiones.get());
+
+		liberar.countDown();
+		assertEquals(Optional.of(List.of(3L, 1L, 2L)), ocupada.get(5, TimeUnit.SECONDS));
+	}
+}
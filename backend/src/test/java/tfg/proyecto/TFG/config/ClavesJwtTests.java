@@ -0,0 +1,101 @@
+package tfg.proyecto.TFG.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Comprueba que los tokens se comparten entre nodos con las mismas claves y que la rotación
+ * no invalida los tokens firmados con la clave anterior.
+ */
+class ClavesJwtTests {
+
+	private static final String K1 = "k1:" + claveAleatoria();
+	private static final String K2 = "k2:" + claveAleatoria();
+
+	@Test
+	void otroNodoConLasMismasClavesAceptaElToken() {
+		String token = new ClavesJwt(K1, "", "", "").generar("ana@mail.com", 60_000);
+
+		assertEquals("ana@mail.com", new ClavesJwt(K1, "", "", "").verificar(token).getSubject());
+		assertThrows(JwtException.class, () -> ClavesJwt.temporales().verificar(token));
+	}
+
+	@Test
+	void laRotacionMantieneLosTokensDeLaClaveAnterior() {
+		ClavesJwt antes = new ClavesJwt(K1, "", "", "");
+		String viejo = antes.generar("ana@mail.com", 60_000);
+		assertEquals("k1", kid(viejo));
+
+		// Paso 1: se añade k2 pero sigue firmando k1. Paso 2: firma k2 y k1 solo verifica
+		ClavesJwt anadida = new ClavesJwt(K1 + "," + K2, "k1", "", "");
+		ClavesJwt rotada = new ClavesJwt(K1 + "," + K2, "k2", "", "");
+		String nuevo = rotada.generar("ana@mail.com", 60_000);
+		assertEquals("k2", kid(nuevo));
+		assertEquals("ana@mail.com", anadida.verificar(nuevo).getSubject());
+		assertEquals("ana@mail.com", rotada.verificar(viejo).getSubject());
+
+		// Paso 3: se retira k1
+		ClavesJwt retirada = new ClavesJwt(K2, "", "", "");
+		assertEquals("ana@mail.com", retirada.verificar(nuevo).getSubject());
+		assertThrows(JwtException.class, () -> retirada.verificar(viejo));
+	}
+
+	@Test
+	void rechazaTokensCaducadosYConfiguracionesAmbiguas() {
+		ClavesJwt claves = new ClavesJwt(K1, "", "", "");
+		String caducado = claves.generar("ana@mail.com", -1_000);
+		assertThrows(JwtException.class, () -> claves.verificar(caducado));
+
+		assertThrows(IllegalStateException.class, () -> new ClavesJwt(K1 + "," + K2, "", "", ""));
+		assertThrows(IllegalStateException.class, () -> new ClavesJwt(K1, "k3", "", ""));
+		// HS256 necesita al menos 32 bytes
+		assertThrows(RuntimeException.class,
+				() -> new ClavesJwt("corta:" + Base64.getEncoder().encodeToString(new byte[16]), "", "", ""));
+	}
+
+	@Test
+	void leeLasClavesDeUnAlmacenPkcs12(@TempDir Path directorio) throws Exception {
+		char[] password = "secreto".toCharArray();
+		byte[] bytes = new byte[32];
+		new SecureRandom().nextBytes(bytes);
+		KeyStore almacen = KeyStore.getInstance("PKCS12");
+		almacen.load(null, password);
+		almacen.setEntry("k9", new KeyStore.SecretKeyEntry(new SecretKeySpec(bytes, "HmacSHA256")),
+				new KeyStore.PasswordProtection(password));
+		Path ruta = directorio.resolve("jwt.p12");
+		try (OutputStream salida = Files.newOutputStream(ruta)) {
+			almacen.store(salida, password);
+		}
+
+		ClavesJwt desdeAlmacen = new ClavesJwt("", "", ruta.toString(), "secreto");
+		assertEquals("k9", desdeAlmacen.getKidActivo());
+		String token = desdeAlmacen.generar("ana@mail.com", 60_000);
+		ClavesJwt desdeLista = new ClavesJwt("k9:" + Base64.getEncoder().encodeToString(bytes), "", "", "");
+		assertEquals("ana@mail.com", desdeLista.verificar(token).getSubject());
+	}
+
+	private static String kid(String token) {
+		String cabecera = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+		return cabecera.replaceAll(".*\"kid\":\"([^\"]+)\".*", "$1");
+	}
+
+	private static String claveAleatoria() {
+		byte[] bytes = new byte[32];
+		new SecureRandom().nextBytes(bytes);
+		return Base64.getEncoder().encodeToString(bytes);
+	}
+}
@@ -0,0 +1,131 @@
+package tfg.proyecto.TFG.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import jakarta.persistence.EntityManagerFactory;
+import tfg.proyecto.TFG.DatosPrueba;
+import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.servicios.IServicioUsuario;
+import tfg.proyecto.TFG.servicios.SalaEspera;
+
+/**
+ * Comprueba la autenticación con token Bearer a través de la cadena de Spring Security.
+ */
+// Base de datos propia: este contexto no debe recrear la de los contextos que ya están en caché
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.datasource.url=jdbc:h2:mem:filtrojwt" })
+@AutoConfigureMockMvc
+class FiltroJwtTests {
+
+	@Autowired DatosPrueba datos;
+	@Autowired MockMvc mockMvc;
+	@Autowired IServicioUsuario servicioUsuario;
+	@Autowired EntityManagerFactory entityManagerFactory;
+	@Autowired SalaEspera salaEspera;
+
+	@Test
+	void elCarritoSoloLoVeSuDuenoSiHayToken() throws Exception {
+		Usuario duena = datos.usuario(Rol.CLIENTE);
+		Usuario otro = datos.usuario(Rol.CLIENTE);
+		Usuario admin = datos.usuario(Rol.ADMIN);
+		String token = "Bearer " + JwtUtil.generateToken(duena.getEmail());
+
+		mockMvc.perform(get("/tfg/carrito/total/" + duena.getId()).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/tfg/carrito/total/" + otro.getId()).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isForbidden());
+		mockMvc.perform(get("/tfg/carrito/total/" + otro.getId()).header(HttpHeaders.AUTHORIZATION,
+				"Bearer " + JwtUtil.generateToken(admin.getEmail())))
+				.andExpect(status().isOk());
+
+		// Sin token se puede consultar, pero un token no válido no pasa como anónimo
+		mockMvc.perform(get("/tfg/carrito/total/" + otro.getId())).andExpect(status().isOk());
+		mockMvc.perform(get("/tfg/carrito/total/" + otro.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer x.y.z"))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void modificarElCarritoExigeToken() throws Exception {
+		Usuario duena = datos.usuario(Rol.CLIENTE);
+		Usuario otro = datos.usuario(Rol.CLIENTE);
+		String token = "Bearer " + JwtUtil.generateToken(duena.getEmail());
+
+		mockMvc.perform(delete("/tfg/carrito/vaciar/" + duena.getId())).andExpect(status().isUnauthorized());
+		mockMvc.perform(post("/tfg/carrito/finalizar/" + duena.getId())).andExpect(status().isUnauthorized());
+		mockMvc.perform(delete("/tfg/carrito/vaciar/" + duena.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer x.y.z"))
+				.andExpect(status().isUnauthorized());
+
+		mockMvc.perform(delete("/tfg/carrito/vaciar/" + duena.getId()).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isOk());
+		mockMvc.perform(delete("/tfg/carrito/vaciar/" + otro.getId()).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isForbidden());
+	}
+
+	@Test
+	void pedirTurnoExigeTokenYUnEventoQueExista() throws Exception {
+		Usuario usuario = datos.usuario(Rol.CLIENTE);
+		Evento evento = datos.evento(10);
+		String token = "Bearer " + JwtUtil.generateToken(usuario.getEmail());
+
+		mockMvc.perform(post("/tfg/espera/" + evento.getId())).andExpect(status().isUnauthorized());
+		mockMvc.perform(post("/tfg/espera/" + (evento.getId() + 1000)).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isNotFound());
+
+		// El turno es del usuario del token
+		mockMvc.perform(post("/tfg/espera/" + evento.getId()).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isOk());
+		assertNotNull(salaEspera.turnoVigente(evento.getId(), usuario.getId()));
+	}
+
+	@Test
+	void autenticarNoConsultaLaBaseDeDatosConUnTokenYaVisto() throws Exception {
+		Usuario usuario = datos.usuario(Rol.CLIENTE);
+		Usuario otro = datos.usuario(Rol.CLIENTE);
+		String token = "Bearer " + JwtUtil.generateToken(usuario.getEmail());
+		mockMvc.perform(get("/tfg/carrito/total/" + otro.getId()).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isForbidden());
+
+		// El 403 sale del usuario guardado, sin leerlo de nuevo
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+		for (int i = 0; i < 100; i++) {
+			mockMvc.perform(get("/tfg/carrito/total/" + otro.getId()).header(HttpHeaders.AUTHORIZATION, token))
+					.andExpect(status().isForbidden());
+		}
+		assertEquals(0, estadisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void unUsuarioReportadoNoQuedaAutenticado() throws Exception {
+		Usuario usuario = datos.usuario(Rol.CLIENTE);
+		Usuario otro = datos.usuario(Rol.CLIENTE);
+		String token = "Bearer " + JwtUtil.generateToken(usuario.getEmail());
+		mockMvc.perform(get("/tfg/usuario/perfil").header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/tfg/carrito/total/" + otro.getId()).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isForbidden());
+
+		servicioUsuario.reportarUsuario(usuario.getEmail());
+		mockMvc.perform(get("/tfg/usuario/perfil").header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/tfg/carrito/total/" + otro.getId()).header(HttpHeaders.AUTHORIZATION, token))
+				.andExpect(status().isUnauthorized());
+	}
+}
@@ -0,0 +1,58 @@
+package tfg.proyecto.TFG.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que los QR firmados se verifican solo con la clave y que cualquier cambio los invalida.
+ */
+class FirmaQRTests {
+
+	private static final String CLAVE = Base64.getEncoder().encodeToString(new byte[32]);
+
+	private final FirmaQR firma = new FirmaQR(true, CLAVE);
+
+	@Test
+	void verificaLoQueFirma() {
+		String qr = firma.firmar(123, 45, 1_000, 2_000);
+		assertTrue(qr.matches("v1\\.123\\.45\\.1000\\.2000\\.[A-Za-z0-9_-]{22}"), qr);
+
+		FirmaQR.QRFirmado datos = firma.verificar(qr);
+		assertEquals(new FirmaQR.QRFirmado(123, 45, 1_000, 2_000), datos);
+		assertTrue(datos.vigente(1_500_000));
+		assertFalse(datos.vigente(2_001_000));
+
+		// Otra instancia con la misma clave (otro nodo) también lo verifica
+		assertEquals(datos, new FirmaQR(true, CLAVE).verificar(qr));
+	}
+
+	@Test
+	void rechazaQRAlteradosOAjenos() {
+		String qr = firma.firmar(123, 45, 1_000, 2_000);
+
+		assertNull(firma.verificar(qr.replace(".123.", ".124.")));
+		assertNull(firma.verificar(qr.replace(".2000.", ".9000.")));
+		int inicioFirma = qr.lastIndexOf('.') + 1;
+		char otro = qr.charAt(inicioFirma) == 'A' ? 'B' : 'A';
+		assertNull(firma.verificar(qr.substring(0, inicioFirma) + otro + qr.substring(inicioFirma + 1)));
+		assertNull(new FirmaQR(true, "").verificar(qr));
+		assertNull(firma.verificar(UUID.randomUUID().toString()));
+		assertNull(firma.verificar("v1.x.45.1000.2000.AAAA"));
+		assertNull(firma.verificar("v1.1.2"));
+		assertNull(firma.verificar(null));
+	}
+
+	@Test
+	void sinClaveNoSeFirma() {
+		assertTrue(firma.habilitada());
+		assertFalse(new FirmaQR(true, "").habilitada());
+		assertFalse(new FirmaQR(false, CLAVE).habilitada());
+	}
+}
@@ -0,0 +1,66 @@
+package tfg.proyecto.TFG.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import tfg.proyecto.TFG.dtos.DTOqrMatriz;
+
+/**
+ * Comprueba que el QR dibujado coincide píxel a píxel con el de ZXing.
+ */
+class QRCodeGeneratorTests {
+
+	private static final String TEXTO =
+			"http://localhost:8080/tfg/ticket/validarQR?contenidoQR=0f8fad5b-d9cb-469f-a165-70867728950e";
+
+	private final QRCodeGenerator generador = new QRCodeGenerator();
+
+	@Test
+	void pngIgualQueZxing() throws Exception {
+		for (int tam : new int[] { 250, 300, 301 }) {
+			BitMatrix esperado = new QRCodeWriter().encode(TEXTO, BarcodeFormat.QR_CODE, tam, tam);
+			BufferedImage imagen = ImageIO.read(new ByteArrayInputStream(generador.generarQRBytes(TEXTO, tam, tam)));
+
+			assertEquals(esperado.getWidth(), imagen.getWidth());
+			assertEquals(esperado.getHeight(), imagen.getHeight());
+			for (int y = 0; y < imagen.getHeight(); y++) {
+				for (int x = 0; x < imagen.getWidth(); x++) {
+					boolean negro = (imagen.getRGB(x, y) & 0xFFFFFF) == 0;
+					assertEquals(esperado.get(x, y), negro, "píxel " + x + "," + y + " (" + tam + ")");
+				}
+			}
+		}
+	}
+
+	@Test
+	void matrizYSvgUsanLosMismosModulos() {
+		DTOqrMatriz matriz = generador.generarMatriz(TEXTO);
+		assertEquals(matriz.getTamano(), matriz.getFilas().size());
+		assertEquals(QRCodeGenerator.MARGEN, matriz.getMargen());
+
+		long negros = matriz.getFilas().stream().mapToLong(f -> f.chars().filter(c -> c == '1').count()).sum();
+		String svg = generador.generarQRSvg(TEXTO);
+		assertTrue(svg.startsWith("<svg") && svg.endsWith("</svg>"));
+
+		// Suma de los anchos de los tramos horizontales del trazado = módulos negros
+		long enSvg = 0;
+		Matcher m = Pattern.compile("h(\\d+)v1").matcher(svg);
+		while (m.find()) {
+			enSvg += Long.parseLong(m.group(1));
+		}
+		assertEquals(negros, enSvg);
+	}
+}
@@ -0,0 +1,153 @@
+package tfg.proyecto.TFG.controladores;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import tfg.proyecto.TFG.servicios.AlmacenImagenes;
+
+/**
+ * Comprueba las cabeceras de caché, las peticiones condicionales y los rangos de
+ * <code>/uploads</code>.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:medios")
+@AutoConfigureMockMvc
+class ControlMediosTests {
+
+	private static final Path UPLOADS = Paths.get(System.getProperty("user.dir"), "uploads");
+	private static final Path CARPETA = UPLOADS.resolve("pruebas-medios");
+
+	@Autowired MockMvc mockMvc;
+	@Autowired AlmacenImagenes almacenImagenes;
+
+	private String creada;
+
+	@AfterEach
+	void borrarArchivos() throws IOException {
+		if (creada != null) {
+			Files.deleteIfExists(UPLOADS.resolve(creada.substring("/uploads/".length())));
+		}
+		if (Files.exists(CARPETA)) {
+			try (Stream<Path> archivos = Files.walk(CARPETA)) {
+				archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	@Test
+	void lasImagenesPorContenidoSeCacheanParaSiempre() throws Exception {
+		byte[] png = png(200_000);
+		creada = almacenImagenes.guardar(png, "foto");
+		String hash = creada.substring(creada.lastIndexOf('/') + 1, creada.lastIndexOf('.'));
+
+		mockMvc.perform(get(creada))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "\""))
+				.andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+				.andExpect(content().contentType("image/png"))
+				.andExpect(content().bytes(png));
+
+		mockMvc.perform(get(creada).header(HttpHeaders.IF_NONE_MATCH, "\"" + hash + "\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().bytes(new byte[0]));
+
+		mockMvc.perform(head(creada))
+				.andExpect(status().isOk())
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, png.length))
+				.andExpect(content().bytes(new byte[0]));
+
+		// En Tomcat, los archivos grandes se dejan al sendfile del conector
+		mockMvc.perform(get(creada).requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE))
+				.andExpect(status().isOk())
+				.andExpect(request().attribute("org.apache.tomcat.sendfile.start", 0L))
+				.andExpect(request().attribute("org.apache.tomcat.sendfile.end", (long) png.length))
+				.andExpect(content().bytes(new byte[0]));
+	}
+
+	@Test
+	void sirveRangosDeBytes() throws Exception {
+		byte[] png = png(1_000);
+		creada = almacenImagenes.guardar(png, "foto");
+		String etag = "\"" + creada.substring(creada.lastIndexOf('/') + 1, creada.lastIndexOf('.')) + "\"";
+
+		mockMvc.perform(get(creada).header(HttpHeaders.RANGE, "bytes=10-19"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/1000"))
+				.andExpect(content().bytes(Arrays.copyOfRange(png, 10, 20)));
+		mockMvc.perform(get(creada).header(HttpHeaders.RANGE, "bytes=-5").header(HttpHeaders.IF_RANGE, etag))
+				.andExpect(status().isPartialContent())
+				.andExpect(content().bytes(Arrays.copyOfRange(png, 995, 1000)));
+
+		// If-Range de otra versión, o varios tramos: archivo completo
+		mockMvc.perform(get(creada).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, "\"otro\""))
+				.andExpect(status().isOk())
+				.andExpect(content().bytes(png));
+		mockMvc.perform(get(creada).header(HttpHeaders.RANGE, "bytes=0-9,20-29"))
+				.andExpect(status().isOk())
+				.andExpect(content().bytes(png));
+
+		mockMvc.perform(get(creada).header(HttpHeaders.RANGE, "bytes=1000-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */1000"));
+	}
+
+	@Test
+	void losArchivosAntiguosSeRevalidan() throws Exception {
+		Files.createDirectories(CARPETA);
+		byte[] datos = png(500);
+		Files.write(CARPETA.resolve("img_antigua.png"), datos);
+		Files.write(CARPETA.resolve(".subida-123.tmp"), datos);
+
+		String etag = mockMvc.perform(get("/uploads/pruebas-medios/img_antigua.png"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+				.andExpect(content().bytes(datos))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertEquals("W/", etag.substring(0, 2));
+		String modificado = mockMvc.perform(get("/uploads/pruebas-medios/img_antigua.png"))
+				.andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+		mockMvc.perform(get("/uploads/pruebas-medios/img_antigua.png").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get("/uploads/pruebas-medios/img_antigua.png").header(HttpHeaders.IF_MODIFIED_SINCE, modificado))
+				.andExpect(status().isNotModified());
+
+		// Ni temporales ni rutas fuera de uploads
+		mockMvc.perform(get("/uploads/pruebas-medios/.subida-123.tmp")).andExpect(status().isNotFound());
+		mockMvc.perform(get("/uploads/%2e%2e/pom.xml")).andExpect(status().is4xxClientError());
+		mockMvc.perform(get("/uploads/pruebas-medios/no-existe.png")).andExpect(status().isNotFound());
+		assertArrayEquals(datos, Files.readAllBytes(CARPETA.resolve("img_antigua.png")));
+	}
+
+	private static byte[] png(int tamano) {
+		byte[] datos = new byte[tamano];
+		new Random().nextBytes(datos);
+		byte[] cabecera = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A };
+		System.arraycopy(cabecera, 0, datos, 0, cabecera.length);
+		return datos;
+	}
+}
@@ -0,0 +1,238 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoSubida;
+import tfg.proyecto.TFG.modelo.Categoria;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.TarjetaBancaria;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioImagenAlmacenada;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Comprueba que las imágenes se guardan una vez por contenido, que solo se aceptan imágenes y
+ * que las referencias siguen a los eventos que las usan.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:almacen")
+class AlmacenImagenesTests {
+
+	private static final Path RAIZ = Paths.get(System.getProperty("user.dir"));
+	private static final byte[] CABECERA_PNG = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A };
+
+	@Autowired AlmacenImagenes almacenImagenes;
+	@Autowired ServicioImagenImpl servicioImagen;
+	@Autowired IServicioEvento servicioEvento;
+	@Autowired RepositorioImagenAlmacenada repoImagen;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired PlatformTransactionManager transactionManager;
+
+	private final List<String> creadas = new ArrayList<>();
+
+	@AfterEach
+	void borrarImagenes() throws IOException {
+		for (String ruta : creadas) {
+			Files.deleteIfExists(enDisco(ruta));
+		}
+	}
+
+	@Test
+	void guardaCadaContenidoUnaSolaVez() throws IOException {
+		// Varias veces el tamaño del buffer, para pasar por más de un bloque
+		byte[] png = imagen(CABECERA_PNG, 300_000);
+		String ruta = guardada(servicioImagen.guardarImagen(
+				new MockMultipartFile("imagen", "portada.jpg", "image/jpeg", png)));
+
+		assertTrue(ruta.matches("/uploads/img/[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.png"), ruta);
+		String hash = ruta.substring(ruta.lastIndexOf('/') + 1, ruta.lastIndexOf('.'));
+		assertTrue(ruta.startsWith("/uploads/img/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/"), ruta);
+		assertArrayEquals(png, Files.readAllBytes(enDisco(ruta)));
+
+		// El mismo contenido, por cualquier vía, da la misma ruta;
+		// no se reescribe, pero se marca como recién usado para el RecolectorUploads
+		long antigua = System.currentTimeMillis() - 3_600_000;
+		Files.setLastModifiedTime(enDisco(ruta), FileTime.fromMillis(antigua));
+		long filas = repoImagen.count();
+		assertEquals(ruta, almacenImagenes.guardar(new ByteArrayInputStream(png), "otra.png"));
+		assertEquals(ruta, servicioImagen.guardarImagenBase64(
+				"data:image/png;base64," + Base64.getEncoder().encodeToString(png)));
+		assertTrue(Files.getLastModifiedTime(enDisco(ruta)).toMillis() > antigua);
+		assertArrayEquals(png, Files.readAllBytes(enDisco(ruta)));
+		assertEquals(filas, repoImagen.count());
+		assertEquals(png.length, repoImagen.findById(hash).get().getTamano());
+
+		byte[] jpg = imagen(new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0 }, 10);
+		assertTrue(guardada(almacenImagenes.guardar(jpg, "foto")).endsWith(".jpg"));
+		byte[] webp = imagen("RIFF\0\0\0\0WEBPVP8 ".getBytes(), 10);
+		assertTrue(guardada(almacenImagenes.guardar(new ByteArrayInputStream(webp), "foto")).endsWith(".webp"));
+	}
+
+	@Test
+	void laExtensionSaleDelContenidoYNoDelNombre() throws IOException {
+		// Nombre y Content-Type de otro formato: manda la cabecera del archivo
+		assertTrue(subida(imagen(CABECERA_PNG, 50), "foto.jpg", "image/jpeg").endsWith(".png"));
+		assertTrue(subida(imagen(new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDB }, 50),
+				"foto.png", "image/png").endsWith(".jpg"));
+		assertTrue(subida(imagen("GIF87a".getBytes(), 50), "foto.webp", "image/webp").endsWith(".gif"));
+		assertTrue(subida(imagen("RIFF\0\0\0\0WEBPVP8L".getBytes(), 50), "foto.gif", "image/gif").endsWith(".webp"));
+
+		// Cabeceras parecidas que no son de ningún formato admitido
+		assertThrows(ImagenNoValidaException.class, () -> subida(imagen("GIF88a".getBytes(), 50), "foto.gif", "image/gif"));
+		assertThrows(ImagenNoValidaException.class,
+				() -> subida(imagen("RIFF\0\0\0\0WAVEfmt ".getBytes(), 50), "foto.webp", "image/webp"));
+	}
+
+	@Test
+	void rechazaLoQueNoEsUnaImagenSinDejarTemporales() throws IOException {
+		MockMultipartFile texto = new MockMultipartFile("imagen", "foto.png", "image/png", "<html>hola</html>".getBytes());
+		assertThrows(ImagenNoValidaException.class, () -> servicioImagen.guardarImagen(texto));
+		assertThrows(ImagenNoValidaException.class,
+				() -> almacenImagenes.guardar(new byte[] { (byte) 0x89, 'P' }, "corta"));
+
+		guardada(almacenImagenes.guardar(new ByteArrayInputStream(imagen(new byte[] { 'G', 'I', 'F', '8', '9', 'a' }, 10)), "gif"));
+		assertThrows(ImagenNoValidaException.class, () -> servicioImagen.guardarImagen(texto));
+		try (Stream<Path> archivos = Files.walk(RAIZ.resolve("uploads/img"))) {
+			assertTrue(archivos.noneMatch(p -> p.getFileName().toString().startsWith(".subida-")));
+		}
+	}
+
+	@Test
+	void lasSubidasSimultaneasDeUnaImagenNuevaNoFallan() throws Exception {
+		TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+		int subidas = 8;
+		ExecutorService hilos = Executors.newFixedThreadPool(subidas);
+		try {
+			// Varias rondas: en una sola, las subidas rara vez llegan a insertar a la vez
+			for (int ronda = 0; ronda < 20; ronda++) {
+				byte[] png = imagen(CABECERA_PNG, 5_000);
+				CountDownLatch salida = new CountDownLatch(1);
+				List<Future<String>> rutas = new ArrayList<>();
+				// Cada subida dentro de la transacción de quien la hace (p. ej. crear un evento)
+				for (int i = 0; i < subidas; i++) {
+					rutas.add(hilos.submit(() -> {
+						salida.await();
+						return transaccion.execute(estado -> {
+							try {
+								return almacenImagenes.guardar(png, "foto");
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						});
+					}));
+				}
+				salida.countDown();
+				String ruta = guardada(rutas.get(0).get(30, TimeUnit.SECONDS));
+				for (Future<String> otra : rutas) {
+					assertEquals(ruta, otra.get(30, TimeUnit.SECONDS));
+				}
+				assertTrue(repoImagen.existsById(AlmacenImagenes.hash(ruta)));
+			}
+		} finally {
+			hilos.shutdownNow();
+		}
+	}
+
+	@Test
+	void unaImagenQueElRecolectorAcabaDeBorrarSeVuelveAGuardar() throws IOException {
+		byte[] png = imagen(CABECERA_PNG, 1_000);
+		String ruta = guardada(almacenImagenes.guardar(png, "foto"));
+		String hash = AlmacenImagenes.hash(ruta);
+
+		// Como si el recolector la hubiera borrado justo antes de volver a subirla
+		repoImagen.deleteById(hash);
+		Files.delete(enDisco(ruta));
+		assertEquals(ruta, almacenImagenes.guardar(new ByteArrayInputStream(png), "foto"));
+		assertArrayEquals(png, Files.readAllBytes(enDisco(ruta)));
+		assertNotNull(repoImagen.findById(hash).get().getUsada());
+
+		// Solo falta el archivo
+		Files.delete(enDisco(ruta));
+		assertEquals(ruta, almacenImagenes.guardar(png, "foto"));
+		assertArrayEquals(png, Files.readAllBytes(enDisco(ruta)));
+	}
+
+	@Test
+	void lasReferenciasSiguenALosEventos() throws IOException {
+		byte[] png = imagen(CABECERA_PNG, 1_000);
+		String base64 = Base64.getEncoder().encodeToString(png);
+		Usuario vendedor = usuarioDAO.save(Usuario.builder()
+				.nombre("Vendedor")
+				.email("almacen-" + System.nanoTime() + "@mail.com")
+				.rol(Rol.VENDEDOR)
+				.tarjeta(TarjetaBancaria.builder().saldo(BigDecimal.ZERO).build())
+				.build());
+
+		// La misma imagen como portada y en el carrusel: un archivo, dos referencias
+		DTOeventoBajada evento = servicioEvento.insert(DTOeventoSubida.builder()
+				.nombre("Evento almacén")
+				.localizacion("Madrid")
+				.inicioEvento(LocalDateTime.now().plusDays(1))
+				.finEvento(LocalDateTime.now().plusDays(1).plusHours(2))
+				.categoria(Categoria.MUSICA)
+				.aforoMax(100)
+				.imagen(base64)
+				.imagenesCarruselUrl(base64)
+				.vendedorId(vendedor.getId())
+				.build());
+		String ruta = guardada(evento.getImagenPrincipalUrl());
+		assertEquals(ruta, evento.getImagenesCarruselUrls().get(0));
+		String hash = ruta.substring(ruta.lastIndexOf('/') + 1, ruta.lastIndexOf('.'));
+		assertEquals(2, repoImagen.findById(hash).get().getReferencias());
+
+		servicioEvento.eliminarEvento(evento.getId());
+		assertEquals(0, repoImagen.findById(hash).get().getReferencias());
+	}
+
+	private String subida(byte[] contenido, String nombre, String tipo) throws IOException {
+		return guardada(servicioImagen.guardarImagen(new MockMultipartFile("imagen", nombre, tipo, contenido)));
+	}
+
+	private String guardada(String ruta) {
+		creadas.add(ruta);
+		return ruta;
+	}
+
+	private static Path enDisco(String ruta) {
+		return RAIZ.resolve(ruta.substring(1));
+	}
+
+	private static byte[] imagen(byte[] cabecera, int tamano) {
+		byte[] datos = new byte[Math.max(tamano, cabecera.length)];
+		new Random().nextBytes(datos);
+		System.arraycopy(cabecera, 0, datos, 0, cabecera.length);
+		return datos;
+	}
+}
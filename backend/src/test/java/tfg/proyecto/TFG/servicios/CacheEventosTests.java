@@ -0,0 +1,100 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoSubida;
+import tfg.proyecto.TFG.modelo.Categoria;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Comprueba que las lecturas de eventos se sirven desde {@link CacheEventos}
+ * y que las escrituras del servicio las invalidan.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CacheEventosTests {
+
+	@Autowired IServicioEvento servicioEvento;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired CacheEventos cacheEventos;
+	@Autowired EntityManagerFactory emf;
+
+	private DTOeventoBajada evento;
+
+	@BeforeEach
+	void crearEvento() {
+		cacheEventos.invalidarTodo();
+		Usuario vendedor = usuarioDAO.save(Usuario.builder()
+				.nombre("Vendedor cache")
+				.email("cache-" + System.nanoTime() + "@mail.com")
+				.rol(Rol.VENDEDOR)
+				.build());
+		evento = servicioEvento.insert(subida("Concierto cache", Categoria.MUSICA, vendedor.getId()));
+	}
+
+	@Test
+	void segundaLecturaPorIdNoConsultaLaBaseDeDatos() {
+		servicioEvento.obtnerPorElId(evento.getId());
+
+		Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+		stats.clear();
+		DTOeventoBajada cacheado = servicioEvento.obtnerPorElId(evento.getId());
+
+		assertEquals("Concierto cache", cacheado.getNombre());
+		assertEquals(0, stats.getPrepareStatementCount());
+	}
+
+	@Test
+	void actualizarInvalidaIdYCategorias() {
+		assertTrue(contiene(servicioEvento.obtenerPorCategoria(Categoria.MUSICA)));
+		servicioEvento.obtenerPorCategoria(Categoria.ARTE);
+		servicioEvento.obtnerPorElId(evento.getId());
+
+		servicioEvento.actualizarEvento(evento.getId(), subida("Expo cache", Categoria.ARTE, evento.getVendedorId()));
+
+		assertEquals("Expo cache", servicioEvento.obtnerPorElId(evento.getId()).getNombre());
+		assertFalse(contiene(servicioEvento.obtenerPorCategoria(Categoria.MUSICA)));
+		assertTrue(contiene(servicioEvento.obtenerPorCategoria(Categoria.ARTE)));
+	}
+
+	@Test
+	void eliminarInvalidaListadoCompleto() {
+		assertTrue(servicioEvento.obtenerTodosLosEventos().stream().anyMatch(dto -> dto.getId().equals(evento.getId())));
+
+		servicioEvento.eliminarEvento(evento.getId());
+
+		assertFalse(servicioEvento.obtenerTodosLosEventos().stream().anyMatch(dto -> dto.getId().equals(evento.getId())));
+	}
+
+	private boolean contiene(List<DTOeventoBajada> eventos) {
+		return eventos.stream().anyMatch(dto -> dto.getId().equals(evento.getId()));
+	}
+
+	private static DTOeventoSubida subida(String nombre, Categoria categoria, Long vendedorId) {
+		DTOeventoSubida dto = new DTOeventoSubida();
+		dto.setNombre(nombre);
+		dto.setLocalizacion("Madrid");
+		dto.setInicioEvento(LocalDateTime.now().plusDays(5));
+		dto.setFinEvento(LocalDateTime.now().plusDays(5).plusHours(2));
+		dto.setPrecio(20);
+		dto.setAforoMax(50);
+		dto.setCategoria(categoria);
+		dto.setVendedorId(vendedorId);
+		return dto;
+	}
+}
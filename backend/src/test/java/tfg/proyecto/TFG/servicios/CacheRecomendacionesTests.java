@@ -0,0 +1,101 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Comprueba la agrupación de peticiones concurrentes y la invalidación de {@link CacheRecomendaciones}.
+ */
+class CacheRecomendacionesTests {
+
+	private CacheRecomendaciones cache;
+	private final AtomicInteger llamadas = new AtomicInteger();
+
+	@BeforeEach
+	void crearCache() {
+		CaffeineCacheManager manager = new CaffeineCacheManager();
+		manager.registerCustomCache(CacheRecomendaciones.POR_USUARIO, Caffeine.newBuilder().build());
+		manager.registerCustomCache(CacheRecomendaciones.POR_EVENTO, Caffeine.newBuilder().build());
+		cache = new CacheRecomendaciones(manager);
+	}
+
+	@Test
+	void peticionesConcurrentesCompartenUnaLlamada() throws Exception {
+		CountDownLatch salida = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		List<Future<Optional<List<Long>>>> resultados = new ArrayList<>();
+
+		for (int i = 0; i < 16; i++) {
+			resultados.add(pool.submit(() -> {
+				salida.await();
+				return cache.idsUsuario(1L, () -> {
+					llamadas.incrementAndGet();
+					dormir(200);
+					return Optional.of(List.of(5L, 6L));
+				});
+			}));
+		}
+		salida.countDown();
+		for (Future<Optional<List<Long>>> f : resultados) {
+			assertEquals(Optional.of(List.of(5L, 6L)), f.get(5, TimeUnit.SECONDS));
+		}
+		pool.shutdown();
+
+		assertEquals(1, llamadas.get());
+	}
+
+	@Test
+	void noCacheaFallosYSeInvalidaPorUsuario() {
+		assertTrue(cache.idsUsuario(2L, () -> { llamadas.incrementAndGet(); return Optional.empty(); }).isEmpty());
+		assertEquals(Optional.of(List.of(1L)), cache.idsUsuario(2L, () -> { llamadas.incrementAndGet(); return Optional.of(List.of(1L)); }));
+		assertEquals(Optional.of(List.of(1L)), cache.idsUsuario(2L, () -> { llamadas.incrementAndGet(); return Optional.of(List.of(9L)); }));
+		assertEquals(2, llamadas.get());
+
+		cache.invalidarUsuario(2L);
+
+		assertEquals(Optional.of(List.of(9L)), cache.idsUsuario(2L, () -> Optional.of(List.of(9L))));
+	}
+
+	@Test
+	void seInvalidaOtraVezAlConfirmarLaTransaccion() {
+		cache.idsUsuario(3L, () -> Optional.of(List.of(1L)));
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			cache.invalidarUsuario(3L);
+			// Una petición concurrente vuelve a cachear lo anterior a la compra
+			cache.idsUsuario(3L, () -> Optional.of(List.of(1L)));
+
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertEquals(Optional.of(List.of(2L)), cache.idsUsuario(3L, () -> Optional.of(List.of(2L))));
+	}
+
+	private static void dormir(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import tfg.proyecto.TFG.DatosPrueba;
+import tfg.proyecto.TFG.dtos.DTOCarritoBajada;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioCuentaBancaria;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Comprueba que las compras repetidas no cobran ni emiten entradas dos veces.
+ */
+@SpringBootTest
+class ComprasIdempotentesTests {
+
+	@Autowired DatosPrueba datos;
+	@Autowired IServicioCarrito servicioCarrito;
+	@Autowired ComprasIdempotentes comprasIdempotentes;
+	@Autowired RepositorioTicket ticketDAO;
+	@Autowired RepositorioCuentaBancaria cuentaDAO;
+
+	@Test
+	void lasPeticionesSimultaneasCompranUnaVez() throws Exception {
+		Long eventoId = datos.evento(100).getId();
+		Usuario usuario = datos.comprador(1000);
+		Long usuarioId = usuario.getId();
+		servicioCarrito.agregarItemAlCarrito(usuarioId, eventoId, 3);
+
+		int peticiones = 16;
+		AtomicInteger compras = new AtomicInteger();
+		ExecutorService hilos = Executors.newFixedThreadPool(peticiones);
+		CountDownLatch salida = new CountDownLatch(1);
+		List<Future<DTOCarritoBajada>> respuestas = new ArrayList<>();
+		try {
+			for (int i = 0; i < peticiones; i++) {
+				respuestas.add(hilos.submit(() -> {
+					salida.await();
+					return comprasIdempotentes.ejecutar(usuarioId, "clave-1", () -> {
+						compras.incrementAndGet();
+						return servicioCarrito.finalizarCompra(usuarioId);
+					});
+				}));
+			}
+			salida.countDown();
+			for (Future<DTOCarritoBajada> respuesta : respuestas) {
+				respuesta.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			hilos.shutdownNow();
+		}
+
+		assertEquals(1, compras.get());
+		assertEquals(3, ticketDAO.contarOcupadas(eventoId));
+		assertEquals(0, BigDecimal.valueOf(970).compareTo(saldo(usuario)));
+	}
+
+	@Test
+	void unReintentoConLaMismaClaveDevuelveLaCompraGuardada() {
+		Long eventoId = datos.evento(100).getId();
+		Usuario usuario = datos.comprador(1000);
+		Long usuarioId = usuario.getId();
+		servicioCarrito.agregarItemAlCarrito(usuarioId, eventoId, 2);
+
+		DTOCarritoBajada primera = comprasIdempotentes.ejecutar(usuarioId, "clave-2",
+				() -> servicioCarrito.finalizarCompra(usuarioId));
+		DTOCarritoBajada reintento = comprasIdempotentes.ejecutar(usuarioId, "clave-2",
+				() -> servicioCarrito.finalizarCompra(usuarioId));
+
+		assertSame(primera, reintento);
+		assertEquals(2, ticketDAO.contarOcupadas(eventoId));
+		assertEquals(0, BigDecimal.valueOf(980).compareTo(saldo(usuario)));
+	}
+
+	@Test
+	void elDescuentoNoDejaElSaldoEnNegativo() {
+		Usuario usuario = datos.comprador(15);
+		Long tarjetaId = usuario.getTarjeta().getId();
+
+		assertEquals(1, cuentaDAO.descontarSaldo(tarjetaId, BigDecimal.TEN));
+		assertEquals(0, cuentaDAO.descontarSaldo(tarjetaId, BigDecimal.TEN));
+		assertEquals(0, BigDecimal.valueOf(5).compareTo(saldo(usuario)));
+	}
+
+	private BigDecimal saldo(Usuario usuario) {
+		return cuentaDAO.findById(usuario.getTarjeta().getId()).get().getSaldo();
+	}
+}
@@ -0,0 +1,104 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import tfg.proyecto.TFG.DatosPrueba;
+import tfg.proyecto.TFG.dtos.DTOescaneoBajada;
+import tfg.proyecto.TFG.dtos.DTOescaneoSubida;
+import tfg.proyecto.TFG.modelo.EstadoTicket;
+import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.ResultadoAcceso;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Comprueba la sincronización por lotes de los lectores sin conexión.
+ */
+// Base de datos propia: este contexto no debe recrear la de los contextos que ya están en caché.
+// Sin escritura periódica, para contar solo las consultas del lote
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.datasource.url=jdbc:h2:mem:accesoslote",
+		"accesos.escritura-ms=3600000" })
+class IndiceAccesosLoteTests {
+
+	@Autowired DatosPrueba datos;
+	@Autowired IndiceAccesos indiceAccesos;
+	@Autowired RepositorioTicket ticketDAO;
+	@Autowired EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void ganaElEscaneoMasAntiguoConPocasConsultas() {
+		int numTickets = 3_000;
+		Evento evento = datos.evento(5_000, LocalDateTime.now().plusDays(1));
+		List<String> qrs = datos.qrs(evento, numTickets);
+		LocalDateTime base = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.MILLIS);
+
+		// Cada ticket se escanea en dos puertas: la "A" un minuto antes que la "B"
+		List<DTOescaneoSubida> escaneos = new ArrayList<>();
+		for (int i = 0; i < numTickets; i++) {
+			escaneos.add(new DTOescaneoSubida(qrs.get(i), base.plusSeconds(i).plusMinutes(1), "B"));
+			escaneos.add(new DTOescaneoSubida(qrs.get(i), base.plusSeconds(i), "A"));
+		}
+		escaneos.add(new DTOescaneoSubida(UUID.randomUUID().toString(), base, "A"));
+		Collections.shuffle(escaneos);
+
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+		List<DTOescaneoBajada> resultados = indiceAccesos.escanearLote(evento.getId(), escaneos);
+
+		// Una consulta por cada 1000 QR que no estaban en el índice
+		assertTrue(estadisticas.getPrepareStatementCount() <= 4,
+				"sentencias preparadas: " + estadisticas.getPrepareStatementCount());
+		assertEquals(escaneos.size(), resultados.size());
+		for (int i = 0; i < escaneos.size(); i++) {
+			DTOescaneoSubida escaneo = escaneos.get(i);
+			DTOescaneoBajada resultado = resultados.get(i);
+			assertEquals(escaneo.getContenidoQR(), resultado.getContenidoQR());
+			assertEquals(escaneo.getPuertaId(), resultado.getPuertaId());
+			if (resultado.getTicketId() == null) {
+				assertEquals(ResultadoAcceso.DESCONOCIDO, resultado.getResultado());
+			} else if ("A".equals(escaneo.getPuertaId())) {
+				assertEquals(ResultadoAcceso.ACEPTADO, resultado.getResultado());
+			} else {
+				assertEquals(ResultadoAcceso.DUPLICADO, resultado.getResultado());
+				assertEquals(escaneo.getFechaEscaneo().minusMinutes(1), resultado.getUsadoEn());
+			}
+		}
+
+		indiceAccesos.volcar();
+		assertTrue(ticketDAO.findByEventoId(evento.getId()).stream()
+				.allMatch(t -> t.getEstado() == EstadoTicket.USADO));
+	}
+
+	@Test
+	void unEscaneoSinConexionAnteriorPasaASerElPrimero() {
+		Evento evento = datos.evento(5_000, LocalDateTime.now().plusDays(1));
+		String qr = datos.qrs(evento, 1).get(0);
+		LocalDateTime antes = LocalDateTime.now().minusMinutes(10).truncatedTo(ChronoUnit.MILLIS);
+
+		// En línea entra ahora; el lector sin conexión lo escaneó hace 10 minutos
+		assertEquals(ResultadoAcceso.ACEPTADO, indiceAccesos.escanear(evento.getId(), qr).getResultado());
+		DTOescaneoBajada sinConexion = indiceAccesos.escanearLote(evento.getId(),
+				List.of(new DTOescaneoSubida(qr, antes, "norte"))).get(0);
+		assertEquals(ResultadoAcceso.ACEPTADO, sinConexion.getResultado());
+
+		DTOescaneoBajada despues = indiceAccesos.escanear(evento.getId(), qr);
+		assertEquals(ResultadoAcceso.DUPLICADO, despues.getResultado());
+		assertEquals(antes, despues.getUsadoEn());
+	}
+}
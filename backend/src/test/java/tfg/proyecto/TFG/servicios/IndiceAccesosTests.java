@@ -0,0 +1,176 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import tfg.proyecto.TFG.DatosPrueba;
+import tfg.proyecto.TFG.config.FirmaQR;
+import tfg.proyecto.TFG.dtos.DTOticketBajada;
+import tfg.proyecto.TFG.dtos.DTOticketSubida;
+import tfg.proyecto.TFG.modelo.EstadoTicket;
+import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.ResultadoAcceso;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioEvento;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Comprueba el control de accesos: cada ticket entra una sola vez aunque se escanee a la vez
+ * en varias puertas, y los usos acaban guardados en la base de datos.
+ */
+// Con clave de firma: sin ella los tickets nuevos no llevan el QR firmado
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:accesos",
+		"qr.firma.clave=AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=" })
+class IndiceAccesosTests {
+
+	@Autowired DatosPrueba datos;
+	@Autowired IndiceAccesos indiceAccesos;
+	@Autowired IServicioTicket servicioTicket;
+	@Autowired RepositorioEvento eventoDAO;
+	@Autowired RepositorioTicket ticketDAO;
+	@Autowired FirmaQR firmaQR;
+
+	@Test
+	void cadaTicketEntraUnaSolaVez() throws Exception {
+		int numTickets = 10_000;
+		Evento evento = datos.evento(20_000, LocalDateTime.now().plusDays(1));
+		List<String> qrs = datos.qrs(evento, numTickets);
+		assertEquals(numTickets, indiceAccesos.abrir(evento.getId()));
+
+		// Cada QR se escanea dos veces, en orden aleatorio y desde 16 puertas
+		List<String> escaneos = new ArrayList<>(qrs);
+		escaneos.addAll(qrs);
+		Collections.shuffle(escaneos);
+		int puertas = 16;
+		ExecutorService hilos = Executors.newFixedThreadPool(puertas);
+		CountDownLatch salida = new CountDownLatch(1);
+		List<Future<Map<ResultadoAcceso, Integer>>> resultados = new ArrayList<>();
+		try {
+			for (int p = 0; p < puertas; p++) {
+				List<String> suyos = escaneos.subList(p * escaneos.size() / puertas, (p + 1) * escaneos.size() / puertas);
+				resultados.add(hilos.submit(() -> {
+					salida.await();
+					Map<ResultadoAcceso, Integer> cuenta = new EnumMap<>(ResultadoAcceso.class);
+					for (String qr : suyos) {
+						cuenta.merge(indiceAccesos.escanear(evento.getId(), qr).getResultado(), 1, Integer::sum);
+					}
+					return cuenta;
+				}));
+			}
+			long inicio = System.nanoTime();
+			salida.countDown();
+			Map<ResultadoAcceso, Integer> total = new EnumMap<>(ResultadoAcceso.class);
+			for (Future<Map<ResultadoAcceso, Integer>> resultado : resultados) {
+				resultado.get(30, TimeUnit.SECONDS).forEach((r, n) -> total.merge(r, n, Integer::sum));
+			}
+			System.out.println("[ACCESOS] " + escaneos.size() + " escaneos en "
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+			assertEquals(numTickets, total.get(ResultadoAcceso.ACEPTADO));
+			assertEquals(numTickets, total.get(ResultadoAcceso.DUPLICADO));
+		} finally {
+			hilos.shutdownNow();
+		}
+
+		indiceAccesos.volcar();
+		assertEquals(0, indiceAccesos.pendientes());
+		assertTrue(ticketDAO.findByEventoId(evento.getId()).stream()
+				.allMatch(t -> t.getEstado() == EstadoTicket.USADO));
+	}
+
+	@Test
+	void distingueDuplicadosOtrosEventosYDesconocidos() {
+		Evento evento = datos.evento(20_000, LocalDateTime.now().plusDays(1));
+		Evento otro = datos.evento(20_000, LocalDateTime.now().plusDays(1));
+		String qr = datos.qrs(evento, 1).get(0);
+		indiceAccesos.abrir(evento.getId());
+
+		assertEquals(ResultadoAcceso.OTRO_EVENTO, indiceAccesos.escanear(otro.getId(), qr).getResultado());
+		assertEquals(ResultadoAcceso.ACEPTADO, indiceAccesos.escanear(evento.getId(), qr).getResultado());
+		var duplicado = indiceAccesos.escanear(evento.getId(), qr);
+		assertEquals(ResultadoAcceso.DUPLICADO, duplicado.getResultado());
+		assertNotNull(duplicado.getUsadoEn());
+		assertEquals(ResultadoAcceso.DESCONOCIDO,
+				indiceAccesos.escanear(evento.getId(), UUID.randomUUID().toString()).getResultado());
+	}
+
+	@Test
+	void losTicketsVendidosDespuesDeAbrirTambienEntran() {
+		Evento evento = datos.evento(20_000, LocalDateTime.now().plusDays(1));
+		indiceAccesos.abrir(evento.getId());
+		String qr = datos.qrs(evento, 1).get(0);
+
+		// validarQR pasa por el mismo índice que las puertas
+		assertTrue(servicioTicket.validarYUsarCodigoQR(qr));
+		assertFalse(servicioTicket.validarYUsarCodigoQR(qr));
+		assertEquals(ResultadoAcceso.DUPLICADO, indiceAccesos.escanear(evento.getId(), qr).getResultado());
+
+		indiceAccesos.cerrar(evento.getId());
+		assertEquals(ResultadoAcceso.DUPLICADO, indiceAccesos.escanear(evento.getId(), qr).getResultado());
+	}
+
+	@Test
+	void unaFirmaValidaNoBastaSiElTicketYaNoExiste() {
+		Evento evento = datos.evento(20_000, LocalDateTime.now().plusDays(1));
+		evento.setInicioEvento(LocalDateTime.now().plusHours(1));
+		eventoDAO.save(evento);
+		long ahora = System.currentTimeMillis() / 1000;
+		indiceAccesos.abrir(evento.getId());
+
+		// Firma correcta de un ticket que no está en la base de datos
+		String sinTicket = firmaQR.firmar(-1, evento.getId(), ahora - 60, ahora + 3600);
+		assertEquals(ResultadoAcceso.DESCONOCIDO, indiceAccesos.escanear(evento.getId(), sinTicket).getResultado());
+
+		String caducado = firmaQR.firmar(-2, evento.getId(), ahora - 7200, ahora - 3600);
+		assertEquals(ResultadoAcceso.FUERA_DE_PLAZO, indiceAccesos.escanear(evento.getId(), caducado).getResultado());
+
+		// Vendido después de abrir y borrado sin pasar por este índice (otro nodo, o antes de reiniciar)
+		DTOticketBajada borrado = servicioTicket.insert(DTOticketSubida.builder()
+				.usuarioId(datos.comprador().getId()).eventoId(evento.getId()).precioPagado(5).build());
+		ticketDAO.deleteById(borrado.getId());
+		assertEquals(ResultadoAcceso.DESCONOCIDO,
+				indiceAccesos.escanear(evento.getId(), borrado.getContenidoQR()).getResultado());
+
+		DTOticketBajada vendido = servicioTicket.insert(DTOticketSubida.builder()
+				.usuarioId(datos.comprador().getId()).eventoId(evento.getId()).precioPagado(5).build());
+		assertEquals(ResultadoAcceso.ACEPTADO,
+				indiceAccesos.escanear(evento.getId(), vendido.getContenidoQR()).getResultado());
+	}
+
+	@Test
+	void losTicketsNuevosLlevanElQRFirmado() {
+		Evento evento = datos.evento(20_000, LocalDateTime.now().plusDays(1));
+		evento.setInicioEvento(LocalDateTime.now().plusHours(1));
+		eventoDAO.save(evento);
+		Usuario usuario = datos.comprador();
+
+		DTOticketBajada ticket = servicioTicket.insert(DTOticketSubida.builder()
+				.usuarioId(usuario.getId()).eventoId(evento.getId()).precioPagado(5).build());
+		FirmaQR.QRFirmado firmado = firmaQR.verificar(ticket.getContenidoQR());
+		assertEquals(ticket.getId(), firmado.ticketId());
+		assertEquals(evento.getId(), firmado.eventoId());
+		assertEquals(ticket.getContenidoQR(), ticketDAO.findById(ticket.getId()).get().getContenidoQR());
+
+		assertTrue(servicioTicket.validarYUsarCodigoQR(ticket.getContenidoQR()));
+		assertFalse(servicioTicket.validarYUsarCodigoQR(ticket.getContenidoQR()));
+	}
+}
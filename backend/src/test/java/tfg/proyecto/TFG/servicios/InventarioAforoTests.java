@@ -0,0 +1,112 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tfg.proyecto.TFG.DatosPrueba;
+import tfg.proyecto.TFG.dtos.DTOticketSubida;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Comprueba que la venta concurrente de entradas no supera el aforo del evento.
+ */
+@SpringBootTest
+class InventarioAforoTests {
+
+	private static final int HILOS = 64;
+	private static final int INTENTOS_POR_HILO = 4;
+	private static final int AFORO = 20;
+
+	@Autowired DatosPrueba datos;
+	@Autowired IServicioTicket servicioTicket;
+	@Autowired InventarioAforo inventarioAforo;
+	@Autowired RepositorioTicket ticketDAO;
+	@Autowired PlatformTransactionManager transactionManager;
+
+	@Test
+	void noSeVendenMasEntradasQueElAforo() throws Exception {
+		Long usuarioId = datos.comprador().getId();
+		Long eventoId = datos.evento(AFORO).getId();
+
+		ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch salida = new CountDownLatch(1);
+		AtomicInteger vendidas = new AtomicInteger();
+		AtomicInteger rechazadas = new AtomicInteger();
+		List<Future<?>> tareas = new ArrayList<>();
+		try {
+			for (int i = 0; i < HILOS; i++) {
+				tareas.add(hilos.submit(() -> {
+					salida.await();
+					for (int j = 0; j < INTENTOS_POR_HILO; j++) {
+						try {
+							servicioTicket.insert(new DTOticketSubida(usuarioId, eventoId, 10.0));
+							vendidas.incrementAndGet();
+						} catch (AforoCompletoException e) {
+							rechazadas.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			salida.countDown();
+			for (Future<?> tarea : tareas) {
+				tarea.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			hilos.shutdownNow();
+		}
+
+		assertEquals(AFORO, vendidas.get());
+		assertEquals(HILOS * INTENTOS_POR_HILO - AFORO, rechazadas.get());
+		assertEquals(AFORO, ticketDAO.contarOcupadas(eventoId));
+		assertEquals(AFORO, inventarioAforo.ocupadas(eventoId));
+
+		// Al reconciliar con la base de datos se obtiene el mismo valor
+		inventarioAforo.reconciliar();
+		assertEquals(AFORO, inventarioAforo.ocupadas(eventoId));
+	}
+
+	@Test
+	void laReservaSeDevuelveSiLaTransaccionSeDeshace() {
+		Long eventoId = datos.evento(5).getId();
+		TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+		tx.executeWithoutResult(estado -> {
+			assertEquals(true, inventarioAforo.reservar(eventoId, 5, 5));
+			assertEquals(false, inventarioAforo.reservar(eventoId, 5, 1));
+			estado.setRollbackOnly();
+		});
+
+		assertEquals(0, inventarioAforo.ocupadas(eventoId));
+	}
+
+	@Test
+	void borrarUnTicketLiberaSuPlaza() {
+		Long usuarioId = datos.comprador().getId();
+		Long eventoId = datos.evento(1).getId();
+
+		Long ticketId = servicioTicket.insert(new DTOticketSubida(usuarioId, eventoId, 10.0)).getId();
+		assertThrows(AforoCompletoException.class,
+				() -> servicioTicket.insert(new DTOticketSubida(usuarioId, eventoId, 10.0)));
+
+		servicioTicket.delete(ticketId);
+		assertEquals(0, inventarioAforo.ocupadas(eventoId));
+		servicioTicket.insert(new DTOticketSubida(usuarioId, eventoId, 10.0));
+		assertEquals(1, inventarioAforo.ocupadas(eventoId));
+	}
+}
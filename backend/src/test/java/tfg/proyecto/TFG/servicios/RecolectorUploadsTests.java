@@ -0,0 +1,149 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import tfg.proyecto.TFG.dtos.DTOrecoleccionBajada;
+import tfg.proyecto.TFG.modelo.ImagenAlmacenada;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.TarjetaBancaria;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioImagenAlmacenada;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Comprueba que el recolector borra solo los archivos sin referencias y pasada la gracia, y que
+ * en simulación no borra nada. Trabaja sobre una carpeta temporal en lugar de <code>uploads</code>.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:recolector",
+		"uploads.recoleccion.habilitada=false",
+		"uploads.recoleccion.lote=2",
+		"uploads.recoleccion.pausa-ms=0" })
+@AutoConfigureMockMvc
+class RecolectorUploadsTests {
+
+	private static final String HASH_HUERFANO = "abcd" + "1".repeat(60);
+	private static final String HASH_USADO = "abcd" + "2".repeat(60);
+	private static final String HASH_SIN_ORIGINAL = "abcd" + "3".repeat(60);
+	private static final String HASH_RESUBIDO = "abcd" + "4".repeat(60);
+
+	@Autowired RecolectorUploads recolector;
+	@Autowired RepositorioImagenAlmacenada repoImagen;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired MockMvc mockMvc;
+
+	@TempDir Path raiz;
+
+	@BeforeEach
+	void crearArchivos() throws IOException {
+		antiguo("eventos/huerfano.png");
+		antiguo("eventos/usado.png");
+		Files.write(raiz.resolve("eventos/reciente.png"), new byte[10]);
+		antiguo("invitados/3/.subida-1.tmp");
+		antiguo("img/ab/cd/" + HASH_HUERFANO + ".png");
+		antiguo("img/ab/cd/" + HASH_HUERFANO + "_320.jpg");
+		antiguo("img/ab/cd/" + HASH_USADO + ".png");
+		antiguo("img/ab/cd/" + HASH_USADO + "_320.jpg");
+		antiguo("img/ab/cd/" + HASH_SIN_ORIGINAL + "_960.jpg");
+		antiguo("img/ab/cd/" + HASH_RESUBIDO + ".png");
+		LocalDateTime haceDosHoras = LocalDateTime.now().minusHours(2);
+		imagen(HASH_HUERFANO, haceDosHoras, haceDosHoras);
+		// Sin referencias y con el archivo antiguo, pero se acaba de volver a subir
+		imagen(HASH_RESUBIDO, haceDosHoras, LocalDateTime.now());
+
+		usuario("/uploads/eventos/usado.png");
+		usuario("/uploads/img/ab/cd/" + HASH_USADO + ".png");
+	}
+
+	@Test
+	void laSimulacionNoBorraNada() {
+		DTOrecoleccionBajada informe = recolector.recolectar(raiz, true);
+
+		assertTrue(informe.isSimulacion());
+		assertEquals(10, informe.getRevisados());
+		assertEquals(1, informe.getRecientes());
+		assertEquals(3, informe.getReferenciados());
+		assertEquals(6, informe.getHuerfanos());
+		assertEquals(60, informe.getBytesHuerfanos());
+		assertEquals(0, informe.getBorrados());
+		assertTrue(informe.getEjemplos().contains("/uploads/eventos/huerfano.png"));
+		assertTrue(informe.getEjemplos().contains("/uploads/invitados/3/.subida-1.tmp"));
+		assertTrue(Files.exists(raiz.resolve("eventos/huerfano.png")));
+		assertTrue(repoImagen.existsById(HASH_HUERFANO));
+	}
+
+	@Test
+	void borraLosHuerfanosConSusVariantes() {
+		DTOrecoleccionBajada informe = recolector.recolectar(raiz, false);
+
+		assertEquals(5, informe.getBorrados());
+		assertFalse(Files.exists(raiz.resolve("eventos/huerfano.png")));
+		assertFalse(Files.exists(raiz.resolve("invitados/3/.subida-1.tmp")));
+		assertFalse(Files.exists(raiz.resolve("img/ab/cd/" + HASH_HUERFANO + ".png")));
+		assertFalse(Files.exists(raiz.resolve("img/ab/cd/" + HASH_HUERFANO + "_320.jpg")));
+		assertFalse(Files.exists(raiz.resolve("img/ab/cd/" + HASH_SIN_ORIGINAL + "_960.jpg")));
+		assertFalse(repoImagen.existsById(HASH_HUERFANO));
+
+		// Lo referenciado (y sus variantes) y lo recién subido se conserva
+		assertTrue(Files.exists(raiz.resolve("eventos/usado.png")));
+		assertTrue(Files.exists(raiz.resolve("eventos/reciente.png")));
+		assertTrue(Files.exists(raiz.resolve("img/ab/cd/" + HASH_USADO + ".png")));
+		assertTrue(Files.exists(raiz.resolve("img/ab/cd/" + HASH_USADO + "_320.jpg")));
+		assertTrue(Files.exists(raiz.resolve("img/ab/cd/" + HASH_RESUBIDO + ".png")));
+		assertTrue(repoImagen.existsById(HASH_RESUBIDO));
+
+		// Solo queda la imagen recién subida, que sigue sin referencias
+		assertEquals(1, recolector.recolectar(raiz, false).getHuerfanos());
+	}
+
+	@Test
+	void soloUnAdminPuedeLanzarla() throws Exception {
+		mockMvc.perform(post("/tfg/utilidades/uploads/recoleccion")).andExpect(status().isForbidden());
+	}
+
+	private void antiguo(String ruta) throws IOException {
+		Path archivo = raiz.resolve(ruta);
+		Files.createDirectories(archivo.getParent());
+		Files.write(archivo, new byte[10]);
+		Files.setLastModifiedTime(archivo, FileTime.fromMillis(System.currentTimeMillis() - 2 * 3_600_000));
+	}
+
+	private void imagen(String hash, LocalDateTime creada, LocalDateTime usada) {
+		repoImagen.save(ImagenAlmacenada.builder()
+				.hash(hash)
+				.ruta("/uploads/img/ab/cd/" + hash + ".png")
+				.tamano(10)
+				.creada(creada)
+				.usada(usada)
+				.build());
+	}
+
+	private void usuario(String foto) {
+		usuarioDAO.save(Usuario.builder()
+				.nombre("Usuario recolector")
+				.email("recolector-" + System.nanoTime() + "@mail.com")
+				.foto(foto)
+				.rol(Rol.CLIENTE)
+				.tarjeta(TarjetaBancaria.builder().saldo(BigDecimal.ZERO).build())
+				.build());
+	}
+}
@@ -0,0 +1,84 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import tfg.proyecto.TFG.DatosPrueba;
+import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+
+/**
+ * Comprueba las retenciones de plazas del carrito: reserva, caducidad y compra.
+ */
+@SpringBootTest
+class RetencionesCarritoTests {
+
+	@Autowired DatosPrueba datos;
+	@Autowired IServicioCarrito servicioCarrito;
+	@Autowired IServicioEvento servicioEvento;
+	@Autowired RetencionesCarrito retenciones;
+	@Autowired InventarioAforo inventarioAforo;
+	@Autowired RepositorioTicket ticketDAO;
+
+	@Test
+	void anadirAlCarritoRetienePlazas() {
+		Long eventoId = datos.evento(5).getId();
+		Long primero = datos.comprador().getId();
+		Long segundo = datos.comprador().getId();
+
+		servicioCarrito.agregarItemAlCarrito(primero, eventoId, 3);
+
+		DTOeventoBajada evento = servicioEvento.obtnerPorElId(eventoId);
+		assertEquals(3, evento.getPlazasRetenidas());
+		assertEquals(2, evento.getPlazasDisponibles());
+		assertThrows(AforoCompletoException.class, () -> servicioCarrito.agregarItemAlCarrito(segundo, eventoId, 3));
+
+		// Vaciar el carrito devuelve las plazas
+		servicioCarrito.vaciarCarrito(primero);
+		assertEquals(0, retenciones.retenidas(eventoId));
+		servicioCarrito.agregarItemAlCarrito(segundo, eventoId, 5);
+		assertEquals(0, servicioEvento.obtnerPorElId(eventoId).getPlazasDisponibles());
+	}
+
+	@Test
+	void finalizarCompraUsaLasPlazasRetenidas() {
+		Long eventoId = datos.evento(4).getId();
+		Long usuarioId = datos.comprador().getId();
+
+		servicioCarrito.agregarItemAlCarrito(usuarioId, eventoId, 4);
+		servicioCarrito.finalizarCompra(usuarioId);
+
+		assertEquals(4, ticketDAO.contarOcupadas(eventoId));
+		assertEquals(4, inventarioAforo.ocupadas(eventoId));
+		assertEquals(0, retenciones.retenidas(eventoId));
+	}
+
+	@Test
+	void lasRetencionesCaducadasDevuelvenSusPlazas() throws InterruptedException {
+		int numRetenciones = 20_000;
+		Long eventoId = datos.evento(numRetenciones).getId();
+		// Margen para registrarlas todas antes de que caduque la primera, aunque la máquina vaya cargada
+		LocalDateTime hasta = LocalDateTime.now().plusSeconds(3);
+
+		for (long i = 0; i < numRetenciones; i++) {
+			// IDs de item ficticios: la cola no consulta la base de datos
+			assertTrue(retenciones.retener(-1_000_000L - i, eventoId, numRetenciones, 1, hasta));
+		}
+		assertEquals(numRetenciones, retenciones.retenidas(eventoId));
+		assertEquals(numRetenciones, inventarioAforo.ocupadas(eventoId));
+
+		long limite = System.currentTimeMillis() + 15_000;
+		while (inventarioAforo.ocupadas(eventoId) > 0 && System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, inventarioAforo.ocupadas(eventoId));
+		assertEquals(0, retenciones.retenidas(eventoId));
+	}
+}
@@ -0,0 +1,173 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import tfg.proyecto.TFG.dtos.DTOturnoEspera;
+
+/**
+ * Comprueba que la sala de espera admite compradores al ritmo configurado.
+ */
+class SalaEsperaTests {
+
+	private static final double POR_SEGUNDO = 10;
+	private static final int RAFAGA = 5;
+	private static final Long EVENTO = 1L;
+
+	private final AtomicLong reloj = new AtomicLong();
+	private final SalaEspera sala = new SalaEspera(POR_SEGUNDO, RAFAGA, 10, 15, reloj::get);
+
+	@Test
+	void conLaColaParadaSeEntraSinEsperar() {
+		for (long usuario = 1; usuario <= RAFAGA; usuario++) {
+			assertTrue(sala.pedirTurno(EVENTO, usuario).isAdmitido());
+		}
+		DTOturnoEspera enCola = sala.pedirTurno(EVENTO, 100L);
+		assertFalse(enCola.isAdmitido());
+		assertEquals(1, enCola.getPosicion());
+
+		// Otro evento tiene su propia cola
+		assertTrue(sala.pedirTurno(2L, 100L).isAdmitido());
+	}
+
+	@Test
+	void laColaAvanzaAlRitmoConfigurado() {
+		for (long usuario = 1; usuario <= RAFAGA + 30; usuario++) {
+			sala.pedirTurno(EVENTO, usuario);
+		}
+		DTOturnoEspera ultimo = sala.pedirTurno(EVENTO, (long) RAFAGA + 30);
+		assertEquals(30, ultimo.getPosicion());
+		assertEquals(3, ultimo.getEsperaSegundos());
+
+		avanzar(1);
+		assertEquals(20, sala.consultarTurno(ultimo.getToken()).getPosicion());
+		avanzar(2);
+		assertTrue(sala.consultarTurno(ultimo.getToken()).isAdmitido());
+	}
+
+	@Test
+	void pedirTurnoOtraVezNoAdelantaPuestos() {
+		for (long usuario = 1; usuario <= RAFAGA; usuario++) {
+			sala.pedirTurno(EVENTO, usuario);
+		}
+		DTOturnoEspera primero = sala.pedirTurno(EVENTO, 100L);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(primero.getToken(), sala.pedirTurno(EVENTO, 100L).getToken());
+		}
+		assertEquals(2, sala.pedirTurno(EVENTO, 101L).getPosicion());
+	}
+
+	@Test
+	void laAdmisionCaduca() {
+		DTOturnoEspera turno = sala.pedirTurno(EVENTO, 1L);
+		assertTrue(turno.isAdmitido());
+
+		avanzar(16 * 60);
+		assertThrows(RuntimeException.class, () -> sala.consultarTurno(turno.getToken()));
+		assertNotEquals(turno.getToken(), sala.pedirTurno(EVENTO, 1L).getToken());
+	}
+
+	@Test
+	void laAdmisionDuraTantoComoLasPlazasRetenidas() {
+		assertTrue(sala.pedirTurno(EVENTO, 1L).isAdmitido());
+
+		// La ventana de 10 minutos se alarga a los 15 de la retención del carrito
+		avanzar(14 * 60);
+		assertTrue(sala.turnoVigente(EVENTO, 1L).isAdmitido());
+
+		// Añadir plazas la renueva
+		sala.renovar(EVENTO, 1L);
+		avanzar(14 * 60);
+		assertTrue(sala.turnoVigente(EVENTO, 1L).isAdmitido());
+		avanzar(2 * 60);
+		assertNull(sala.turnoVigente(EVENTO, 1L));
+	}
+
+	@Test
+	void consultarElTurnoVigenteNoDaTurno() {
+		assertNull(sala.turnoVigente(EVENTO, 1L));
+		assertTrue(sala.pedirTurno(EVENTO, 2L).isAdmitido());
+		for (long usuario = 3; usuario <= RAFAGA + 1; usuario++) {
+			sala.pedirTurno(EVENTO, usuario);
+		}
+		// Los RAFAGA números los tienen los usuarios 2..RAFAGA+1: el 1 no ha gastado ninguno
+		assertNull(sala.turnoVigente(EVENTO, 1L));
+		assertEquals(1, sala.pedirTurno(EVENTO, 1L).getPosicion());
+	}
+
+	@Test
+	void laPurgaDescartaLasColasSinTurnos() {
+		for (long evento = 1; evento <= 100; evento++) {
+			sala.pedirTurno(evento, 1L);
+		}
+		assertEquals(100, sala.colasEnMemoria());
+
+		// Caducados los turnos, la siguiente purga se lleva sus colas
+		avanzar(16 * 60);
+		DTOturnoEspera turno = sala.pedirTurno(EVENTO, 2L);
+		assertTrue(turno.isAdmitido());
+		assertEquals(1, sala.colasEnMemoria());
+
+		// La cola que aún tiene turnos se conserva
+		avanzar(60);
+		sala.pedirTurno(2L, 1L);
+		assertEquals(2, sala.colasEnMemoria());
+		assertTrue(sala.consultarTurno(turno.getToken()).isAdmitido());
+	}
+
+	@Test
+	void unaAvalanchaSoloEntraAlRitmoConfigurado() throws Exception {
+		int compradores = 2_000;
+		ExecutorService hilos = Executors.newFixedThreadPool(64);
+		CountDownLatch salida = new CountDownLatch(1);
+		List<Future<DTOturnoEspera>> turnos = new ArrayList<>();
+		try {
+			for (long usuario = 1; usuario <= compradores; usuario++) {
+				Long id = usuario;
+				turnos.add(hilos.submit(() -> {
+					salida.await();
+					return sala.pedirTurno(EVENTO, id);
+				}));
+			}
+			salida.countDown();
+			long admitidos = 0;
+			for (Future<DTOturnoEspera> turno : turnos) {
+				if (turno.get(30, TimeUnit.SECONDS).isAdmitido()) {
+					admitidos++;
+				}
+			}
+			assertEquals(RAFAGA, admitidos);
+		} finally {
+			hilos.shutdownNow();
+		}
+
+		// Pasados 10 s han entrado exactamente RAFAGA + 10 s * POR_SEGUNDO compradores
+		avanzar(10);
+		long admitidos = 0;
+		for (Future<DTOturnoEspera> turno : turnos) {
+			if (sala.consultarTurno(turno.get().getToken()).isAdmitido()) {
+				admitidos++;
+			}
+		}
+		assertEquals(RAFAGA + 10 * (long) POR_SEGUNDO, admitidos);
+	}
+
+	private void avanzar(long segundos) {
+		reloj.addAndGet(TimeUnit.SECONDS.toNanos(segundos));
+	}
+}
@@ -0,0 +1,132 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tfg.proyecto.TFG.dtos.DTOCambiosBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoSubida;
+import tfg.proyecto.TFG.dtos.DTOticketBajada;
+import tfg.proyecto.TFG.dtos.DTOticketSubida;
+import tfg.proyecto.TFG.modelo.Categoria;
+import tfg.proyecto.TFG.modelo.EntidadCambio;
+import tfg.proyecto.TFG.modelo.OperacionCambio;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Comprueba que el registro de cambios devuelve solo lo modificado desde una versión, sin
+ * saltarse los cambios de transacciones que confirman fuera de orden.
+ */
+@SpringBootTest(properties = "cambios.margen-ms=0")
+class ServicioCambiosTests {
+
+	@Autowired IServicioCambios servicioCambios;
+	@Autowired IServicioEvento servicioEvento;
+	@Autowired IServicioTicket servicioTicket;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired PlatformTransactionManager transactionManager;
+
+	@Test
+	void devuelveSoloLosCambiosPosterioresALaVersion() {
+		Usuario vendedor = usuarioDAO.save(Usuario.builder()
+				.nombre("Vendedor cambios")
+				.email("cambios-" + System.nanoTime() + "@mail.com")
+				.rol(Rol.VENDEDOR)
+				.build());
+		long version = servicioCambios.versionActual();
+
+		DTOeventoSubida dto = new DTOeventoSubida();
+		dto.setNombre("Evento cambios");
+		dto.setLocalizacion("Sevilla");
+		dto.setInicioEvento(LocalDateTime.now().plusDays(3));
+		dto.setFinEvento(LocalDateTime.now().plusDays(3).plusHours(2));
+		dto.setCategoria(Categoria.ARTE);
+		dto.setAforoMax(10);
+		dto.setVendedorId(vendedor.getId());
+		DTOeventoBajada evento = servicioEvento.insert(dto);
+
+		DTOticketBajada vendido = servicioTicket.insert(DTOticketSubida.builder()
+				.usuarioId(vendedor.getId()).eventoId(evento.getId()).precioPagado(5).build());
+		DTOticketBajada anulado = servicioTicket.insert(DTOticketSubida.builder()
+				.usuarioId(vendedor.getId()).eventoId(evento.getId()).precioPagado(5).build());
+		servicioTicket.delete(anulado.getId());
+
+		DTOCambiosBajada cambios = servicioCambios.obtenerCambios(version, null, null);
+
+		assertEquals(1, cambios.getEventos().size());
+		assertEquals("Evento cambios", cambios.getEventos().get(0).getNombre());
+		assertEquals(1, cambios.getTickets().size());
+		assertEquals(vendido.getId(), cambios.getTickets().get(0).getId());
+		assertEquals(vendedor.getId(), cambios.getTickets().get(0).getUsuarioId());
+		assertEquals(evento.getId(), cambios.getTickets().get(0).getEventoId());
+		assertEquals(1, cambios.getTicketsEliminados().size());
+		assertEquals(anulado.getId(), cambios.getTicketsEliminados().get(0));
+		assertEquals(servicioCambios.versionActual(), cambios.getHasta());
+		assertFalse(cambios.isHayMas());
+
+		// Paginación: con límite 1 hay más páginas, y desde la última versión no hay nada
+		assertTrue(servicioCambios.obtenerCambios(version, null, 1).isHayMas());
+		DTOCambiosBajada vacio = servicioCambios.obtenerCambios(cambios.getHasta(), null, null);
+		assertTrue(vacio.getEventos().isEmpty() && vacio.getTickets().isEmpty());
+	}
+
+	@Test
+	void noSeSaltaUnCambioQueSeConfirmaDespuesDeOtroPosterior() throws Exception {
+		long version = servicioCambios.versionActual();
+		CountDownLatch registrado = new CountDownLatch(1);
+		CountDownLatch confirmar = new CountDownLatch(1);
+		TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+		ExecutorService hilo = Executors.newSingleThreadExecutor();
+		try {
+			// Una transacción larga toma la secuencia siguiente y tarda en confirmar...
+			Future<?> lenta = hilo.submit(() -> transaccion.executeWithoutResult(estado -> {
+				servicioCambios.registrar(EntidadCambio.EVENTO, -1L, OperacionCambio.ELIMINADO);
+				registrado.countDown();
+				try {
+					confirmar.await(30, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			assertTrue(registrado.await(30, TimeUnit.SECONDS));
+
+			// ...mientras otra posterior confirma antes: todavía no se sirve ninguna de las dos
+			servicioCambios.registrar(EntidadCambio.EVENTO, -2L, OperacionCambio.ELIMINADO);
+			DTOCambiosBajada antes = servicioCambios.obtenerCambios(version, null, null);
+			assertEquals(version, antes.getHasta());
+			assertTrue(antes.getEventosEliminados().isEmpty());
+			// Ni la versión que se da como punto de partida pasa de la transacción pendiente
+			assertEquals(version, antes.getVersion());
+			assertEquals(version, servicioCambios.versionSegura());
+			assertTrue(servicioCambios.versionActual() > version);
+
+			confirmar.countDown();
+			lenta.get(30, TimeUnit.SECONDS);
+		} finally {
+			confirmar.countDown();
+			hilo.shutdownNow();
+		}
+
+		DTOCambiosBajada despues = servicioCambios.obtenerCambios(version, null, null);
+		assertEquals(List.of(-1L, -2L), despues.getEventosEliminados());
+		assertEquals(servicioCambios.versionActual(), despues.getHasta());
+		assertEquals(servicioCambios.versionActual(), servicioCambios.versionSegura());
+	}
+}
@@ -0,0 +1,137 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoPagina;
+import tfg.proyecto.TFG.modelo.Categoria;
+import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.EventoImagen;
+import tfg.proyecto.TFG.modelo.Invitado;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioEvento;
+import tfg.proyecto.TFG.repositorio.RepositorioEventoImagen;
+import tfg.proyecto.TFG.repositorio.RepositorioInvitado;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Comprueba que los listados de eventos no lanzan una consulta por evento (N+1):
+ * un listado de N eventos debe costar un número constante de sentencias SQL.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ServicioEventoListadoTests {
+
+	private static final int NUM_EVENTOS = 25;
+
+	@Autowired IServicioEvento servicioEvento;
+	@Autowired RepositorioEvento eventoDAO;
+	@Autowired RepositorioEventoImagen eventoImagenDAO;
+	@Autowired RepositorioInvitado invitadoDAO;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired EntityManagerFactory emf;
+	@Autowired CacheEventos cacheEventos;
+
+	private Usuario vendedor;
+
+	@BeforeEach
+	void crearEventos() {
+		// Los eventos se insertan con el repositorio, sin pasar por la invalidación del servicio
+		cacheEventos.invalidarTodo();
+		vendedor = usuarioDAO.save(Usuario.builder()
+				.nombre("Vendedor listado")
+				.email("listado-" + System.nanoTime() + "@mail.com")
+				.rol(Rol.VENDEDOR)
+				.build());
+
+		for (int i = 0; i < NUM_EVENTOS; i++) {
+			Evento evento = eventoDAO.save(Evento.builder()
+					.nombre("Listado " + i)
+					.localizacion("Madrid")
+					.inicioEvento(LocalDateTime.now().plusDays(i))
+					.finEvento(LocalDateTime.now().plusDays(i).plusHours(3))
+					.precio(10)
+					.aforoMax(100)
+					.categoria(Categoria.OTROS)
+					.vendedor(vendedor)
+					.build());
+			eventoImagenDAO.save(EventoImagen.builder().evento(evento).url("/uploads/a" + i + ".png").build());
+			eventoImagenDAO.save(EventoImagen.builder().evento(evento).url("/uploads/b" + i + ".png").build());
+			invitadoDAO.save(Invitado.builder().nombre("Inv " + i).evento(evento).build());
+		}
+	}
+
+	@Test
+	void listarPorCategoriaUsaConsultasConstantes() {
+		Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+		stats.clear();
+
+		List<DTOeventoBajada> eventos = servicioEvento.obtenerPorCategoria(Categoria.OTROS);
+
+		assertTrue(eventos.size() >= NUM_EVENTOS);
+		assertTrue(stats.getPrepareStatementCount() <= 3,
+				"Sentencias ejecutadas: " + stats.getPrepareStatementCount());
+	}
+
+	@Test
+	void listarPorVendedorRellenaCarruselEInvitados() {
+		Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+		stats.clear();
+
+		List<DTOeventoBajada> eventos = servicioEvento.obtenerPorVendedor(vendedor.getId());
+
+		// 1 consulta para validar el vendedor + 3 del listado
+		assertTrue(stats.getPrepareStatementCount() <= 4,
+				"Sentencias ejecutadas: " + stats.getPrepareStatementCount());
+		assertEquals(NUM_EVENTOS, eventos.size());
+		for (DTOeventoBajada dto : eventos) {
+			assertEquals(2, dto.getImagenesCarruselUrls().size());
+			assertEquals(1, dto.getInvitados().size());
+			assertEquals(vendedor.getId(), dto.getVendedorId());
+		}
+	}
+
+	@Test
+	void catalogoRecorreTodasLasPaginasSinRepetir() {
+		LocalDateTime desde = LocalDateTime.now().minusDays(1);
+		Set<Long> vistos = new HashSet<>();
+		LocalDateTime anterior = null;
+		String cursor = null;
+		int paginas = 0;
+
+		do {
+			Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+			stats.clear();
+
+			DTOeventoPagina pagina = servicioEvento.obtenerCatalogo(Categoria.OTROS, desde, null, 7, cursor);
+
+			assertTrue(pagina.getEventos().size() <= 7);
+			assertTrue(stats.getPrepareStatementCount() <= 3,
+					"Sentencias ejecutadas: " + stats.getPrepareStatementCount());
+			for (DTOeventoBajada dto : pagina.getEventos()) {
+				assertTrue(vistos.add(dto.getId()), "Evento repetido: " + dto.getId());
+				assertFalse(anterior != null && dto.getInicioEvento().isBefore(anterior));
+				anterior = dto.getInicioEvento();
+			}
+			cursor = pagina.getSiguienteCursor();
+			paginas++;
+		} while (cursor != null && paginas < 100);
+
+		assertTrue(vistos.size() >= NUM_EVENTOS);
+	}
+}
@@ -0,0 +1,62 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tfg.proyecto.TFG.repositorio.RepositorioEvento;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Comprueba el volcado en JSON Lines de los datos de la IA.
+ */
+@SpringBootTest
+class ServicioExportacionIATests {
+
+	@Autowired IServicioExportacionIA servicioExportacion;
+	@Autowired IServicioCambios servicioCambios;
+	@Autowired RepositorioEvento eventoDAO;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired RepositorioTicket ticketDAO;
+	@Autowired ObjectMapper objectMapper;
+
+	@Test
+	void escribeUnaLineaPorFilaTrasLaVersion() throws Exception {
+		long version = servicioCambios.versionSegura();
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+		servicioExportacion.exportarDatosIA(salida);
+
+		List<JsonNode> lineas = new ArrayList<>();
+		for (String linea : salida.toString(StandardCharsets.UTF_8).split("\n")) {
+			lineas.add(objectMapper.readTree(linea));
+		}
+
+		JsonNode primera = lineas.get(0);
+		assertEquals("version", primera.get("tipo").asText());
+		assertEquals(version, primera.get("version").asLong());
+
+		assertEquals(eventoDAO.count(), contar(lineas, "evento"));
+		assertEquals(usuarioDAO.count(), contar(lineas, "usuario"));
+		assertEquals(ticketDAO.count(), contar(lineas, "ticket"));
+
+		JsonNode evento = lineas.stream().filter(l -> "evento".equals(l.get("tipo").asText())).findFirst().orElseThrow();
+		assertTrue(evento.has("categoria") && evento.has("localizacion"));
+	}
+
+	private static long contar(List<JsonNode> lineas, String tipo) {
+		return lineas.stream().filter(l -> tipo.equals(l.get("tipo").asText())).count();
+	}
+}
@@ -0,0 +1,91 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManagerFactory;
+import tfg.proyecto.TFG.DatosPrueba;
+import tfg.proyecto.TFG.dtos.DTOticketBajada;
+import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioEvento;
+import tfg.proyecto.TFG.repositorio.RepositorioTicket;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Comprueba la emisión de tickets en lote y su uso al finalizar la compra.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ServicioTicketLoteTests {
+
+	@Autowired DatosPrueba datos;
+	@Autowired IServicioTicket servicioTicket;
+	@Autowired IServicioCarrito servicioCarrito;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired RepositorioEvento eventoDAO;
+	@Autowired RepositorioTicket ticketDAO;
+	@Autowired InventarioAforo inventarioAforo;
+	@Autowired EntityManagerFactory entityManagerFactory;
+	@Autowired PlatformTransactionManager transactionManager;
+
+	@Test
+	void emiteVariosTicketsConPocasSentencias() {
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+		Long usuarioId = datos.comprador().getId();
+		Long eventoId = datos.evento(100).getId();
+
+		List<DTOticketBajada> tickets = tx.execute(estado -> {
+			Usuario usuario = usuarioDAO.findById(usuarioId).orElseThrow();
+			Evento evento = eventoDAO.findById(eventoId).orElseThrow();
+			// El contador de aforo de un evento nuevo se carga con una consulta la primera vez
+			inventarioAforo.ocupadas(eventoId);
+
+			estadisticas.clear();
+			return servicioTicket.emitirTickets(usuario, evento, 10, 12.5);
+		});
+
+		// Secuencia (como mucho una consulta por bloque de 50) + un lote de INSERT
+		assertTrue(estadisticas.getPrepareStatementCount() <= 2,
+				"sentencias preparadas: " + estadisticas.getPrepareStatementCount());
+		assertEquals(10, tickets.size());
+
+		Set<Long> ids = new HashSet<>();
+		Set<String> qrs = new HashSet<>();
+		for (DTOticketBajada t : tickets) {
+			ids.add(t.getId());
+			qrs.add(t.getCodigoQR());
+			assertEquals(12.5, t.getPrecioPagado());
+			assertTrue(ticketDAO.existsById(t.getId()));
+		}
+		assertEquals(10, ids.size());
+		assertEquals(10, qrs.size());
+	}
+
+	@Test
+	void finalizarCompraEmiteUnTicketPorUnidad() {
+		Usuario usuario = datos.comprador();
+		Evento evento = datos.evento(100);
+
+		servicioCarrito.agregarItemAlCarrito(usuario.getId(), evento.getId(), 3);
+		servicioCarrito.finalizarCompra(usuario.getId());
+
+		assertEquals(3, ticketDAO.findByUsuarioId(usuario.getId()).size());
+		assertEquals(0, new BigDecimal("970.0").compareTo(
+				usuarioDAO.findById(usuario.getId()).orElseThrow().getTarjeta().getSaldo()));
+	}
+}
@@ -0,0 +1,69 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import tfg.proyecto.TFG.dtos.DTOticketBajada;
+import tfg.proyecto.TFG.dtos.DTOticketSubida;
+import tfg.proyecto.TFG.modelo.Categoria;
+import tfg.proyecto.TFG.modelo.Evento;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.TarjetaBancaria;
+import tfg.proyecto.TFG.modelo.Usuario;
+import tfg.proyecto.TFG.repositorio.RepositorioEvento;
+import tfg.proyecto.TFG.repositorio.RepositorioUsuario;
+
+/**
+ * Comprueba que la imagen del QR se dibuja al pedirla y se sirve después desde caché.
+ */
+@SpringBootTest
+class ServicioTicketQRTests {
+
+	private static final byte[] CABECERA_PNG = { (byte) 0x89, 'P', 'N', 'G' };
+
+	@Autowired IServicioTicket servicioTicket;
+	@Autowired RepositorioUsuario usuarioDAO;
+	@Autowired RepositorioEvento eventoDAO;
+
+	@Test
+	void dibujaElQRAlPedirloYLoCachea() {
+		Usuario usuario = usuarioDAO.save(Usuario.builder()
+				.nombre("Comprador QR")
+				.email("qr-" + System.nanoTime() + "@mail.com")
+				.rol(Rol.CLIENTE)
+				.tarjeta(TarjetaBancaria.builder().saldo(BigDecimal.valueOf(1000.0)).build())
+				.build());
+		Evento evento = eventoDAO.save(Evento.builder()
+				.nombre("Evento QR")
+				.localizacion("Valencia")
+				.inicioEvento(LocalDateTime.now().plusDays(1))
+				.finEvento(LocalDateTime.now().plusDays(1).plusHours(3))
+				.categoria(Categoria.MUSICA)
+				.precio(10.0)
+				.aforoMax(100)
+				.build());
+		DTOticketBajada ticket = servicioTicket.insert(DTOticketSubida.builder()
+				.usuarioId(usuario.getId()).eventoId(evento.getId()).precioPagado(5).build());
+
+		assertEquals(ServicioTicketImpl.RUTA_IMAGEN_QR + ticket.getContenidoQR() + ".png", ticket.getCodigoQR());
+
+		byte[] png = servicioTicket.obtenerImagenQR(ticket.getContenidoQR());
+		assertArrayEquals(CABECERA_PNG, Arrays.copyOf(png, 4));
+		assertSame(png, servicioTicket.obtenerImagenQR(ticket.getContenidoQR()));
+	}
+
+	@Test
+	void qrDesconocidoNoSeDibuja() {
+		assertThrows(RuntimeException.class, () -> servicioTicket.obtenerImagenQR("no-existe"));
+	}
+}
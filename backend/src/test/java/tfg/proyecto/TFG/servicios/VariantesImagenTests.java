@@ -0,0 +1,153 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import tfg.proyecto.TFG.config.RutasImagenes;
+import tfg.proyecto.TFG.dtos.DTOInvitadoBajada;
+import tfg.proyecto.TFG.dtos.DTOeventoBajada;
+
+/**
+ * Comprueba que se generan las versiones reducidas de las imágenes y que, mientras no existen,
+ * sus URLs sirven el original.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:variantes")
+@AutoConfigureMockMvc
+class VariantesImagenTests {
+
+	private static final Path RAIZ = Paths.get(System.getProperty("user.dir"));
+
+	@Autowired VariantesImagen variantesImagen;
+	@Autowired AlmacenImagenes almacenImagenes;
+	@Autowired ServicioImagenImpl servicioImagen;
+	@Autowired MockMvc mockMvc;
+
+	private final List<String> creadas = new ArrayList<>();
+
+	@AfterEach
+	void borrarImagenes() throws IOException {
+		for (String ruta : creadas) {
+			Files.deleteIfExists(enDisco(ruta));
+			for (String variante : RutasImagenes.urls(ruta).values()) {
+				Files.deleteIfExists(enDisco(variante));
+			}
+		}
+	}
+
+	@Test
+	void generaVariantesMuchoMasLigeras() throws IOException {
+		byte[] png = png(2000, 1200);
+		String ruta = guardada(almacenImagenes.guardar(png, "foto"));
+
+		assertEquals(2, variantesImagen.generar(ruta));
+		assertEquals(0, variantesImagen.generar(ruta));
+
+		Map<Integer, String> variantes = RutasImagenes.urls(ruta);
+		BufferedImage miniatura = ImageIO.read(enDisco(variantes.get(320)).toFile());
+		BufferedImage mediana = ImageIO.read(enDisco(variantes.get(960)).toFile());
+		assertEquals(320, miniatura.getWidth());
+		assertEquals(192, miniatura.getHeight());
+		assertEquals(960, mediana.getWidth());
+		assertEquals(576, mediana.getHeight());
+		long bytesMiniatura = Files.size(enDisco(variantes.get(320)));
+		System.out.println("[IMAGENES] Original " + png.length + " bytes, miniatura " + bytesMiniatura + " bytes");
+		assertTrue(bytesMiniatura * 10 < png.length);
+
+		// Una imagen más estrecha que la variante no se amplía
+		String pequena = guardada(almacenImagenes.guardar(png(200, 100), "icono"));
+		variantesImagen.generar(pequena);
+		assertEquals(200, ImageIO.read(enDisco(RutasImagenes.urls(pequena).get(960)).toFile()).getWidth());
+	}
+
+	@Test
+	void lasSubidasProgramanSusVariantesYLosDTOsLasExponen() throws Exception {
+		String ruta = guardada(servicioImagen.guardarImagenBase64(
+				Base64.getEncoder().encodeToString(png(800, 600))));
+		Path miniatura = enDisco(RutasImagenes.urls(ruta).get(320));
+		for (int i = 0; i < 100 && !Files.exists(miniatura); i++) {
+			Thread.sleep(100);
+		}
+		assertTrue(Files.exists(miniatura));
+
+		DTOInvitadoBajada invitado = DTOInvitadoBajada.builder().fotoURL(ruta).build();
+		assertEquals(RutasImagenes.urls(ruta), invitado.getFotoVariantes());
+		DTOeventoBajada evento = DTOeventoBajada.builder()
+				.imagenPrincipalUrl("https://cdn.ejemplo.com/portada.jpg")
+				.imagenesCarruselUrl(ruta)
+				.build();
+		assertTrue(evento.getImagenPrincipalVariantes().isEmpty());
+		assertEquals(List.of(RutasImagenes.urls(ruta)), evento.getImagenesCarruselVariantes());
+	}
+
+	@Test
+	void sinVarianteSeSirveElOriginal() throws Exception {
+		byte[] png = png(400, 300);
+		String ruta = guardada(almacenImagenes.guardar(png, "foto"));
+		String miniatura = RutasImagenes.urls(ruta).get(320);
+
+		mockMvc.perform(get(miniatura))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("image/png"))
+				.andExpect(content().bytes(png));
+
+		variantesImagen.generar(ruta);
+		byte[] jpeg = mockMvc.perform(get(miniatura))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("image/jpeg"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertArrayEquals(Files.readAllBytes(enDisco(miniatura)), jpeg);
+
+		mockMvc.perform(get("/uploads/img/00/00/" + "0".repeat(64) + "_320.jpg")).andExpect(status().isNotFound());
+	}
+
+	private String guardada(String ruta) {
+		creadas.add(ruta);
+		return ruta;
+	}
+
+	private static Path enDisco(String ruta) {
+		return RAIZ.resolve(ruta.substring(1));
+	}
+
+	/**
+	 * PNG con degradado y ruido, para que pese como una foto.
+	 */
+	private static byte[] png(int ancho, int alto) throws IOException {
+		BufferedImage imagen = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+		Random aleatorio = new Random();
+		for (int y = 0; y < alto; y++) {
+			for (int x = 0; x < ancho; x++) {
+				int ruido = aleatorio.nextInt(32);
+				imagen.setRGB(x, y, ((x * 255 / ancho) << 16) | ((y * 255 / alto) << 8) | (128 + ruido));
+			}
+		}
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		ImageIO.write(imagen, "png", salida);
+		return salida.toByteArray();
+	}
+}
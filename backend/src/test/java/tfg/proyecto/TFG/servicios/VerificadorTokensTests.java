@@ -0,0 +1,84 @@
+package tfg.proyecto.TFG.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import tfg.proyecto.TFG.DatosPrueba;
+import tfg.proyecto.TFG.config.JwtUtil;
+import tfg.proyecto.TFG.modelo.Rol;
+import tfg.proyecto.TFG.modelo.Usuario;
+
+/**
+ * Comprueba que cada token se verifica una sola vez y que los cambios del usuario se notan.
+ */
+// Base de datos propia: este contexto no debe recrear la de los contextos que ya están en caché
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.datasource.url=jdbc:h2:mem:sesiones" })
+class VerificadorTokensTests {
+
+	@Autowired DatosPrueba datos;
+	@Autowired VerificadorTokens verificadorTokens;
+	@Autowired IServicioUsuario servicioUsuario;
+	@Autowired EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void unTokenYaVerificadoNoConsultaLaBaseDeDatos() {
+		Usuario usuario = datos.comprador();
+		String token = JwtUtil.generateToken(usuario.getEmail());
+
+		UsuarioAutenticado primero = verificadorTokens.verificar(token);
+		assertNotNull(primero);
+		assertEquals(usuario.getId(), primero.getId());
+		assertEquals(Rol.CLIENTE, primero.getRol());
+
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+		for (int i = 0; i < 1_000; i++) {
+			assertSame(primero, verificadorTokens.verificar(token));
+		}
+		assertEquals(0, estadisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void rechazaTokensAlteradosYUsuariosInexistentes() {
+		Usuario usuario = datos.comprador();
+		String token = JwtUtil.generateToken(usuario.getEmail());
+		int punto = token.lastIndexOf('.');
+		char c = token.charAt(punto + 1);
+		String alterado = token.substring(0, punto + 1) + (c == 'A' ? 'B' : 'A') + token.substring(punto + 2);
+
+		assertNull(verificadorTokens.verificar(alterado));
+		assertNull(verificadorTokens.verificar("no.es.un-token"));
+		assertNull(verificadorTokens.verificar(JwtUtil.generateToken("nadie-" + System.nanoTime() + "@mail.com")));
+		assertNull(servicioUsuario.validarTokenYObtenerPerfil(token));
+		assertNotNull(servicioUsuario.validarTokenYObtenerPerfil("Bearer " + token));
+	}
+
+	@Test
+	void reportarOEliminarAlUsuarioInvalidaSusTokens() {
+		Usuario usuario = datos.comprador();
+		String token = JwtUtil.generateToken(usuario.getEmail());
+		assertEquals(usuario.getEmail(), servicioUsuario.validarTokenYObtenerPerfil("Bearer " + token).getEmail());
+
+		servicioUsuario.reportarUsuario(usuario.getEmail());
+		assertTrue(verificadorTokens.verificar(token).isReportado());
+		assertNull(servicioUsuario.validarTokenYObtenerPerfil("Bearer " + token));
+
+		servicioUsuario.quitarReport(usuario.getEmail());
+		assertNotNull(servicioUsuario.validarTokenYObtenerPerfil("Bearer " + token));
+
+		servicioUsuario.deleteById(usuario.getId());
+		assertNull(verificadorTokens.verificar(token));
+	}
+}
@@ -28,5 +28,8 @@ interface CarritoApiService {
     suspend fun vaciarCarrito(@Path("usuarioId") usuarioId: Long): Response<Unit>
 
     @POST("tfg/carrito/finalizar/{usuarioId}")
-    suspend fun finalizarCompra(@Path("usuarioId") usuarioId: Long): Response<Unit>
+    suspend fun finalizarCompra(
+        @Path("usuarioId") usuarioId: Long,
+        @Header("Idempotency-Key") claveIdempotencia: String
+    ): Response<Unit>
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.example.appmovilshowpass.data.remote.api
 import com.example.appmovilshowpass.data.local.BASE_URL //
+import okhttp3.Interceptor
 import okhttp3.OkHttpClient
 import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Retrofit
@@ -13,9 +14,25 @@ object RetrofitClient {
         level = HttpLoggingInterceptor.Level.BODY
     }
 
-    // Cliente HTTP configurado con el interceptor anterior.
+    // Token JWT de la sesión actual; lo fija AuthViewModel al iniciar o recuperar la sesión.
+    @Volatile
+    var token: String? = null
+
+    // Adjunta el token a las peticiones del carrito: el backend exige sesión para modificarlo.
+    private val autenticacion = Interceptor { chain ->
+        val peticion = chain.request()
+        val actual = token
+        if (actual.isNullOrEmpty() || !peticion.url.encodedPath.contains("/tfg/carrito/")) {
+            chain.proceed(peticion)
+        } else {
+            chain.proceed(peticion.newBuilder().header("Authorization", "Bearer $actual").build())
+        }
+    }
+
+    // Cliente HTTP configurado con los interceptores anteriores.
     // OkHttpClient es la base sobre la que Retrofit ejecuta las peticiones.
     private val client = OkHttpClient.Builder()
+        .addInterceptor(autenticacion)
         .addInterceptor(logging)
         .build()
 
@@ -13,8 +13,11 @@ data class DTOeventoBajada(
     val finEvento: String? = null,
     val invitados: List<DTOInvitado>? = emptyList(),
     val imagenPrincipalUrl: String? = null,
+    // Versiones reducidas por ancho ("320", "960"); vacías si la imagen no tiene
+    val imagenPrincipalVariantes: Map<String, String>? = null,
     val descripcion: String? = null,
     val imagenesCarruselUrls: List<String>? = emptyList(),
+    val imagenesCarruselVariantes: List<Map<String, String>>? = emptyList(),
     val precio: Double = 0.0,
     val categoria: Categoria? = Categoria.OTROS,
     val aforo: Int,
@@ -38,8 +41,12 @@ fun DTOeventoBajada.toEvento(): Evento {
             )
         } ?: emptyList(),
         imagen = construirUrlImagen(imagenPrincipalUrl),
+        miniatura = construirUrlImagen(imagenPrincipalVariantes?.get("320")),
         descripcion = descripcion ?: "",
-        imagenesCarruselUrls = imagenesCarruselUrls?.map { construirUrlImagen(it) } ?: emptyList(),
+        // En pantalla de móvil basta con la variante de 960 px
+        imagenesCarruselUrls = imagenesCarruselUrls?.mapIndexed { i, url ->
+            construirUrlImagen(imagenesCarruselVariantes?.getOrNull(i)?.get("960") ?: url)
+        } ?: emptyList(),
         precio = precio,
         categoria = categoria ?: Categoria.OTROS,
         aforoMax = aforo,
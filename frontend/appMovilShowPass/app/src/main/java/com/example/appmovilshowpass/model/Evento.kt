@@ -8,6 +8,7 @@ data class Evento(
     val localizacion: String,
     val invitados: List<Invitado> = emptyList(),
     val imagen: String,
+    val miniatura: String = "",    // versión de 320 px de la portada, para los listados
     val inicioEvento: String,      // mejor manejarlo como String y luego parsear a LocalDateTime
     val finEvento: String,
     val descripcion: String,
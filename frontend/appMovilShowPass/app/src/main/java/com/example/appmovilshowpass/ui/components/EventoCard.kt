@@ -74,7 +74,7 @@ fun EventoCard(evento: Evento, navController: NavController) {
              */
             if (evento.imagen.isNotEmpty()) {
                 Image(
-                    painter = rememberAsyncImagePainter(evento.imagen),
+                    painter = rememberAsyncImagePainter(evento.miniatura.ifEmpty { evento.imagen }),
                     contentDescription = evento.nombre,
                     modifier = Modifier
                         .padding(0.dp)
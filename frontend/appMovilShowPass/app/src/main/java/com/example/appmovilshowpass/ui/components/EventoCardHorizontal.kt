@@ -93,7 +93,7 @@ fun EventoCardHorizontal(evento: Evento, modifier: Modifier = Modifier) {
                     contentAlignment = Alignment.Center
                 ) {
                     Image(
-                        painter = rememberAsyncImagePainter(evento.imagen),
+                        painter = rememberAsyncImagePainter(evento.miniatura.ifEmpty { evento.imagen }),
                         contentDescription = evento.nombre,
                         modifier = Modifier.fillMaxSize(),
                         contentScale = ContentScale.Crop,
@@ -294,6 +294,10 @@ fun construirUrlImagen(ruta: String?): String {
         ruta.startsWith("/uploads/") ->
             SERVER_BASE_URL_FOTOS + ruta
 
+        // Imágenes servidas por la API (p. ej. el QR de un ticket: /tfg/ticket/qr/...)
+        ruta.startsWith("/tfg/") ->
+            SERVER_BASE_URL_FOTOS + ruta
+
         ruta.startsWith("uploads/") ->
             "$SERVER_BASE_URL_FOTOS/$ruta"
 
@@ -49,6 +49,7 @@ class AuthViewModel : ViewModel() {
      * Se utiliza tras un login exitoso para mantener la sesión activa.
      */
     private fun saveToken(context: Context, token: String) {
+        RetrofitClient.token = token
         viewModelScope.launch {
             context.dataStore.edit { prefs ->
                 prefs[UserPreferencesKeys.USER_TOKEN] = token
@@ -71,6 +72,7 @@ class AuthViewModel : ViewModel() {
      * Se usa en logout y también cuando el token es inválido o expirado.
      */
     private fun clearSession(context: Context) {
+        RetrofitClient.token = null
         viewModelScope.launch {
             context.dataStore.edit { prefs ->
                 prefs.remove(UserPreferencesKeys.USER_TOKEN)
@@ -85,6 +87,7 @@ class AuthViewModel : ViewModel() {
      * Elimina token y foto almacenados en DataStore.
      */
     fun logout(context: Context) {
+        RetrofitClient.token = null
         viewModelScope.launch {
             context.dataStore.edit { prefs ->
                 prefs.remove(UserPreferencesKeys.USER_TOKEN)
@@ -340,6 +343,7 @@ class AuthViewModel : ViewModel() {
                                     saveUserPhoto(context, user.foto)
                                 }
 
+                                RetrofitClient.token = token
                                 currentUser = user
                             } else {
                                 currentUser = null
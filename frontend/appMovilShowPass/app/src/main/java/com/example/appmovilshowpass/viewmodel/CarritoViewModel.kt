@@ -15,6 +15,7 @@ import com.example.appmovilshowpass.utils.generarTicketPdf
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.launch
+import java.util.UUID
 
 
 
@@ -37,6 +38,10 @@ class CarritoViewModel : ViewModel() {
     private val _eventosComprados = MutableStateFlow<List<Evento>>(emptyList())
     val eventosComprados: StateFlow<List<Evento>> get() = _eventosComprados
 
+    // Clave de idempotencia de la compra en curso: se reutiliza en los reintentos y pulsaciones
+    // repetidas del botón de comprar, y se descarta cuando la compra se confirma.
+    private var claveCompra: String? = null
+
     /**
      * Carga el carrito del usuario desde el backend.
      * Convierte el DTO recibido a modelo Carrito y actualiza el total.
@@ -137,6 +142,8 @@ class CarritoViewModel : ViewModel() {
      * Finaliza la compra del usuario.
      * Primero se notifica al backend, luego se vacía el carrito local
      * y finalmente se ejecuta la acción de éxito proporcionada por la UI.
+     * Todos los intentos de una misma compra envían la misma clave de idempotencia,
+     * así que el backend no cobra dos veces aunque se pulse el botón repetidamente.
      */
     fun finalizarCompra(
         usuarioId: Long,
@@ -145,7 +152,13 @@ class CarritoViewModel : ViewModel() {
         viewModelScope.launch {
             try {
                 // Notifica al backend para generar la compra y los tickets.
-                RetrofitClient.carritoApiService.finalizarCompra(usuarioId)
+                val clave = claveCompra ?: UUID.randomUUID().toString().also { claveCompra = it }
+                val respuesta = RetrofitClient.carritoApiService.finalizarCompra(usuarioId, clave)
+                if (!respuesta.isSuccessful) {
+                    Log.e("CarritoVM", "Error al finalizar compra: HTTP ${respuesta.code()}")
+                    return@launch
+                }
+                claveCompra = null
 
                 // Limpia el carrito local.
                 vaciarCarrito(usuarioId)
@@ -68,18 +68,13 @@ const AddEventSection = () => {
         const { name, value, files } = e.target;
         const nuevosInvitados = [...formData.invitados];
 
-        // Si se carga una foto, se debe convertir a Base64 para previsualizarla o almacenarla.
+        // Si se carga una foto, se guarda el archivo: se envía como parte multipart, sin pasar a Base64.
         if (files) {
-            const reader = new FileReader();
-            reader.onloadend = () => {
-                // Actualiza el objeto invitado con el Base64 (Data URL) de la foto.
-                nuevosInvitados[index] = {
-                    ...nuevosInvitados[index],
-                    [name]: reader.result // Data URL de la imagen
-                };
-                setFormData((prev) => ({ ...prev, invitados: nuevosInvitados }));
+            nuevosInvitados[index] = {
+                ...nuevosInvitados[index],
+                fotoArchivo: files[0]
             };
-            reader.readAsDataURL(files[0]);
+            setFormData((prev) => ({ ...prev, invitados: nuevosInvitados }));
         } else {
             nuevosInvitados[index] = {
                 ...nuevosInvitados[index],
@@ -150,8 +145,11 @@ const AddEventSection = () => {
             // Múltiples archivos de carrusel (el backend debe procesar esta lista)
             formData.carrusels.forEach((file) => payload.append("carrusels", file));
 
-            // Datos anidados: Invitados (debe enviarse como cadena JSON)
-            payload.append("invitados", JSON.stringify(formData.invitados));
+            // Datos anidados: Invitados (debe enviarse como cadena JSON, sin los archivos)
+            payload.append("invitados", JSON.stringify(formData.invitados.map(({ fotoArchivo, ...invitado }) => invitado)));
+
+            // Fotos de invitados en el mismo orden que la lista (parte vacía si no tiene foto)
+            formData.invitados.forEach((invitado) => payload.append("fotosInvitados", invitado.fotoArchivo || new Blob()));
 
             // 4. Envío de la petición
             const res = await fetch(`${config.apiBaseUrl}/tfg/evento/insert`, {
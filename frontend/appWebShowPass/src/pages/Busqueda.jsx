@@ -87,7 +87,7 @@ export default function BusquedaEventos() {
                         <Link to={`/evento/${evento.id}`} className="w-full sm:w-full [@media(min-width:978px)]:w-130 lg:w-120 flex-shrink-0">
                             <div className="w-full h-90 aspect-square overflow-hidden flex items-center justify-center bg-gray-200">
                                 <img
-                                    src={getImageSrc(evento.imagenPrincipalUrl)}
+                                    src={getImageSrc(evento.imagenPrincipalVariantes?.[320] ?? evento.imagenPrincipalUrl)}
                                     alt={evento.nombre}
                                     className="w-full h-full object-cover transition duration-500 group-hover:opacity-70"
                                 />
@@ -1,4 +1,4 @@
-import { useEffect, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import config from "../config/config";
 import { descargarPDF, enviarPDF } from "../utils/entradasPdf";
 import { getImageSrc } from "../utils/imageUtils";
@@ -28,6 +28,9 @@ export default function ShoppingCart() {
   const [totalCompra, setTotalCompra] = useState([]);
   // Estado para controlar el orden de visualización de los tickets comprados (Recientes/Antiguos).
   const [reverseOrder, setReverseOrder] = useState(true); // NUEVA VARIABLE
+  // Clave de idempotencia de la compra en curso: se reutiliza en los reintentos y pulsaciones
+  // repetidas del botón de comprar, y se descarta cuando la compra se confirma.
+  const claveCompra = useRef(null);
 
   // ----------------------------------------------------
   // 2. RECUPERACIÓN DE DATOS DEL USUARIO (localStorage)
@@ -95,6 +98,7 @@ export default function ShoppingCart() {
       // Petición DELETE para eliminar un ítem del carrito.
       const res = await fetch(`${config.apiBaseUrl}/tfg/carrito/itemEliminar/${usuarioId}/${itemId}`, {
         method: "DELETE",
+        headers: { Authorization: `Bearer ${localStorage.getItem("token")}` },
       });
       if (!res.ok) throw new Error("Error eliminando evento");
       // Recibe el carrito actualizado como respuesta.
@@ -119,7 +123,7 @@ export default function ShoppingCart() {
     try {
       // Petición DELETE para vaciar el carrito.
       const res = await fetch(`${config.apiBaseUrl}/tfg/carrito/vaciar/${usuarioId}`,
-        { method: "DELETE" });
+        { method: "DELETE", headers: { Authorization: `Bearer ${localStorage.getItem("token")}` } });
       if (!res.ok) throw new Error("Error vaciando carrito");
       const data = await res.json();
       setCarrito(data);
@@ -132,15 +136,23 @@ export default function ShoppingCart() {
 
   /**
   * Finaliza la compra, convirtiendo el contenido del carrito en tickets.
+  * Todos los intentos de una misma compra envían la misma clave de idempotencia,
+  * así que el backend no cobra dos veces aunque se pulse el botón repetidamente.
   */
   const finalizarCompra = async () => {
     try {
+      if (!claveCompra.current) claveCompra.current = crypto.randomUUID();
       // Petición POST para finalizar la compra.
-      const res = await fetch(`${config.apiBaseUrl}/tfg/carrito/finalizar/${carritoId}`, {
-        method: "POST"
+      const res = await fetch(`${config.apiBaseUrl}/tfg/carrito/finalizar/${usuarioId}`, {
+        method: "POST",
+        headers: {
+          Authorization: `Bearer ${localStorage.getItem("token")}`,
+          "Idempotency-Key": claveCompra.current,
+        },
       });
 
       if (!res.ok) throw new Error("Error al finalizar la compra");
+      claveCompra.current = null;
       console.log("Enviando datos de compra:", JSON.stringify(res));
 
       // 1. Obtener los tickets recién comprados
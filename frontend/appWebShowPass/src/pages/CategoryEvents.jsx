@@ -95,7 +95,7 @@ export default function CategoriaEventos() {
           >
             {/* Imagen del evento */}
             <img
-              src={getImageSrc(evento.imagenPrincipalUrl)}
+              src={getImageSrc(evento.imagenPrincipalVariantes?.[320] ?? evento.imagenPrincipalUrl)}
               alt={evento.nombre}
               className="w-full h-80 object-cover"
             />
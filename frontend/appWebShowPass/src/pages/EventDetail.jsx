@@ -108,7 +108,11 @@ export default function EventDetail() {
         `${config.apiBaseUrl}/tfg/carrito/item/${usuarioId}/${eventoId}`,
         {
           method: "POST",
-          headers: { "Content-Type": "application/json" },
+          headers: {
+            "Content-Type": "application/json",
+            // Modificar el carrito exige la sesión del usuario
+            Authorization: `Bearer ${localStorage.getItem("token")}`,
+          },
           body: JSON.stringify({ cantidad: cantidadSeleccionada }),
         }
       );
@@ -155,7 +155,7 @@ export default function VentanaPrincipal() {
                 <div className="relative w-full ">
                   {/* Usamos getImageSrc para asegurar que la imagen sea válida */}
                   <img
-                    src={getImageSrc(primerEvento.imagenPrincipalUrl)}
+                    src={getImageSrc(primerEvento.imagenPrincipalVariantes?.[960] ?? primerEvento.imagenPrincipalUrl)}
                     alt={primerEvento.nombre}
                     className="w-full h-100 object-cover transition duration-500 group-hover:opacity-70"
                   />
@@ -205,7 +205,7 @@ export default function VentanaPrincipal() {
             <Link to={`/evento/${entrada.id}`}>
               <div className="relative w-full h-80 ">
                 <img
-                  src={getImageSrc(entrada.imagenPrincipalUrl)}
+                  src={getImageSrc(entrada.imagenPrincipalVariantes?.[320] ?? entrada.imagenPrincipalUrl)}
                   alt={entrada.nombre}
                   className="w-full h-80 object-cover transition duration-500 group-hover:opacity-70"
                 />
@@ -4,15 +4,18 @@
 #   1) SVD (Surprise) – Filtrado colaborativo basado en historial (tickets)
 #   2) TF-IDF + Cosine Similarity – Recomendación por similitud de contenido
 #
-# También soporta auto-reentrenamiento automático cuando cambia el número
-# de tickets en la base de datos (backend Spring).
+# También soporta auto-reentrenamiento automático cuando cambian los datos
+# del backend Spring: se consulta su versión y solo se descargan los cambios.
 #
-# Se conecta al backend Spring Boot, que envía:
-#   - usuarios (con lista de tickets)
+# Se conecta al backend Spring Boot, que envía en streaming:
+#   - usuarios
 #   - eventos
+#   - tickets
 #
 # El microservicio reconstruye una tabla PLANA de tickets para entrenar SVD.
 
+import json
+
 from fastapi import FastAPI
 import requests
 import pandas as pd
@@ -20,8 +23,12 @@ from surprise import SVD, Dataset, Reader
 from sklearn.feature_extraction.text import TfidfVectorizer
 from sklearn.metrics.pairwise import cosine_similarity
 
-# URL del backend Spring Boot
-SPRING_URL = "http://backend:8080/tfg/utilidades/data"
+# URLs del backend Spring Boot
+SPRING_BASE = "http://backend:8080/tfg/utilidades"
+SPRING_URL = SPRING_BASE + "/data"          # volcado completo en un único JSON
+SPRING_STREAM = SPRING_URL + "/stream"      # volcado completo en JSON Lines (solo la primera vez)
+SPRING_VERSION = SPRING_BASE + "/version"   # versión actual de los datos (consulta barata)
+SPRING_CAMBIOS = SPRING_BASE + "/cambios"   # cambios desde una versión
 
 # Inicializa FastAPI
 app = FastAPI(title="Microservicio de Recomendaciones")
@@ -34,46 +41,52 @@ usuarios = None            # DataFrame usuarios
 eventos = None             # DataFrame eventos
 tickets = None             # DataFrame plano de tickets reconstruido
 
-# Para detectar si hay nuevos tickets y reentrenar
-ultimo_num_tickets = 0
-ultimo_num_eventos = 0   # <--- detecta creación/eliminación de eventos
-ultimo_hash_texto = ""   # <--- detecta cambios en nombre/desc/categoria/localizacion
+# Versión de los datos del backend con la que se entrenaron los modelos
+version_datos = None
 
 #  1) FUNCIÓN PARA OBTENER DATOS DESDE SPRING
 
 def obtener_datos():
     """
-    Llama al endpoint del backend Spring Boot y obtiene:
-      - usuarios (cada uno con su lista de tickets)
-      - eventos completos
+    Descarga el volcado completo del backend Spring Boot en streaming (JSON Lines):
+    una línea por evento, invitado, usuario y ticket, precedidas por la versión.
 
     Reconstruye un DataFrame plano de tickets:
-        usuario_id | evento_id
-    """
+        id | usuario_id | evento_id
 
-    response = requests.get(SPRING_URL)
-    data = response.json()
-
-    usuarios_df = pd.DataFrame(data["usuarios"])
-    eventos_df = pd.DataFrame(data["eventos"])
+    Devuelve también la versión de los datos del volcado.
+    """
 
+    usuarios_list = []
+    eventos_list = []
     tickets_list = []
-
-    # Los tickets vienen dentro de cada usuario
-    for u in data["usuarios"]:
-
-        if "tickets" in u and u["tickets"]:  # si el usuario tiene tickets
-
-            for t in u["tickets"]:
-                tickets_list.append({
-                    "usuario_id": t["usuarioId"],
-                    "evento_id": t["eventoId"]
-                })
-
-    # Convertimos la lista a DataFrame obligatorio para SVD
-    tickets_df = pd.DataFrame(tickets_list, columns=["usuario_id", "evento_id"])
-
-    return usuarios_df, eventos_df, tickets_df
+    version = 0
+
+    # Se procesa línea a línea según llega, sin cargar la respuesta entera
+    with requests.get(SPRING_STREAM, stream=True) as response:
+        response.raise_for_status()
+        for linea in response.iter_lines():
+            if not linea:
+                continue
+            fila = json.loads(linea)
+            tipo = fila.pop("tipo")
+
+            if tipo == "ticket":
+                tickets_list.append((fila["id"], fila["usuarioId"], fila["eventoId"]))
+            elif tipo == "usuario":
+                usuarios_list.append(fila)
+            elif tipo == "evento":
+                eventos_list.append(fila)
+            elif tipo == "version":
+                version = fila["version"]
+
+    usuarios_df = pd.DataFrame(usuarios_list, columns=["id", "nombre"])
+    eventos_df = pd.DataFrame(eventos_list, columns=["id", "nombre", "categoria", "descripcion", "localizacion"])
+
+    # DataFrame plano de tickets, obligatorio para SVD
+    tickets_df = pd.DataFrame(tickets_list, columns=["id", "usuario_id", "evento_id"])
+
+    return usuarios_df, eventos_df, tickets_df, version
 
 #  2) ENTRENAMIENTO DE LOS MODELOS (SVD y TF-IDF)
 
@@ -84,11 +97,18 @@ def entrenar_modelos():
       - Similitud por contenido (TF-IDF + Coseno)
     """
 
-    global model_svd, matriz_similitud, vectorizer, usuarios, eventos, tickets
+    global usuarios, eventos, tickets, version_datos
 
     print("\n[IA] Cargando datos y entrenando modelos...")
 
-    usuarios, eventos, tickets = obtener_datos()
+    usuarios, eventos, tickets, version_datos = obtener_datos()
+    entrenar_con_datos_actuales()
+
+
+def entrenar_con_datos_actuales():
+    """ Entrena SVD y TF-IDF con los DataFrames globales ya cargados. """
+
+    global model_svd, matriz_similitud, vectorizer
 
     #  1) MODELO SVD
     if not tickets.empty:
@@ -125,60 +145,77 @@ def entrenar_modelos():
 
 
 
-#  3) AUTOENTRENAMIENTO SI CAMBIAN LOS TICKETS
+#  3) AUTOENTRENAMIENTO SI CAMBIAN LOS DATOS
 
 def recargar_si_hay_cambios():
     """
-    AUTO-REENTRENAMIENTO INTELIGENTE
+    AUTO-REENTRENAMIENTO INCREMENTAL
 
-    Reentrena modelos solo si:
-     cambia número de tickets
-     cambia número de eventos
-     cambia contenido textual de eventos (nombre, desc, categoria, localización)
+    1) La primera vez descarga el volcado completo (/data) y entrena.
+    2) Después solo pregunta la versión de los datos (/version), que es muy barato.
+    3) Si ha cambiado, descarga únicamente los cambios (/cambios), los aplica
+       a los DataFrames y reentrena.
 
-    Así evitamos:
-     errores 500 al crear eventos nuevos
-     tener modelos desactualizados
-     reentrenar todo cada llamada (muy caro)
+    Así evitamos descargar todos los usuarios, tickets y eventos en cada petición.
     """
 
-    global ultimo_num_tickets, ultimo_num_eventos, ultimo_hash_texto
-    global usuarios, eventos, tickets
+    if eventos is None or version_datos is None:
+        entrenar_modelos()
+        return
 
-    usuarios_df, eventos_df, tickets_df = obtener_datos()
+    try:
+        version = requests.get(SPRING_VERSION, timeout=2).json()["version"]
+    except requests.RequestException as e:
+        print("[IA] Backend no disponible, se mantiene el modelo actual:", e)
+        return
 
-    #  1) detectar cambios en tickets 
-    cambio_tickets = len(tickets_df) != ultimo_num_tickets
+    if version == version_datos:
+        return
 
-    #  2) detectar cambios en número de eventos 
-    cambio_num_eventos = len(eventos_df) != ultimo_num_eventos
+    if aplicar_cambios():
+        print("\n[IA] CAMBIO DETECTADO → reentrenando modelos...")
+        entrenar_con_datos_actuales()
 
-    #  3) detectar cambios en texto de eventos
-    # construimos un hash simple del contenido relevante
-    texto_concat = (
-        eventos_df["nombre"].astype(str) +
-        eventos_df["categoria"].astype(str) +
-        eventos_df["localizacion"].astype(str) +
-        eventos_df["descripcion"].astype(str)
-    ).str.cat(sep="|")
 
-    nuevo_hash = hash(texto_concat)
-    cambio_texto = nuevo_hash != ultimo_hash_texto
+def aplicar_cambios():
+    """
+    Descarga las páginas de cambios desde version_datos y las aplica:
+      - eventos y tickets nuevos o modificados → se reemplaza la fila
+      - eliminados → se quita la fila (y los tickets de los eventos eliminados)
 
-    #  si hay cualquier cambio importante → reentrenar 
-    if cambio_tickets or cambio_num_eventos or cambio_texto:
-        print("\n[IA] CAMBIO DETECTADO → reentrenando modelos...")
-        entrenar_modelos()
+    Devuelve True si se aplicó algún cambio.
+    """
 
-        ultimo_num_tickets = len(tickets_df)
-        ultimo_num_eventos = len(eventos_df)
-        ultimo_hash_texto = nuevo_hash
+    global eventos, tickets, version_datos
 
-    else:
-        # si no hay cambios, solo actualizar datos
-        usuarios = usuarios_df
-        eventos = eventos_df
-        tickets = tickets_df
+    hubo_cambios = False
+
+    while True:
+        r = requests.get(SPRING_CAMBIOS, params={"desde": version_datos}, timeout=5).json()
+
+        ids_eventos = [e["id"] for e in r["eventos"]] + r["eventosEliminados"]
+        ids_tickets = [t["id"] for t in r["tickets"]] + r["ticketsEliminados"]
+
+        if ids_eventos or ids_tickets:
+            hubo_cambios = True
+
+            eventos = eventos[~eventos["id"].isin(ids_eventos)]
+            if r["eventos"]:
+                eventos = pd.concat([eventos, pd.DataFrame(r["eventos"])], ignore_index=True)
+            eventos = eventos.reset_index(drop=True)
+
+            tickets = tickets[~tickets["id"].isin(ids_tickets)
+                              & ~tickets["evento_id"].isin(r["eventosEliminados"])]
+            if r["tickets"]:
+                nuevos = pd.DataFrame(r["tickets"]).rename(
+                    columns={"usuarioId": "usuario_id", "eventoId": "evento_id"})
+                tickets = pd.concat([tickets, nuevos[["id", "usuario_id", "evento_id"]]], ignore_index=True)
+            tickets = tickets.reset_index(drop=True)
+
+        version_datos = r["hasta"]
+
+        if not r["hayMas"]:
+            return hubo_cambios
 
 
 